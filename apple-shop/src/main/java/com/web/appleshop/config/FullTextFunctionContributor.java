@@ -0,0 +1,34 @@
+package com.web.appleshop.config;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.type.BasicType;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Đăng ký các hàm HQL/Criteria đọc điểm full-text của một sản phẩm từ CONTAINSTABLE, để lọc, sắp xếp theo độ liên
+ * quan và phân trang trong cùng một câu SQL với các bộ lọc khác.
+ * <p>
+ * {@code fulltext_name_rank(p.id, condition)} và {@code fulltext_description_rank(p.id, condition)} trả về RANK của
+ * sản phẩm trong kết quả CONTAINSTABLE, hoặc {@code null} nếu sản phẩm không khớp.
+ * Đăng ký qua META-INF/services/org.hibernate.boot.model.FunctionContributor.
+ */
+public class FullTextFunctionContributor implements FunctionContributor {
+    public static final String NAME_RANK = "fulltext_name_rank";
+    public static final String DESCRIPTION_RANK = "fulltext_description_rank";
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        BasicType<Integer> integerType = functionContributions.getTypeConfiguration()
+                .getBasicTypeRegistry()
+                .resolve(StandardBasicTypes.INTEGER);
+        functionContributions.getFunctionRegistry().registerPattern(
+                NAME_RANK,
+                "(select max(ft.[RANK]) from containstable(products, search_key, ?2, language 1066) ft where ft.[KEY] = ?1)",
+                integerType);
+        functionContributions.getFunctionRegistry().registerPattern(
+                DESCRIPTION_RANK,
+                "(select max(ft.[RANK]) from containstable(products, description, ?2, language 1066) ft where ft.[KEY] = ?1)",
+                integerType);
+    }
+}
@@ -0,0 +1,32 @@
+package com.web.appleshop.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+@Configuration
+public class KafkaTopicConfig {
+    @Value("${flash-sale.partitions:6}")
+    private int flashSalePartitions;
+
+    @Value("${outbox.order-events-partitions:6}")
+    private int orderEventsPartitions;
+
+    @Bean
+    public NewTopic flashSaleCheckoutTopic() {
+        return TopicBuilder.name("flash-sale-checkout")
+                .partitions(flashSalePartitions)
+                .replicas(1)
+                .build();
+    }
+
+    @Bean
+    public NewTopic orderEventsTopic() {
+        return TopicBuilder.name("order-events")
+                .partitions(orderEventsPartitions)
+                .replicas(1)
+                .build();
+    }
+}
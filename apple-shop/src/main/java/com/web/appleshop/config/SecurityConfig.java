@@ -1,6 +1,7 @@
 package com.web.appleshop.config;
 
 import com.web.appleshop.security.CustomAuthExceptionHandler;
+import com.web.appleshop.security.IdempotencyFilter;
 import com.web.appleshop.security.JwtAuthenticationFilter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
@@ -33,6 +34,7 @@ import java.util.List;
 public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final IdempotencyFilter idempotencyFilter;
     private final CustomAuthExceptionHandler customAuthExceptionHandler;
 
     /**
@@ -47,6 +49,7 @@ public class SecurityConfig {
      *     <li>Stateless session management is enforced, suitable for REST APIs.</li>
      *     <li>Custom exception handling for authentication and access denied errors.</li>
      *     <li>The {@link JwtAuthenticationFilter} is added before the standard password authentication filter.</li>
+     *     <li>The {@link IdempotencyFilter} runs right after it so replayed responses are scoped to the authenticated user.</li>
      * </ul>
      *
      * @param http The {@link HttpSecurity} object to configure.
@@ -72,6 +75,8 @@ public class SecurityConfig {
                         .requestMatchers("/webhooks/**").permitAll()
                         .requestMatchers("/reviews/product/**").permitAll()
                         .requestMatchers("/ws-chat/**").permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasAuthority("ROLE_ADMIN")
                         .anyRequest().authenticated()
                 )
                 .formLogin(AbstractHttpConfigurer::disable)
@@ -83,7 +88,8 @@ public class SecurityConfig {
                         .authenticationEntryPoint(customAuthExceptionHandler)
                         .accessDeniedHandler(customAuthExceptionHandler)
                 )
-                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterAfter(idempotencyFilter, JwtAuthenticationFilter.class);
 
         return http.build();
     }
@@ -106,7 +112,7 @@ public class SecurityConfig {
 
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH"));
 
-        configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "Cache-Control"));
+        configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "Cache-Control", IdempotencyFilter.HEADER));
 
         configuration.setAllowCredentials(true);
 
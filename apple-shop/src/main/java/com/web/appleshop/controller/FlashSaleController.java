@@ -0,0 +1,52 @@
+package com.web.appleshop.controller;
+
+import com.web.appleshop.dto.request.FlashSaleCheckoutRequest;
+import com.web.appleshop.dto.response.ApiResponse;
+import com.web.appleshop.dto.response.FlashSaleTicketResponse;
+import com.web.appleshop.enums.PaymentType;
+import com.web.appleshop.service.FlashSaleService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Handles checkout for stocks flagged for a flash sale.
+ * <p>
+ * Requests are queued and allocated asynchronously. The client receives a ticket and polls it
+ * until an order is allocated, then pays for that order through the regular payment endpoints.
+ */
+@RestController
+@RequestMapping("flash-sale")
+@RequiredArgsConstructor
+public class FlashSaleController {
+    private final FlashSaleService flashSaleService;
+
+    /**
+     * Queues a flash-sale checkout request.
+     *
+     * @param paymentType The payment gateway the order will be paid with.
+     * @param request The stock, quantity and shipping information.
+     * @return A {@link ResponseEntity} with the queued {@link FlashSaleTicketResponse}.
+     */
+    @PostMapping("checkout")
+    public ResponseEntity<ApiResponse<FlashSaleTicketResponse>> checkout(
+            @RequestParam(defaultValue = "VNPAY") PaymentType paymentType,
+            @Valid @RequestBody FlashSaleCheckoutRequest request
+    ) {
+        FlashSaleTicketResponse ticket = flashSaleService.enqueueCheckout(request, paymentType);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success(ticket, "Checkout request queued"));
+    }
+
+    /**
+     * Retrieves the allocation result of a flash-sale checkout request.
+     *
+     * @param ticketId The ticket returned when the request was queued.
+     * @return A {@link ResponseEntity} with the current {@link FlashSaleTicketResponse}.
+     */
+    @GetMapping("tickets/{ticketId}")
+    public ResponseEntity<ApiResponse<FlashSaleTicketResponse>> getTicket(@PathVariable String ticketId) {
+        return ResponseEntity.ok(ApiResponse.success(flashSaleService.getTicket(ticketId), "Get ticket successfully"));
+    }
+}
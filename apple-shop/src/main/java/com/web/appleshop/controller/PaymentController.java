@@ -52,7 +52,6 @@ public class PaymentController {
      * @return A {@link ResponseEntity} with the VnPay payment URL.
      */
     @PostMapping("vnpay/create-payment")
-    @Transactional
     public ResponseEntity<ApiResponse<PaymentDto.VnPayResponse>> createPayment(
             HttpServletRequest request,
             @RequestBody UserCreateOrderRequest orderRequest
@@ -152,7 +151,6 @@ public class PaymentController {
      * @return A {@link RedirectView} to the frontend payment result page.
      */
     @GetMapping("vnpay/call-back")
-    @Transactional
     public RedirectView vnpayCallback(
             HttpServletRequest request
     ) {
@@ -243,7 +241,6 @@ public class PaymentController {
      * @return A {@link ResponseEntity} with the PayPal payment details, including the approval link.
      */
     @PostMapping("paypal/create-payment")
-    @Transactional
     public ResponseEntity<ApiResponse<PaymentDto.PayPalResponse>> createPayPalPayment(
             @RequestBody UserCreateOrderRequest orderRequest
     ) {
@@ -356,7 +353,6 @@ public class PaymentController {
      * @return A {@link RedirectView} to the frontend payment result page.
      */
     @GetMapping("paypal/success")
-    @Transactional
     public RedirectView paypalSuccess(
             @RequestParam("paymentId") String paymentId,
             @RequestParam("PayerID") String payerId
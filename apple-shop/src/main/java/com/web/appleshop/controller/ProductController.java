@@ -3,6 +3,8 @@ package com.web.appleshop.controller;
 import com.web.appleshop.dto.request.UserProductSearchCriteria;
 import com.web.appleshop.dto.response.ApiResponse;
 import com.web.appleshop.dto.response.PageableResponse;
+import com.web.appleshop.dto.response.ProductFacetResponse;
+import com.web.appleshop.dto.response.ProductSuggestionResponse;
 import com.web.appleshop.dto.response.ProductUserResponse;
 import com.web.appleshop.service.ProductSearchService;
 import com.web.appleshop.service.ProductService;
@@ -62,6 +64,7 @@ public class ProductController {
      * Retrieves a paginated list of top-selling products for a specific category.
      *
      * @param categoryId The ID of the category.
+     * @param days Only count sales from the last given days, e.g. 7 or 30 (optional, defaults to all time).
      * @param page The page number to retrieve (optional, defaults to 0).
      * @param size The number of products per page (optional, defaults to 6).
      * @return A {@link ResponseEntity} containing a paginated list of top-selling {@link ProductUserResponse}.
@@ -69,11 +72,12 @@ public class ProductController {
     @GetMapping("{categoryId}/top_selling")
     public ResponseEntity<ApiResponse<List<ProductUserResponse>>> getTopSellingProducts(
             @PathVariable Integer categoryId,
+            @RequestParam(required = false) Integer days,
             @RequestParam(required = false) Integer page,
             @RequestParam(required = false) Integer size
     ) {
         Pageable pageable = Pageable.ofSize(size != null ? size : 6).withPage(page != null ? page : 0);
-        Page<ProductUserResponse> productUserResponsePage = productService.getTopProductsByCategoryIdForUser(categoryId, pageable);
+        Page<ProductUserResponse> productUserResponsePage = productService.getTopProductsByCategoryIdForUser(categoryId, days, pageable);
         PageableResponse pageableResponse = new PageableResponse(
                 productUserResponsePage.getNumber(),
                 productUserResponsePage.getSize(),
@@ -120,4 +124,39 @@ public class ProductController {
         );
         return ResponseEntity.ok(ApiResponse.success(productsPage.getContent(), "Search products successfully", pageableResponse));
     }
+
+    /**
+     * Counts the facet values available for a search: categories, features, colors,
+     * instance properties and price buckets.
+     * <p>
+     * The counts of each facet group ignore that group's own selection, so they show how many
+     * products another value of the same group would add.
+     *
+     * @param criteria The search criteria.
+     * @return A {@link ResponseEntity} containing the {@link ProductFacetResponse}.
+     */
+    @PostMapping("search/facets")
+    public ResponseEntity<ApiResponse<ProductFacetResponse>> getSearchFacets(@RequestBody UserProductSearchCriteria criteria) {
+        ProductFacetResponse facets = productSearchService.getFacetsForUser(criteria);
+        return ResponseEntity.ok(ApiResponse.success(facets, "Get search facets successfully"));
+    }
+
+    /**
+     * Suggests product, category and color names matching what the user has typed so far.
+     * <p>
+     * Matching ignores Vietnamese diacritics and works on the start of any word of a name.
+     * Suggestions are served from memory and ranked by units sold.
+     *
+     * @param q The text typed so far.
+     * @param limit The maximum number of suggestions (optional, defaults to 8).
+     * @return A {@link ResponseEntity} containing a list of {@link ProductSuggestionResponse}.
+     */
+    @GetMapping("suggest")
+    public ResponseEntity<ApiResponse<List<ProductSuggestionResponse>>> suggest(
+            @RequestParam String q,
+            @RequestParam(required = false, defaultValue = "8") Integer limit
+    ) {
+        List<ProductSuggestionResponse> suggestions = productSearchService.suggest(q, limit);
+        return ResponseEntity.ok(ApiResponse.success(suggestions, "Get suggestions successfully"));
+    }
 }
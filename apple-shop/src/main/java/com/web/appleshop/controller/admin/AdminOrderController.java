@@ -5,6 +5,7 @@ import com.web.appleshop.dto.request.AdminCreateOrderRequest;
 import com.web.appleshop.dto.request.AdminOrderSearchCriteria;
 import com.web.appleshop.dto.response.ApiResponse;
 import com.web.appleshop.dto.response.PageableResponse;
+import com.web.appleshop.dto.response.admin.AdminOrderImportResponse;
 import com.web.appleshop.dto.response.admin.OrderAdminResponse;
 import com.web.appleshop.dto.response.admin.OrderSummaryV2Dto;
 import com.web.appleshop.enums.OrderStatus;
@@ -130,15 +131,17 @@ public class AdminOrderController {
     }
 
     /**
-     * Creates a new order from the admin panel.
+     * Imports orders in bulk from the admin panel.
+     * <p>
+     * Invalid rows are skipped and reported instead of failing the whole import.
      *
      * @param orderRequests An array of order creation requests.
-     * @return A {@link ResponseEntity} with a success message.
+     * @return A {@link ResponseEntity} with an {@link AdminOrderImportResponse} describing the result of each row.
      */
     @PostMapping
-    public ResponseEntity<ApiResponse<String>> createOrder(@Valid @RequestBody AdminCreateOrderRequest[] orderRequests) {
-        orderService.createOrder(orderRequests);
-        return ResponseEntity.ok(ApiResponse.success(null, "Create order successfully"));
+    public ResponseEntity<ApiResponse<AdminOrderImportResponse>> createOrder(@Valid @RequestBody AdminCreateOrderRequest[] orderRequests) {
+        AdminOrderImportResponse report = orderService.createOrder(orderRequests);
+        return ResponseEntity.ok(ApiResponse.success(report, "Create order successfully"));
     }
 
     /**
@@ -6,6 +6,7 @@ import com.web.appleshop.dto.response.PageableResponse;
 import com.web.appleshop.dto.response.admin.ProductAdminListDto;
 import com.web.appleshop.dto.response.admin.ProductAdminResponse;
 import com.web.appleshop.entity.User;
+import com.web.appleshop.service.FlashSaleService;
 import com.web.appleshop.service.ProductSearchService;
 import com.web.appleshop.service.ProductService;
 import lombok.RequiredArgsConstructor;
@@ -36,6 +37,7 @@ public class AdminProductController {
 
     private final ProductService productService;
     private final ProductSearchService productSearchService;
+    private final FlashSaleService flashSaleService;
 
     /**
      * Creates a new product with its details and associated images.
@@ -224,4 +226,19 @@ public class AdminProductController {
         );
         return ResponseEntity.ok(ApiResponse.success(productsPage.getContent(), "Get selling by color successfully", pageableResponse));
     }
+
+    /**
+     * Enables or disables flash-sale checkout for a stock.
+     * <p>
+     * While enabled, the stock can only be bought through the flash-sale queue.
+     *
+     * @param stockId The ID of the stock.
+     * @param enabled Whether the stock is part of a flash sale.
+     * @return A {@link ResponseEntity} with a success message.
+     */
+    @PatchMapping("stocks/{stockId}/flash-sale")
+    public ResponseEntity<ApiResponse<String>> setFlashSale(@PathVariable Integer stockId, @RequestParam boolean enabled) {
+        flashSaleService.setFlashSale(stockId, enabled);
+        return ResponseEntity.ok(ApiResponse.success(null, "Flash sale updated successfully"));
+    }
 }
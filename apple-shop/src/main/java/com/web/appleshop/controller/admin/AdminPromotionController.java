@@ -1,18 +1,23 @@
 package com.web.appleshop.controller.admin;
 
 import com.web.appleshop.dto.request.CreatePromotionRequest;
+import com.web.appleshop.dto.request.GeneratePromotionCodesRequest;
 import com.web.appleshop.dto.request.PromotionSearchRequest;
 import com.web.appleshop.dto.request.UpdatePromotionRequest;
 import com.web.appleshop.dto.response.ApiResponse;
 import com.web.appleshop.dto.response.PageableResponse;
 import com.web.appleshop.dto.response.admin.AdminPromotionDto;
+import com.web.appleshop.dto.response.admin.GeneratePromotionCodesResponse;
 import com.web.appleshop.service.PromotionService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -121,6 +126,38 @@ public class AdminPromotionController {
         return ResponseEntity.ok(ApiResponse.success(null, "Promotion deleted successfully"));
     }
 
+    /**
+     * Generates single-use codes that copy the discount rules of a template promotion.
+     *
+     * @param id The ID of the template promotion.
+     * @param request The number of codes to generate and their format.
+     * @return A {@link ResponseEntity} with how many codes were generated.
+     */
+    @PostMapping("/{id}/codes")
+    public ResponseEntity<ApiResponse<GeneratePromotionCodesResponse>> generatePromotionCodes(
+            @PathVariable Integer id,
+            @Valid @RequestBody GeneratePromotionCodesRequest request) {
+        GeneratePromotionCodesResponse response = promotionService.generatePromotionCodes(id, request);
+        return ResponseEntity.ok(ApiResponse.success(response, "Generate promotion codes successfully"));
+    }
+
+    /**
+     * Downloads the codes generated from a template promotion as a plain text file, one code per line.
+     * <p>
+     * The codes are streamed from the database, so large campaigns are not loaded into memory.
+     *
+     * @param id The ID of the template promotion.
+     * @return A {@link ResponseEntity} streaming the generated codes.
+     */
+    @GetMapping("/{id}/codes/export")
+    public ResponseEntity<StreamingResponseBody> exportPromotionCodes(@PathVariable Integer id) {
+        StreamingResponseBody body = promotionService.exportGeneratedCodes(id);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"promotion-" + id + "-codes.txt\"")
+                .contentType(MediaType.TEXT_PLAIN)
+                .body(body);
+    }
+
     /**
      * Toggles the active/inactive status of a promotion.
      *
@@ -0,0 +1,27 @@
+package com.web.appleshop.dto;
+
+import com.web.appleshop.enums.PaymentType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlashSaleCheckoutMessage {
+    String ticketId;
+    Integer userId;
+    Integer stockId;
+    Integer quantity;
+    PaymentType paymentType;
+    String firstName;
+    String lastName;
+    String email;
+    String phone;
+    String address;
+    String ward;
+    String district;
+    String province;
+}
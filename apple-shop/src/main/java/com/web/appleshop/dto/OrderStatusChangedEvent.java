@@ -0,0 +1,21 @@
+package com.web.appleshop.dto;
+
+import com.web.appleshop.enums.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusChangedEvent {
+    Integer orderId;
+    Integer userId;
+    OrderStatus oldStatus;
+    OrderStatus newStatus;
+    LocalDateTime occurredAt;
+}
@@ -35,6 +35,9 @@ public class CreatePromotionRequest {
     @Min(value = 1, message = "Usage limit must be at least 1")
     private Integer usageLimit;
 
+    @Min(value = 1, message = "Usage limit per user must be at least 1")
+    private Integer usageLimitPerUser;
+
     @NotNull(message = "Is active is required")
     private Boolean isActive;
 
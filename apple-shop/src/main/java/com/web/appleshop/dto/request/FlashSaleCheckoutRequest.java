@@ -0,0 +1,47 @@
+package com.web.appleshop.dto.request;
+
+import jakarta.validation.constraints.*;
+import lombok.Data;
+
+@Data
+public class FlashSaleCheckoutRequest {
+    @NotNull(message = "Phiên bản sản phẩm không được để trống")
+    private Integer stockId;
+
+    @NotNull(message = "Số lượng không được để trống")
+    @Min(value = 1, message = "Số lượng phải lớn hơn 0")
+    @Max(value = 10, message = "Bạn chỉ có thể mua tối đa 10 sản phẩm")
+    private Integer quantity;
+
+    @NotBlank(message = "Họ không được để trống")
+    @Size(max = 55, message = "Họ không được vượt quá 55 ký tự")
+    private String firstName;
+
+    @NotBlank(message = "Tên không được để trống")
+    @Size(max = 55, message = "Tên không được vượt quá 55 ký tự")
+    private String lastName;
+
+    @Email(message = "Email không hợp lệ")
+    @NotBlank(message = "Email không được để trống")
+    private String email;
+
+    @NotBlank(message = "Số điện thoại không được để trống")
+    @Pattern(regexp = "^[0-9]{10,11}$", message = "Số điện thoại phải có 10-11 chữ số")
+    private String phone;
+
+    @NotBlank(message = "Địa chỉ không được để trống")
+    @Size(max = 500, message = "Địa chỉ không được vượt quá 500 ký tự")
+    private String address;
+
+    @NotBlank(message = "Phường/Xã không được để trống")
+    @Size(max = 100, message = "Phường/Xã không được vượt quá 100 ký tự")
+    private String ward;
+
+    @NotBlank(message = "Quận/Huyện không được để trống")
+    @Size(max = 100, message = "Quận/Huyện không được vượt quá 100 ký tự")
+    private String district;
+
+    @NotBlank(message = "Tỉnh/Thành phố không được để trống")
+    @Size(max = 100, message = "Tỉnh/Thành phố không được vượt quá 100 ký tự")
+    private String province;
+}
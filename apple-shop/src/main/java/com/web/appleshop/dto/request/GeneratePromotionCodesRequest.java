@@ -0,0 +1,24 @@
+package com.web.appleshop.dto.request;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+@Data
+public class GeneratePromotionCodesRequest {
+    @NotNull(message = "Quantity is required")
+    @Min(value = 1, message = "Quantity must be at least 1")
+    @Max(value = 500000, message = "Quantity must not exceed 500000")
+    private Integer quantity;
+
+    @Size(max = 20, message = "Prefix must not exceed 20 characters")
+    @Pattern(regexp = "^[A-Z0-9_]*$", message = "Prefix must contain only uppercase letters, numbers, and underscores")
+    private String prefix;
+
+    @Min(value = 8, message = "Random part length must be at least 8")
+    @Max(value = 20, message = "Random part length must not exceed 20")
+    private Integer randomLength;
+}
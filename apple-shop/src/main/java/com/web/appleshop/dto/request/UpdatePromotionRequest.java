@@ -40,6 +40,9 @@ public class UpdatePromotionRequest {
     @Min(value = 1, message = "Usage limit must be at least 1")
     private Integer usageLimit;
 
+    @Min(value = 1, message = "Usage limit per user must be at least 1")
+    private Integer usageLimitPerUser;
+
     @NotNull(message = "Start date is required")
     private LocalDateTime startDate;
 
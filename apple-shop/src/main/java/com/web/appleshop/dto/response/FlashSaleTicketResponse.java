@@ -0,0 +1,17 @@
+package com.web.appleshop.dto.response;
+
+import com.web.appleshop.enums.FlashSaleTicketStatus;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class FlashSaleTicketResponse {
+    String ticketId;
+    FlashSaleTicketStatus status;
+    Integer orderId;
+    String message;
+}
@@ -0,0 +1,43 @@
+package com.web.appleshop.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ProductFacetResponse {
+    long totalProducts;
+    List<FacetValue> categories;
+    List<FacetValue> features;
+    List<FacetValue> colors;
+    List<FacetValue> instanceProperties;
+    List<PriceBucket> priceBuckets;
+    // true khi số sản phẩm khớp từ khoá vượt product.search.full-text.max-results và số đếm chỉ tính trên phần đầu
+    boolean fullTextTruncated;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class FacetValue {
+        Integer id;
+        String name;
+        int count;
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class PriceBucket {
+        BigDecimal minPrice;
+        BigDecimal maxPrice;
+        int count;
+    }
+}
@@ -0,0 +1,16 @@
+package com.web.appleshop.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ProductSuggestionResponse {
+    String type; // PRODUCT, CATEGORY, COLOR
+    Integer id;
+    String name;
+    Integer categoryId;
+}
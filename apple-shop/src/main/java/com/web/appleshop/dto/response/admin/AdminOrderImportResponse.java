@@ -0,0 +1,27 @@
+package com.web.appleshop.dto.response.admin;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class AdminOrderImportResponse {
+    int total;
+
+    int succeeded;
+
+    int failed;
+
+    List<RowResult> rows;
+
+    @Data
+    @AllArgsConstructor
+    public static class RowResult {
+        int index;
+        boolean success;
+        Integer orderId;
+        String message;
+    }
+}
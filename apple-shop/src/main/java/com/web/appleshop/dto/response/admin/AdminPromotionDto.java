@@ -25,6 +25,7 @@ public class AdminPromotionDto {
     private BigDecimal maxDiscountAmount;
     private BigDecimal minOrderValue;
     private Integer usageLimit;
+    private Integer usageLimitPerUser;
     private Integer usageCount;
     private Boolean isActive;
     private LocalDateTime startDate;
@@ -0,0 +1,14 @@
+package com.web.appleshop.dto.response.admin;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class GeneratePromotionCodesResponse {
+    Integer templateId;
+
+    int requested;
+
+    int generated;
+}
@@ -45,4 +45,5 @@ public class OrderAdminResponse implements Serializable {
     BigDecimal vat;
     Set<OrderUserResponse.OrderDetailDto> orderDetails;
     String shippingTrackingCode;
+    Boolean stockShortage;
 }
\ No newline at end of file
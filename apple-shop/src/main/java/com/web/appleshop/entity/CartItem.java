@@ -15,7 +15,8 @@ import org.hibernate.annotations.Nationalized;
 @DynamicInsert
 public class CartItem {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_item_seq")
+    @SequenceGenerator(name = "cart_item_seq", sequenceName = "cart_item_seq", allocationSize = 50)
     @Column(name = "id", nullable = false)
     private Integer id;
 
@@ -1,5 +1,6 @@
 package com.web.appleshop.entity;
 
+import com.web.appleshop.util.SearchKeyUtils;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Size;
 import lombok.*;
@@ -27,6 +28,11 @@ public class Category {
     @Column(name = "name", nullable = false, length = 100)
     private String name;
 
+    @Setter(AccessLevel.NONE)
+    @Nationalized
+    @Column(name = "search_key", length = 100)
+    private String searchKey;
+
     @Nationalized
     @Lob
     @Column(name = "image")
@@ -40,4 +46,9 @@ public class Category {
     @Column(name = "description")
     private String description;
 
-}
\ No newline at end of file
+    @PrePersist
+    @PreUpdate
+    void updateSearchKey() {
+        searchKey = SearchKeyUtils.fold(name);
+    }
+}
@@ -1,5 +1,6 @@
 package com.web.appleshop.entity;
 
+import com.web.appleshop.util.SearchKeyUtils;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.DynamicInsert;
@@ -26,6 +27,11 @@ public class Color {
     @Column(name = "name", nullable = false, length = 50)
     private String name;
 
+    @Setter(AccessLevel.NONE)
+    @Nationalized
+    @Column(name = "search_key", length = 50)
+    private String searchKey;
+
     @Column(name = "hex_code", length = 7)
     private String hexCode;
 
@@ -36,4 +42,9 @@ public class Color {
     })
     private Set<Stock> stocks = new LinkedHashSet<>();
 
-}
\ No newline at end of file
+    @PrePersist
+    @PreUpdate
+    void updateSearchKey() {
+        searchKey = SearchKeyUtils.fold(name);
+    }
+}
@@ -1,5 +1,6 @@
 package com.web.appleshop.entity;
 
+import com.web.appleshop.util.SearchKeyUtils;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.ColumnDefault;
@@ -28,6 +29,11 @@ public class Feature {
     @Column(name = "name", nullable = false, length = 100)
     private String name;
 
+    @Setter(AccessLevel.NONE)
+    @Nationalized
+    @Column(name = "search_key", length = 100)
+    private String searchKey;
+
     @Nationalized
     @Column(name = "description", length = 500)
     private String description;
@@ -65,4 +71,9 @@ public class Feature {
         product.getFeatures().remove(this);
     }
 
-}
\ No newline at end of file
+    @PrePersist
+    @PreUpdate
+    void updateSearchKey() {
+        searchKey = SearchKeyUtils.fold(name);
+    }
+}
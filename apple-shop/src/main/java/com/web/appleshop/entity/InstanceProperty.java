@@ -1,5 +1,6 @@
 package com.web.appleshop.entity;
 
+import com.web.appleshop.util.SearchKeyUtils;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.ColumnDefault;
@@ -26,6 +27,11 @@ public class InstanceProperty {
     @Column(name = "name", nullable = false)
     private String name;
 
+    @Setter(AccessLevel.NONE)
+    @Nationalized
+    @Column(name = "search_key")
+    private String searchKey;
+
     @ColumnDefault("getdate()")
     @Column(name = "created_at")
     private LocalDateTime createdAt;
@@ -41,4 +47,9 @@ public class InstanceProperty {
     }, fetch = FetchType.LAZY)
     private Set<Stock> stocks = new LinkedHashSet<>();
 
-}
\ No newline at end of file
+    @PrePersist
+    @PreUpdate
+    void updateSearchKey() {
+        searchKey = SearchKeyUtils.fold(name);
+    }
+}
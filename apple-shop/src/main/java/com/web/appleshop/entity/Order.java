@@ -20,7 +20,8 @@ import java.util.Set;
 @Table(name = "\"orders\"")
 public class Order {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_seq")
+    @SequenceGenerator(name = "order_seq", sequenceName = "order_seq", allocationSize = 50)
     @Column(name = "Id", nullable = false)
     private Integer id;
 
@@ -123,4 +124,20 @@ public class Order {
     @Column(name = "vat", precision = 18, scale = 2)
     private BigDecimal vat;
 
+    @Column(name = "reservation_expires_at")
+    private LocalDateTime reservationExpiresAt;
+
+    @ColumnDefault("0")
+    @Column(name = "stock_shortage", nullable = false)
+    private Boolean stockShortage = false;
+
+    // Mã yêu cầu flash sale đã tạo ra đơn này; unique để một yêu cầu giao lại từ Kafka không tạo thêm đơn.
+    @Column(name = "flash_sale_ticket_id", length = 36)
+    private String flashSaleTicketId;
+
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version;
+
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.web.appleshop.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+/**
+ * Số đơn, doanh thu và số sản phẩm của các đơn tạo trong một ngày theo trạng thái hiện tại của đơn.
+ * Cùng với category_daily_sales, color_daily_sales, customer_daily_stats được ghi bởi OrderDailyStatsRepository.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "order_daily_stats")
+public class OrderDailyStats {
+    @EmbeddedId
+    private OrderDailyStatsId id;
+
+    @Column(name = "order_count", nullable = false)
+    private Integer orderCount;
+
+    @Column(name = "revenue", nullable = false, precision = 18, scale = 2)
+    private BigDecimal revenue;
+
+    @Column(name = "products_sold", nullable = false)
+    private Integer productsSold;
+
+}
@@ -0,0 +1,42 @@
+package com.web.appleshop.entity;
+
+import com.web.appleshop.enums.OrderStatus;
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.Hibernate;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+@Getter
+@Setter
+@Embeddable
+public class OrderDailyStatsId implements Serializable {
+    private static final long serialVersionUID = -6170346025118849372L;
+    @Column(name = "stats_date", nullable = false)
+    private LocalDate statsDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 55)
+    private OrderStatus status;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || Hibernate.getClass(this) != Hibernate.getClass(o)) return false;
+        OrderDailyStatsId entity = (OrderDailyStatsId) o;
+        return Objects.equals(this.statsDate, entity.statsDate) &&
+                Objects.equals(this.status, entity.status);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(statsDate, status);
+    }
+
+}
@@ -21,7 +21,8 @@ import java.util.Set;
 @DynamicInsert
 public class OrderDetail {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_detail_seq")
+    @SequenceGenerator(name = "order_detail_seq", sequenceName = "order_detail_seq", allocationSize = 50)
     @Column(name = "id", nullable = false)
     private Integer id;
 
@@ -1,12 +1,15 @@
 package com.web.appleshop.entity;
 
+import com.web.appleshop.util.SearchKeyUtils;
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.DynamicInsert;
 import org.hibernate.annotations.Nationalized;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.LinkedHashSet;
 import java.util.Set;
@@ -26,6 +29,11 @@ public class Product {
     @Column(name = "name", nullable = false)
     private String name;
 
+    @Setter(AccessLevel.NONE)
+    @Nationalized
+    @Column(name = "search_key")
+    private String searchKey;
+
     @Nationalized
     @Lob
     @Column(name = "description")
@@ -63,9 +71,25 @@ public class Product {
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<SavedProduct> savedProducts = new LinkedHashSet<>();
 
-    @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
+    // LAZY: mỗi use case tự khai báo cần nạp stocks qua @EntityGraph trong ProductRepository.
+    @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<Stock> stocks = new LinkedHashSet<>();
 
+    // Các cột tổng hợp từ stocks, chỉ được tính lại bằng StockRepository.refreshProductSummaries.
+    @Column(name = "min_price", precision = 18, scale = 2, insertable = false, updatable = false)
+    private BigDecimal minPrice;
+
+    @Column(name = "max_price", precision = 18, scale = 2, insertable = false, updatable = false)
+    private BigDecimal maxPrice;
+
+    @ColumnDefault("0")
+    @Column(name = "total_quantity", nullable = false, insertable = false, updatable = false)
+    private Integer totalQuantity;
+
+    @ColumnDefault("0")
+    @Column(name = "in_stock", nullable = false, insertable = false, updatable = false)
+    private Boolean inStock;
+
     @ColumnDefault("0")
     @Column(name = "is_deleted")
     private Boolean isDeleted;
@@ -79,4 +103,10 @@ public class Product {
         this.features.remove(feature);
         feature.getProducts().remove(this);
     }
-}
\ No newline at end of file
+
+    @PrePersist
+    @PreUpdate
+    void updateSearchKey() {
+        searchKey = SearchKeyUtils.fold(name);
+    }
+}
@@ -0,0 +1,22 @@
+package com.web.appleshop.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Số lượng đã bán của một sản phẩm trong một danh mục theo ngày đặt đơn. Chỉ tính đơn đã giao
+ * (kể cả đang yêu cầu trả hàng); được cộng/trừ bằng ProductSalesRollupRepository.addQuantities khi đơn đổi trạng thái.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "product_sales_rollup")
+public class ProductSalesRollup {
+    @EmbeddedId
+    private ProductSalesRollupId id;
+
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity;
+
+}
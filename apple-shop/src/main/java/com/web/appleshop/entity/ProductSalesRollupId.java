@@ -0,0 +1,42 @@
+package com.web.appleshop.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.Hibernate;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+@Getter
+@Setter
+@Embeddable
+public class ProductSalesRollupId implements Serializable {
+    private static final long serialVersionUID = 3127840261958143510L;
+    @Column(name = "product_id", nullable = false)
+    private Integer productId;
+
+    @Column(name = "category_id", nullable = false)
+    private Integer categoryId;
+
+    @Column(name = "sales_date", nullable = false)
+    private LocalDate salesDate;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || Hibernate.getClass(this) != Hibernate.getClass(o)) return false;
+        ProductSalesRollupId entity = (ProductSalesRollupId) o;
+        return Objects.equals(this.productId, entity.productId) &&
+                Objects.equals(this.categoryId, entity.categoryId) &&
+                Objects.equals(this.salesDate, entity.salesDate);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(productId, categoryId, salesDate);
+    }
+
+}
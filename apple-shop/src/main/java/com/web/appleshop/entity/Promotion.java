@@ -48,6 +48,9 @@ public class Promotion {
     @Column(name = "usage_limit", nullable = false)
     private Integer usageLimit;
 
+    @Column(name = "usage_limit_per_user")
+    private Integer usageLimitPerUser;
+
     @ColumnDefault("0")
     @Column(name = "usage_count")
     private Integer usageCount;
@@ -56,6 +59,11 @@ public class Promotion {
     @Column(name = "is_active")
     private Boolean isActive;
 
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     @Column(name = "start_date", nullable = false)
     private LocalDateTime startDate;
 
@@ -70,6 +78,10 @@ public class Promotion {
     @JoinColumn(name = "created_by")
     private User createdBy;
 
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "template_id")
+    private Promotion template;
+
     @OneToMany(mappedBy = "productPromotion")
     private Set<Order> orders_product_promotion = new LinkedHashSet<>();
 
@@ -36,6 +36,15 @@ public class Stock {
     @Column(name = "price", nullable = false, precision = 18, scale = 2)
     private BigDecimal price;
 
+    @ColumnDefault("0")
+    @Column(name = "is_flash_sale")
+    private Boolean isFlashSale;
+
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     @OneToMany(mappedBy = "stock", cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<ProductPhoto> productPhotos = new LinkedHashSet<>();
 
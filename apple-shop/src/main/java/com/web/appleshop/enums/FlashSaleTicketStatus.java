@@ -0,0 +1,9 @@
+package com.web.appleshop.enums;
+
+public enum FlashSaleTicketStatus {
+    QUEUED,
+    ALLOCATED,
+    REJECTED,
+    // Không gửi được yêu cầu vào hàng đợi, người dùng có thể gửi lại
+    FAILED
+}
@@ -2,9 +2,11 @@ package com.web.appleshop.exception;
 
 import com.web.appleshop.dto.response.ApiResponse;
 import com.web.appleshop.dto.response.ValidationErrorDetail;
+import jakarta.persistence.OptimisticLockException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -53,6 +55,29 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(response, HttpStatus.FORBIDDEN);
     }
 
+    @ExceptionHandler(ConflictException.class)
+    public ResponseEntity<ApiResponse<Object>> handleConflictException(
+            ConflictException e
+    ) {
+        log.error("Conflict: {}", e.getMessage());
+
+        ApiResponse<Object> response = ApiResponse.error(String.valueOf(HttpStatus.CONFLICT.value()), e.getMessage());
+
+        return new ResponseEntity<>(response, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler({OptimisticLockingFailureException.class, OptimisticLockException.class})
+    public ResponseEntity<ApiResponse<Object>> handleOptimisticLockingFailure(
+            RuntimeException e
+    ) {
+        log.warn("Optimistic lock conflict: {}", e.getMessage());
+
+        ApiResponse<Object> response = ApiResponse.error(String.valueOf(HttpStatus.CONFLICT.value()),
+                "Dữ liệu đang được cập nhật bởi yêu cầu khác. Vui lòng thử lại.");
+
+        return new ResponseEntity<>(response, HttpStatus.CONFLICT);
+    }
+
     @ExceptionHandler(IllegalStateException.class)
     public ResponseEntity<ApiResponse<Object>> handleIllegalStateException(
             IllegalStateException e
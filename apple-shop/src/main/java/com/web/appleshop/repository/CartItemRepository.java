@@ -3,8 +3,11 @@ package com.web.appleshop.repository;
 import com.web.appleshop.entity.CartItem;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
@@ -19,4 +22,13 @@ public interface CartItemRepository extends JpaRepository<CartItem, Integer> , J
     Page<CartItem> findCartItemsByUserId(Integer userId, Pageable pageable);
 
     List<CartItem> findCartItemsByUserId(Integer userId);
+
+    /**
+     * Lấy giỏ hàng kèm sản phẩm, phiên bản, màu và thuộc tính trong một câu truy vấn, tránh lazy load từng dòng khi thanh toán.
+     * Chỉ join một collection để số dòng trả về bằng số dòng giỏ hàng nhân số thuộc tính; ảnh được nạp riêng bằng
+     * {@link StockRepository#findStocksWithPhotosByIdIn}.
+     */
+    @EntityGraph(attributePaths = {"product", "stock", "stock.color", "stock.instanceProperties"})
+    @Query("select ci from CartItem ci where ci.user.id = :userId")
+    List<CartItem> findCheckoutItemsByUserId(@Param("userId") Integer userId);
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.web.appleshop.repository;
+
+import com.web.appleshop.enums.OrderStatus;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface CategoryRepositoryCustom {
+    /**
+     * Lấy tối đa {@code limit} sản phẩm chưa xoá của mỗi danh mục bằng ROW_NUMBER() theo từng danh mục,
+     * nên chỉ các dòng được hiển thị mới rời khỏi DB. Danh mục không còn sản phẩm nào sẽ không có trong kết quả.
+     * Kết quả sắp xếp theo id danh mục rồi theo thứ hạng sản phẩm trong danh mục.
+     *
+     * @param unsoldStatuses trạng thái đơn hàng không tính là đã bán, chỉ dùng khi sắp xếp {@link TopProductOrder#BEST_SELLING}
+     */
+    List<CategoryTopProductRow> findTopProductsPerCategory(int limit, TopProductOrder order, Collection<OrderStatus> unsoldStatuses);
+
+    record CategoryTopProductRow(Integer categoryId,
+                                 String categoryName,
+                                 String categoryDescription,
+                                 String categoryImage,
+                                 Integer productId,
+                                 String productName) {
+    }
+
+    enum TopProductOrder {
+        NEWEST,
+        BEST_SELLING
+    }
+}
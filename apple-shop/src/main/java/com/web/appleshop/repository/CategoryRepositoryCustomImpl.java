@@ -0,0 +1,56 @@
+package com.web.appleshop.repository;
+
+import com.web.appleshop.enums.OrderStatus;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+
+import java.util.Collection;
+import java.util.List;
+
+class CategoryRepositoryCustomImpl implements CategoryRepositoryCustom {
+    private final EntityManager entityManager;
+
+    CategoryRepositoryCustomImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<CategoryTopProductRow> findTopProductsPerCategory(int limit, TopProductOrder order, Collection<OrderStatus> unsoldStatuses) {
+        if (limit <= 0) {
+            return List.of();
+        }
+
+        boolean bestSelling = order == TopProductOrder.BEST_SELLING && !unsoldStatuses.isEmpty();
+        String sold = bestSelling
+                ? "left join (select od.product_id, sum(od.quantity) as total_sold from order_details od " +
+                "join orders o on o.id = od.order_id where o.status not in (:unsoldStatuses) " +
+                "group by od.product_id) sold on sold.product_id = p.id "
+                : "";
+        String ranking = bestSelling
+                ? "coalesce(sold.total_sold, 0) desc, p.created_at desc, p.id desc"
+                : "p.created_at desc, p.id desc";
+        // Lọc is_deleted và xếp hạng trên products trước khi join danh mục để dùng được IX_products_category_created_at.
+        String sql = "select c.id, c.name, c.description, c.image, ranked.id as product_id, ranked.name as product_name " +
+                "from (select p.id, p.name, p.category_id, row_number() over (partition by p.category_id order by " + ranking + ") as rn " +
+                "from products p " + sold +
+                "where p.is_deleted = 0 and p.category_id is not null) ranked " +
+                "join categories c on c.id = ranked.category_id " +
+                "where ranked.rn <= :limit " +
+                "order by c.id, ranked.rn";
+
+        Query query = entityManager.createNativeQuery(sql).setParameter("limit", limit);
+        if (bestSelling) {
+            query.setParameter("unsoldStatuses", unsoldStatuses.stream().map(OrderStatus::name).toList());
+        }
+        List<Object[]> rows = query.getResultList();
+        return rows.stream()
+                .map(row -> new CategoryTopProductRow(
+                        ((Number) row[0]).intValue(),
+                        (String) row[1],
+                        (String) row[2],
+                        (String) row[3],
+                        ((Number) row[4]).intValue(),
+                        (String) row[5]))
+                .toList();
+    }
+}
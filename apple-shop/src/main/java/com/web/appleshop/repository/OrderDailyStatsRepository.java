@@ -0,0 +1,8 @@
+package com.web.appleshop.repository;
+
+import com.web.appleshop.entity.OrderDailyStats;
+import com.web.appleshop.entity.OrderDailyStatsId;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface OrderDailyStatsRepository extends JpaRepository<OrderDailyStats, OrderDailyStatsId>, OrderDailyStatsRepositoryCustom {
+}
@@ -0,0 +1,110 @@
+package com.web.appleshop.repository;
+
+import com.web.appleshop.enums.OrderStatus;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Thống kê đơn hàng cho trang quản trị. Các ngày trọn vẹn đã được dựng lại được đọc từ các bảng tổng hợp theo ngày
+ * (order_daily_stats, category_daily_sales, color_daily_sales, customer_daily_stats); phần lẻ đầu/cuối khoảng
+ * và hôm nay được đọc thẳng từ orders, order_details. Mọi thống kê tính theo ngày tạo đơn và trạng thái hiện tại của đơn.
+ */
+public interface OrderDailyStatsRepositoryCustom {
+    /**
+     * @param status {@code null} là mọi trạng thái.
+     */
+    BigDecimal sumRevenue(StatisticsPeriod period, OrderStatus status);
+
+    /**
+     * @param status {@code null} là mọi trạng thái.
+     */
+    Long countOrders(StatisticsPeriod period, OrderStatus status);
+
+    Long sumProductsSold(StatisticsPeriod period, OrderStatus status);
+
+    /**
+     * Các dòng gồm {@code categoryId}, {@code totalSold}, sắp xếp theo số lượng bán giảm dần.
+     */
+    Page<Map<String, Object>> getSalesByCategory(StatisticsPeriod period, OrderStatus status, Pageable pageable);
+
+    /**
+     * Các dòng gồm {@code colorId}, {@code totalSold}, sắp xếp theo số lượng bán giảm dần.
+     */
+    Page<Map<String, Object>> getSalesByColor(StatisticsPeriod period, OrderStatus status, Pageable pageable);
+
+    /**
+     * Các dòng gồm {@code userId}, {@code firstName}, {@code lastName}, {@code totalSpent}, sắp xếp theo tổng chi tiêu giảm dần.
+     */
+    Page<Map<String, Object>> getTopCustomersByPrice(StatisticsPeriod period, OrderStatus status, Pageable pageable);
+
+    /**
+     * Các dòng gồm {@code userId}, {@code firstName}, {@code lastName}, {@code orderCount}, sắp xếp theo số đơn giảm dần.
+     */
+    Page<Map<String, Object>> getTopCustomersByOrderCount(StatisticsPeriod period, OrderStatus status, Pageable pageable);
+
+    /**
+     * Tính lại toàn bộ các bảng tổng hợp cho các ngày từ {@code fromDate} tới {@code toDate} từ bảng gốc.
+     */
+    void rebuildDailyStats(LocalDate fromDate, LocalDate toDate);
+
+    /**
+     * Khoảng thống kê đã tách thành các ngày đọc từ bảng tổng hợp ({@code rollupFrom..rollupTo}, có thể không có)
+     * và các khoảng thời gian đọc thẳng từ bảng gốc.
+     */
+    record StatisticsPeriod(LocalDate rollupFrom, LocalDate rollupTo, List<TimeRange> rawRanges) {
+        /**
+         * @param from        thời điểm bắt đầu (bao gồm).
+         * @param to          thời điểm kết thúc (bao gồm, tính tới hết giây).
+         * @param firstRawDay ngày đầu tiên đọc từ bảng gốc (hôm nay, hoặc sớm hơn nếu các ngày trước đó chưa được dựng lại);
+         *                    chỉ các ngày trước ngày này mới đọc từ bảng tổng hợp.
+         */
+        public static StatisticsPeriod of(LocalDateTime from, LocalDateTime to, LocalDate firstRawDay) {
+            LocalDateTime end = to.truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+            if (!from.isBefore(end)) {
+                return new StatisticsPeriod(null, null, List.of());
+            }
+
+            LocalDate firstDay = from.equals(from.toLocalDate().atStartOfDay()) ? from.toLocalDate() : from.toLocalDate().plusDays(1);
+            LocalDate lastDay = end.toLocalDate().minusDays(1);
+            if (!lastDay.isBefore(firstRawDay)) {
+                lastDay = firstRawDay.minusDays(1);
+            }
+            if (firstDay.isAfter(lastDay)) {
+                return new StatisticsPeriod(null, null, List.of(new TimeRange(from, end)));
+            }
+
+            List<TimeRange> rawRanges = new ArrayList<>();
+            LocalDateTime rollupStart = firstDay.atStartOfDay();
+            LocalDateTime rollupEnd = lastDay.plusDays(1).atStartOfDay();
+            if (from.isBefore(rollupStart)) {
+                rawRanges.add(new TimeRange(from, rollupStart));
+            }
+            if (rollupEnd.isBefore(end)) {
+                rawRanges.add(new TimeRange(rollupEnd, end));
+            }
+            return new StatisticsPeriod(firstDay, lastDay, rawRanges);
+        }
+
+        public boolean hasRollup() {
+            return rollupFrom != null;
+        }
+
+        public boolean isEmpty() {
+            return !hasRollup() && rawRanges.isEmpty();
+        }
+    }
+
+    /**
+     * Khoảng thời gian nửa mở {@code [from, toExclusive)}.
+     */
+    record TimeRange(LocalDateTime from, LocalDateTime toExclusive) {
+    }
+}
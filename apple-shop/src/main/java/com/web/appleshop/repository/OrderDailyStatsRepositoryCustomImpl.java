@@ -0,0 +1,213 @@
+package com.web.appleshop.repository;
+
+import com.web.appleshop.enums.OrderStatus;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class OrderDailyStatsRepositoryCustomImpl implements OrderDailyStatsRepositoryCustom {
+    private static final String ORDER_ROLLUP = "select revenue, order_count, products_sold from order_daily_stats where stats_date between ? and ?";
+    private static final String ORDER_RAW = "select isnull(o.final_total, 0) as revenue, 1 as order_count, " +
+            "isnull((select sum(od.quantity) from order_details od where od.order_id = o.id), 0) as products_sold " +
+            "from orders o where o.created_at >= ? and o.created_at < ?";
+    private static final String CATEGORY_ROLLUP = "select category_id, quantity from category_daily_sales where stats_date between ? and ?";
+    private static final String CATEGORY_RAW = "select p.category_id, od.quantity from order_details od " +
+            "join orders o on o.id = od.order_id join products p on p.id = od.product_id " +
+            "where o.created_at >= ? and o.created_at < ? and p.category_id is not null";
+    private static final String COLOR_ROLLUP = "select color_id, quantity from color_daily_sales where stats_date between ? and ?";
+    private static final String COLOR_RAW = "select s.color_id, od.quantity from order_details od " +
+            "join orders o on o.id = od.order_id join stocks s on s.id = od.stock_id " +
+            "where o.created_at >= ? and o.created_at < ? and s.color_id is not null";
+    private static final String CUSTOMER_ROLLUP = "select user_id, order_count, total_spent from customer_daily_stats where stats_date between ? and ?";
+    private static final String CUSTOMER_RAW = "select o.created_by as user_id, 1 as order_count, isnull(o.final_total, 0) as total_spent " +
+            "from orders o where o.created_at >= ? and o.created_at < ? and o.created_by is not null";
+
+    private static final String[] ROLLUP_TABLES = {"order_daily_stats", "category_daily_sales", "color_daily_sales", "customer_daily_stats"};
+    private static final String[] REBUILD_SQL = {
+            """
+            insert into order_daily_stats (stats_date, status, order_count, revenue, products_sold)
+            select cast(o.created_at as date), o.status, count(*), sum(isnull(o.final_total, 0)), sum(isnull(d.quantity, 0))
+            from orders o
+                     outer apply (select sum(od.quantity) as quantity from order_details od where od.order_id = o.id) d
+            where o.created_at >= ? and o.created_at < ?
+            group by cast(o.created_at as date), o.status""",
+            """
+            insert into category_daily_sales (stats_date, status, category_id, quantity)
+            select cast(o.created_at as date), o.status, p.category_id, sum(od.quantity)
+            from order_details od
+                     join orders o on o.id = od.order_id
+                     join products p on p.id = od.product_id
+            where o.created_at >= ? and o.created_at < ? and p.category_id is not null
+            group by cast(o.created_at as date), o.status, p.category_id""",
+            """
+            insert into color_daily_sales (stats_date, status, color_id, quantity)
+            select cast(o.created_at as date), o.status, s.color_id, sum(od.quantity)
+            from order_details od
+                     join orders o on o.id = od.order_id
+                     join stocks s on s.id = od.stock_id
+            where o.created_at >= ? and o.created_at < ? and s.color_id is not null
+            group by cast(o.created_at as date), o.status, s.color_id""",
+            """
+            insert into customer_daily_stats (stats_date, status, user_id, order_count, total_spent)
+            select cast(o.created_at as date), o.status, o.created_by, count(*), sum(isnull(o.final_total, 0))
+            from orders o
+            where o.created_at >= ? and o.created_at < ? and o.created_by is not null
+            group by cast(o.created_at as date), o.status, o.created_by"""
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    OrderDailyStatsRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public BigDecimal sumRevenue(StatisticsPeriod period, OrderStatus status) {
+        if (period.isEmpty()) {
+            return null;
+        }
+        Source source = union(period, ORDER_ROLLUP, ORDER_RAW, status);
+        return jdbcTemplate.queryForObject("select sum(t.revenue) from " + source.sql(), BigDecimal.class, source.args().toArray());
+    }
+
+    @Override
+    public Long countOrders(StatisticsPeriod period, OrderStatus status) {
+        if (period.isEmpty()) {
+            return 0L;
+        }
+        Source source = union(period, ORDER_ROLLUP, ORDER_RAW, status);
+        return jdbcTemplate.queryForObject("select cast(isnull(sum(t.order_count), 0) as bigint) from " + source.sql(), Long.class, source.args().toArray());
+    }
+
+    @Override
+    public Long sumProductsSold(StatisticsPeriod period, OrderStatus status) {
+        if (period.isEmpty()) {
+            return null;
+        }
+        Source source = union(period, ORDER_ROLLUP, ORDER_RAW, status);
+        return jdbcTemplate.queryForObject("select cast(sum(t.products_sold) as bigint) from " + source.sql(), Long.class, source.args().toArray());
+    }
+
+    @Override
+    public Page<Map<String, Object>> getSalesByCategory(StatisticsPeriod period, OrderStatus status, Pageable pageable) {
+        return groupedPage(union(period, CATEGORY_ROLLUP, CATEGORY_RAW, status), pageable,
+                "select t.category_id, cast(sum(t.quantity) as bigint) as total_sold from %s " +
+                        "group by t.category_id order by sum(t.quantity) desc, t.category_id",
+                "select count(distinct t.category_id) from %s",
+                (rs, rowNum) -> row("categoryId", rs.getInt("category_id"), "totalSold", rs.getLong("total_sold")));
+    }
+
+    @Override
+    public Page<Map<String, Object>> getSalesByColor(StatisticsPeriod period, OrderStatus status, Pageable pageable) {
+        return groupedPage(union(period, COLOR_ROLLUP, COLOR_RAW, status), pageable,
+                "select t.color_id, cast(sum(t.quantity) as bigint) as total_sold from %s " +
+                        "group by t.color_id order by sum(t.quantity) desc, t.color_id",
+                "select count(distinct t.color_id) from %s",
+                (rs, rowNum) -> row("colorId", rs.getInt("color_id"), "totalSold", rs.getLong("total_sold")));
+    }
+
+    @Override
+    public Page<Map<String, Object>> getTopCustomersByPrice(StatisticsPeriod period, OrderStatus status, Pageable pageable) {
+        return groupedPage(union(period, CUSTOMER_ROLLUP, CUSTOMER_RAW, status), pageable,
+                "select t.user_id, u.first_name, u.last_name, sum(t.total_spent) as total_spent from %s " +
+                        "join users u on u.id = t.user_id " +
+                        "group by t.user_id, u.first_name, u.last_name order by sum(t.total_spent) desc, t.user_id",
+                "select count(distinct t.user_id) from %s",
+                (rs, rowNum) -> customerRow(rs.getInt("user_id"), rs.getString("first_name"), rs.getString("last_name"),
+                        "totalSpent", rs.getBigDecimal("total_spent")));
+    }
+
+    @Override
+    public Page<Map<String, Object>> getTopCustomersByOrderCount(StatisticsPeriod period, OrderStatus status, Pageable pageable) {
+        return groupedPage(union(period, CUSTOMER_ROLLUP, CUSTOMER_RAW, status), pageable,
+                "select t.user_id, u.first_name, u.last_name, cast(sum(t.order_count) as bigint) as order_count from %s " +
+                        "join users u on u.id = t.user_id " +
+                        "group by t.user_id, u.first_name, u.last_name order by sum(t.order_count) desc, t.user_id",
+                "select count(distinct t.user_id) from %s",
+                (rs, rowNum) -> customerRow(rs.getInt("user_id"), rs.getString("first_name"), rs.getString("last_name"),
+                        "orderCount", rs.getLong("order_count")));
+    }
+
+    @Override
+    public void rebuildDailyStats(LocalDate fromDate, LocalDate toDate) {
+        // Xoá và dựng lại trong cùng transaction, tablockx giữ các bảng tới khi commit nên không ai đọc được ngày đang dựng dở.
+        for (String table : ROLLUP_TABLES) {
+            jdbcTemplate.update("delete from " + table + " with (tablockx) where stats_date between ? and ?", fromDate, toDate);
+        }
+        for (String sql : REBUILD_SQL) {
+            jdbcTemplate.update(sql, fromDate.atStartOfDay(), toDate.plusDays(1).atStartOfDay());
+        }
+    }
+
+    private Page<Map<String, Object>> groupedPage(Source source, Pageable pageable, String selectSql, String countSql,
+                                                  RowMapper<Map<String, Object>> rowMapper) {
+        if (source == null) {
+            return Page.empty(pageable);
+        }
+        String sql = selectSql.formatted(source.sql());
+        List<Object> args = new ArrayList<>(source.args());
+        if (pageable.isPaged()) {
+            sql += " offset ? rows fetch next ? rows only";
+            args.add(pageable.getOffset());
+            args.add(pageable.getPageSize());
+        }
+        List<Map<String, Object>> content = jdbcTemplate.query(sql, rowMapper, args.toArray());
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> jdbcTemplate.queryForObject(countSql.formatted(source.sql()), Long.class, source.args().toArray()));
+    }
+
+    /**
+     * Ghép các ngày đọc từ bảng tổng hợp với các khoảng đọc thẳng từ bảng gốc thành một bảng dẫn xuất {@code t}.
+     * Trả về {@code null} nếu khoảng thống kê rỗng.
+     */
+    private static Source union(StatisticsPeriod period, String rollupSql, String rawSql, OrderStatus status) {
+        if (period.isEmpty()) {
+            return null;
+        }
+        List<String> parts = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        if (period.hasRollup()) {
+            parts.add(rollupSql + (status == null ? "" : " and status = ?"));
+            args.add(period.rollupFrom());
+            args.add(period.rollupTo());
+            if (status != null) {
+                args.add(status.name());
+            }
+        }
+        for (TimeRange range : period.rawRanges()) {
+            parts.add(rawSql + (status == null ? "" : " and o.status = ?"));
+            args.add(range.from());
+            args.add(range.toExclusive());
+            if (status != null) {
+                args.add(status.name());
+            }
+        }
+        return new Source("(" + String.join(" union all ", parts) + ") t", args);
+    }
+
+    private static Map<String, Object> row(String idKey, Object id, String valueKey, Object value) {
+        Map<String, Object> row = new HashMap<>();
+        row.put(idKey, id);
+        row.put(valueKey, value);
+        return row;
+    }
+
+    private static Map<String, Object> customerRow(Object userId, String firstName, String lastName, String valueKey, Object value) {
+        Map<String, Object> row = row("userId", userId, valueKey, value);
+        row.put("firstName", firstName);
+        row.put("lastName", lastName);
+        return row;
+    }
+
+    private record Source(String sql, List<Object> args) {
+    }
+}
@@ -1,7 +1,6 @@
 package com.web.appleshop.repository;
 
 import com.web.appleshop.entity.OrderDetail;
-import com.web.appleshop.entity.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -25,14 +24,4 @@ public interface OrderDetailRepository extends JpaRepository<OrderDetail, Intege
                 order by sum(od.quantity) desc
             """)
     Page<Map<String, Object>> getTopSellingProducts(Pageable pageable, @Param("fromDate") LocalDateTime fromDate, @Param("toDate") LocalDateTime toDate);
-
-    @Query("""
-                select od.product
-                from OrderDetail od
-                where od.product.category.id = :categoryId
-                group by od.product
-                having od.product.isDeleted = false
-                order by sum(od.quantity) desc
-            """)
-    Page<Product> getTopSellingProductsByCategory(Pageable pageable, @Param("categoryId") Integer categoryId);
 }
\ No newline at end of file
@@ -6,16 +6,18 @@ import com.web.appleshop.entity.User;
 import com.web.appleshop.enums.OrderStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface OrderRepository extends JpaRepository<Order, Integer>, JpaSpecificationExecutor<Order> {
+public interface OrderRepository extends JpaRepository<Order, Integer>, JpaSpecificationExecutor<Order>, OrderRepositoryCustom {
     Optional<Order> findOrderById(Integer id);
 
     Page<Order> findOrdersByCreatedBy(User createdBy, Pageable pageable);
@@ -30,33 +32,34 @@ public interface OrderRepository extends JpaRepository<Order, Integer>, JpaSpeci
     Optional<Order> findOrderByIdAndCreatedBy(Integer id, User createdBy);
 
     /**
-     * Statistics
+     * Lấy id các đơn chờ thanh toán có phần giữ hàng đã hết hạn theo kiểu keyset (id > lastId), dùng cho tác vụ huỷ đơn tự động.
+     * Chỉ đơn có {@code reservationExpiresAt} mới hết hạn; đơn do admin tạo hoặc nhập hàng loạt đã trừ thẳng tồn kho
+     * và không có thời hạn thanh toán.
      */
-
-    // Get total revenue from order
-    @Query("""
-                select sum(o.finalTotal)
-                from Order o
-                where o.status = :status and o.createdAt between :fromDate and :toDate
-            """)
-    BigDecimal getTotalRevenue(@Param("status") OrderStatus status, @Param("fromDate") LocalDateTime fromDate, @Param("toDate") LocalDateTime toDate);
-
     @Query("""
-                select sum(o.finalTotal)
+                select o.id
                 from Order o
-                where o.createdAt between :fromDate and :toDate
+                where o.status = :status and o.id > :lastId and o.reservationExpiresAt < :now
+                order by o.id
             """)
-    BigDecimal getTotalRevenue(@Param("fromDate") LocalDateTime fromDate, @Param("toDate") LocalDateTime toDate);
+    List<Integer> findExpiredOrderIds(@Param("status") OrderStatus status, @Param("now") LocalDateTime now, @Param("lastId") Integer lastId, Pageable pageable);
 
-    Long countOrdersByCreatedAtBetween(LocalDateTime createdAtAfter, LocalDateTime createdAtBefore);
+    @EntityGraph(attributePaths = {"orderDetails", "orderDetails.stock"})
+    List<Order> findOrdersByIdIn(Collection<Integer> ids);
 
-    Long countOrdersByCreatedAtBetweenAndStatus(LocalDateTime createdAtAfter, LocalDateTime createdAtBefore, OrderStatus status);
+    List<Order> findOrdersByFlashSaleTicketIdIn(Collection<String> ticketIds);
 
+    /**
+     * Tổng số lượng mỗi người dùng đã đặt qua flash sale cho từng phiên bản, không tính các đơn có trạng thái bị loại trừ.
+     * Mỗi dòng gồm id người dùng, id phiên bản và tổng số lượng.
+     */
     @Query("""
-                select sum(od.quantity)
-                from Order o
-                            join OrderDetail od on od.order.id = o.id
-                where o.status = 'DELIVERED' and o.createdAt between :fromDate and :toDate
+                select o.createdBy.id, d.stock.id, sum(d.quantity)
+                from Order o join o.orderDetails d
+                where o.flashSaleTicketId is not null
+                    and o.createdBy.id in :userIds and d.stock.id in :stockIds
+                    and o.status not in :excludedStatuses
+                group by o.createdBy.id, d.stock.id
             """)
-    Long countProductsSold(@Param("fromDate") LocalDateTime fromDate, @Param("toDate") LocalDateTime toDate);
-}
\ No newline at end of file
+    List<Object[]> sumFlashSaleQuantities(@Param("userIds") Collection<Integer> userIds, @Param("stockIds") Collection<Integer> stockIds, @Param("excludedStatuses") Collection<OrderStatus> excludedStatuses);
+}
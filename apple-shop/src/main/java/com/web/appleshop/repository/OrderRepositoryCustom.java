@@ -0,0 +1,20 @@
+package com.web.appleshop.repository;
+
+import com.web.appleshop.entity.Order;
+import com.web.appleshop.entity.OrderDetail;
+
+import java.util.List;
+
+public interface OrderRepositoryCustom {
+    /**
+     * Ghi nhiều đơn hàng bằng JDBC, mỗi câu lệnh chèn nhiều dòng và trả về id được sinh.
+     *
+     * @return Id của các đơn hàng theo đúng thứ tự đầu vào.
+     */
+    List<Integer> insertOrders(List<Order> orders);
+
+    /**
+     * Ghi chi tiết đơn hàng theo batch JDBC. Đơn hàng của mỗi dòng phải đã có id.
+     */
+    void insertOrderDetails(List<OrderDetail> orderDetails);
+}
@@ -0,0 +1,111 @@
+package com.web.appleshop.repository;
+
+import com.web.appleshop.entity.Order;
+import com.web.appleshop.entity.OrderDetail;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+class OrderRepositoryCustomImpl implements OrderRepositoryCustom {
+    private static final String[] ORDER_COLUMNS = {
+            "created_by", "created_at", "payment_type", "approve_at", "approve_by",
+            "first_name", "last_name", "email", "phone", "address", "ward", "district", "province", "country",
+            "status", "shipping_fee", "subtotal", "product_discount_amount", "shipping_discount_amount", "vat", "final_total"
+    };
+    // SQL Server giới hạn 2100 tham số cho mỗi câu lệnh.
+    private static final int MAX_ROWS_PER_STATEMENT = 2000 / (ORDER_COLUMNS.length + 1);
+    private static final String INSERT_ORDER_DETAIL_SQL = """
+            INSERT INTO order_details (order_id, product_id, product_name, quantity, price, color_name, version_name, image_url, stock_id)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    OrderRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<Integer> insertOrders(List<Order> orders) {
+        List<Integer> ids = new ArrayList<>(orders.size());
+        for (int from = 0; from < orders.size(); from += MAX_ROWS_PER_STATEMENT) {
+            ids.addAll(insertOrderRows(orders.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, orders.size()))));
+        }
+        return ids;
+    }
+
+    @Override
+    public void insertOrderDetails(List<OrderDetail> orderDetails) {
+        if (orderDetails.isEmpty()) {
+            return;
+        }
+        List<Object[]> batchArgs = new ArrayList<>(orderDetails.size());
+        for (OrderDetail orderDetail : orderDetails) {
+            batchArgs.add(new Object[]{
+                    orderDetail.getOrder().getId(),
+                    orderDetail.getProduct().getId(),
+                    orderDetail.getProductName(),
+                    orderDetail.getQuantity(),
+                    orderDetail.getPrice(),
+                    orderDetail.getColorName(),
+                    orderDetail.getVersionName(),
+                    orderDetail.getImageUrl(),
+                    orderDetail.getStock().getId()
+            });
+        }
+        jdbcTemplate.batchUpdate(INSERT_ORDER_DETAIL_SQL, batchArgs);
+    }
+
+    /**
+     * IDENTITY không trả được id cho batch JDBC, nên dùng MERGE ... OUTPUT để chèn nhiều dòng trong một câu lệnh
+     * và ghép id sinh ra với số thứ tự dòng nguồn.
+     */
+    private List<Integer> insertOrderRows(List<Order> orders) {
+        String columns = String.join(", ", ORDER_COLUMNS);
+        String placeholders = "(" + String.join(", ", Collections.nCopies(ORDER_COLUMNS.length + 1, "?")) + ")";
+        String sql = "MERGE INTO orders AS target USING (VALUES "
+                + String.join(", ", Collections.nCopies(orders.size(), placeholders))
+                + ") AS src (row_no, " + columns + ") ON 1 = 0"
+                + " WHEN NOT MATCHED THEN INSERT (" + columns + ", version)"
+                + " VALUES (" + String.join(", ", Arrays.stream(ORDER_COLUMNS).map(c -> "src." + c).toList()) + ", 0)"
+                + " OUTPUT src.row_no, inserted.id;";
+
+        List<Object> args = new ArrayList<>(orders.size() * (ORDER_COLUMNS.length + 1));
+        for (int i = 0; i < orders.size(); i++) {
+            Order order = orders.get(i);
+            args.add(i);
+            args.add(order.getCreatedBy() != null ? order.getCreatedBy().getId() : null);
+            args.add(toTimestamp(order.getCreatedAt()));
+            args.add(order.getPaymentType().name());
+            args.add(toTimestamp(order.getApproveAt()));
+            args.add(order.getApproveBy() != null ? order.getApproveBy().getId() : null);
+            args.add(order.getFirstName());
+            args.add(order.getLastName());
+            args.add(order.getEmail());
+            args.add(order.getPhone());
+            args.add(order.getAddress());
+            args.add(order.getWard());
+            args.add(order.getDistrict());
+            args.add(order.getProvince());
+            args.add(order.getCountry());
+            args.add(order.getStatus().name());
+            args.add(order.getShippingFee());
+            args.add(order.getSubtotal());
+            args.add(order.getProductDiscountAmount());
+            args.add(order.getShippingDiscountAmount());
+            args.add(order.getVat());
+            args.add(order.getFinalTotal());
+        }
+
+        Integer[] ids = new Integer[orders.size()];
+        jdbcTemplate.query(sql, rs -> {
+            ids[rs.getInt(1)] = rs.getInt(2);
+        }, args.toArray());
+        return Arrays.asList(ids);
+    }
+
+    private Timestamp toTimestamp(LocalDateTime dateTime) {
+        return dateTime != null ? Timestamp.valueOf(dateTime) : null;
+    }
+}
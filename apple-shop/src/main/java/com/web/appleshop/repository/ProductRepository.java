@@ -4,17 +4,18 @@ import com.web.appleshop.dto.response.admin.FeatureSummaryDto;
 import com.web.appleshop.dto.response.admin.ProductAdminListDto;
 import com.web.appleshop.dto.response.admin.ProductFeatureDto;
 import com.web.appleshop.entity.Product;
+import com.web.appleshop.enums.OrderStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
-import java.time.LocalDateTime;
 import java.util.*;
 
-public interface ProductRepository extends JpaRepository<Product, Integer>, JpaSpecificationExecutor<Product> {
+public interface ProductRepository extends JpaRepository<Product, Integer>, JpaSpecificationExecutor<Product>, ProductRepositoryCustom {
     Optional<Page<Product>> findAllByCategory_Id(Integer categoryId, Pageable pageable);
 
     Optional<Product> findProductByIdAndCategory_Id(Integer id, Integer categoryId);
@@ -47,21 +48,37 @@ public interface ProductRepository extends JpaRepository<Product, Integer>, JpaS
 
     Optional<Page<Product>> findAllByCategory_IdAndIsDeleted(Integer categoryId, Boolean isDeleted, Pageable pageable);
 
+    @Query("SELECT p.id FROM Product p WHERE p.category.id = :categoryId AND p.isDeleted = :isDeleted")
+    Page<Integer> findIdsByCategoryIdAndIsDeleted(@Param("categoryId") Integer categoryId, @Param("isDeleted") Boolean isDeleted, Pageable pageable);
+
     Optional<Product> findProductByIdAndCategory_IdAndIsDeleted(Integer id, Integer categoryId, Boolean isDeleted);
 
-    @Query("SELECT new map (p.category.id as categoryId, SUM(od.quantity) AS totalSold) FROM OrderDetail od JOIN od.product p JOIN od.order o " +
-            "WHERE o.createdAt BETWEEN :startDate AND :endDate AND o.status = 'DELIVERED' " +
-            "GROUP BY p.category.id ORDER BY SUM(od.quantity) DESC")
-    Page<Map<String, Object>> getSalesByCategory(Pageable pageable, @Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+    @EntityGraph(attributePaths = {"category", "stocks", "stocks.color", "stocks.instanceProperties", "stocks.productPhotos"})
+    Optional<Product> findProductByIdAndIsDeleted(Integer id, Boolean isDeleted);
+
+    @Query("SELECT new map (p.id as productId, SUM(od.quantity) AS totalSold) FROM OrderDetail od JOIN od.product p JOIN od.order o " +
+            "WHERE o.status NOT IN :excludedStatuses GROUP BY p.id")
+    List<Map<String, Object>> getTotalSoldByProduct(@Param("excludedStatuses") Collection<OrderStatus> excludedStatuses);
 
     @Query("SELECT new map (s.color.id as colorId, SUM(od.quantity) AS totalSold) FROM OrderDetail od JOIN od.stock s JOIN od.order o " +
-            "WHERE o.createdAt BETWEEN :startDate AND :endDate AND o.status = 'DELIVERED' " +
-            "GROUP BY s.color.id ORDER BY SUM(od.quantity) DESC")
-    Page<Map<String, Object>> getSalesByColor(Pageable pageable, @Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+            "WHERE o.status NOT IN :excludedStatuses GROUP BY s.color.id")
+    List<Map<String, Object>> getTotalSoldByColor(@Param("excludedStatuses") Collection<OrderStatus> excludedStatuses);
+
+    @Query("SELECT new map (p.id as id, p.name as name, c.id as categoryId) FROM Product p LEFT JOIN p.category c WHERE p.isDeleted = false")
+    List<Map<String, Object>> findSuggestionRows();
+
+    @Query("SELECT new map (p.id as id, p.name as name, c.id as categoryId) FROM Product p LEFT JOIN p.category c WHERE p.isDeleted = false AND p.id IN :ids")
+    List<Map<String, Object>> findSuggestionRowsByIdIn(@Param("ids") Collection<Integer> ids);
 
     List<Product> findProductsByNameContainingIgnoreCase(String name);
 
     Optional<Product> findProductById(Integer id);
 
+    @EntityGraph(attributePaths = {"category", "createdBy", "updatedBy", "features", "stocks", "stocks.color", "stocks.instanceProperties", "stocks.productPhotos"})
+    Optional<Product> findProductWithDetailsById(Integer id);
+
+    @EntityGraph(attributePaths = {"category", "createdBy", "features", "stocks", "stocks.color", "stocks.instanceProperties", "stocks.productPhotos"})
+    List<Product> findProductsWithDetailsByIdIn(Collection<Integer> ids);
+
     void deleteProductById(Integer id);
 }
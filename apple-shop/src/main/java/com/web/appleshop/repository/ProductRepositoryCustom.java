@@ -0,0 +1,72 @@
+package com.web.appleshop.repository;
+
+import com.web.appleshop.entity.Product;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+public interface ProductRepositoryCustom {
+    /**
+     * Lấy một trang id sản phẩm thoả điều kiện, lọc, sắp xếp và phân trang hoàn toàn trong SQL.
+     * Không fetch join nên Hibernate không phải phân trang trong bộ nhớ.
+     */
+    Page<Integer> findIdPage(Specification<Product> spec, Pageable pageable);
+
+    /**
+     * Tìm id sản phẩm bằng full-text index (tách từ tiếng Việt), sắp xếp theo độ liên quan giảm dần.
+     * Mỗi từ trong từ khoá được so khớp theo tiền tố và tất cả các từ đều phải xuất hiện.
+     */
+    List<Integer> findIdsByFullText(String keyword, Set<TextField> fields, int limit);
+
+    /**
+     * Dữ liệu facet của toàn bộ sản phẩm (kể cả đã xoá), dùng để dựng CatalogFacetIndex.
+     */
+    List<ProductFacetRow> findAllFacetRows();
+
+    /**
+     * Dữ liệu facet của các sản phẩm chỉ định; sản phẩm không còn tồn tại sẽ không có trong kết quả.
+     */
+    List<ProductFacetRow> findFacetRowsByProductIds(Collection<Integer> productIds);
+
+    /**
+     * @param prices        giá của từng stock, tăng dần.
+     * @param reviewCount   số đánh giá trên mọi stock của sản phẩm.
+     * @param averageRating điểm đánh giá trung bình, {@code null} nếu chưa có đánh giá.
+     */
+    record ProductFacetRow(Integer productId,
+                           Integer categoryId,
+                           boolean deleted,
+                           boolean inStock,
+                           BigDecimal minPrice,
+                           BigDecimal maxPrice,
+                           List<BigDecimal> prices,
+                           int reviewCount,
+                           Double averageRating,
+                           Set<Integer> featureIds,
+                           Set<Integer> colorIds,
+                           Set<Integer> instancePropertyIds) {
+    }
+
+    /**
+     * Trường có full-text index; khớp ở tên sản phẩm được tính điểm cao hơn khớp ở mô tả.
+     */
+    enum TextField {
+        NAME(3),
+        DESCRIPTION(1);
+
+        private final int weight;
+
+        TextField(int weight) {
+            this.weight = weight;
+        }
+
+        public int weight() {
+            return weight;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.web.appleshop.repository;
+
+import com.web.appleshop.entity.Product;
+import com.web.appleshop.util.SearchKeyUtils;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+    private final EntityManager entityManager;
+
+    ProductRepositoryCustomImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public Page<Integer> findIdPage(Specification<Product> spec, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Product> root = query.from(Product.class);
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+
+        List<Order> orders = new ArrayList<>(query.getOrderList());
+        if (orders.isEmpty() && pageable.getSort().isSorted()) {
+            orders.addAll(QueryUtils.toOrders(pageable.getSort(), root, cb));
+        }
+        // Thêm id làm tiêu chí phụ để thứ tự ổn định giữa các trang.
+        orders.add(cb.asc(root.get("id")));
+
+        // SQL Server yêu cầu biểu thức ORDER BY nằm trong SELECT khi dùng DISTINCT, nên chọn kèm các biểu thức sắp xếp.
+        List<Selection<?>> selections = new ArrayList<>();
+        selections.add(root.get("id"));
+        for (int i = 0; i < orders.size() - 1; i++) {
+            selections.add(orders.get(i).getExpression());
+        }
+        query.multiselect(selections).distinct(true).orderBy(orders);
+
+        var typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        // Một sản phẩm vẫn có thể xuất hiện nhiều lần nếu biểu thức sắp xếp đi qua quan hệ nhiều-nhiều.
+        Set<Integer> ids = new LinkedHashSet<>();
+        for (Tuple tuple : typedQuery.getResultList()) {
+            ids.add(tuple.get(0, Integer.class));
+        }
+
+        return PageableExecutionUtils.getPage(new ArrayList<>(ids), pageable, () -> count(spec));
+    }
+
+    private long count(Specification<Product> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Product> root = query.from(Product.class);
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.select(cb.countDistinct(root)).orderBy(List.of());
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Integer> findIdsByFullText(String keyword, Set<TextField> fields, int limit) {
+        String condition = SearchKeyUtils.toFullTextCondition(keyword);
+        if (condition == null || fields.isEmpty()) {
+            return List.of();
+        }
+
+        // Tên được so khớp trên search_key (đã bỏ dấu) với từ khoá cũng bỏ dấu, nên "dien thoai" khớp "Điện thoại".
+        List<String> sources = new ArrayList<>();
+        if (fields.contains(TextField.NAME)) {
+            sources.add("select [KEY] as id, [RANK] * " + TextField.NAME.weight() + " as score from containstable(products, search_key, :nameCondition, language 1066)");
+        }
+        if (fields.contains(TextField.DESCRIPTION)) {
+            sources.add("select [KEY] as id, [RANK] * " + TextField.DESCRIPTION.weight() + " as score from containstable(products, description, :condition, language 1066)");
+        }
+        String sql = "select top (:limit) ft.id from (" + String.join(" union all ", sources) + ") ft " +
+                "group by ft.id order by sum(ft.score) desc, ft.id";
+
+        Query query = entityManager.createNativeQuery(sql).setParameter("limit", limit);
+        if (fields.contains(TextField.NAME)) {
+            query.setParameter("nameCondition", SearchKeyUtils.toFullTextCondition(SearchKeyUtils.fold(keyword)));
+        }
+        if (fields.contains(TextField.DESCRIPTION)) {
+            query.setParameter("condition", condition);
+        }
+        List<Number> rows = query.getResultList();
+        return rows.stream().map(Number::intValue).toList();
+    }
+
+    @Override
+    public List<ProductFacetRow> findAllFacetRows() {
+        return findFacetRows(null);
+    }
+
+    @Override
+    public List<ProductFacetRow> findFacetRowsByProductIds(Collection<Integer> productIds) {
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+        return findFacetRows(productIds);
+    }
+
+    /**
+     * Sáu truy vấn phẳng (sản phẩm, giá stock, đánh giá, tính năng, màu, thuộc tính) rồi ghép theo id trong bộ nhớ,
+     * thay vì một truy vấn join nhân bản số dòng theo stocks x features.
+     */
+    private List<ProductFacetRow> findFacetRows(Collection<Integer> productIds) {
+        Map<Integer, Object[]> products = new LinkedHashMap<>();
+        for (Object[] row : facetQuery("select p.id, p.category_id, p.is_deleted, p.in_stock, p.min_price, p.max_price from products p", "p.id", productIds)) {
+            products.put(((Number) row[0]).intValue(), row);
+        }
+        Map<Integer, List<BigDecimal>> prices = new HashMap<>();
+        for (Object[] row : facetQuery("select s.product_id, s.price from stocks s", "s.product_id", productIds)) {
+            prices.computeIfAbsent(((Number) row[0]).intValue(), key -> new ArrayList<>()).add((BigDecimal) row[1]);
+        }
+        prices.values().forEach(list -> list.sort(null));
+        Map<Integer, Object[]> reviews = new HashMap<>();
+        for (Object[] row : facetQuery("select rv.product_id, rv.review_count, rv.average_rating from (" +
+                "select s.product_id, count(*) as review_count, avg(cast(r.rating as float)) as average_rating " +
+                "from reviews r join stocks s on s.id = r.stock_id group by s.product_id) rv", "rv.product_id", productIds)) {
+            reviews.put(((Number) row[0]).intValue(), row);
+        }
+        Map<Integer, Set<Integer>> features = groupIds(facetQuery("select pf.product_id, pf.feature_id from product_features pf", "pf.product_id", productIds));
+        Map<Integer, Set<Integer>> colors = groupIds(facetQuery("select distinct s.product_id, s.color_id from stocks s where s.color_id is not null", "s.product_id", productIds));
+        Map<Integer, Set<Integer>> instances = groupIds(facetQuery("select distinct s.product_id, si.instance_id from stocks s join stock_instances si on si.stock_id = s.id", "s.product_id", productIds));
+
+        List<ProductFacetRow> rows = new ArrayList<>(products.size());
+        products.forEach((id, row) -> {
+            Object[] review = reviews.get(id);
+            rows.add(new ProductFacetRow(
+                    id,
+                    row[1] == null ? null : ((Number) row[1]).intValue(),
+                    Boolean.TRUE.equals(row[2]),
+                    Boolean.TRUE.equals(row[3]),
+                    (BigDecimal) row[4],
+                    (BigDecimal) row[5],
+                    prices.getOrDefault(id, List.of()),
+                    review == null ? 0 : ((Number) review[1]).intValue(),
+                    review == null ? null : ((Number) review[2]).doubleValue(),
+                    features.getOrDefault(id, Set.of()),
+                    colors.getOrDefault(id, Set.of()),
+                    instances.getOrDefault(id, Set.of())
+            ));
+        });
+        return rows;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> facetQuery(String sql, String productIdColumn, Collection<Integer> productIds) {
+        if (productIds == null) {
+            return entityManager.createNativeQuery(sql).getResultList();
+        }
+        String keyword = sql.contains(" where ") ? " and " : " where ";
+        return entityManager.createNativeQuery(sql + keyword + productIdColumn + " in (:ids)")
+                .setParameter("ids", productIds)
+                .getResultList();
+    }
+
+    private static Map<Integer, Set<Integer>> groupIds(List<Object[]> rows) {
+        Map<Integer, Set<Integer>> grouped = new HashMap<>();
+        for (Object[] row : rows) {
+            grouped.computeIfAbsent(((Number) row[0]).intValue(), key -> new HashSet<>())
+                    .add(((Number) row[1]).intValue());
+        }
+        return grouped;
+    }
+}
@@ -0,0 +1,31 @@
+package com.web.appleshop.repository;
+
+import com.web.appleshop.entity.ProductSalesRollup;
+import com.web.appleshop.entity.ProductSalesRollupId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface ProductSalesRollupRepository extends JpaRepository<ProductSalesRollup, ProductSalesRollupId>, ProductSalesRollupRepositoryCustom {
+    @Query("SELECT new map (r.id.categoryId as categoryId, r.id.productId as productId, SUM(r.quantity) as totalSold) " +
+            "FROM ProductSalesRollup r JOIN Product p ON p.id = r.id.productId " +
+            "WHERE r.id.salesDate >= :fromDate AND p.isDeleted = false " +
+            "GROUP BY r.id.categoryId, r.id.productId HAVING SUM(r.quantity) > 0 " +
+            "ORDER BY r.id.categoryId, SUM(r.quantity) DESC, r.id.productId")
+    List<Map<String, Object>> getTotalSoldSince(@Param("fromDate") LocalDate fromDate);
+
+    @Query("SELECT new map (r.id.categoryId as categoryId, r.id.productId as productId, SUM(r.quantity) as totalSold) " +
+            "FROM ProductSalesRollup r JOIN Product p ON p.id = r.id.productId " +
+            "WHERE r.id.salesDate >= :fromDate AND p.isDeleted = false AND r.id.categoryId IN :categoryIds " +
+            "GROUP BY r.id.categoryId, r.id.productId HAVING SUM(r.quantity) > 0 " +
+            "ORDER BY r.id.categoryId, SUM(r.quantity) DESC, r.id.productId")
+    List<Map<String, Object>> getTotalSoldSinceByCategoryIdIn(@Param("fromDate") LocalDate fromDate, @Param("categoryIds") Collection<Integer> categoryIds);
+
+    @Query("SELECT DISTINCT r.id.categoryId FROM ProductSalesRollup r WHERE r.id.productId IN :productIds")
+    List<Integer> findCategoryIdsByProductIdIn(@Param("productIds") Collection<Integer> productIds);
+}
@@ -0,0 +1,14 @@
+package com.web.appleshop.repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+public interface ProductSalesRollupRepositoryCustom {
+    /**
+     * Cộng {@code quantity} (có thể âm) vào dòng tổng hợp của từng sản phẩm, danh mục, ngày; tạo dòng nếu chưa có.
+     */
+    void addQuantities(Collection<SalesDelta> deltas);
+
+    record SalesDelta(Integer productId, Integer categoryId, LocalDate salesDate, int quantity) {
+    }
+}
@@ -0,0 +1,36 @@
+package com.web.appleshop.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Collection;
+import java.util.List;
+
+class ProductSalesRollupRepositoryCustomImpl implements ProductSalesRollupRepositoryCustom {
+    private static final String ADD_QUANTITY_SQL = """
+            merge product_sales_rollup with (holdlock) as r
+            using (values (?, ?, ?, ?)) as s (product_id, category_id, sales_date, quantity)
+            on r.product_id = s.product_id and r.category_id = s.category_id and r.sales_date = s.sales_date
+            when matched then
+                update set quantity = r.quantity + s.quantity
+            when not matched then
+                insert (product_id, category_id, sales_date, quantity)
+                values (s.product_id, s.category_id, s.sales_date, s.quantity);""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    ProductSalesRollupRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void addQuantities(Collection<SalesDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<Object[]> batchArgs = deltas.stream()
+                .map(delta -> new Object[]{delta.productId(), delta.categoryId(), delta.salesDate(), delta.quantity()})
+                .toList();
+        // Dùng chung connection với transaction JPA hiện tại nên tổng hợp rollback cùng với đơn hàng.
+        jdbcTemplate.batchUpdate(ADD_QUANTITY_SQL, batchArgs);
+    }
+}
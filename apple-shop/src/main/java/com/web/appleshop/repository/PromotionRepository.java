@@ -10,11 +10,14 @@ import org.springframework.data.jpa.repository.Query;
 import java.util.List;
 import java.util.Optional;
 
-public interface PromotionRepository extends JpaRepository<Promotion, Integer>, JpaSpecificationExecutor<Promotion> {
+public interface PromotionRepository extends JpaRepository<Promotion, Integer>, JpaSpecificationExecutor<Promotion>, PromotionRepositoryCustom {
     @Query("select (count(p) > 0) from Promotion p where p.code = ?1")
     boolean existsByCode(String code);
 
+    @Query("select (count(p) > 0) from Promotion p where p.template.id = ?1")
+    boolean existsByTemplateId(Integer templateId);
+
     Optional<Promotion> findByCodeAndIsActive(String code, Boolean isActive);
 
-    Page<Promotion> findPromotionsByIsActive(Boolean isActive, Pageable pageable);
+    Page<Promotion> findPromotionsByIsActiveAndTemplateIsNull(Boolean isActive, Pageable pageable);
 }
\ No newline at end of file
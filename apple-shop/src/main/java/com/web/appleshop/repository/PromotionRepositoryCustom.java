@@ -0,0 +1,28 @@
+package com.web.appleshop.repository;
+
+import com.web.appleshop.entity.Promotion;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface PromotionRepositoryCustom {
+    /**
+     * Kiểm tra giới hạn và tăng lượt sử dụng của mã giảm giá trong cùng một lệnh gửi xuống DB.
+     *
+     * @param userId người dùng mã, {@code null} nếu không áp dụng giới hạn theo người dùng.
+     * @return {@code false} nếu mã đã hết lượt hoặc người dùng đã dùng đủ số lần cho phép.
+     */
+    boolean redeem(Integer promotionId, Integer userId);
+
+    /**
+     * Tạo các mã dùng một lần theo mẫu bằng một batch INSERT.
+     *
+     * @return các mã không được tạo vì đã tồn tại.
+     */
+    List<String> insertGeneratedCodes(Promotion template, List<String> codes, Integer createdById, LocalDateTime createdAt);
+
+    void streamCodesByTemplateId(Integer templateId, Consumer<String> consumer);
+
+    void streamAllCodes(Consumer<String> consumer);
+}
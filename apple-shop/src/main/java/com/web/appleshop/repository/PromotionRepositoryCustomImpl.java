@@ -0,0 +1,107 @@
+package com.web.appleshop.repository;
+
+import com.web.appleshop.entity.Promotion;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+class PromotionRepositoryCustomImpl implements PromotionRepositoryCustom {
+    // Khoá dòng của promotion do lệnh UPDATE giữ đến hết transaction nên các lượt dùng cùng mã được xử lý lần lượt,
+    // cả giới hạn tổng lẫn giới hạn theo người dùng đều không bị vượt khi có nhiều request đồng thời.
+    private static final String REDEEM_SQL = """
+            set nocount on;
+            declare @promotion_id int = ?, @user_id int = ?, @redeemed int;
+            update promotions
+            set usage_count = isnull(usage_count, 0) + 1, version = version + 1
+            where id = @promotion_id
+              and isnull(usage_count, 0) < usage_limit
+              and (usage_limit_per_user is null or @user_id is null
+                or isnull((select r.usage_count
+                           from promotion_redemptions r
+                           where r.promotion_id = @promotion_id and r.user_id = @user_id), 0) < usage_limit_per_user);
+            set @redeemed = @@rowcount;
+            if @redeemed = 1 and @user_id is not null
+                merge promotion_redemptions with (holdlock) as target
+                using (select @promotion_id as promotion_id, @user_id as user_id) as source
+                on target.promotion_id = source.promotion_id and target.user_id = source.user_id
+                when matched then update set usage_count = target.usage_count + 1
+                when not matched then insert (promotion_id, user_id, usage_count) values (source.promotion_id, source.user_id, 1);
+            select @redeemed;
+            """;
+    // Mã sinh ra là mã dùng một lần, sao chép điều kiện giảm giá của mã mẫu.
+    private static final String INSERT_GENERATED_CODE_SQL = """
+            insert into promotions (name, code, promotion_type, "value", max_discount_amount, min_order_value,
+                                    usage_limit, usage_limit_per_user, usage_count, is_active, start_date, end_date,
+                                    created_at, created_by, version, template_id)
+            select ?, ?, ?, ?, ?, ?, 1, 1, 0, ?, ?, ?, ?, ?, 0, ?
+            where not exists (select 1 from promotions with (updlock, holdlock) where code = ?)""";
+    private static final int STREAM_FETCH_SIZE = 5000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+
+    PromotionRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        // Đọc theo từng đợt thay vì nạp cả kết quả vào bộ nhớ khi duyệt hàng trăm nghìn mã.
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(STREAM_FETCH_SIZE);
+    }
+
+    @Override
+    public boolean redeem(Integer promotionId, Integer userId) {
+        Integer redeemed = jdbcTemplate.queryForObject(REDEEM_SQL, Integer.class, promotionId, userId);
+        return redeemed != null && redeemed == 1;
+    }
+
+    @Override
+    public List<String> insertGeneratedCodes(Promotion template, List<String> codes, Integer createdById, LocalDateTime createdAt) {
+        List<String> duplicatedCodes = new ArrayList<>();
+        if (codes.isEmpty()) {
+            return duplicatedCodes;
+        }
+        List<Object[]> batchArgs = new ArrayList<>(codes.size());
+        for (String code : codes) {
+            batchArgs.add(new Object[]{
+                    template.getName(),
+                    code,
+                    template.getPromotionType().name(),
+                    template.getValue(),
+                    template.getMaxDiscountAmount(),
+                    template.getMinOrderValue(),
+                    template.getIsActive(),
+                    Timestamp.valueOf(template.getStartDate()),
+                    Timestamp.valueOf(template.getEndDate()),
+                    Timestamp.valueOf(createdAt),
+                    createdById,
+                    template.getId(),
+                    code
+            });
+        }
+        int[] insertedRows = jdbcTemplate.batchUpdate(INSERT_GENERATED_CODE_SQL, batchArgs);
+        for (int i = 0; i < insertedRows.length; i++) {
+            if (insertedRows[i] == 0) {
+                duplicatedCodes.add(codes.get(i));
+            }
+        }
+        return duplicatedCodes;
+    }
+
+    @Override
+    public void streamCodesByTemplateId(Integer templateId, Consumer<String> consumer) {
+        stream("select code from promotions where template_id = ? order by id", consumer, templateId);
+    }
+
+    @Override
+    public void streamAllCodes(Consumer<String> consumer) {
+        stream("select code from promotions", consumer);
+    }
+
+    private void stream(String sql, Consumer<String> consumer, Object... args) {
+        streamingJdbcTemplate.query(sql, (RowCallbackHandler) rs -> consumer.accept(rs.getString(1)), args);
+    }
+}
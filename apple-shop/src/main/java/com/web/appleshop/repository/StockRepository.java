@@ -2,6 +2,7 @@ package com.web.appleshop.repository;
 
 import com.web.appleshop.dto.response.admin.StockSummaryDto;
 import com.web.appleshop.entity.Stock;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
@@ -11,7 +12,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
-public interface StockRepository extends JpaRepository<Stock, Integer>, JpaSpecificationExecutor<Stock> {
+public interface StockRepository extends JpaRepository<Stock, Integer>, JpaSpecificationExecutor<Stock>, StockRepositoryCustom {
     @Query("""
                 SELECT new com.web.appleshop.dto.response.admin.StockSummaryDto(
                     s.id, s.product.id, c.id, c.name, c.hexCode, s.quantity, s.price
@@ -23,4 +24,23 @@ public interface StockRepository extends JpaRepository<Stock, Integer>, JpaSpeci
     Set<StockSummaryDto> findStockSummariesForProducts(@Param("productIds") List<Integer> productIds);
 
     Set<Stock> findStockByIdIn(Collection<Integer> ids);
+
+    @Query("select distinct s.product.id from Stock s where s.id in :ids")
+    Set<Integer> findProductIdsByIdIn(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Nạp phiên bản kèm sản phẩm, màu và thuộc tính; ảnh nạp riêng bằng {@link #findStocksWithPhotosByIdIn}.
+     */
+    @EntityGraph(attributePaths = {"product", "color", "instanceProperties"})
+    @Query("select s from Stock s where s.id in :ids")
+    List<Stock> findStocksWithDetailsByIdIn(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Nạp ảnh cho các phiên bản, thường là các phiên bản vừa được nạp trong cùng transaction: Hibernate điền collection
+     * vào đúng các entity đang được quản lý. Tách khỏi truy vấn nạp thuộc tính để không join hai collection trong
+     * một câu (tích Descartes thuộc tính x ảnh).
+     */
+    @EntityGraph(attributePaths = {"productPhotos"})
+    @Query("select s from Stock s where s.id in :ids")
+    List<Stock> findStocksWithPhotosByIdIn(@Param("ids") Collection<Integer> ids);
 }
\ No newline at end of file
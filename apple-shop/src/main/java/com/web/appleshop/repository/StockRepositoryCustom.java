@@ -0,0 +1,35 @@
+package com.web.appleshop.repository;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+public interface StockRepositoryCustom {
+    /**
+     * Trừ tồn kho cho nhiều phiên bản sản phẩm trong một lần gửi batch xuống DB.
+     * <p>
+     * Mỗi dòng là một câu lệnh có điều kiện
+     * {@code UPDATE stocks SET quantity = quantity - ? WHERE id = ? AND quantity >= ?},
+     * nên tồn kho không bao giờ bị âm kể cả khi nhiều đơn hàng cùng trừ một phiên bản.
+     *
+     * Các cột tổng hợp tồn kho trên {@code products} cũng được tính lại trong cùng transaction.
+     *
+     * @param stockIdQuantityMap Map từ id phiên bản sản phẩm sang số lượng cần trừ.
+     * @return Tập id các phiên bản không đủ hàng (không có dòng nào được cập nhật). Rỗng nếu tất cả đều thành công.
+     */
+    Set<Integer> decrementQuantities(Map<Integer, Integer> stockIdQuantityMap);
+
+    /**
+     * Đọc thẳng tồn kho hiện tại từ DB, bỏ qua các entity {@link com.web.appleshop.entity.Stock} có thể đã cũ
+     * trong persistence context.
+     */
+    Map<Integer, Integer> findQuantitiesByIdIn(Collection<Integer> stockIds);
+
+    /**
+     * Tính lại giá thấp nhất, giá cao nhất, tổng tồn kho và cờ còn hàng của sản phẩm từ bảng {@code stocks}.
+     * Phải gọi sau khi thay đổi về stock đã được flush xuống DB.
+     */
+    void refreshProductSummaries(Collection<Integer> productIds);
+
+    void refreshProductSummariesByStockIds(Collection<Integer> stockIds);
+}
@@ -0,0 +1,99 @@
+package com.web.appleshop.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+class StockRepositoryCustomImpl implements StockRepositoryCustom {
+    private static final String DECREMENT_QUANTITY_SQL =
+            "UPDATE stocks SET quantity = quantity - ?, version = version + 1 WHERE id = ? AND quantity >= ?";
+
+    private static final String FIND_QUANTITIES_SQL = "select id, quantity from stocks where id in (%s)";
+
+    private static final String REFRESH_PRODUCT_SUMMARY_SQL = """
+            update p
+            set min_price      = s.min_price,
+                max_price      = s.max_price,
+                total_quantity = isnull(s.total_quantity, 0),
+                in_stock       = case when isnull(s.total_quantity, 0) > 0 then 1 else 0 end
+            from products p
+                     outer apply (select min(st.price) as min_price, max(st.price) as max_price, sum(st.quantity) as total_quantity
+                                  from stocks st
+                                  where st.product_id = p.id) s
+            where p.id in (%s)""";
+    // SQL Server giới hạn 2100 tham số cho mỗi câu lệnh.
+    private static final int MAX_IDS_PER_STATEMENT = 2000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    StockRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Set<Integer> decrementQuantities(Map<Integer, Integer> stockIdQuantityMap) {
+        Set<Integer> failedStockIds = new LinkedHashSet<>();
+        if (stockIdQuantityMap.isEmpty()) {
+            return failedStockIds;
+        }
+
+        List<Integer> stockIds = new ArrayList<>(stockIdQuantityMap.keySet());
+        List<Object[]> batchArgs = new ArrayList<>(stockIds.size());
+        for (Integer stockId : stockIds) {
+            Integer quantity = stockIdQuantityMap.get(stockId);
+            batchArgs.add(new Object[]{quantity, stockId, quantity});
+        }
+
+        // JdbcTemplate dùng chung connection với transaction JPA hiện tại nên rollback vẫn áp dụng cho các lệnh này.
+        int[] updatedRows = jdbcTemplate.batchUpdate(DECREMENT_QUANTITY_SQL, batchArgs);
+        for (int i = 0; i < updatedRows.length; i++) {
+            if (updatedRows[i] == 0) {
+                failedStockIds.add(stockIds.get(i));
+            }
+        }
+        refreshProductSummariesByStockIds(stockIds);
+        return failedStockIds;
+    }
+
+    @Override
+    public Map<Integer, Integer> findQuantitiesByIdIn(Collection<Integer> stockIds) {
+        Map<Integer, Integer> quantities = new HashMap<>();
+        List<Integer> idList = new ArrayList<>(stockIds);
+        for (int from = 0; from < idList.size(); from += MAX_IDS_PER_STATEMENT) {
+            List<Integer> chunk = idList.subList(from, Math.min(from + MAX_IDS_PER_STATEMENT, idList.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            jdbcTemplate.query(FIND_QUANTITIES_SQL.formatted(placeholders),
+                    rs -> {
+                        quantities.put(rs.getInt("id"), rs.getInt("quantity"));
+                    },
+                    chunk.toArray());
+        }
+        return quantities;
+    }
+
+    @Override
+    public void refreshProductSummaries(Collection<Integer> productIds) {
+        refresh("%s", productIds);
+    }
+
+    @Override
+    public void refreshProductSummariesByStockIds(Collection<Integer> stockIds) {
+        refresh("select product_id from stocks where id in (%s)", stockIds);
+    }
+
+    private void refresh(String idFilter, Collection<Integer> ids) {
+        List<Integer> idList = new ArrayList<>(ids);
+        for (int from = 0; from < idList.size(); from += MAX_IDS_PER_STATEMENT) {
+            List<Integer> chunk = idList.subList(from, Math.min(from + MAX_IDS_PER_STATEMENT, idList.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            jdbcTemplate.update(REFRESH_PRODUCT_SUMMARY_SQL.formatted(idFilter.formatted(placeholders)), chunk.toArray());
+        }
+    }
+}
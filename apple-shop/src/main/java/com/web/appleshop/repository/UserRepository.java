@@ -13,7 +13,6 @@ import org.springframework.data.repository.query.Param;
 import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Integer>, JpaSpecificationExecutor<User> {
@@ -35,20 +34,4 @@ public interface UserRepository extends JpaRepository<User, Integer>, JpaSpecifi
      */
     @Query("SELECT COUNT(u) FROM User u WHERE u.createdAt BETWEEN :fromDate AND :toDate")
     Long getNewUsersCount(@Param("fromDate") LocalDateTime fromDate, @Param("toDate") LocalDateTime toDate);
-
-    @Query("""
-            SELECT new map (o.createdBy.id as userId, o.createdBy.firstName as firstName, o.createdBy.lastName as lastName, SUM(o.finalTotal) AS totalSpent) FROM Order o
-            WHERE o.createdAt BETWEEN :fromDate AND :toDate AND o.status = 'DELIVERED'
-            GROUP BY o.createdBy.id, o.createdBy.firstName, o.createdBy.lastName
-            ORDER BY SUM(o.finalTotal) DESC
-            """)
-    Page<Map<String, Object>> getTopCustomersByPrice(Pageable pageable, @Param("fromDate") LocalDateTime fromDate, @Param("toDate") LocalDateTime toDate);
-
-    @Query("""
-            SELECT new map (o.createdBy.id as userId, o.createdBy.firstName as firstName, o.createdBy.lastName as lastName, COUNT(o) AS orderCount) FROM Order o
-            WHERE o.createdAt BETWEEN :fromDate AND :toDate AND o.status = 'DELIVERED'
-            GROUP BY o.createdBy.id, o.createdBy.firstName, o.createdBy.lastName
-            ORDER BY COUNT(o) DESC
-            """)
-    Page<Map<String, Object>> getTopCustomersByOrderCount(Pageable pageable, @Param("fromDate") LocalDateTime fromDate, @Param("toDate") LocalDateTime toDate);
-}
\ No newline at end of file
+}
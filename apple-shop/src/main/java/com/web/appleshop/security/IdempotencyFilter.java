@@ -0,0 +1,286 @@
+package com.web.appleshop.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.web.appleshop.dto.response.ApiResponse;
+import com.web.appleshop.entity.User;
+import com.web.appleshop.service.RedisLeaseLock;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Xử lý header {@code Idempotency-Key} cho các request tạo đơn hàng / thanh toán.
+ * <p>
+ * Response thành công (2xx) đầu tiên được lưu trên Redis cùng header và hash của body request, rồi trả lại nguyên vẹn
+ * cho các request trùng khoá; request trùng khoá nhưng khác body bị từ chối với 422. Trong lúc request đầu còn đang
+ * chạy, các request trùng nhận ngay 409 kèm {@code Retry-After} thay vì giữ thread của container để chờ. Khoá xử lý
+ * được gia hạn trong suốt request; nếu vẫn mất khoá thì response không được lưu.
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyFilter.class);
+    public static final String HEADER = "Idempotency-Key";
+    private static final String KEY_PREFIX = "idempotency:";
+    private static final String LOCK_KEY_PREFIX = "idempotency-lock:";
+    // Các header do container tự tính lại khi ghi body.
+    private static final Set<String> SKIPPED_HEADERS = Set.of("content-length", "transfer-encoding", "date");
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final RedisLeaseLock redisLeaseLock;
+    private final ObjectMapper objectMapper;
+    private final ScheduledExecutorService lockRenewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "idempotency-lock-renewer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    @Value("${idempotency.lock-seconds:60}")
+    private long lockSeconds;
+
+    @Value("${idempotency.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+
+    public IdempotencyFilter(RedisTemplate<String, String> redisTemplate, RedisLeaseLock redisLeaseLock, ObjectMapper objectMapper) {
+        this.redisTemplate = redisTemplate;
+        this.redisLeaseLock = redisLeaseLock;
+        this.objectMapper = objectMapper;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        lockRenewer.shutdownNow();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        String path = request.getServletPath();
+        return !"POST".equalsIgnoreCase(request.getMethod())
+                || request.getHeader(HEADER) == null
+                || !(path.startsWith("/payments/") || path.startsWith("/orders/"))
+                // Tìm kiếm bằng POST chỉ đọc dữ liệu, không cần chống gửi trùng.
+                || path.endsWith("/search");
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        CachedBodyRequest cachedRequest = new CachedBodyRequest(request);
+        String requestHash = cachedRequest.bodyHash();
+        String key = buildKey(request);
+        String lockKey = LOCK_KEY_PREFIX + key.substring(KEY_PREFIX.length());
+
+        if (replayStored(key, requestHash, response)) {
+            return;
+        }
+
+        Optional<String> owner = redisLeaseLock.tryAcquire(lockKey, Duration.ofSeconds(lockSeconds));
+        if (owner.isEmpty()) {
+            // Request đầu vẫn đang chạy: client gửi lại sau Retry-After sẽ nhận kết quả đã lưu.
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            writeError(response, HttpStatus.CONFLICT, "Yêu cầu với Idempotency-Key này đang được xử lý, vui lòng thử lại sau.");
+            return;
+        }
+        try {
+            // Request đầu có thể vừa lưu kết quả và trả khoá giữa hai bước trên.
+            if (!replayStored(key, requestHash, response)) {
+                executeAndStore(key, lockKey, owner.get(), requestHash, cachedRequest, response, filterChain);
+            }
+        } finally {
+            redisLeaseLock.release(lockKey, owner.get());
+        }
+    }
+
+    private boolean replayStored(String key, String requestHash, HttpServletResponse response) throws IOException {
+        String stored = redisTemplate.opsForValue().get(key);
+        if (stored == null) {
+            return false;
+        }
+        StoredResponse storedResponse = objectMapper.readValue(stored, StoredResponse.class);
+        if (!requestHash.equals(storedResponse.requestHash())) {
+            log.warn("Idempotency-Key được dùng lại với body khác");
+            writeError(response, HttpStatus.UNPROCESSABLE_ENTITY, "Idempotency-Key này đã được dùng cho một yêu cầu khác.");
+        } else {
+            replay(storedResponse, response);
+        }
+        return true;
+    }
+
+    private void executeAndStore(String key, String lockKey, String owner, String requestHash,
+                                 HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        Duration lockTtl = Duration.ofSeconds(lockSeconds);
+        long renewEveryMs = Math.max(lockTtl.toMillis() / 3, 1);
+        ScheduledFuture<?> renewal = lockRenewer.scheduleAtFixedRate(
+                () -> redisLeaseLock.renew(lockKey, owner, lockTtl), renewEveryMs, renewEveryMs, TimeUnit.MILLISECONDS);
+        ContentCachingResponseWrapper responseWrapper = new ContentCachingResponseWrapper(response);
+        try {
+            filterChain.doFilter(request, responseWrapper);
+            renewal.cancel(false);
+            // Chỉ lưu kết quả thành công; lỗi (kể cả 409 do xung đột) phải cho phép client gửi lại.
+            if (HttpStatus.valueOf(responseWrapper.getStatus()).is2xxSuccessful()) {
+                if (redisLeaseLock.renew(lockKey, owner, lockTtl)) {
+                    StoredResponse storedResponse = new StoredResponse(
+                            requestHash,
+                            responseWrapper.getStatus(),
+                            responseWrapper.getContentType(),
+                            copyHeaders(responseWrapper),
+                            new String(responseWrapper.getContentAsByteArray(), StandardCharsets.UTF_8)
+                    );
+                    redisTemplate.opsForValue().set(key, objectMapper.writeValueAsString(storedResponse), Duration.ofHours(ttlHours));
+                } else {
+                    log.warn("Mất khoá Idempotency-Key trong lúc xử lý, không lưu response");
+                }
+            }
+        } finally {
+            renewal.cancel(false);
+            responseWrapper.copyBodyToResponse();
+        }
+    }
+
+    private static Map<String, List<String>> copyHeaders(HttpServletResponse response) {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        for (String name : response.getHeaderNames()) {
+            if (!SKIPPED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                headers.putIfAbsent(name, List.copyOf(response.getHeaders(name)));
+            }
+        }
+        return headers;
+    }
+
+    private void replay(StoredResponse storedResponse, HttpServletResponse response) throws IOException {
+        response.setStatus(storedResponse.status());
+        if (storedResponse.headers() != null) {
+            storedResponse.headers().forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+        }
+        if (storedResponse.contentType() != null) {
+            response.setContentType(storedResponse.contentType());
+        }
+        response.setHeader("Idempotent-Replayed", "true");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write(storedResponse.body());
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        if (status == HttpStatus.CONFLICT) {
+            log.warn("Request trùng Idempotency-Key vẫn đang được xử lý");
+        }
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write(objectMapper.writeValueAsString(ApiResponse.error(String.valueOf(status.value()), message)));
+    }
+
+    // Khoá được tách theo người dùng và endpoint để cùng một giá trị header không đụng nhau giữa các request khác nhau.
+    private String buildKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String owner = authentication != null && authentication.getPrincipal() instanceof User user
+                ? String.valueOf(user.getId())
+                : "anonymous";
+        return KEY_PREFIX + owner + ":" + request.getServletPath() + ":" + request.getHeader(HEADER);
+    }
+
+    private record StoredResponse(String requestHash, int status, String contentType, Map<String, List<String>> headers, String body) {
+    }
+
+    /**
+     * Đọc trước toàn bộ body để tính hash mà controller vẫn đọc lại được.
+     */
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            this.body = request.getInputStream().readAllBytes();
+        }
+
+        String bodyHash() {
+            try {
+                return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // Body đã nằm sẵn trong bộ nhớ nên có thể báo ngay là đọc được và đã đọc hết.
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    try {
+                        readListener.onDataAvailable();
+                        readListener.onAllDataRead();
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding() != null ? getCharacterEncoding() : StandardCharsets.UTF_8.name();
+            return new BufferedReader(new InputStreamReader(getInputStream(), Charset.forName(encoding)));
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.web.appleshop.service;
+
+import com.web.appleshop.entity.Order;
+import com.web.appleshop.entity.OrderDetail;
+import com.web.appleshop.entity.Product;
+import com.web.appleshop.enums.OrderStatus;
+import com.web.appleshop.exception.BadRequestException;
+import com.web.appleshop.repository.ProductSalesRollupRepository;
+import com.web.appleshop.repository.ProductSalesRollupRepositoryCustom.SalesDelta;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bảng xếp hạng sản phẩm bán chạy theo danh mục, giữ trong bộ nhớ cho toàn thời gian và các cửa sổ N ngày gần nhất.
+ * <p>
+ * Dữ liệu lấy từ bảng tổng hợp {@code product_sales_rollup} (theo sản phẩm, danh mục, ngày) thay vì quét
+ * {@code order_details}. Khi đơn hàng chuyển sang đã giao hoặc bị hoàn tiền, {@link #recordStatusChange} cộng/trừ
+ * tổng hợp trong cùng transaction, sau khi commit thì xếp hạng lại các danh mục liên quan và phát thông báo qua
+ * Redis pub/sub cho các node khác. Dựng lại toàn bộ định kỳ để các cửa sổ ngày trượt theo thời gian.
+ */
+@Component
+public class BestSellerIndex implements MessageListener {
+    private static final Logger log = LoggerFactory.getLogger(BestSellerIndex.class);
+    private static final String REFRESH_CHANNEL = "best-sellers:refresh";
+    private static final ZoneId ZONE = ZoneId.of("Asia/Ho_Chi_Minh");
+    // Đơn đang yêu cầu trả hàng vẫn tính là đã bán cho tới khi được hoàn tiền.
+    private static final Set<OrderStatus> SOLD_STATUSES = EnumSet.of(OrderStatus.DELIVERED, OrderStatus.RETURN_REQUESTED);
+    private static final int ALL_TIME = 0;
+
+    private final ProductSalesRollupRepository productSalesRollupRepository;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final Set<Integer> windows;
+
+    // Cửa sổ (số ngày, 0 là toàn thời gian) -> danh mục -> id sản phẩm theo số lượng bán giảm dần.
+    // Chỉ thay thế trong synchronized (this); luồng đọc dùng bản chụp volatile.
+    private volatile Map<Integer, Map<Integer, List<Integer>>> rankings = Map.of();
+    private volatile Map<Integer, Set<Integer>> productCategories = Map.of();
+
+    public BestSellerIndex(ProductSalesRollupRepository productSalesRollupRepository,
+                           RedisTemplate<String, String> redisTemplate,
+                           RedisMessageListenerContainer listenerContainer,
+                           @Value("${product.best-sellers.window-days:7,30}") List<Integer> windowDays) {
+        this.productSalesRollupRepository = productSalesRollupRepository;
+        this.redisTemplate = redisTemplate;
+        this.windows = new LinkedHashSet<>();
+        this.windows.add(ALL_TIME);
+        this.windows.addAll(windowDays);
+        listenerContainer.addMessageListener(this, new ChannelTopic(REFRESH_CHANNEL));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${product.best-sellers.rebuild-interval-ms:3600000}",
+            initialDelayString = "${product.best-sellers.rebuild-interval-ms:3600000}")
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        Map<Integer, Map<Integer, List<Integer>>> rebuilt = new HashMap<>();
+        for (Integer window : windows) {
+            rebuilt.put(window, toRanking(productSalesRollupRepository.getTotalSoldSince(fromDate(window))));
+        }
+        synchronized (this) {
+            rankings = rebuilt;
+            productCategories = toProductCategories(rebuilt.get(ALL_TIME));
+        }
+        log.info("Đã dựng bảng xếp hạng bán chạy cho {} danh mục trong {} ms.",
+                rebuilt.get(ALL_TIME).size(), System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Một trang id sản phẩm bán chạy nhất của danh mục trong {@code days} ngày gần nhất ({@code null} là toàn thời gian).
+     */
+    public Page<Integer> getTopProductIds(Integer categoryId, Integer days, Pageable pageable) {
+        int window = days == null ? ALL_TIME : days;
+        Map<Integer, List<Integer>> ranking = rankings.get(window);
+        if (ranking == null) {
+            throw new BadRequestException("Chỉ hỗ trợ xếp hạng bán chạy trong các khoảng: "
+                    + windows.stream().filter(w -> w != ALL_TIME).map(String::valueOf).collect(Collectors.joining(", ")) + " ngày.");
+        }
+
+        List<Integer> productIds = ranking.getOrDefault(categoryId, List.of());
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(productIds, pageable, productIds.size());
+        }
+        int from = (int) Math.min(pageable.getOffset(), productIds.size());
+        int to = Math.min(from + pageable.getPageSize(), productIds.size());
+        return new PageImpl<>(productIds.subList(from, to), pageable, productIds.size());
+    }
+
+    /**
+     * Cộng (hoặc trừ khi hoàn tiền) số lượng đã bán của đơn vào bảng tổng hợp khi đơn bước vào hoặc rời khỏi trạng thái
+     * đã bán. Phải gọi trong transaction ghi đơn hàng; {@code oldStatus} là {@code null} với đơn mới tạo.
+     */
+    public void recordStatusChange(Order order, OrderStatus oldStatus) {
+        int sign = Boolean.compare(SOLD_STATUSES.contains(order.getStatus()), oldStatus != null && SOLD_STATUSES.contains(oldStatus));
+        if (sign == 0) {
+            return;
+        }
+
+        // Tính theo ngày đặt đơn để lần hoàn tiền trừ đúng vào ngày đã cộng.
+        LocalDate salesDate = order.getCreatedAt() != null ? order.getCreatedAt().toLocalDate() : LocalDate.now(ZONE);
+        Map<ProductCategory, Integer> quantities = new LinkedHashMap<>();
+        for (OrderDetail orderDetail : order.getOrderDetails()) {
+            Product product = orderDetail.getProduct();
+            if (product == null || product.getCategory() == null) {
+                continue;
+            }
+            quantities.merge(new ProductCategory(product.getId(), product.getCategory().getId()), sign * orderDetail.getQuantity(), Integer::sum);
+        }
+        if (quantities.isEmpty()) {
+            return;
+        }
+
+        productSalesRollupRepository.addQuantities(quantities.entrySet().stream()
+                .map(entry -> new SalesDelta(entry.getKey().productId(), entry.getKey().categoryId(), salesDate, entry.getValue()))
+                .toList());
+        refreshCategories(quantities.keySet().stream().map(ProductCategory::categoryId).collect(Collectors.toSet()));
+    }
+
+    /**
+     * Xếp hạng lại các danh mục có chứa sản phẩm (ví dụ khi sản phẩm bị ẩn hoặc hiện lại).
+     */
+    public void refreshProducts(Collection<Integer> productIds) {
+        Set<Integer> categoryIds = new HashSet<>();
+        Map<Integer, Set<Integer>> known = productCategories;
+        productIds.forEach(productId -> categoryIds.addAll(known.getOrDefault(productId, Set.of())));
+        categoryIds.addAll(productSalesRollupRepository.findCategoryIdsByProductIdIn(productIds));
+        refreshCategories(categoryIds);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        List<Integer> categoryIds = Arrays.stream(body.split(","))
+                .filter(id -> !id.isBlank())
+                .map(Integer::valueOf)
+                .toList();
+        refreshLocal(categoryIds);
+    }
+
+    /**
+     * Nếu đang trong transaction thì chỉ chạy sau khi commit để không đọc tổng hợp cũ.
+     */
+    private void refreshCategories(Collection<Integer> categoryIds) {
+        List<Integer> ids = List.copyOf(categoryIds);
+        if (ids.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refreshAndPublish(ids);
+                }
+            });
+        } else {
+            refreshAndPublish(ids);
+        }
+    }
+
+    private void refreshAndPublish(List<Integer> categoryIds) {
+        refreshLocal(categoryIds);
+        try {
+            redisTemplate.convertAndSend(REFRESH_CHANNEL, categoryIds.stream().map(String::valueOf).collect(Collectors.joining(",")));
+        } catch (Exception e) {
+            log.warn("Không phát được thông báo cập nhật xếp hạng bán chạy cho danh mục {}: {}", categoryIds, e.getMessage());
+        }
+    }
+
+    private void refreshLocal(List<Integer> categoryIds) {
+        Map<Integer, Map<Integer, List<Integer>>> refreshed = new HashMap<>();
+        for (Integer window : windows) {
+            refreshed.put(window, toRanking(productSalesRollupRepository.getTotalSoldSinceByCategoryIdIn(fromDate(window), categoryIds)));
+        }
+        synchronized (this) {
+            Map<Integer, Map<Integer, List<Integer>>> updated = new HashMap<>();
+            rankings.forEach((window, ranking) -> {
+                Map<Integer, List<Integer>> copy = new HashMap<>(ranking);
+                // Danh mục không còn sản phẩm bán được sẽ không có trong kết quả nên phải gỡ trước.
+                categoryIds.forEach(copy::remove);
+                copy.putAll(refreshed.getOrDefault(window, Map.of()));
+                updated.put(window, copy);
+            });
+            rankings = updated;
+            productCategories = toProductCategories(updated.getOrDefault(ALL_TIME, Map.of()));
+        }
+    }
+
+    private static LocalDate fromDate(int window) {
+        return window == ALL_TIME ? LocalDate.of(1, 1, 1) : LocalDate.now(ZONE).minusDays(window - 1L);
+    }
+
+    // Các dòng đã được sắp xếp theo danh mục rồi số lượng bán giảm dần trong truy vấn.
+    private static Map<Integer, List<Integer>> toRanking(List<Map<String, Object>> rows) {
+        Map<Integer, List<Integer>> ranking = new HashMap<>();
+        for (Map<String, Object> row : rows) {
+            ranking.computeIfAbsent((Integer) row.get("categoryId"), id -> new ArrayList<>()).add((Integer) row.get("productId"));
+        }
+        ranking.replaceAll((categoryId, productIds) -> List.copyOf(productIds));
+        return ranking;
+    }
+
+    private static Map<Integer, Set<Integer>> toProductCategories(Map<Integer, List<Integer>> ranking) {
+        Map<Integer, Set<Integer>> result = new HashMap<>();
+        ranking.forEach((categoryId, productIds) ->
+                productIds.forEach(productId -> result.computeIfAbsent(productId, id -> new HashSet<>()).add(categoryId)));
+        return result;
+    }
+
+    private record ProductCategory(Integer productId, Integer categoryId) {
+    }
+}
@@ -0,0 +1,520 @@
+package com.web.appleshop.service;
+
+import com.web.appleshop.dto.request.BaseProductSearchCriteria;
+import com.web.appleshop.dto.response.ProductFacetResponse;
+import com.web.appleshop.dto.response.ProductFacetResponse.FacetValue;
+import com.web.appleshop.dto.response.ProductFacetResponse.PriceBucket;
+import com.web.appleshop.entity.Category;
+import com.web.appleshop.entity.Color;
+import com.web.appleshop.entity.Feature;
+import com.web.appleshop.entity.InstanceProperty;
+import com.web.appleshop.exception.IllegalStateException;
+import com.web.appleshop.repository.CategoryRepository;
+import com.web.appleshop.repository.ColorRepository;
+import com.web.appleshop.repository.FeatureRepository;
+import com.web.appleshop.repository.InstancePropertyRepository;
+import com.web.appleshop.repository.ProductRepository;
+import com.web.appleshop.repository.ProductRepositoryCustom.ProductFacetRow;
+import com.web.appleshop.util.SearchKeyUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Chỉ mục facet của catalog trong bộ nhớ: mỗi sản phẩm có một số thứ tự (ordinal) liên tục, mỗi giá trị facet
+ * (danh mục, tính năng, màu, thuộc tính, khoảng giá) là một {@link BitSet} trên các ordinal đó.
+ * <p>
+ * Một truy vấn lọc cùng toàn bộ số đếm facet chỉ là các phép AND/OR và đếm bit, không cần truy vấn DB.
+ * Số đếm của mỗi nhóm được tính với bộ lọc của các nhóm khác (bỏ qua chính nhóm đó), để người dùng thấy
+ * còn bao nhiêu sản phẩm nếu chọn thêm một giá trị trong cùng nhóm.
+ * <p>
+ * Khi sản phẩm thay đổi, {@link #refresh} nạp lại riêng các sản phẩm đó sau khi commit và phát thông báo qua
+ * Redis pub/sub để các node khác cũng nạp lại. Tồn kho thay đổi theo đơn hàng không phát sự kiện; chỉ mục được
+ * dựng lại toàn bộ định kỳ để bắt kịp những thay đổi đó. Các lần nạp lại đến trong lúc đang dựng lại toàn bộ được
+ * áp lên bản mới trước khi thay thế, nên không bị mất.
+ * <p>
+ * Chỉ mục được dựng khi khởi động, trước khi web server nhận request.
+ */
+@Component
+public class CatalogFacetIndex implements MessageListener, SmartInitializingSingleton {
+    private static final Logger log = LoggerFactory.getLogger(CatalogFacetIndex.class);
+    private static final String REFRESH_CHANNEL = "catalog-index:refresh";
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final FeatureRepository featureRepository;
+    private final ColorRepository colorRepository;
+    private final InstancePropertyRepository instancePropertyRepository;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final BigDecimal[] priceBounds;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object rebuildMonitor = new Object();
+    private volatile State state;
+    // Khác null khi đang dựng lại toàn bộ: các sản phẩm đã nạp lại trong lúc đó (rỗng = đã bị xoá), được bảo vệ bởi lock.
+    private Map<Integer, Optional<ProductFacetRow>> pendingRefreshes;
+    private Names pendingNames;
+
+    public CatalogFacetIndex(ProductRepository productRepository,
+                             CategoryRepository categoryRepository,
+                             FeatureRepository featureRepository,
+                             ColorRepository colorRepository,
+                             InstancePropertyRepository instancePropertyRepository,
+                             RedisTemplate<String, String> redisTemplate,
+                             RedisMessageListenerContainer listenerContainer,
+                             @Value("${catalog.facet-index.price-buckets:5000000,10000000,20000000,30000000}") List<BigDecimal> priceBounds) {
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.featureRepository = featureRepository;
+        this.colorRepository = colorRepository;
+        this.instancePropertyRepository = instancePropertyRepository;
+        this.redisTemplate = redisTemplate;
+        this.priceBounds = priceBounds.stream().sorted().toArray(BigDecimal[]::new);
+        listenerContainer.addMessageListener(this, new ChannelTopic(REFRESH_CHANNEL));
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            // Không chặn khởi động; lần dựng lại định kỳ sẽ thử lại.
+            log.error("Không dựng được chỉ mục facet khi khởi động", e);
+        }
+    }
+
+    /**
+     * Dựng lại toàn bộ chỉ mục rồi thay thế bản cũ. Chỉ mục mới được dựng ngoài khoá nên tìm kiếm không bị chặn.
+     */
+    @Scheduled(fixedDelayString = "${catalog.facet-index.rebuild-interval-ms:300000}",
+            initialDelayString = "${catalog.facet-index.rebuild-interval-ms:300000}")
+    public void rebuild() {
+        synchronized (rebuildMonitor) {
+            long started = System.currentTimeMillis();
+            lock.writeLock().lock();
+            try {
+                pendingRefreshes = new LinkedHashMap<>();
+                pendingNames = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            State rebuilt = new State(priceBounds);
+            try {
+                rebuilt.names = loadNames();
+                productRepository.findAllFacetRows().forEach(rebuilt::put);
+            } catch (RuntimeException e) {
+                lock.writeLock().lock();
+                try {
+                    pendingRefreshes = null;
+                    pendingNames = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                throw e;
+            }
+
+            lock.writeLock().lock();
+            try {
+                // Dữ liệu nạp lại trong lúc dựng có thể mới hơn bản vừa đọc.
+                pendingRefreshes.forEach((productId, row) -> row.ifPresentOrElse(rebuilt::put, () -> rebuilt.remove(productId)));
+                if (pendingNames != null) {
+                    rebuilt.names = pendingNames;
+                }
+                pendingRefreshes = null;
+                pendingNames = null;
+                state = rebuilt;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Đã dựng chỉ mục facet cho {} sản phẩm trong {} ms.", rebuilt.live.cardinality(), System.currentTimeMillis() - started);
+        }
+    }
+
+    /**
+     * Nạp lại các sản phẩm trên mọi node. Nếu đang trong transaction thì chỉ chạy sau khi commit để không đọc dữ liệu cũ.
+     */
+    public void refresh(Collection<Integer> productIds) {
+        List<Integer> ids = List.copyOf(productIds);
+        if (ids.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refreshAndPublish(ids);
+                }
+            });
+        } else {
+            refreshAndPublish(ids);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        List<Integer> ids = Arrays.stream(body.split(","))
+                .filter(id -> !id.isBlank())
+                .map(Integer::valueOf)
+                .toList();
+        refreshLocal(ids);
+    }
+
+    /**
+     * Lọc theo tiêu chí (id hoặc tên danh mục, tính năng, màu, thuộc tính; khoảng giá; còn hàng; đánh giá) trong tập ứng viên
+     * và đếm facet. {@code candidateIds} là kết quả tìm kiếm văn bản, {@code null} nghĩa là toàn bộ catalog.
+     */
+    public ProductFacetResponse search(BaseProductSearchCriteria criteria, Collection<Integer> candidateIds) {
+        lock.readLock().lock();
+        try {
+            if (state == null) {
+                throw new IllegalStateException("Chỉ mục sản phẩm đang được khởi tạo, vui lòng thử lại sau.");
+            }
+            return state.search(criteria, candidateIds);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void refreshAndPublish(List<Integer> ids) {
+        refreshLocal(ids);
+        try {
+            redisTemplate.convertAndSend(REFRESH_CHANNEL, ids.stream().map(String::valueOf).collect(Collectors.joining(",")));
+        } catch (Exception e) {
+            log.warn("Không phát được thông báo cập nhật chỉ mục facet cho sản phẩm {}: {}", ids, e.getMessage());
+        }
+    }
+
+    private void refreshLocal(List<Integer> ids) {
+        List<ProductFacetRow> rows = productRepository.findFacetRowsByProductIds(ids);
+        Names names = loadNames();
+
+        lock.writeLock().lock();
+        try {
+            Set<Integer> missing = new HashSet<>(ids);
+            for (ProductFacetRow row : rows) {
+                missing.remove(row.productId());
+                if (state != null) {
+                    state.put(row);
+                }
+                if (pendingRefreshes != null) {
+                    pendingRefreshes.put(row.productId(), Optional.of(row));
+                }
+            }
+            for (Integer productId : missing) {
+                if (state != null) {
+                    state.remove(productId);
+                }
+                if (pendingRefreshes != null) {
+                    pendingRefreshes.put(productId, Optional.empty());
+                }
+            }
+            if (state != null) {
+                state.names = names;
+            }
+            if (pendingRefreshes != null) {
+                pendingNames = names;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Names loadNames() {
+        return new Names(
+                categoryRepository.findAll().stream().collect(Collectors.toMap(Category::getId, Category::getName)),
+                featureRepository.findAll().stream().collect(Collectors.toMap(Feature::getId, Feature::getName)),
+                colorRepository.findAll().stream().collect(Collectors.toMap(Color::getId, Color::getName)),
+                instancePropertyRepository.findAll().stream().collect(Collectors.toMap(InstanceProperty::getId, InstanceProperty::getName))
+        );
+    }
+
+    record Names(Map<Integer, String> categories,
+                 Map<Integer, String> features,
+                 Map<Integer, String> colors,
+                 Map<Integer, String> instanceProperties) {
+    }
+
+    /**
+     * Trạng thái chỉ mục. Ordinal của sản phẩm đã xoá không được tái sử dụng cho tới lần dựng lại toàn bộ kế tiếp.
+     */
+    static final class State {
+        private final Map<Integer, Integer> ordinals = new HashMap<>();
+        private final List<ProductFacetRow> rows = new ArrayList<>();
+        private final BitSet live = new BitSet();
+        private final BitSet inStock = new BitSet();
+        private final BitSet reviewed = new BitSet();
+        private final Map<Integer, BitSet> categories = new HashMap<>();
+        private final Map<Integer, BitSet> features = new HashMap<>();
+        private final Map<Integer, BitSet> colors = new HashMap<>();
+        private final Map<Integer, BitSet> instanceProperties = new HashMap<>();
+        private final BigDecimal[] priceBounds;
+        private final BitSet[] priceBuckets;
+        Names names;
+
+        State(BigDecimal[] priceBounds) {
+            this.priceBounds = priceBounds;
+            this.priceBuckets = new BitSet[priceBounds.length + 1];
+            for (int i = 0; i < priceBuckets.length; i++) {
+                priceBuckets[i] = new BitSet();
+            }
+        }
+
+        void put(ProductFacetRow row) {
+            Integer ordinal = ordinals.get(row.productId());
+            if (ordinal == null) {
+                ordinal = rows.size();
+                ordinals.put(row.productId(), ordinal);
+                rows.add(row);
+            } else {
+                clear(ordinal);
+                rows.set(ordinal, row);
+            }
+            if (row.deleted()) {
+                return;
+            }
+
+            live.set(ordinal);
+            if (row.inStock()) {
+                inStock.set(ordinal);
+            }
+            if (row.reviewCount() > 0) {
+                reviewed.set(ordinal);
+            }
+            if (row.categoryId() != null) {
+                categories.computeIfAbsent(row.categoryId(), key -> new BitSet()).set(ordinal);
+            }
+            for (Integer featureId : row.featureIds()) {
+                features.computeIfAbsent(featureId, key -> new BitSet()).set(ordinal);
+            }
+            for (Integer colorId : row.colorIds()) {
+                colors.computeIfAbsent(colorId, key -> new BitSet()).set(ordinal);
+            }
+            for (Integer instancePropertyId : row.instancePropertyIds()) {
+                instanceProperties.computeIfAbsent(instancePropertyId, key -> new BitSet()).set(ordinal);
+            }
+            // Sản phẩm thuộc mọi khoảng giá có ít nhất một stock của nó.
+            for (int bucket = 0; bucket < priceBuckets.length; bucket++) {
+                BigDecimal lower = bucket == 0 ? null : priceBounds[bucket - 1];
+                BigDecimal upper = bucket == priceBounds.length ? null : priceBounds[bucket];
+                BigDecimal price = lowestPriceFrom(row.prices(), lower);
+                if (price != null && (upper == null || price.compareTo(upper) < 0)) {
+                    priceBuckets[bucket].set(ordinal);
+                }
+            }
+        }
+
+        void remove(Integer productId) {
+            Integer ordinal = ordinals.get(productId);
+            if (ordinal != null) {
+                clear(ordinal);
+            }
+        }
+
+        private void clear(int ordinal) {
+            live.clear(ordinal);
+            inStock.clear(ordinal);
+            reviewed.clear(ordinal);
+            categories.values().forEach(bits -> bits.clear(ordinal));
+            features.values().forEach(bits -> bits.clear(ordinal));
+            colors.values().forEach(bits -> bits.clear(ordinal));
+            instanceProperties.values().forEach(bits -> bits.clear(ordinal));
+            for (BitSet bucket : priceBuckets) {
+                bucket.clear(ordinal);
+            }
+        }
+
+        ProductFacetResponse search(BaseProductSearchCriteria criteria, Collection<Integer> candidateIds) {
+            BitSet base = (BitSet) live.clone();
+            if (candidateIds != null) {
+                BitSet candidates = new BitSet();
+                for (Integer id : candidateIds) {
+                    Integer ordinal = ordinals.get(id);
+                    if (ordinal != null) {
+                        candidates.set(ordinal);
+                    }
+                }
+                base.and(candidates);
+            }
+            if (Boolean.TRUE.equals(criteria.getInStock())) {
+                base.and(inStock);
+            }
+            if (Boolean.TRUE.equals(criteria.getHasReviews())) {
+                base.and(reviewed);
+            } else if (Boolean.FALSE.equals(criteria.getHasReviews())) {
+                base.andNot(reviewed);
+            }
+            if (criteria.getMinRating() != null || criteria.getMaxRating() != null) {
+                base.and(ratingRange(criteria.getMinRating(), criteria.getMaxRating(), base));
+            }
+
+            // null = nhóm không có bộ lọc
+            BitSet categoryFilter = union(categories, resolve(criteria.getCategoryId(), criteria.getCategoryName(), names.categories()));
+            BitSet featureFilter = union(features, resolve(criteria.getFeatureIds(), criteria.getFeatureNames(), names.features()));
+            BitSet colorFilter = union(colors, resolve(criteria.getColorIds(), criteria.getColorNames(), names.colors()));
+            BitSet instanceFilter = union(instanceProperties, resolve(criteria.getInstancePropertyIds(), criteria.getInstancePropertyNames(), names.instanceProperties()));
+            BitSet priceFilter = priceRange(criteria.getMinPrice(), criteria.getMaxPrice(), base);
+
+            BitSet matches = and(base, categoryFilter, featureFilter, colorFilter, instanceFilter, priceFilter);
+
+            return ProductFacetResponse.builder()
+                    .totalProducts(matches.cardinality())
+                    .categories(count(categories, names.categories(), and(base, featureFilter, colorFilter, instanceFilter, priceFilter)))
+                    .features(count(features, names.features(), and(base, categoryFilter, colorFilter, instanceFilter, priceFilter)))
+                    .colors(count(colors, names.colors(), and(base, categoryFilter, featureFilter, instanceFilter, priceFilter)))
+                    .instanceProperties(count(instanceProperties, names.instanceProperties(), and(base, categoryFilter, featureFilter, colorFilter, priceFilter)))
+                    .priceBuckets(countPriceBuckets(and(base, categoryFilter, featureFilter, colorFilter, instanceFilter)))
+                    .build();
+        }
+
+        /**
+         * Id trực tiếp cộng với id có tên (bỏ dấu) chứa từ khoá, giống bộ lọc tên của ProductSpecification.
+         */
+        private static Set<Integer> resolve(Set<Integer> ids, Set<String> terms, Map<Integer, String> names) {
+            boolean hasIds = ids != null && !ids.isEmpty();
+            boolean hasTerms = terms != null && !terms.isEmpty();
+            if (!hasIds && !hasTerms) {
+                return null;
+            }
+            Set<Integer> resolved = hasIds ? new HashSet<>(ids) : new HashSet<>();
+            if (hasTerms) {
+                List<String> folded = terms.stream().map(SearchKeyUtils::fold).toList();
+                names.forEach((id, name) -> {
+                    String key = SearchKeyUtils.fold(name);
+                    if (folded.stream().anyMatch(key::contains)) {
+                        resolved.add(id);
+                    }
+                });
+            }
+            return resolved;
+        }
+
+        private static BitSet union(Map<Integer, BitSet> index, Set<Integer> ids) {
+            if (ids == null) {
+                return null;
+            }
+            BitSet result = new BitSet();
+            for (Integer id : ids) {
+                BitSet bits = index.get(id);
+                if (bits != null) {
+                    result.or(bits);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Phải có ít nhất một stock có giá trong khoảng yêu cầu, giống bộ lọc giá của ProductSpecification.
+         */
+        private BitSet priceRange(BigDecimal minPrice, BigDecimal maxPrice, BitSet scope) {
+            if (minPrice == null && maxPrice == null) {
+                return null;
+            }
+            BitSet result = new BitSet();
+            for (int ordinal = scope.nextSetBit(0); ordinal >= 0; ordinal = scope.nextSetBit(ordinal + 1)) {
+                BigDecimal price = lowestPriceFrom(rows.get(ordinal).prices(), minPrice);
+                if (price != null && (maxPrice == null || price.compareTo(maxPrice) <= 0)) {
+                    result.set(ordinal);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Điểm trung bình nằm trong khoảng yêu cầu; sản phẩm chưa có đánh giá không khớp, giống ProductSpecification.
+         */
+        private BitSet ratingRange(Double minRating, Double maxRating, BitSet scope) {
+            BitSet result = new BitSet();
+            for (int ordinal = scope.nextSetBit(0); ordinal >= 0; ordinal = scope.nextSetBit(ordinal + 1)) {
+                Double rating = rows.get(ordinal).averageRating();
+                if (rating != null
+                        && (minRating == null || rating >= minRating)
+                        && (maxRating == null || rating <= maxRating)) {
+                    result.set(ordinal);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Giá nhỏ nhất không dưới {@code lower} trong danh sách giá tăng dần (tìm nhị phân), {@code null} nếu không có.
+         */
+        private static BigDecimal lowestPriceFrom(List<BigDecimal> prices, BigDecimal lower) {
+            if (prices.isEmpty()) {
+                return null;
+            }
+            if (lower == null) {
+                return prices.get(0);
+            }
+            int index = Collections.binarySearch(prices, lower);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return index < prices.size() ? prices.get(index) : null;
+        }
+
+        private List<PriceBucket> countPriceBuckets(BitSet scope) {
+            List<PriceBucket> buckets = new ArrayList<>(priceBuckets.length);
+            for (int bucket = 0; bucket < priceBuckets.length; bucket++) {
+                buckets.add(new PriceBucket(
+                        bucket == 0 ? BigDecimal.ZERO : priceBounds[bucket - 1],
+                        bucket == priceBounds.length ? null : priceBounds[bucket],
+                        countAnd(scope, priceBuckets[bucket])
+                ));
+            }
+            return buckets;
+        }
+
+        private static List<FacetValue> count(Map<Integer, BitSet> index, Map<Integer, String> names, BitSet scope) {
+            return index.entrySet().stream()
+                    .map(entry -> new FacetValue(entry.getKey(), names.get(entry.getKey()), countAnd(scope, entry.getValue())))
+                    .filter(value -> value.getCount() > 0)
+                    .sorted(Comparator.comparingInt(FacetValue::getCount).reversed().thenComparing(FacetValue::getId))
+                    .toList();
+        }
+
+        private static BitSet and(BitSet base, BitSet... filters) {
+            BitSet result = (BitSet) base.clone();
+            for (BitSet filter : filters) {
+                if (filter != null) {
+                    result.and(filter);
+                }
+            }
+            return result;
+        }
+
+        private static int countAnd(BitSet left, BitSet right) {
+            BitSet result = (BitSet) left.clone();
+            result.and(right);
+            return result.cardinality();
+        }
+    }
+}
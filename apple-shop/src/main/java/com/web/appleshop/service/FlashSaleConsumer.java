@@ -0,0 +1,43 @@
+package com.web.appleshop.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.web.appleshop.dto.FlashSaleCheckoutMessage;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+class FlashSaleConsumer {
+    private static final Logger log = LoggerFactory.getLogger(FlashSaleConsumer.class);
+    private final ObjectMapper objectMapper;
+    private final FlashSaleService flashSaleService;
+
+    /**
+     * Mỗi partition chỉ được một consumer trong group đọc, nên các yêu cầu của cùng một phiên bản sản phẩm
+     * luôn được cấp phát tuần tự. Nhận theo batch để gộp việc ghi DB.
+     */
+    @KafkaListener(
+            topics = "flash-sale-checkout",
+            groupId = "flash-sale-group",
+            batch = "true",
+            concurrency = "${flash-sale.consumer-concurrency:3}",
+            properties = "max.poll.records=${flash-sale.max-batch-size:200}"
+    )
+    public void consumeCheckoutEvents(List<String> messages) {
+        List<FlashSaleCheckoutMessage> checkouts = new ArrayList<>(messages.size());
+        for (String message : messages) {
+            try {
+                checkouts.add(objectMapper.readValue(message, FlashSaleCheckoutMessage.class));
+            } catch (Exception e) {
+                log.error("Không đọc được yêu cầu flash sale: {}", message, e);
+            }
+        }
+        flashSaleService.allocate(checkouts);
+    }
+}
@@ -0,0 +1,28 @@
+package com.web.appleshop.service;
+
+import com.web.appleshop.dto.FlashSaleCheckoutMessage;
+import com.web.appleshop.dto.request.FlashSaleCheckoutRequest;
+import com.web.appleshop.dto.response.FlashSaleTicketResponse;
+import com.web.appleshop.entity.Stock;
+import com.web.appleshop.enums.PaymentType;
+
+import java.util.List;
+
+/**
+ * Luồng đặt hàng flash sale: yêu cầu được đưa vào hàng đợi Kafka phân vùng theo id phiên bản sản phẩm,
+ * mỗi phân vùng chỉ có một consumer cấp phát hàng tuần tự nên không tranh chấp trên cùng một dòng stocks.
+ */
+public interface FlashSaleService {
+    FlashSaleTicketResponse enqueueCheckout(FlashSaleCheckoutRequest request, PaymentType paymentType);
+
+    FlashSaleTicketResponse getTicket(String ticketId);
+
+    /**
+     * Cấp phát hàng cho một batch yêu cầu theo đúng thứ tự nhận được. Chỉ được gọi từ consumer flash sale.
+     * Yêu cầu giao lại (đã có đơn hàng) được bỏ qua; mỗi người dùng chỉ được mua tối đa
+     * {@code flash-sale.max-quantity-per-user} sản phẩm cho mỗi phiên bản.
+     */
+    void allocate(List<FlashSaleCheckoutMessage> messages);
+
+    Stock setFlashSale(Integer stockId, boolean enabled);
+}
@@ -0,0 +1,134 @@
+package com.web.appleshop.service;
+
+import com.web.appleshop.dto.response.CategoryWProductResponse;
+import com.web.appleshop.enums.OrderStatus;
+import com.web.appleshop.repository.CategoryRepository;
+import com.web.appleshop.repository.CategoryRepositoryCustom.CategoryTopProductRow;
+import com.web.appleshop.repository.CategoryRepositoryCustom.TopProductOrder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bản chụp danh sách danh mục kèm N sản phẩm tiêu biểu cho trang chủ ({@code GET /categories}).
+ * <p>
+ * Dữ liệu được dựng sẵn bằng một truy vấn ROW_NUMBER() theo danh mục và giữ trong bộ nhớ, nên đọc trang chủ
+ * không truy vấn DB. Khi sản phẩm hoặc danh mục thay đổi, {@link #refresh} dựng lại sau khi commit và phát thông báo
+ * qua Redis pub/sub cho các node khác. Thứ hạng bán chạy được dựng lại định kỳ.
+ */
+@Component
+public class HomepageCategorySnapshot implements MessageListener {
+    private static final Logger log = LoggerFactory.getLogger(HomepageCategorySnapshot.class);
+    private static final String REFRESH_CHANNEL = "homepage-categories:refresh";
+    private static final Set<OrderStatus> UNSOLD_STATUSES = EnumSet.of(
+            OrderStatus.PENDING_PAYMENT, OrderStatus.FAILED_PAYMENT, OrderStatus.CANCELLED, OrderStatus.REFUNDED);
+
+    private final CategoryRepository categoryRepository;
+    private final RedisTemplate<String, String> redisTemplate;
+
+    @Value("${category.homepage.products-per-category:4}")
+    private int productsPerCategory;
+
+    @Value("${category.homepage.product-order:NEWEST}")
+    private TopProductOrder productOrder;
+
+    private volatile List<CategoryWProductResponse> categories;
+
+    public HomepageCategorySnapshot(CategoryRepository categoryRepository,
+                                    RedisTemplate<String, String> redisTemplate,
+                                    RedisMessageListenerContainer listenerContainer) {
+        this.categoryRepository = categoryRepository;
+        this.redisTemplate = redisTemplate;
+        listenerContainer.addMessageListener(this, new ChannelTopic(REFRESH_CHANNEL));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${category.homepage.rebuild-interval-ms:600000}",
+            initialDelayString = "${category.homepage.rebuild-interval-ms:600000}")
+    public void rebuild() {
+        List<CategoryTopProductRow> rows = categoryRepository.findTopProductsPerCategory(productsPerCategory, productOrder, UNSOLD_STATUSES);
+        categories = toResponses(rows);
+        log.debug("Đã dựng danh mục trang chủ với {} danh mục.", categories.size());
+    }
+
+    public List<CategoryWProductResponse> getCategories() {
+        List<CategoryWProductResponse> snapshot = categories;
+        if (snapshot == null) {
+            // Request tới trước khi ứng dụng sẵn sàng.
+            rebuild();
+            snapshot = categories;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Dựng lại bản chụp trên mọi node. Nếu đang trong transaction thì chỉ chạy sau khi commit để không đọc dữ liệu cũ.
+     */
+    public void refresh() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refreshAndPublish();
+                }
+            });
+        } else {
+            refreshAndPublish();
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        rebuild();
+    }
+
+    private void refreshAndPublish() {
+        rebuild();
+        try {
+            redisTemplate.convertAndSend(REFRESH_CHANNEL, "refresh");
+        } catch (Exception e) {
+            log.warn("Không phát được thông báo cập nhật danh mục trang chủ: {}", e.getMessage());
+        }
+    }
+
+    private static List<CategoryWProductResponse> toResponses(List<CategoryTopProductRow> rows) {
+        Map<Integer, List<CategoryTopProductRow>> byCategory = new LinkedHashMap<>();
+        rows.forEach(row -> byCategory.computeIfAbsent(row.categoryId(), id -> new ArrayList<>()).add(row));
+
+        return byCategory.values().stream()
+                .map(products -> {
+                    CategoryTopProductRow first = products.getFirst();
+                    return new CategoryWProductResponse(
+                            first.categoryId(),
+                            first.categoryName(),
+                            first.categoryDescription(),
+                            first.categoryImage(),
+                            products.stream()
+                                    .map(row -> new CategoryWProductResponse.ProductInfo(row.productId(), row.productName()))
+                                    .toArray(CategoryWProductResponse.ProductInfo[]::new));
+                })
+                .toList();
+    }
+}
@@ -3,25 +3,53 @@ package com.web.appleshop.service;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.web.appleshop.dto.MailSender;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
+/**
+ * Mail gắn với nghiệp vụ không gửi thẳng lên Kafka mà được ghi vào outbox trong transaction của nghiệp vụ,
+ * nên mail của một transaction bị rollback sẽ không bao giờ được gửi.
+ * Mail người dùng đang chờ (OTP, đặt lại mật khẩu) không phụ thuộc transaction nào nên được gửi thẳng,
+ * không phải xếp hàng sau outbox.
+ */
 @Service
 public class MailProducer {
+    private static final Logger log = LoggerFactory.getLogger(MailProducer.class);
+    private final OutboxService outboxService;
     private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ObjectMapper objectMapper;
     private final String TOPIC = "email-topic";
-    private final ObjectMapper objectMapper = new ObjectMapper();
 
-    public MailProducer(KafkaTemplate<String, String> kafkaTemplate) {
+    public MailProducer(OutboxService outboxService, KafkaTemplate<String, String> kafkaTemplate, ObjectMapper objectMapper) {
+        this.outboxService = outboxService;
         this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
     }
 
     public void sendEmailEvent(MailSender mailer) {
+        outboxService.enqueue("Mail", mailer.getTo(), TOPIC, mailer);
+    }
+
+    public void sendEmailEventNow(MailSender mailer) {
+        String message;
         try {
-            String message = objectMapper.writeValueAsString(mailer);
-            kafkaTemplate.send(TOPIC, message);
+            message = objectMapper.writeValueAsString(mailer);
         } catch (JsonProcessingException e) {
-            e.printStackTrace();
+            log.error("Không thể tuần tự hoá mail gửi tới {}", mailer.getTo(), e);
+            return;
         }
+        kafkaTemplate.send(TOPIC, mailer.getTo(), message).whenComplete((result, e) -> {
+            if (e != null) {
+                log.error("Gửi mail tới {} lên Kafka thất bại", mailer.getTo(), e);
+            }
+        });
+    }
+
+    public void sendEmailEvents(List<MailSender> mailers) {
+        mailers.forEach(this::sendEmailEvent);
     }
 }
@@ -1,10 +1,13 @@
 package com.web.appleshop.service;
 
 import com.web.appleshop.dto.MailSender;
+import com.web.appleshop.entity.Order;
 import com.web.appleshop.enums.OrderStatus;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 @Service
 public class MailService {
     private final MailProducer mailProducer;
@@ -25,15 +28,44 @@ public class MailService {
         mailProducer.sendEmailEvent(mailer);
     }
 
+    public void sendOtpMail(String to, String otp) {
+        MailSender mailer = MailSender.builder()
+                .to(to)
+                .subject("OTP")
+                .body("Your OTP is: " + otp)
+                .build();
+        mailProducer.sendEmailEventNow(mailer);
+    }
+
     public void sendUpdateOrderStatusMail(String to, String subject, OrderStatus newStatus, Integer orderId, OrderStatus oldStatus) {
-        String body = "[UPDATE ORDER] Your order with id " + orderId + " has been " + newStatus.toString() + " from " + oldStatus.toString();
-        sendMail(to, subject, body);
+        sendMail(to, subject, buildUpdateOrderStatusBody(newStatus, orderId, oldStatus));
+    }
+
+    public void sendUpdateOrderStatusMails(List<Order> orders, OrderStatus newStatus, OrderStatus oldStatus) {
+        List<MailSender> mailers = orders.stream()
+                .filter(order -> order.getEmail() != null)
+                .map(order -> MailSender.builder()
+                        .to(order.getEmail())
+                        .subject("Cập nhật trạng thái đơn hàng #" + order.getId())
+                        .body(buildUpdateOrderStatusBody(newStatus, order.getId(), oldStatus))
+                        .build())
+                .toList();
+        mailProducer.sendEmailEvents(mailers);
     }
 
     public void sendResetPasswordMail(String to, String token) {
         String resetUrl = frontendUrl + "reset-password?token=" + token;
         String subject = "Reset Password";
         String body = "[RESET PASSWORD] To reset your password, please click the link below: " + resetUrl;
-        sendMail(to, subject, body);
+        MailSender mailer = MailSender.builder()
+                .to(to)
+                .subject(subject)
+                .body(body)
+                .build();
+        mailProducer.sendEmailEventNow(mailer);
+    }
+
+    private String buildUpdateOrderStatusBody(OrderStatus newStatus, Integer orderId, OrderStatus oldStatus) {
+        return "[UPDATE ORDER] Your order with id " + orderId + " has been " + newStatus.toString() + " from " + oldStatus.toString();
     }
 }
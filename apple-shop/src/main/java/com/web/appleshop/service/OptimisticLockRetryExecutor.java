@@ -0,0 +1,79 @@
+package com.web.appleshop.service;
+
+import com.web.appleshop.exception.ConflictException;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.OptimisticLockException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Chạy một thao tác ghi trong transaction riêng và thử lại khi gặp xung đột phiên bản (@Version).
+ * <p>
+ * Mỗi lần thử luôn là một transaction mới ({@code REQUIRES_NEW}) nên dữ liệu được đọc lại từ DB, kể cả khi người gọi
+ * đang ở trong một transaction: transaction ngoài bị tạm dừng và thao tác được commit độc lập với nó. Người gọi không
+ * nên tự mở transaction quanh thao tác này (mỗi request sẽ giữ hai connection) và không được dựa vào việc rollback
+ * transaction ngoài để huỷ thao tác.
+ */
+@Component
+public class OptimisticLockRetryExecutor {
+    private static final Logger log = LoggerFactory.getLogger(OptimisticLockRetryExecutor.class);
+
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${optimistic-lock.retry.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${optimistic-lock.retry.initial-backoff-ms:50}")
+    private long initialBackoffMs;
+
+    @Value("${optimistic-lock.retry.max-backoff-ms:500}")
+    private long maxBackoffMs;
+
+    public OptimisticLockRetryExecutor(PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> T execute(String operation, Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (OptimisticLockingFailureException | OptimisticLockException e) {
+                meterRegistry.counter("optimistic_lock.conflicts", "operation", operation).increment();
+                if (attempt >= maxAttempts) {
+                    meterRegistry.counter("optimistic_lock.exhausted", "operation", operation).increment();
+                    log.warn("Xung đột dữ liệu khi thực hiện {} sau {} lần thử: {}", operation, attempt, e.getMessage());
+                    throw new ConflictException("Dữ liệu đang được cập nhật bởi yêu cầu khác. Vui lòng thử lại.");
+                }
+                meterRegistry.counter("optimistic_lock.retries", "operation", operation).increment();
+                sleep(backoff(attempt));
+            }
+        }
+    }
+
+    // Exponential backoff với full jitter để các yêu cầu xung đột không thử lại cùng lúc.
+    private long backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConflictException("Yêu cầu bị gián đoạn khi chờ thử lại.");
+        }
+    }
+}
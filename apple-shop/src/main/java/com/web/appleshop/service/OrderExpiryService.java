@@ -0,0 +1,10 @@
+package com.web.appleshop.service;
+
+public interface OrderExpiryService {
+    /**
+     * Huỷ các đơn chờ thanh toán đã quá hạn và trả lại hàng.
+     *
+     * @return Số đơn đã huỷ, hoặc 0 nếu node khác đang giữ quyền chạy.
+     */
+    int cancelExpiredOrders();
+}
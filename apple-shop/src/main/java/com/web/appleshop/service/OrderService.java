@@ -1,10 +1,12 @@
 package com.web.appleshop.service;
 
+import com.web.appleshop.dto.FlashSaleCheckoutMessage;
 import com.web.appleshop.dto.PaymentDto;
 import com.web.appleshop.dto.projection.OrderSummaryProjection;
 import com.web.appleshop.dto.request.*;
 import com.web.appleshop.dto.response.OrderUserResponse;
 import com.web.appleshop.dto.response.UserOrderDetailResponse;
+import com.web.appleshop.dto.response.admin.AdminOrderImportResponse;
 import com.web.appleshop.dto.response.admin.OrderAdminResponse;
 import com.web.appleshop.dto.response.admin.OrderSummaryV2Dto;
 import com.web.appleshop.dto.response.statistics.OrderTotalRevenue;
@@ -24,7 +26,13 @@ import java.util.Set;
 public interface OrderService {
     Order createOrder(UserCreateOrderRequest orderRequest, PaymentType paymentType);
 
-    List<Order> createOrder(AdminCreateOrderRequest[] orderRequests);
+    AdminOrderImportResponse createOrder(AdminCreateOrderRequest[] orderRequests);
+
+    /**
+     * Tạo đơn hàng cho các yêu cầu flash sale đã được cấp phát hàng, theo đúng thứ tự đầu vào.
+     * Yêu cầu đã có đơn hàng (do Kafka giao lại) không tạo thêm đơn mà trả về đơn đã có.
+     */
+    List<Order> createFlashSaleOrders(List<FlashSaleCheckoutMessage> allocations);
 
     BigDecimal calculateTotalPrice(Set<OrderDetail> orderDetails);
 
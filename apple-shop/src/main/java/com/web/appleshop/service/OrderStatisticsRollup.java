@@ -0,0 +1,97 @@
+package com.web.appleshop.service;
+
+import com.web.appleshop.repository.OrderDailyStatsRepository;
+import com.web.appleshop.repository.OrderDailyStatsRepositoryCustom.StatisticsPeriod;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Optional;
+
+/**
+ * Dựng các bảng thống kê theo ngày ({@code order_daily_stats}, {@code category_daily_sales}, {@code color_daily_sales},
+ * {@code customer_daily_stats}) từ bảng gốc, ngoài luồng request.
+ * <p>
+ * Tạo đơn và đổi trạng thái không ghi vào các bảng này. Ngay sau nửa đêm, {@link #backfill} dựng lại các ngày đã đóng
+ * trong {@code backfill-days} ngày gần nhất và ghi nhận ngày cuối đã dựng. {@link #statisticsPeriod} chỉ đọc bảng tổng
+ * hợp tới ngày đó, còn hôm nay (và các ngày chưa kịp dựng) đọc thẳng từ bảng gốc. Đơn đổi trạng thái sau khi ngày đặt
+ * đơn đã đóng sẽ được tính lại ở lần dựng kế tiếp, miễn là ngày đó còn trong cửa sổ {@code backfill-days}.
+ */
+@Component
+public class OrderStatisticsRollup {
+    private static final Logger log = LoggerFactory.getLogger(OrderStatisticsRollup.class);
+    private static final String LEASE_KEY = "lease:statistics-rollup";
+    private static final String ROLLED_UP_THROUGH_KEY = "statistics:rolled-up-through";
+    private static final ZoneId ZONE = ZoneId.of("Asia/Ho_Chi_Minh");
+
+    private final OrderDailyStatsRepository orderDailyStatsRepository;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final RedisLeaseLock redisLeaseLock;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${statistics.rollup.backfill-days:7}")
+    private int backfillDays;
+
+    @Value("${statistics.rollup.lease-seconds:600}")
+    private long leaseSeconds;
+
+    public OrderStatisticsRollup(OrderDailyStatsRepository orderDailyStatsRepository, RedisTemplate<String, String> redisTemplate, RedisLeaseLock redisLeaseLock, PlatformTransactionManager transactionManager) {
+        this.orderDailyStatsRepository = orderDailyStatsRepository;
+        this.redisTemplate = redisTemplate;
+        this.redisLeaseLock = redisLeaseLock;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Khoảng thống kê cho các trang quản trị; {@code null} ở hai đầu là không giới hạn / tới hiện tại.
+     */
+    public StatisticsPeriod statisticsPeriod(LocalDateTime fromDate, LocalDateTime toDate) {
+        return StatisticsPeriod.of(
+                fromDate == null ? LocalDateTime.of(1, 1, 1, 0, 0) : fromDate,
+                toDate == null ? LocalDateTime.now(ZONE) : toDate,
+                firstRawDay()
+        );
+    }
+
+    @Scheduled(cron = "${statistics.rollup.backfill-cron:0 5 0 * * *}")
+    public void backfill() {
+        Optional<String> owner = redisLeaseLock.tryAcquire(LEASE_KEY, Duration.ofSeconds(leaseSeconds));
+        if (owner.isEmpty()) {
+            return;
+        }
+        try {
+            long started = System.currentTimeMillis();
+            LocalDate today = LocalDate.now(ZONE);
+            LocalDate fromDate = today.minusDays(backfillDays);
+            LocalDate toDate = today.minusDays(1);
+            transactionTemplate.executeWithoutResult(status -> orderDailyStatsRepository.rebuildDailyStats(fromDate, toDate));
+            redisTemplate.opsForValue().set(ROLLED_UP_THROUGH_KEY, toDate.toString());
+            log.info("Đã dựng lại thống kê theo ngày từ {} tới {} trong {} ms.", fromDate, toDate, System.currentTimeMillis() - started);
+        } finally {
+            redisLeaseLock.release(LEASE_KEY, owner.get());
+        }
+    }
+
+    /**
+     * Ngày đầu tiên chưa được dựng lại, từ đó trở đi đọc thẳng từ bảng gốc. Khi chưa có lần dựng nào được ghi nhận thì
+     * coi như cả cửa sổ {@code backfill-days} chưa dựng.
+     */
+    private LocalDate firstRawDay() {
+        LocalDate today = LocalDate.now(ZONE);
+        String rolledUpThrough = redisTemplate.opsForValue().get(ROLLED_UP_THROUGH_KEY);
+        if (rolledUpThrough == null) {
+            return today.minusDays(backfillDays);
+        }
+        LocalDate firstRawDay = LocalDate.parse(rolledUpThrough).plusDays(1);
+        return firstRawDay.isBefore(today) ? firstRawDay : today;
+    }
+}
@@ -0,0 +1,21 @@
+package com.web.appleshop.service;
+
+import com.web.appleshop.entity.Order;
+import com.web.appleshop.enums.OrderStatus;
+
+public interface OutboxService {
+    /**
+     * Ghi một sự kiện vào bảng outbox trong transaction hiện tại. Sự kiện chỉ được đẩy lên Kafka sau khi
+     * transaction commit; các sự kiện cùng aggregate giữ đúng thứ tự ghi.
+     */
+    void enqueue(String aggregateType, String aggregateId, String topic, Object payload);
+
+    void enqueueOrderStatusChanged(Order order, OrderStatus oldStatus);
+
+    /**
+     * Đẩy các sự kiện chưa gửi lên Kafka theo lô.
+     *
+     * @return số sự kiện đã gửi thành công.
+     */
+    int relayPendingEvents();
+}
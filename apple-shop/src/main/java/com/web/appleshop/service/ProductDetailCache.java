@@ -0,0 +1,215 @@
+package com.web.appleshop.service;
+
+import com.web.appleshop.dto.response.ProductUserResponse;
+import com.web.appleshop.repository.StockRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Cache hai tầng cho trang chi tiết sản phẩm: L1 trong bộ nhớ (giới hạn số bản ghi, LRU) đứng trước L2 trên Redis.
+ * <p>
+ * Mỗi sản phẩm có một phiên bản trên Redis ({@code product:detail-version:{id}}), được tăng sau khi commit mỗi lần
+ * sản phẩm, tồn kho hoặc ảnh thay đổi. Khoá L2 chứa phiên bản nên dữ liệu cũ ghi muộn chỉ rơi vào khoá không còn ai đọc
+ * và tự hết hạn. Phiên bản mới được phát qua Redis pub/sub để mọi node xoá L1 của sản phẩm đó; L1 không nhận bản ghi
+ * có phiên bản thấp hơn phiên bản đã biết.
+ */
+@Component
+public class ProductDetailCache implements MessageListener {
+    private static final Logger log = LoggerFactory.getLogger(ProductDetailCache.class);
+    private static final String INVALIDATION_CHANNEL = "product-detail-cache:invalidate";
+    private static final String VERSION_KEY_PREFIX = "product:detail-version:";
+    private static final String DETAIL_KEY_PREFIX = "product:detail:";
+    private static final ObjectInputFilter DESERIALIZATION_FILTER =
+            ObjectInputFilter.Config.createFilter("com.web.appleshop.dto.response.**;java.base/*;!*");
+
+    private final StockRepository stockRepository;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final Map<Integer, CachedDetail> localEntries;
+    private final ConcurrentHashMap<Integer, Long> knownVersions = new ConcurrentHashMap<>();
+
+    @Value("${product.detail-cache.l1-ttl-seconds:60}")
+    private long localTtlSeconds;
+
+    @Value("${product.detail-cache.l2-ttl-seconds:3600}")
+    private long remoteTtlSeconds;
+
+    public ProductDetailCache(StockRepository stockRepository,
+                              RedisTemplate<String, String> redisTemplate,
+                              RedisMessageListenerContainer listenerContainer,
+                              @Value("${product.detail-cache.l1-max-entries:2000}") int localMaxEntries) {
+        this.stockRepository = stockRepository;
+        this.redisTemplate = redisTemplate;
+        this.localEntries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, CachedDetail> eldest) {
+                return size() > localMaxEntries;
+            }
+        };
+        listenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    public ProductUserResponse get(Integer productId, Supplier<ProductUserResponse> loader) {
+        CachedDetail local;
+        synchronized (localEntries) {
+            local = localEntries.get(productId);
+        }
+        if (local != null && !local.isExpired()) {
+            return local.response();
+        }
+
+        long version = currentVersion(productId);
+        ProductUserResponse response = readRemote(productId, version);
+        if (response == null) {
+            response = loader.get();
+            writeRemote(productId, version, response);
+        }
+        putLocal(productId, version, response);
+        return response;
+    }
+
+    /**
+     * Vô hiệu hoá chi tiết sản phẩm trên mọi node. Nếu đang trong transaction thì chỉ chạy sau khi commit để
+     * không nạp lại dữ liệu cũ.
+     */
+    public void invalidate(Collection<Integer> productIds) {
+        List<Integer> ids = List.copyOf(productIds);
+        if (ids.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ids.forEach(ProductDetailCache.this::bumpVersion);
+                }
+            });
+        } else {
+            ids.forEach(this::bumpVersion);
+        }
+    }
+
+    /**
+     * Vô hiệu hoá các sản phẩm chứa những phiên bản (stock) vừa thay đổi số lượng.
+     */
+    public void invalidateByStockIds(Collection<Integer> stockIds) {
+        if (stockIds.isEmpty()) {
+            return;
+        }
+        invalidate(stockRepository.findProductIdsByIdIn(stockIds));
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split(":");
+        evictLocal(Integer.valueOf(parts[0]), Long.parseLong(parts[1]));
+    }
+
+    private void bumpVersion(Integer productId) {
+        try {
+            Long version = redisTemplate.opsForValue().increment(VERSION_KEY_PREFIX + productId);
+            evictLocal(productId, version == null ? 0 : version);
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, productId + ":" + version);
+        } catch (Exception e) {
+            // Không có Redis thì ít nhất L1 của node này không giữ dữ liệu cũ; node khác chờ L1 hết hạn.
+            evictLocal(productId, knownVersions.getOrDefault(productId, 0L));
+            log.warn("Không cập nhật được phiên bản cache chi tiết sản phẩm {}: {}", productId, e.getMessage());
+        }
+    }
+
+    private void evictLocal(Integer productId, long version) {
+        knownVersions.merge(productId, version, Math::max);
+        synchronized (localEntries) {
+            localEntries.remove(productId);
+        }
+    }
+
+    private void putLocal(Integer productId, long version, ProductUserResponse response) {
+        if (version < knownVersions.getOrDefault(productId, 0L)) {
+            return;
+        }
+        CachedDetail detail = new CachedDetail(response, System.nanoTime() + TimeUnit.SECONDS.toNanos(localTtlSeconds));
+        synchronized (localEntries) {
+            localEntries.put(productId, detail);
+        }
+    }
+
+    private long currentVersion(Integer productId) {
+        try {
+            String version = redisTemplate.opsForValue().get(VERSION_KEY_PREFIX + productId);
+            return version == null ? 0 : Long.parseLong(version);
+        } catch (Exception e) {
+            log.warn("Không đọc được phiên bản cache chi tiết sản phẩm {}: {}", productId, e.getMessage());
+            return knownVersions.getOrDefault(productId, 0L);
+        }
+    }
+
+    private ProductUserResponse readRemote(Integer productId, long version) {
+        try {
+            String value = redisTemplate.opsForValue().get(detailKey(productId, version));
+            return value == null ? null : deserialize(value);
+        } catch (Exception e) {
+            log.warn("Không đọc được cache chi tiết sản phẩm {} từ Redis: {}", productId, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeRemote(Integer productId, long version, ProductUserResponse response) {
+        try {
+            redisTemplate.opsForValue().set(detailKey(productId, version), serialize(response), Duration.ofSeconds(remoteTtlSeconds));
+        } catch (Exception e) {
+            log.warn("Không ghi được cache chi tiết sản phẩm {} lên Redis: {}", productId, e.getMessage());
+        }
+    }
+
+    private static String detailKey(Integer productId, long version) {
+        return DETAIL_KEY_PREFIX + productId + ":" + version;
+    }
+
+    // ProductUserResponse là DTO bất biến, Serializable, nên lưu dạng Java serialization mã hoá Base64.
+    private static String serialize(ProductUserResponse response) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(response);
+        }
+        return Base64.getEncoder().encodeToString(bytes.toByteArray());
+    }
+
+    private static ProductUserResponse deserialize(String value) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(value)))) {
+            in.setObjectInputFilter(DESERIALIZATION_FILTER);
+            return (ProductUserResponse) in.readObject();
+        }
+    }
+
+    private record CachedDetail(ProductUserResponse response, long expiresAtNanos) {
+        boolean isExpired() {
+            return System.nanoTime() - expiresAtNanos > 0;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.web.appleshop.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.web.appleshop.dto.request.UserProductSearchCriteria;
+import com.web.appleshop.dto.response.ProductUserResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache kết quả tìm kiếm sản phẩm của người dùng, theo hash chuẩn hoá của tiêu chí và phân trang.
+ * <p>
+ * Nhiều request trượt cache cùng một khoá chỉ chạy một truy vấn: request đầu tiên nạp, các request còn lại chờ
+ * cùng một {@link CompletableFuture}. Mỗi bản ghi gắn với phiên bản catalog lúc nạp; khi sản phẩm thay đổi,
+ * {@link #invalidateAll} tăng phiên bản trên mọi node (qua Redis pub/sub) nên mọi bản ghi cũ hết hiệu lực ngay.
+ * TTL ngắn bù cho những thay đổi không phát sự kiện như tồn kho giảm theo đơn hàng.
+ */
+@Component
+public class ProductSearchResultCache implements MessageListener {
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchResultCache.class);
+    private static final String INVALIDATION_CHANNEL = "product-search-cache:invalidate";
+
+    private final ObjectMapper objectMapper;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ConcurrentHashMap<String, CachedPage> entries = new ConcurrentHashMap<>();
+    private final AtomicLong catalogVersion = new AtomicLong();
+
+    @Value("${product.search.cache.ttl-seconds:30}")
+    private long ttlSeconds;
+
+    @Value("${product.search.cache.max-entries:5000}")
+    private int maxEntries;
+
+    public ProductSearchResultCache(ObjectMapper objectMapper, RedisTemplate<String, String> redisTemplate, RedisMessageListenerContainer listenerContainer) {
+        this.objectMapper = objectMapper;
+        this.redisTemplate = redisTemplate;
+        listenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    public Page<ProductUserResponse> get(UserProductSearchCriteria criteria, Pageable pageable, Supplier<Page<ProductUserResponse>> loader) {
+        String key = keyOf(criteria, pageable);
+        long version = catalogVersion.get();
+        while (true) {
+            CachedPage current = entries.get(key);
+            if (current != null && current.isFresh(version)) {
+                return await(current.page());
+            }
+
+            CachedPage loading = new CachedPage(version, System.nanoTime() + TimeUnit.SECONDS.toNanos(ttlSeconds), new CompletableFuture<>());
+            boolean claimed = current == null
+                    ? entries.putIfAbsent(key, loading) == null
+                    : entries.replace(key, current, loading);
+            if (!claimed) {
+                // Luồng khác vừa bắt đầu nạp khoá này, quay lại để chờ kết quả của nó.
+                continue;
+            }
+
+            evictIfFull();
+            try {
+                Page<ProductUserResponse> page = loader.get();
+                loading.page().complete(page);
+                return page;
+            } catch (Throwable e) {
+                // Kể cả Error: các luồng đang chờ phải nhận lỗi thay vì treo, và khoá được nạp lại ở lần sau.
+                entries.remove(key, loading);
+                loading.page().completeExceptionally(e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Vô hiệu hoá toàn bộ kết quả trên mọi node. Nếu đang trong transaction thì chỉ phát sau khi commit
+     * để không nạp lại dữ liệu cũ.
+     */
+    public void invalidateAll() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publishInvalidation();
+                }
+            });
+        } else {
+            publishInvalidation();
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        bumpVersion();
+    }
+
+    private void publishInvalidation() {
+        bumpVersion();
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, String.valueOf(catalogVersion.get()));
+        } catch (Exception e) {
+            log.warn("Không phát được thông báo xoá cache tìm kiếm sản phẩm: {}", e.getMessage());
+        }
+    }
+
+    private void bumpVersion() {
+        catalogVersion.incrementAndGet();
+        entries.clear();
+    }
+
+    private void evictIfFull() {
+        if (entries.size() <= maxEntries) {
+            return;
+        }
+        long version = catalogVersion.get();
+        entries.values().removeIf(entry -> entry.page().isDone() && !entry.isFresh(version));
+        if (entries.size() > maxEntries) {
+            entries.values().removeIf(entry -> entry.page().isDone());
+        }
+    }
+
+    private static Page<ProductUserResponse> await(CompletableFuture<Page<ProductUserResponse>> page) {
+        try {
+            return page.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Khoá chuẩn hoá: thuộc tính theo thứ tự chữ cái, tập hợp được sắp xếp, nên cùng một bộ lọc luôn cho cùng một hash
+     * bất kể thứ tự người dùng gửi lên.
+     */
+    private String keyOf(UserProductSearchCriteria criteria, Pageable pageable) {
+        Map<String, Object> canonical = new TreeMap<>();
+        objectMapper.convertValue(criteria, Map.class).forEach((name, value) -> {
+            if (value == null) {
+                return;
+            }
+            if (value instanceof Collection<?> collection) {
+                value = collection.stream().map(String::valueOf).sorted().toList();
+            }
+            canonical.put(String.valueOf(name), value);
+        });
+        canonical.put("_page", pageable.isPaged() ? pageable.getPageNumber() : -1);
+        canonical.put("_size", pageable.isPaged() ? pageable.getPageSize() : -1);
+        canonical.put("_sort", pageable.getSort().toString());
+
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(canonical);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Không tạo được khoá cache cho tiêu chí tìm kiếm", e);
+        }
+    }
+
+    private record CachedPage(long version, long expiresAtNanos, CompletableFuture<Page<ProductUserResponse>> page) {
+        boolean isFresh(long currentVersion) {
+            return version == currentVersion && System.nanoTime() - expiresAtNanos < 0;
+        }
+    }
+}
@@ -2,12 +2,16 @@ package com.web.appleshop.service;
 
 import com.web.appleshop.dto.request.AdminProductSearchCriteria;
 import com.web.appleshop.dto.request.UserProductSearchCriteria;
+import com.web.appleshop.dto.response.ProductFacetResponse;
+import com.web.appleshop.dto.response.ProductSuggestionResponse;
 import com.web.appleshop.dto.response.ProductUserResponse;
 import com.web.appleshop.dto.response.admin.ProductAdminListDto;
 import com.web.appleshop.entity.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.List;
+
 /**
  * Service interface for product search functionality
  */
@@ -37,4 +41,14 @@ public interface ProductSearchService {
      * Check if products exist with the given criteria
      */
     boolean existsProducts(AdminProductSearchCriteria criteria);
+
+    /**
+     * Count facet values (categories, features, colors, instance properties, price buckets) for the user criteria
+     */
+    ProductFacetResponse getFacetsForUser(UserProductSearchCriteria criteria);
+
+    /**
+     * Typeahead suggestions (product, category and color names) for the given prefix, best sellers first
+     */
+    List<ProductSuggestionResponse> suggest(String query, int limit);
 }
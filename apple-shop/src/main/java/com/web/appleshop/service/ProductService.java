@@ -24,7 +24,7 @@ public interface ProductService {
 
     Page<ProductUserResponse> getProductsByCategoryIdForUser(Integer categoryId, Pageable pageable);
 
-    Page<ProductUserResponse> getTopProductsByCategoryIdForUser(Integer categoryId, Pageable pageable);
+    Page<ProductUserResponse> getTopProductsByCategoryIdForUser(Integer categoryId, Integer days, Pageable pageable);
 
     ProductUserResponse getProductByProductIdForUser(Integer categoryId, Integer productId);
 
@@ -0,0 +1,323 @@
+package com.web.appleshop.service;
+
+import com.web.appleshop.dto.response.ProductSuggestionResponse;
+import com.web.appleshop.entity.Category;
+import com.web.appleshop.entity.Color;
+import com.web.appleshop.enums.OrderStatus;
+import com.web.appleshop.repository.CategoryRepository;
+import com.web.appleshop.repository.ColorRepository;
+import com.web.appleshop.repository.ProductRepository;
+import com.web.appleshop.util.SearchKeyUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Chỉ mục gợi ý (typeahead) trong bộ nhớ cho tên sản phẩm, danh mục và màu.
+ * <p>
+ * Mỗi tên được bỏ dấu (xem {@link SearchKeyUtils}) và tách thành các hậu tố theo từ ("iphone 15 pro" -> "iphone 15 pro",
+ * "15 pro", "pro") để gõ bất kỳ từ nào cũng khớp. Các khoá nằm trong một mảng đã sắp xếp; tra cứu là tìm nhị phân
+ * vị trí tiền tố rồi duyệt tới khi hết khớp, lấy N kết quả bán chạy nhất. Không truy vấn DB khi gợi ý.
+ * <p>
+ * Khi sản phẩm thay đổi, {@link #refresh} nạp lại riêng sản phẩm đó sau khi commit và phát thông báo qua Redis pub/sub
+ * cho các node khác; chỉ các khoá của sản phẩm đó được gỡ và chèn lại vào mảng đã sắp xếp (tìm nhị phân vị trí),
+ * không sắp xếp lại toàn bộ. Số lượng đã bán và tên danh mục, màu được nạp lại định kỳ.
+ */
+@Component
+public class ProductSuggestIndex implements MessageListener {
+    private static final Logger log = LoggerFactory.getLogger(ProductSuggestIndex.class);
+    private static final String REFRESH_CHANNEL = "product-suggest:refresh";
+    private static final Set<OrderStatus> UNSOLD_STATUSES = EnumSet.of(
+            OrderStatus.PENDING_PAYMENT, OrderStatus.FAILED_PAYMENT, OrderStatus.CANCELLED, OrderStatus.REFUNDED);
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final ColorRepository colorRepository;
+    private final RedisTemplate<String, String> redisTemplate;
+
+    // Chỉ sửa trong synchronized (this); luồng gợi ý chỉ đọc mảng entries.
+    private final Map<Integer, Suggestion> products = new HashMap<>();
+    private Map<Integer, Long> productSales = Map.of();
+    private List<Suggestion> categories = List.of();
+    private List<Suggestion> colors = List.of();
+    private volatile Entry[] entries = new Entry[0];
+
+    public ProductSuggestIndex(ProductRepository productRepository,
+                               CategoryRepository categoryRepository,
+                               ColorRepository colorRepository,
+                               RedisTemplate<String, String> redisTemplate,
+                               RedisMessageListenerContainer listenerContainer) {
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.colorRepository = colorRepository;
+        this.redisTemplate = redisTemplate;
+        listenerContainer.addMessageListener(this, new ChannelTopic(REFRESH_CHANNEL));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${product.suggest.rebuild-interval-ms:600000}",
+            initialDelayString = "${product.suggest.rebuild-interval-ms:600000}")
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        Map<Integer, Long> sales = toTotals(productRepository.getTotalSoldByProduct(UNSOLD_STATUSES), "productId");
+        Map<Integer, Long> colorSales = toTotals(productRepository.getTotalSoldByColor(UNSOLD_STATUSES), "colorId");
+        List<Map<String, Object>> productRows = productRepository.findSuggestionRows();
+        List<Category> categoryList = categoryRepository.findAll();
+        List<Color> colorList = colorRepository.findAll();
+
+        synchronized (this) {
+            productSales = sales;
+            products.clear();
+            productRows.forEach(this::putProduct);
+
+            Map<Integer, Long> categorySales = new HashMap<>();
+            products.values().forEach(product -> {
+                if (product.categoryId() != null) {
+                    categorySales.merge(product.categoryId(), product.popularity(), Long::sum);
+                }
+            });
+            categories = categoryList.stream()
+                    .map(category -> new Suggestion("CATEGORY", category.getId(), category.getName(), category.getId(),
+                            categorySales.getOrDefault(category.getId(), 0L)))
+                    .toList();
+            colors = colorList.stream()
+                    .map(color -> new Suggestion("COLOR", color.getId(), color.getName(), null,
+                            colorSales.getOrDefault(color.getId(), 0L)))
+                    .toList();
+            publishEntries();
+        }
+        log.info("Đã dựng chỉ mục gợi ý với {} khoá trong {} ms.", entries.length, System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Nạp lại các sản phẩm trên mọi node. Nếu đang trong transaction thì chỉ chạy sau khi commit để không đọc dữ liệu cũ.
+     */
+    public void refresh(Collection<Integer> productIds) {
+        List<Integer> ids = List.copyOf(productIds);
+        if (ids.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refreshAndPublish(ids);
+                }
+            });
+        } else {
+            refreshAndPublish(ids);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        List<Integer> ids = Arrays.stream(body.split(","))
+                .filter(id -> !id.isBlank())
+                .map(Integer::valueOf)
+                .toList();
+        refreshLocal(ids);
+    }
+
+    /**
+     * Tối đa {@code limit} gợi ý có từ bắt đầu bằng {@code query} (không phân biệt dấu), bán chạy nhất trước.
+     */
+    public List<ProductSuggestionResponse> suggest(String query, int limit) {
+        String prefix = SearchKeyUtils.fold(query);
+        if (prefix == null || prefix.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        Entry[] snapshot = entries;
+        Comparator<Suggestion> ranking = Comparator.comparingLong(Suggestion::popularity)
+                .thenComparing(Suggestion::name, Comparator.reverseOrder());
+        PriorityQueue<Suggestion> top = new PriorityQueue<>(limit + 1, ranking);
+        Set<Suggestion> seen = new HashSet<>();
+        for (int i = lowerBound(snapshot, prefix); i < snapshot.length && snapshot[i].key().startsWith(prefix); i++) {
+            Suggestion suggestion = snapshot[i].suggestion();
+            if (!seen.add(suggestion)) {
+                continue;
+            }
+            top.offer(suggestion);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+
+        List<Suggestion> result = new ArrayList<>(top);
+        result.sort(ranking.reversed());
+        return result.stream()
+                .map(suggestion -> new ProductSuggestionResponse(suggestion.type(), suggestion.id(), suggestion.name(), suggestion.categoryId()))
+                .toList();
+    }
+
+    private void refreshAndPublish(List<Integer> ids) {
+        refreshLocal(ids);
+        try {
+            redisTemplate.convertAndSend(REFRESH_CHANNEL, ids.stream().map(String::valueOf).collect(Collectors.joining(",")));
+        } catch (Exception e) {
+            log.warn("Không phát được thông báo cập nhật chỉ mục gợi ý cho sản phẩm {}: {}", ids, e.getMessage());
+        }
+    }
+
+    private void refreshLocal(List<Integer> ids) {
+        List<Map<String, Object>> rows = productRepository.findSuggestionRowsByIdIn(ids);
+        synchronized (this) {
+            // Sản phẩm đã xoá không có trong rows nên chỉ bị gỡ khỏi chỉ mục.
+            List<Suggestion> removed = new ArrayList<>();
+            for (Integer id : ids) {
+                Suggestion previous = products.remove(id);
+                if (previous != null) {
+                    removed.add(previous);
+                }
+            }
+            List<Suggestion> added = rows.stream().map(this::putProduct).toList();
+            updateEntries(removed, added);
+        }
+    }
+
+    private Suggestion putProduct(Map<String, Object> row) {
+        Integer id = (Integer) row.get("id");
+        Suggestion suggestion = new Suggestion("PRODUCT", id, (String) row.get("name"), (Integer) row.get("categoryId"),
+                productSales.getOrDefault(id, 0L));
+        products.put(id, suggestion);
+        return suggestion;
+    }
+
+    /**
+     * Gỡ khoá của {@code removed} và chèn khoá của {@code added} vào bản sao của mảng hiện tại: vị trí được tìm bằng
+     * tìm nhị phân, chỉ các khoá mới phải sắp xếp. Luồng đang gợi ý vẫn dùng mảng cũ tới khi xong.
+     */
+    private void updateEntries(List<Suggestion> removed, List<Suggestion> added) {
+        Entry[] current = entries;
+        BitSet removedAt = new BitSet(current.length);
+        for (Suggestion suggestion : removed) {
+            for (Entry entry : keysOf(suggestion)) {
+                for (int i = lowerBound(current, entry.key()); i < current.length && current[i].key().equals(entry.key()); i++) {
+                    if (current[i].suggestion() == suggestion && !removedAt.get(i)) {
+                        removedAt.set(i);
+                        break;
+                    }
+                }
+            }
+        }
+
+        List<Entry> additions = new ArrayList<>();
+        added.forEach(suggestion -> additions.addAll(keysOf(suggestion)));
+        additions.sort(Comparator.comparing(Entry::key));
+
+        Entry[] next = new Entry[current.length - removedAt.cardinality() + additions.size()];
+        int from = 0;
+        int out = 0;
+        for (Entry addition : additions) {
+            // Các khoá mới đã sắp xếp nên vị trí chèn không giảm.
+            int at = lowerBound(current, addition.key());
+            out = copyKept(current, from, at, removedAt, next, out);
+            next[out++] = addition;
+            from = at;
+        }
+        copyKept(current, from, current.length, removedAt, next, out);
+        entries = next;
+    }
+
+    /**
+     * Chép {@code source[from, to)} trừ các vị trí bị gỡ sang {@code target} từ vị trí {@code out}, theo từng đoạn liền.
+     */
+    private static int copyKept(Entry[] source, int from, int to, BitSet removedAt, Entry[] target, int out) {
+        int start = from;
+        while (start < to) {
+            int removedIndex = removedAt.nextSetBit(start);
+            int end = removedIndex < 0 || removedIndex > to ? to : removedIndex;
+            System.arraycopy(source, start, target, out, end - start);
+            out += end - start;
+            start = end + 1;
+        }
+        return out;
+    }
+
+    /**
+     * Dựng lại mảng khoá từ dữ liệu hiện có rồi thay thế bản cũ; luồng đang gợi ý vẫn dùng mảng cũ tới khi xong.
+     */
+    private void publishEntries() {
+        List<Entry> built = new ArrayList<>();
+        products.values().forEach(suggestion -> built.addAll(keysOf(suggestion)));
+        categories.forEach(suggestion -> built.addAll(keysOf(suggestion)));
+        colors.forEach(suggestion -> built.addAll(keysOf(suggestion)));
+        built.sort(Comparator.comparing(Entry::key));
+        entries = built.toArray(Entry[]::new);
+    }
+
+    private static List<Entry> keysOf(Suggestion suggestion) {
+        String key = SearchKeyUtils.fold(suggestion.name());
+        if (key == null || key.isEmpty()) {
+            return List.of();
+        }
+        List<Entry> keys = new ArrayList<>();
+        keys.add(new Entry(key, suggestion));
+        for (int i = key.indexOf(' '); i >= 0; i = key.indexOf(' ', i + 1)) {
+            keys.add(new Entry(key.substring(i + 1), suggestion));
+        }
+        return keys;
+    }
+
+    private static int lowerBound(Entry[] sorted, String prefix) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid].key().compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static Map<Integer, Long> toTotals(List<Map<String, Object>> rows, String idKey) {
+        Map<Integer, Long> totals = new HashMap<>();
+        for (Map<String, Object> row : rows) {
+            Object id = row.get(idKey);
+            Object total = row.get("totalSold");
+            if (id != null && total != null) {
+                totals.put((Integer) id, ((Number) total).longValue());
+            }
+        }
+        return totals;
+    }
+
+    private record Suggestion(String type, Integer id, String name, Integer categoryId, long popularity) {
+    }
+
+    private record Entry(String key, Suggestion suggestion) {
+    }
+}
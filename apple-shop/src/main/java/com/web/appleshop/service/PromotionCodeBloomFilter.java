@@ -0,0 +1,157 @@
+package com.web.appleshop.service;
+
+import com.web.appleshop.repository.PromotionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter trong bộ nhớ của toàn bộ mã giảm giá đã tồn tại, dùng để loại nhanh các mã chắc chắn chưa có
+ * trước khi hỏi DB.
+ * <p>
+ * {@link #mightContain} trả về {@code false} nghĩa là mã chắc chắn chưa tồn tại; {@code true} có thể là dương tính
+ * giả và cần kiểm tra lại ở DB. Khi chưa nạp xong thì luôn trả về {@code true}. Mã mới được đồng bộ sang các node
+ * khác qua Redis pub/sub; mã bị xoá vẫn nằm trong filter, chỉ tốn thêm một lần kiểm tra DB.
+ */
+@Component
+public class PromotionCodeBloomFilter implements MessageListener {
+    private static final Logger log = LoggerFactory.getLogger(PromotionCodeBloomFilter.class);
+    private static final String CODES_ADDED_CHANNEL = "promotion-codes:added";
+
+    private final PromotionRepository promotionRepository;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private volatile boolean loaded;
+
+    public PromotionCodeBloomFilter(PromotionRepository promotionRepository,
+                                    RedisTemplate<String, String> redisTemplate,
+                                    RedisMessageListenerContainer listenerContainer,
+                                    @Value("${promotion.code-bloom.expected-insertions:2000000}") long expectedInsertions,
+                                    @Value("${promotion.code-bloom.false-positive-rate:0.001}") double falsePositiveRate) {
+        this.promotionRepository = promotionRepository;
+        this.redisTemplate = redisTemplate;
+        // m = -n ln(p) / (ln 2)^2, k = m / n * ln 2
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, (optimalBits + 63) / 64);
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+        listenerContainer.addMessageListener(this, new ChannelTopic(CODES_ADDED_CHANNEL));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long started = System.currentTimeMillis();
+        int[] count = {0};
+        promotionRepository.streamAllCodes(code -> {
+            put(code);
+            count[0]++;
+        });
+        loaded = true;
+        log.info("Đã nạp {} mã giảm giá vào bloom filter trong {} ms.", count[0], System.currentTimeMillis() - started);
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public boolean mightContain(String code) {
+        if (!loaded) {
+            return true;
+        }
+        long hash = hash64(code);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Thêm mã vào filter của node hiện tại ngay lập tức và của các node khác sau khi transaction commit.
+     */
+    public void add(Collection<String> codes) {
+        if (codes.isEmpty()) {
+            return;
+        }
+        codes.forEach(this::put);
+        String message = String.join("\n", codes);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(message);
+                }
+            });
+        } else {
+            publish(message);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        for (String code : new String(message.getBody(), StandardCharsets.UTF_8).split("\n")) {
+            if (!code.isEmpty()) {
+                put(code);
+            }
+        }
+    }
+
+    private void publish(String message) {
+        try {
+            redisTemplate.convertAndSend(CODES_ADDED_CHANNEL, message);
+        } catch (Exception e) {
+            log.warn("Không đồng bộ được mã giảm giá mới sang các node khác: {}", e.getMessage());
+        }
+    }
+
+    private void put(String code) {
+        long hash = hash64(code);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+            int index = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            do {
+                current = bits.get(index);
+            } while ((current & mask) == 0 && !bits.compareAndSet(index, current, current | mask));
+        }
+    }
+
+    // FNV-1a 64 bit rồi trộn thêm (finalizer của MurmurHash3) để hai nửa 32 bit đủ độc lập cho double hashing.
+    private static long hash64(String code) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < code.length(); i++) {
+            hash ^= code.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,211 @@
+package com.web.appleshop.service;
+
+import com.web.appleshop.entity.Promotion;
+import com.web.appleshop.repository.PromotionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+/**
+ * Cache trong bộ nhớ của các mã giảm giá đang hoạt động, theo mã.
+ * <p>
+ * Cache giới hạn số mã (LRU) và hết hạn theo TTL. Mã không tồn tại chỉ được nhớ trong một tập nhỏ riêng, với TTL
+ * ngắn, để chặn việc dò mã liên tục xuống DB mà không chiếm chỗ của mã thật.
+ * <p>
+ * Bản ghi trong cache là bản sao tách khỏi persistence context, chỉ chứa các trường vô hướng, nên dùng chung
+ * được giữa các request. Lượt sử dụng trong bản sao có thể cũ; giới hạn thật được kiểm tra khi
+ * {@link PromotionService#redeem}. Khi mã thay đổi, node thực hiện phát thông báo qua Redis pub/sub để mọi
+ * node xoá bản ghi tương ứng; TTL chỉ là lưới an toàn nếu thông báo bị lỡ.
+ */
+@Component
+public class PromotionCodeCache implements MessageListener {
+    private static final Logger log = LoggerFactory.getLogger(PromotionCodeCache.class);
+    private static final String INVALIDATION_CHANNEL = "promotion-cache:invalidate";
+
+    private final PromotionRepository promotionRepository;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final LruCache entries = new LruCache(() -> this.maxEntries);
+    private final LruCache misses = new LruCache(() -> this.maxMisses);
+    private final ConcurrentHashMap<String, CompletableFuture<Optional<Promotion>>> loading = new ConcurrentHashMap<>();
+    // Tăng mỗi lần xoá cache, để kết quả nạp bắt đầu trước lần xoá không bị ghi đè lại vào cache.
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Value("${promotion.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${promotion.cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${promotion.cache.miss-ttl-seconds:30}")
+    private long missTtlSeconds;
+
+    @Value("${promotion.cache.max-misses:1000}")
+    private int maxMisses;
+
+    public PromotionCodeCache(PromotionRepository promotionRepository, RedisTemplate<String, String> redisTemplate, RedisMessageListenerContainer listenerContainer) {
+        this.promotionRepository = promotionRepository;
+        this.redisTemplate = redisTemplate;
+        listenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    public Optional<Promotion> findActiveByCode(String code) {
+        CachedPromotion cached = entries.get(code);
+        if (cached == null) {
+            cached = misses.get(code);
+        }
+        if (cached != null) {
+            return Optional.ofNullable(cached.promotion());
+        }
+
+        // Chỉ một luồng nạp mỗi mã, các luồng khác cùng mã chờ kết quả. Việc nạp chạy ngoài mọi khoá của map.
+        CompletableFuture<Optional<Promotion>> future = new CompletableFuture<>();
+        CompletableFuture<Optional<Promotion>> existing = loading.putIfAbsent(code, future);
+        if (existing != null) {
+            return existing.join();
+        }
+        try {
+            Optional<Promotion> promotion = load(code);
+            future.complete(promotion);
+            return promotion;
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(code, future);
+        }
+    }
+
+    /**
+     * Xoá mã khỏi cache trên mọi node. Nếu đang trong transaction thì chỉ phát thông báo sau khi commit
+     * để node khác không nạp lại dữ liệu cũ.
+     */
+    public void invalidate(String code) {
+        evict(code);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publishInvalidation(code);
+                }
+            });
+        } else {
+            publishInvalidation(code);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        evict(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    private void evict(String code) {
+        invalidations.incrementAndGet();
+        entries.remove(code);
+        misses.remove(code);
+    }
+
+    private void publishInvalidation(String code) {
+        evict(code);
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, code);
+        } catch (Exception e) {
+            log.warn("Không phát được thông báo xoá cache mã giảm giá {}: {}", code, e.getMessage());
+        }
+    }
+
+    private Optional<Promotion> load(String code) {
+        long generation = invalidations.get();
+        Optional<Promotion> promotion = promotionRepository.findByCodeAndIsActive(code, true).map(this::snapshot);
+        if (invalidations.get() == generation) {
+            if (promotion.isPresent()) {
+                entries.put(code, new CachedPromotion(promotion.get(), expiresAt(ttlSeconds)));
+            } else {
+                misses.put(code, new CachedPromotion(null, expiresAt(missTtlSeconds)));
+            }
+        }
+        return promotion;
+    }
+
+    private static long expiresAt(long seconds) {
+        return System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+    }
+
+    private Promotion snapshot(Promotion source) {
+        Promotion copy = new Promotion();
+        copy.setId(source.getId());
+        copy.setName(source.getName());
+        copy.setCode(source.getCode());
+        copy.setPromotionType(source.getPromotionType());
+        copy.setValue(source.getValue());
+        copy.setMaxDiscountAmount(source.getMaxDiscountAmount());
+        copy.setMinOrderValue(source.getMinOrderValue());
+        copy.setUsageLimit(source.getUsageLimit());
+        copy.setUsageLimitPerUser(source.getUsageLimitPerUser());
+        copy.setUsageCount(source.getUsageCount());
+        copy.setIsActive(source.getIsActive());
+        copy.setVersion(source.getVersion());
+        copy.setStartDate(source.getStartDate());
+        copy.setEndDate(source.getEndDate());
+        copy.setCreatedAt(source.getCreatedAt());
+        return copy;
+    }
+
+    private record CachedPromotion(Promotion promotion, long expiresAtNanos) {
+        boolean isExpired() {
+            return System.nanoTime() - expiresAtNanos > 0;
+        }
+    }
+
+    /**
+     * LRU theo thứ tự truy cập, giới hạn số bản ghi; bản ghi hết hạn bị bỏ khi đọc tới.
+     */
+    private static final class LruCache {
+        private final IntSupplier maxSize;
+        private final LinkedHashMap<String, CachedPromotion> map;
+
+        LruCache(IntSupplier maxSize) {
+            this.maxSize = maxSize;
+            this.map = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedPromotion> eldest) {
+                    return size() > LruCache.this.maxSize.getAsInt();
+                }
+            };
+        }
+
+        synchronized CachedPromotion get(String code) {
+            CachedPromotion cached = map.get(code);
+            if (cached != null && cached.isExpired()) {
+                map.remove(code);
+                return null;
+            }
+            return cached;
+        }
+
+        synchronized void put(String code, CachedPromotion cached) {
+            map.put(code, cached);
+        }
+
+        synchronized void remove(String code) {
+            map.remove(code);
+        }
+    }
+}
@@ -1,14 +1,17 @@
 package com.web.appleshop.service;
 
 import com.web.appleshop.dto.request.CreatePromotionRequest;
+import com.web.appleshop.dto.request.GeneratePromotionCodesRequest;
 import com.web.appleshop.dto.request.PromotionSearchRequest;
 import com.web.appleshop.dto.request.UpdatePromotionRequest;
 import com.web.appleshop.dto.response.UserPromotionDto;
 import com.web.appleshop.dto.response.admin.AdminPromotionDto;
+import com.web.appleshop.dto.response.admin.GeneratePromotionCodesResponse;
 import com.web.appleshop.entity.Promotion;
 import com.web.appleshop.enums.PromotionType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 
@@ -30,7 +33,19 @@ public interface PromotionService {
 
     BigDecimal calculateDiscountAmount(Promotion promotion, BigDecimal amount);
 
-    void incrementUsageCount(Promotion promotion);
+    /**
+     * Ghi nhận một lượt sử dụng mã giảm giá, ném lỗi nếu mã đã hết lượt hoặc người dùng đã dùng đủ số lần.
+     * Phải được gọi trong transaction tạo đơn để lượt dùng được hoàn lại khi đơn rollback.
+     */
+    void redeem(Promotion promotion, Integer userId);
 
     boolean isPromotionValid(Promotion promotion, BigDecimal orderValue);
+
+    GeneratePromotionCodesResponse generatePromotionCodes(Integer templateId, GeneratePromotionCodesRequest request);
+
+    /**
+     * Kiểm tra mã mẫu rồi trả về phần thân phản hồi ghi lần lượt từng mã đã sinh, mỗi mã một dòng,
+     * mà không nạp toàn bộ danh sách vào bộ nhớ.
+     */
+    StreamingResponseBody exportGeneratedCodes(Integer templateId);
 }
@@ -0,0 +1,51 @@
+package com.web.appleshop.service;
+
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Lease trên Redis để chỉ một node chạy một tác vụ định kỳ tại một thời điểm.
+ * <p>
+ * Lease tự hết hạn nếu node giữ nó chết, và chỉ chủ sở hữu hiện tại mới gia hạn hoặc trả được lease.
+ */
+@Component
+public class RedisLeaseLock {
+    // Chỉ gia hạn / xoá lease khi node hiện tại vẫn là chủ sở hữu.
+    private static final RedisScript<Long> RENEW_LEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('PEXPIRE', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+    private static final RedisScript<Long> RELEASE_LEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+
+    public RedisLeaseLock(RedisTemplate<String, String> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * @return mã chủ sở hữu nếu lấy được lease, rỗng nếu node khác đang giữ.
+     */
+    public Optional<String> tryAcquire(String key, Duration ttl) {
+        String owner = UUID.randomUUID().toString();
+        Boolean acquired = redisTemplate.opsForValue().setIfAbsent(key, owner, ttl);
+        return Boolean.TRUE.equals(acquired) ? Optional.of(owner) : Optional.empty();
+    }
+
+    public boolean renew(String key, String owner, Duration ttl) {
+        Long renewed = redisTemplate.execute(RENEW_LEASE_SCRIPT, List.of(key), owner, String.valueOf(ttl.toMillis()));
+        return renewed != null && renewed != 0;
+    }
+
+    public void release(String key, String owner) {
+        redisTemplate.execute(RELEASE_LEASE_SCRIPT, List.of(key), owner);
+    }
+}
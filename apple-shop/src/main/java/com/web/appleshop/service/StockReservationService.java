@@ -0,0 +1,58 @@
+package com.web.appleshop.service;
+
+import com.web.appleshop.entity.Order;
+import com.web.appleshop.entity.Stock;
+import com.web.appleshop.enums.OrderStatus;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Giữ hàng tạm thời (có thời hạn) cho các đơn hàng đang chờ thanh toán online.
+ * <p>
+ * Phần giữ hàng nằm trên Redis nên đơn bị bỏ dở thanh toán sẽ tự hết hạn mà không cần ghi lại DB.
+ * Tồn kho trong DB chỉ bị trừ khi đơn hàng chuyển sang {@link OrderStatus#PAID}.
+ */
+public interface StockReservationService {
+    /**
+     * Giữ hàng cho đơn hàng. Thao tác là nguyên tử: hoặc giữ được toàn bộ các dòng, hoặc không giữ dòng nào.
+     *
+     * @return Thời điểm phần giữ hàng hết hạn.
+     */
+    LocalDateTime reserve(Integer orderId, Map<Integer, Integer> stockIdQuantityMap);
+
+    /**
+     * Trừ tồn kho thật trong DB cho đơn đã thanh toán và xoá phần giữ hàng sau khi commit.
+     * Nếu DB không còn đủ hàng thì đơn được đánh dấu {@code stockShortage} thay vì bị từ chối.
+     */
+    void confirm(Order order);
+
+    /**
+     * Trừ thẳng tồn kho cho đơn không qua bước giữ hàng (đơn do admin tạo, nhập đơn hàng loạt),
+     * chỉ dùng phần chưa được giữ cho đơn khác. Khi có phiên bản không đủ hàng thì không giữ gì, nhưng các lệnh trừ
+     * đã chạy vẫn nằm trong transaction nên người gọi phải rollback.
+     *
+     * @return Tập id các phiên bản không đủ hàng; rỗng nếu thành công.
+     */
+    Set<Integer> consume(Map<Integer, Integer> stockIdQuantityMap);
+
+    /**
+     * Trả lại phần giữ hàng của đơn hàng (sau khi commit) mà không đụng tới DB.
+     */
+    void release(Order order);
+
+    /**
+     * Chốt phần giữ hàng theo trạng thái mới của đơn: xác nhận khi {@code PAID},
+     * trả lại khi {@code FAILED_PAYMENT} hoặc {@code CANCELLED}. Không làm gì nếu đơn không giữ hàng.
+     */
+    void settle(Order order, OrderStatus newStatus);
+
+    Map<Integer, Integer> getHeldQuantities(Collection<Integer> stockIds);
+
+    /**
+     * Số lượng còn bán được = tồn kho trong DB trừ đi số lượng đang được giữ.
+     */
+    int getAvailableQuantity(Stock stock);
+}
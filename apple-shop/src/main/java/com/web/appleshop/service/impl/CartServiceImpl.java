@@ -13,6 +13,7 @@ import com.web.appleshop.exception.NotFoundException;
 import com.web.appleshop.repository.CartItemRepository;
 import com.web.appleshop.repository.StockRepository;
 import com.web.appleshop.service.CartService;
+import com.web.appleshop.service.StockReservationService;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
@@ -35,6 +36,7 @@ public class CartServiceImpl implements CartService {
 
     private final StockRepository stockRepository;
     private final CartItemRepository cartItemRepository;
+    private final StockReservationService stockReservationService;
 
     @Transactional
     @PreAuthorize("hasAnyAuthority('ROLE_USER')")
@@ -148,7 +150,7 @@ public class CartServiceImpl implements CartService {
         if (requestQuantity > 10) {
             throw new IllegalArgumentException("Bạn chỉ có thể thêm tối đa 10 sản phẩm trong giỏ hàng. Liên hệ với chúng tôi để đặt hàng với số lượng lớn hơn.");
         }
-        if (stock.getQuantity() < requestQuantity) {
+        if (stockReservationService.getAvailableQuantity(stock) < requestQuantity) {
             throw new IllegalArgumentException("Số lượng sản phẩm trong kho không đủ.");
         }
     }
@@ -8,6 +8,7 @@ import com.web.appleshop.dto.response.admin.CategoryInfoDto;
 import com.web.appleshop.entity.Category;
 import com.web.appleshop.repository.CategoryRepository;
 import com.web.appleshop.service.CategoryService;
+import com.web.appleshop.service.HomepageCategorySnapshot;
 import com.web.appleshop.specification.CategorySpecification;
 import com.web.appleshop.util.UploadUtils;
 import lombok.RequiredArgsConstructor;
@@ -28,6 +29,7 @@ public class CategoryServiceImpl implements CategoryService {
     private final CategoryRepository categoryRepository;
     private final CategorySpecification categorySpecification;
     private final UploadUtils uploadUtils;
+    private final HomepageCategorySnapshot homepageCategorySnapshot;
 
     @Override
     @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_STAFF')")
@@ -37,8 +39,7 @@ public class CategoryServiceImpl implements CategoryService {
 
     @Override
     public List<CategoryWProductResponse> getCategories() {
-        List<Category> categories = categoryRepository.findCategoryWith4Products();
-        return categories.stream().map(this::mapToCategoryWProductResponse).toList();
+        return homepageCategorySnapshot.getCategories();
     }
 
     @Override
@@ -68,6 +69,7 @@ public class CategoryServiceImpl implements CategoryService {
         } else {
             category.setImage(request.getImage());
         }
+        homepageCategorySnapshot.refresh();
         return categoryRepository.save(category);
     }
 
@@ -85,6 +87,7 @@ public class CategoryServiceImpl implements CategoryService {
         } else {
             category.setImage(request.getImage());
         }
+        homepageCategorySnapshot.refresh();
         return categoryRepository.save(
                 category
         );
@@ -95,6 +98,7 @@ public class CategoryServiceImpl implements CategoryService {
     @Transactional
     public void deleteCategory(Integer categoryId) {
         categoryRepository.deleteById(categoryId);
+        homepageCategorySnapshot.refresh();
     }
 
     private CategoryInfoDto convertCategoryToCategoryInfoDto(Category category) {
@@ -105,22 +109,4 @@ public class CategoryServiceImpl implements CategoryService {
                 category.getImage()
         );
     }
-
-    private CategoryWProductResponse mapToCategoryWProductResponse(Category category) {
-        return new CategoryWProductResponse(
-                category.getId(),
-                category.getName(),
-                category.getDescription(),
-                category.getImage(),
-                category.getProducts().stream().limit(4).sorted(
-                        (p1, p2) -> p2.getCreatedAt().compareTo(p1.getCreatedAt())
-                ).filter(
-                        product -> product.getIsDeleted() == false
-                ).map(product ->
-                        new CategoryWProductResponse.ProductInfo(
-                                product.getId(),
-                                product.getName()
-                        )).toList().toArray(new CategoryWProductResponse.ProductInfo[0])
-        );
-    }
 }
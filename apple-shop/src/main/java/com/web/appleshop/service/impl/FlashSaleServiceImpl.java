@@ -0,0 +1,274 @@
+package com.web.appleshop.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.web.appleshop.dto.FlashSaleCheckoutMessage;
+import com.web.appleshop.dto.request.FlashSaleCheckoutRequest;
+import com.web.appleshop.dto.response.FlashSaleTicketResponse;
+import com.web.appleshop.entity.Order;
+import com.web.appleshop.entity.Stock;
+import com.web.appleshop.entity.User;
+import com.web.appleshop.enums.FlashSaleTicketStatus;
+import com.web.appleshop.enums.OrderStatus;
+import com.web.appleshop.enums.PaymentType;
+import com.web.appleshop.exception.BadRequestException;
+import com.web.appleshop.exception.IllegalStateException;
+import com.web.appleshop.exception.NotFoundException;
+import com.web.appleshop.repository.OrderRepository;
+import com.web.appleshop.repository.StockRepository;
+import com.web.appleshop.service.FlashSaleService;
+import com.web.appleshop.service.OrderService;
+import com.web.appleshop.service.StockReservationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@Service
+public class FlashSaleServiceImpl implements FlashSaleService {
+    private static final Logger log = LoggerFactory.getLogger(FlashSaleServiceImpl.class);
+    private static final String TOPIC = "flash-sale-checkout";
+    private static final String TICKET_KEY_PREFIX = "flash_sale:ticket:";
+    // Đơn ở các trạng thái này không còn giữ hàng nên không tính vào giới hạn mua của người dùng.
+    private static final Set<OrderStatus> RELEASED_STATUSES = EnumSet.of(OrderStatus.CANCELLED, OrderStatus.FAILED_PAYMENT);
+
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final StockRepository stockRepository;
+    private final OrderRepository orderRepository;
+    private final StockReservationService stockReservationService;
+    private final OrderService orderService;
+
+    @Value("${flash-sale.ticket-ttl-minutes:30}")
+    private long ticketTtlMinutes;
+
+    @Value("${flash-sale.max-quantity-per-user:2}")
+    private int maxQuantityPerUser;
+
+    public FlashSaleServiceImpl(KafkaTemplate<String, String> kafkaTemplate, RedisTemplate<String, String> redisTemplate, ObjectMapper objectMapper, StockRepository stockRepository, OrderRepository orderRepository, StockReservationService stockReservationService, OrderService orderService) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.stockRepository = stockRepository;
+        this.orderRepository = orderRepository;
+        this.stockReservationService = stockReservationService;
+        this.orderService = orderService;
+    }
+
+    @Override
+    @PreAuthorize("hasAnyAuthority('ROLE_USER')")
+    public FlashSaleTicketResponse enqueueCheckout(FlashSaleCheckoutRequest request, PaymentType paymentType) {
+        User user = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        Stock stock = stockRepository.findById(request.getStockId()).orElseThrow(
+                () -> new NotFoundException("Không tìm thấy phiên bản sản phẩm nào có id: " + request.getStockId())
+        );
+        if (!Boolean.TRUE.equals(stock.getIsFlashSale())) {
+            throw new BadRequestException("Sản phẩm không nằm trong chương trình flash sale.");
+        }
+        if (request.getQuantity() > maxQuantityPerUser) {
+            throw new BadRequestException("Mỗi khách hàng chỉ được mua tối đa " + maxQuantityPerUser + " sản phẩm flash sale này.");
+        }
+
+        FlashSaleCheckoutMessage message = new FlashSaleCheckoutMessage();
+        BeanUtils.copyProperties(request, message);
+        message.setTicketId(UUID.randomUUID().toString());
+        message.setUserId(user.getId());
+        message.setPaymentType(paymentType);
+
+        FlashSaleTicketResponse ticket = new FlashSaleTicketResponse(
+                message.getTicketId(), FlashSaleTicketStatus.QUEUED, null, "Yêu cầu đang được xử lý."
+        );
+        saveTicket(user.getId(), ticket);
+
+        try {
+            // Key là id phiên bản nên mọi yêu cầu của cùng một sản phẩm vào cùng một partition.
+            kafkaTemplate.send(TOPIC, String.valueOf(stock.getId()), objectMapper.writeValueAsString(message))
+                    .whenComplete((result, e) -> {
+                        if (e != null) {
+                            log.error("Không gửi được yêu cầu flash sale {} vào hàng đợi", message.getTicketId(), e);
+                            markFailed(user.getId(), message.getTicketId());
+                        }
+                    });
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.error("Không thể gửi yêu cầu flash sale {}", message.getTicketId(), e);
+            markFailed(user.getId(), message.getTicketId());
+            throw new IllegalStateException("Không thể gửi yêu cầu flash sale, vui lòng thử lại.");
+        }
+        return ticket;
+    }
+
+    @Override
+    @PreAuthorize("hasAnyAuthority('ROLE_USER')")
+    public FlashSaleTicketResponse getTicket(String ticketId) {
+        User user = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        Map<Object, Object> entries = redisTemplate.opsForHash().entries(TICKET_KEY_PREFIX + ticketId);
+        if (entries.isEmpty() || !String.valueOf(user.getId()).equals(entries.get("userId"))) {
+            throw new NotFoundException("Không tìm thấy yêu cầu flash sale: " + ticketId);
+        }
+        Object orderId = entries.get("orderId");
+        return new FlashSaleTicketResponse(
+                ticketId,
+                FlashSaleTicketStatus.valueOf((String) entries.get("status")),
+                orderId == null ? null : Integer.valueOf((String) orderId),
+                (String) entries.get("message")
+        );
+    }
+
+    @Override
+    public void allocate(List<FlashSaleCheckoutMessage> messages) {
+        List<FlashSaleCheckoutMessage> pending = skipProcessed(messages);
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Set<Integer> stockIds = pending.stream().map(FlashSaleCheckoutMessage::getStockId).collect(Collectors.toSet());
+        Map<Integer, Integer> heldQuantities = stockReservationService.getHeldQuantities(stockIds);
+        Map<Integer, Integer> remaining = new HashMap<>();
+        for (Stock stock : stockRepository.findStockByIdIn(stockIds)) {
+            remaining.put(stock.getId(), stock.getQuantity() - heldQuantities.getOrDefault(stock.getId(), 0));
+        }
+        Map<String, Integer> purchased = getPurchasedQuantities(pending, stockIds);
+
+        // Cấp phát tuần tự trong bộ nhớ; chỉ consumer của partition này ghi lên các phiên bản sản phẩm trong batch.
+        List<FlashSaleCheckoutMessage> accepted = new ArrayList<>();
+        for (FlashSaleCheckoutMessage message : pending) {
+            String purchaseKey = purchaseKey(message.getUserId(), message.getStockId());
+            int bought = purchased.getOrDefault(purchaseKey, 0);
+            if (bought + message.getQuantity() > maxQuantityPerUser) {
+                reject(message, "Mỗi khách hàng chỉ được mua tối đa " + maxQuantityPerUser + " sản phẩm flash sale này.");
+                continue;
+            }
+            Integer left = remaining.get(message.getStockId());
+            if (left == null || left < message.getQuantity()) {
+                reject(message, "Sản phẩm đã hết hàng.");
+                continue;
+            }
+            remaining.put(message.getStockId(), left - message.getQuantity());
+            purchased.put(purchaseKey, bought + message.getQuantity());
+            accepted.add(message);
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<Order> orders = orderService.createFlashSaleOrders(accepted);
+            for (int i = 0; i < accepted.size(); i++) {
+                allocated(accepted.get(i), orders.get(i));
+            }
+            log.info("Flash sale: cấp phát {} / {} yêu cầu", accepted.size(), pending.size());
+        } catch (RuntimeException e) {
+            // Cả batch đã rollback; tạo lại từng đơn để một yêu cầu lỗi không kéo theo các yêu cầu còn lại.
+            log.warn("Flash sale: không thể tạo {} đơn hàng trong một batch, tạo lại từng đơn", accepted.size(), e);
+            int allocatedCount = 0;
+            for (FlashSaleCheckoutMessage message : accepted) {
+                try {
+                    allocated(message, orderService.createFlashSaleOrders(List.of(message)).getFirst());
+                    allocatedCount++;
+                } catch (RuntimeException rowError) {
+                    log.error("Flash sale: không thể tạo đơn hàng cho yêu cầu {}", message.getTicketId(), rowError);
+                    reject(message, "Không thể tạo đơn hàng, vui lòng thử lại.");
+                }
+            }
+            log.info("Flash sale: cấp phát {} / {} yêu cầu", allocatedCount, pending.size());
+        }
+    }
+
+    @Override
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_STAFF')")
+    @Transactional
+    public Stock setFlashSale(Integer stockId, boolean enabled) {
+        Stock stock = stockRepository.findById(stockId).orElseThrow(
+                () -> new NotFoundException("Không tìm thấy phiên bản sản phẩm nào có id: " + stockId)
+        );
+        stock.setIsFlashSale(enabled);
+        return stockRepository.save(stock);
+    }
+
+    /**
+     * Kafka giao ít nhất một lần nên một yêu cầu có thể đến nhiều lần, kể cả trong cùng một batch.
+     * Yêu cầu đã có đơn hàng chỉ được ghi lại trạng thái vé, không cấp phát thêm.
+     */
+    private List<FlashSaleCheckoutMessage> skipProcessed(List<FlashSaleCheckoutMessage> messages) {
+        Map<String, FlashSaleCheckoutMessage> unique = new LinkedHashMap<>();
+        messages.forEach(message -> unique.putIfAbsent(message.getTicketId(), message));
+        if (unique.isEmpty()) {
+            return List.of();
+        }
+
+        Map<String, Order> processed = orderRepository.findOrdersByFlashSaleTicketIdIn(unique.keySet()).stream()
+                .collect(Collectors.toMap(Order::getFlashSaleTicketId, order -> order));
+        List<FlashSaleCheckoutMessage> pending = new ArrayList<>(unique.size());
+        for (FlashSaleCheckoutMessage message : unique.values()) {
+            Order order = processed.get(message.getTicketId());
+            if (order != null) {
+                allocated(message, order);
+            } else {
+                pending.add(message);
+            }
+        }
+        if (pending.size() < messages.size()) {
+            log.info("Flash sale: bỏ qua {} yêu cầu trùng hoặc đã xử lý", messages.size() - pending.size());
+        }
+        return pending;
+    }
+
+    /**
+     * Số lượng mỗi người dùng đã đặt cho từng phiên bản trong batch, theo các đơn flash sale còn hiệu lực.
+     * Cùng một phiên bản luôn vào cùng một partition nên đọc một lần rồi cộng dần trong bộ nhớ là đủ.
+     */
+    private Map<String, Integer> getPurchasedQuantities(List<FlashSaleCheckoutMessage> messages, Set<Integer> stockIds) {
+        Set<Integer> userIds = messages.stream().map(FlashSaleCheckoutMessage::getUserId).collect(Collectors.toSet());
+        Map<String, Integer> purchased = new HashMap<>();
+        for (Object[] row : orderRepository.sumFlashSaleQuantities(userIds, stockIds, RELEASED_STATUSES)) {
+            purchased.put(purchaseKey((Integer) row[0], (Integer) row[1]), ((Number) row[2]).intValue());
+        }
+        return purchased;
+    }
+
+    private static String purchaseKey(Integer userId, Integer stockId) {
+        return userId + ":" + stockId;
+    }
+
+    private void allocated(FlashSaleCheckoutMessage message, Order order) {
+        saveTicket(message.getUserId(), new FlashSaleTicketResponse(
+                message.getTicketId(), FlashSaleTicketStatus.ALLOCATED, order.getId(), "Đặt hàng thành công, vui lòng thanh toán."
+        ));
+    }
+
+    private void markFailed(Integer userId, String ticketId) {
+        saveTicket(userId, new FlashSaleTicketResponse(
+                ticketId, FlashSaleTicketStatus.FAILED, null, "Không thể gửi yêu cầu, vui lòng thử lại."
+        ));
+    }
+
+    private void reject(FlashSaleCheckoutMessage message, String reason) {
+        saveTicket(message.getUserId(), new FlashSaleTicketResponse(
+                message.getTicketId(), FlashSaleTicketStatus.REJECTED, null, reason
+        ));
+    }
+
+    private void saveTicket(Integer userId, FlashSaleTicketResponse ticket) {
+        String key = TICKET_KEY_PREFIX + ticket.getTicketId();
+        Map<String, String> entries = new HashMap<>();
+        entries.put("userId", String.valueOf(userId));
+        entries.put("status", ticket.getStatus().name());
+        entries.put("message", ticket.getMessage());
+        if (ticket.getOrderId() != null) {
+            entries.put("orderId", String.valueOf(ticket.getOrderId()));
+        }
+        redisTemplate.opsForHash().putAll(key, entries);
+        redisTemplate.expire(key, ticketTtlMinutes, TimeUnit.MINUTES);
+    }
+}
@@ -0,0 +1,126 @@
+package com.web.appleshop.service.impl;
+
+import com.web.appleshop.entity.Order;
+import com.web.appleshop.enums.OrderStatus;
+import com.web.appleshop.repository.OrderRepository;
+import com.web.appleshop.service.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+
+@Service
+public class OrderExpiryServiceImpl implements OrderExpiryService {
+    private static final Logger log = LoggerFactory.getLogger(OrderExpiryServiceImpl.class);
+    private static final String LEASE_KEY = "lease:order-expiry-sweeper";
+
+    private final OrderRepository orderRepository;
+    private final OrderStatusManager orderStatusManager;
+    private final StockReservationService stockReservationService;
+    private final MailService mailService;
+    private final OutboxService outboxService;
+    private final RedisLeaseLock redisLeaseLock;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${order.expiry-sweeper.chunk-size:200}")
+    private int chunkSize;
+
+    @Value("${order.expiry-sweeper.lease-seconds:120}")
+    private long leaseSeconds;
+
+    public OrderExpiryServiceImpl(OrderRepository orderRepository, OrderStatusManager orderStatusManager, StockReservationService stockReservationService, MailService mailService, OutboxService outboxService, RedisLeaseLock redisLeaseLock, PlatformTransactionManager transactionManager) {
+        this.orderRepository = orderRepository;
+        this.orderStatusManager = orderStatusManager;
+        this.stockReservationService = stockReservationService;
+        this.mailService = mailService;
+        this.outboxService = outboxService;
+        this.redisLeaseLock = redisLeaseLock;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${order.expiry-sweeper.fixed-delay-ms:60000}", initialDelayString = "${order.expiry-sweeper.initial-delay-ms:60000}")
+    public void sweep() {
+        try {
+            int cancelled = cancelExpiredOrders();
+            if (cancelled > 0) {
+                log.info("Đã huỷ {} đơn hàng quá hạn thanh toán.", cancelled);
+            }
+        } catch (Exception e) {
+            log.error("Huỷ đơn hàng quá hạn thất bại", e);
+        }
+    }
+
+    @Override
+    public int cancelExpiredOrders() {
+        Duration leaseTtl = Duration.ofSeconds(leaseSeconds);
+        Optional<String> owner = redisLeaseLock.tryAcquire(LEASE_KEY, leaseTtl);
+        if (owner.isEmpty()) {
+            return 0;
+        }
+
+        int cancelled = 0;
+        try {
+            // Cùng múi giờ với thời điểm hết hạn ghi lúc giữ hàng.
+            LocalDateTime now = LocalDateTime.now(ZoneId.of("Asia/Ho_Chi_Minh"));
+            Integer lastId = 0;
+            while (true) {
+                List<Integer> orderIds = orderRepository.findExpiredOrderIds(
+                        OrderStatus.PENDING_PAYMENT, now, lastId, PageRequest.of(0, chunkSize)
+                );
+                if (orderIds.isEmpty()) {
+                    break;
+                }
+                lastId = orderIds.getLast();
+
+                Integer cancelledInChunk = transactionTemplate.execute(status -> cancelChunk(orderIds));
+                if (cancelledInChunk != null) {
+                    cancelled += cancelledInChunk;
+                }
+
+                if (orderIds.size() < chunkSize || !renewLease(owner.get(), leaseTtl)) {
+                    break;
+                }
+            }
+        } finally {
+            redisLeaseLock.release(LEASE_KEY, owner.get());
+        }
+        return cancelled;
+    }
+
+    private int cancelChunk(List<Integer> orderIds) {
+        List<Order> orders = orderRepository.findOrdersByIdIn(orderIds);
+        List<Order> cancelledOrders = new ArrayList<>();
+        for (Order order : orders) {
+            // Đơn có thể vừa được thanh toán giữa lúc lấy id và lúc xử lý.
+            if (order.getStatus() != OrderStatus.PENDING_PAYMENT
+                    || !orderStatusManager.isValidTransition(order.getStatus(), OrderStatus.CANCELLED)) {
+                continue;
+            }
+            stockReservationService.release(order);
+            order.setStatus(OrderStatus.CANCELLED);
+            outboxService.enqueueOrderStatusChanged(order, OrderStatus.PENDING_PAYMENT);
+            cancelledOrders.add(order);
+        }
+        orderRepository.saveAll(cancelledOrders);
+        // Mail đi qua outbox cùng transaction nên đơn bị rollback sẽ không bị báo huỷ.
+        mailService.sendUpdateOrderStatusMails(cancelledOrders, OrderStatus.CANCELLED, OrderStatus.PENDING_PAYMENT);
+        return cancelledOrders.size();
+    }
+
+    private boolean renewLease(String owner, Duration leaseTtl) {
+        if (!redisLeaseLock.renew(LEASE_KEY, owner, leaseTtl)) {
+            log.warn("Mất quyền chạy tác vụ huỷ đơn quá hạn, dừng lại.");
+            return false;
+        }
+        return true;
+    }
+}
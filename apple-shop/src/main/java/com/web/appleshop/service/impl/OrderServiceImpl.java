@@ -1,10 +1,12 @@
 package com.web.appleshop.service.impl;
 
+import com.web.appleshop.dto.FlashSaleCheckoutMessage;
 import com.web.appleshop.dto.PaymentDto;
 import com.web.appleshop.dto.projection.OrderSummaryProjection;
 import com.web.appleshop.dto.request.*;
 import com.web.appleshop.dto.response.OrderUserResponse;
 import com.web.appleshop.dto.response.UserOrderDetailResponse;
+import com.web.appleshop.dto.response.admin.AdminOrderImportResponse;
 import com.web.appleshop.dto.response.admin.OrderAdminResponse;
 import com.web.appleshop.dto.response.admin.OrderSummaryV2Dto;
 import com.web.appleshop.entity.*;
@@ -14,7 +16,9 @@ import com.web.appleshop.exception.BadRequestException;
 import com.web.appleshop.exception.IllegalArgumentException;
 import com.web.appleshop.exception.NotFoundException;
 import com.web.appleshop.repository.CartItemRepository;
+import com.web.appleshop.repository.OrderDailyStatsRepository;
 import com.web.appleshop.repository.OrderRepository;
+import com.web.appleshop.repository.PromotionRepository;
 import com.web.appleshop.repository.StockRepository;
 import com.web.appleshop.repository.UserRepository;
 import com.web.appleshop.service.*;
@@ -32,11 +36,13 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -54,16 +60,29 @@ public class OrderServiceImpl implements OrderService {
     private final UserRepository userRepository;
     private final OrderSpecification orderSpecification;
     private final PromotionService promotionService;
+    private final PromotionRepository promotionRepository;
     private final PayPalService payPalService;
+    private final StockReservationService stockReservationService;
+    private final OptimisticLockRetryExecutor optimisticLockRetryExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxService outboxService;
+    private final BestSellerIndex bestSellerIndex;
+    private final OrderStatisticsRollup orderStatisticsRollup;
+    private final OrderDailyStatsRepository orderDailyStatsRepository;
     @Value("${public.base.url}")
     private String publicBaseUrl;
+    @Value("${order.import.chunk-size:500}")
+    private int importChunkSize;
 
     @Override
     @PreAuthorize("hasAnyAuthority('ROLE_USER')")
-    @Transactional
     public Order createOrder(UserCreateOrderRequest orderRequest, PaymentType paymentType) {
+        return optimisticLockRetryExecutor.execute("order.create", () -> doCreateOrder(orderRequest, paymentType));
+    }
+
+    private Order doCreateOrder(UserCreateOrderRequest orderRequest, PaymentType paymentType) {
         User user = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        List<CartItem> cartItems = cartItemRepository.findCartItemsByUserId(user.getId());
+        List<CartItem> cartItems = findCheckoutItems(user.getId());
         if (cartItems.isEmpty()) {
             throw new BadRequestException("Không có sản phẩm trong giỏ hàng.");
         }
@@ -71,20 +90,20 @@ public class OrderServiceImpl implements OrderService {
         Order order = new Order();
         BeanUtils.copyProperties(orderRequest, order);
         order.setCreatedBy(user);
-        order.setCreatedAt(LocalDateTime.now());
+        order.setCreatedAt(LocalDateTime.now(ZoneId.of("Asia/Ho_Chi_Minh")));
         order.setStatus(OrderStatus.PENDING_PAYMENT);
         order.setPaymentType(paymentType);
 
         BigDecimal totalPrice = BigDecimal.ZERO;
         Set<OrderDetail> orderDetails = new LinkedHashSet<>();
+        Map<Integer, Integer> stockIdQuantityMap = new LinkedHashMap<>();
         for (CartItem cartItem : cartItems) {
-            if (cartItem.getStock().getQuantity() < cartItem.getQuantity()) {
-                throw new IllegalArgumentException("Số lượng sản phẩm trong kho không đủ.");
-            }
-
             if (cartItem.getQuantity() == 0) {
                 throw new IllegalArgumentException("Số lượng sản phẩm không hợp lệ.");
             }
+            if (Boolean.TRUE.equals(cartItem.getStock().getIsFlashSale())) {
+                throw new BadRequestException("Sản phẩm " + cartItem.getProductName() + " đang trong chương trình flash sale, vui lòng đặt hàng qua flash sale.");
+            }
 
             OrderDetail orderDetail = new OrderDetail();
             orderDetail.setOrder(order);
@@ -102,39 +121,70 @@ public class OrderServiceImpl implements OrderService {
                     .orElseThrow(() -> new NotFoundException("Không tìm thấy hình ảnh sản phẩm.")));
             orderDetails.add(orderDetail);
 
-            cartItem.getStock().setQuantity(cartItem.getStock().getQuantity() - cartItem.getQuantity());
             orderDetail.setStock(cartItem.getStock());
-            stockRepository.save(cartItem.getStock());
+            stockIdQuantityMap.merge(cartItem.getStock().getId(), cartItem.getQuantity(), Integer::sum);
 
             totalPrice = totalPrice.add(cartItem.getStock().getPrice().multiply(BigDecimal.valueOf(cartItem.getQuantity())));
-
-            cartItemRepository.delete(cartItem);
         }
+        cartItemRepository.deleteAllInBatch(cartItems);
         order.setOrderDetails(orderDetails);
 
-        return orderRepository.save(order);
+        Order savedOrder = orderRepository.save(order);
+        savedOrder.setReservationExpiresAt(stockReservationService.reserve(savedOrder.getId(), stockIdQuantityMap));
+        return savedOrder;
     }
 
     @Override
     @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_STAFF')")
-    @Transactional
-    public List<Order> createOrder(AdminCreateOrderRequest[] orderRequests) {
+    public AdminOrderImportResponse createOrder(AdminCreateOrderRequest[] orderRequests) {
         log.info("Bắt đầu tạo {} đơn hàng", orderRequests.length);
 
-        List<Order> orders = new ArrayList<>();
+        List<AdminOrderImportResponse.RowResult> rowResults = new ArrayList<>();
+        List<ImportRow> importRows = transactionTemplate.execute(status -> prepareImportRows(orderRequests, rowResults));
+
+        for (int from = 0; from < importRows.size(); from += importChunkSize) {
+            writeImportChunk(importRows.subList(from, Math.min(from + importChunkSize, importRows.size())), rowResults);
+        }
+
+        rowResults.sort(Comparator.comparingInt(AdminOrderImportResponse.RowResult::getIndex));
+        int succeeded = (int) rowResults.stream().filter(AdminOrderImportResponse.RowResult::isSuccess).count();
+        log.info("Đã tạo {} / {} đơn hàng", succeeded, orderRequests.length);
+        return new AdminOrderImportResponse(orderRequests.length, succeeded, orderRequests.length - succeeded, rowResults);
+    }
+
+    /**
+     * Nạp trước toàn bộ người dùng và phiên bản sản phẩm được tham chiếu rồi kiểm tra từng dòng trong bộ nhớ.
+     * Tồn kho được trừ dần theo thứ tự dòng để các dòng sau không vượt quá số lượng còn lại.
+     */
+    private List<ImportRow> prepareImportRows(AdminCreateOrderRequest[] orderRequests, List<AdminOrderImportResponse.RowResult> rowResults) {
         Map<Integer, User> userCache = userRepository.findAllByIdIn(
-                Arrays.stream(orderRequests).map(AdminCreateOrderRequest::getCreatedByUserId).collect(Collectors.toList())
+                Arrays.stream(orderRequests).map(AdminCreateOrderRequest::getCreatedByUserId).filter(Objects::nonNull).collect(Collectors.toSet())
         ).stream().collect(Collectors.toMap(u -> ((User) u).getId(), u -> (User) u));
-
-        for (AdminCreateOrderRequest orderRequest : orderRequests) {
-            User user = userCache.get(orderRequest.getCreatedByUserId());
-            if (user == null) {
-                log.error("Không tìm thấy người dùng với ID: {}", orderRequest.getCreatedByUserId());
-                continue; // Bỏ qua đơn hàng này
+        Map<Integer, Stock> stockCache = stockRepository.findStocksWithDetailsByIdIn(
+                Arrays.stream(orderRequests)
+                        .filter(orderRequest -> orderRequest.getOrderDetails() != null)
+                        .flatMap(orderRequest -> Arrays.stream(orderRequest.getOrderDetails()))
+                        .map(AdminCreateOrderRequest.OrderDetailRequest::getStockId)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toSet())
+        ).stream().collect(Collectors.toMap(Stock::getId, Function.identity()));
+        if (!stockCache.isEmpty()) {
+            stockRepository.findStocksWithPhotosByIdIn(stockCache.keySet());
+        }
+        Map<Integer, Integer> remaining = stockCache.values().stream()
+                .collect(Collectors.toMap(Stock::getId, Stock::getQuantity));
+
+        List<ImportRow> importRows = new ArrayList<>();
+        for (int i = 0; i < orderRequests.length; i++) {
+            AdminCreateOrderRequest orderRequest = orderRequests[i];
+            String error = validateImportRow(orderRequest, userCache, stockCache, remaining);
+            if (error != null) {
+                rowResults.add(new AdminOrderImportResponse.RowResult(i, false, null, error));
+                continue;
             }
 
             Order order = new Order();
-            order.setCreatedBy(user);
+            order.setCreatedBy(userCache.get(orderRequest.getCreatedByUserId()));
             order.setCreatedAt(LocalDateTime.now(ZoneId.of("Asia/Ho_Chi_Minh")));
             order.setStatus(orderRequest.getStatus());
             order.setPaymentType(orderRequest.getPaymentType());
@@ -147,38 +197,116 @@ public class OrderServiceImpl implements OrderService {
             order.setDistrict(orderRequest.getCustomInfo().getDistrict());
             order.setProvince(orderRequest.getCustomInfo().getProvince());
             order.setCountry("Việt Nam");
+            order.setShippingFee(orderRequest.getShippingFee() != null ? orderRequest.getShippingFee() : BigDecimal.ZERO);
+            order.setProductDiscountAmount(BigDecimal.ZERO);
+            order.setShippingDiscountAmount(BigDecimal.ZERO);
 
             Set<OrderDetail> orderDetails = new LinkedHashSet<>();
+            Map<Integer, Integer> stockIdQuantityMap = new LinkedHashMap<>();
+            BigDecimal subtotal = BigDecimal.ZERO;
             for (AdminCreateOrderRequest.OrderDetailRequest orderDetailRequest : orderRequest.getOrderDetails()) {
-                Stock stock = stockRepository.findById(orderDetailRequest.getStockId()).orElseThrow(
-                        () -> new NotFoundException("Không tìm thấy sản phẩm hoặc sản phẩm không có trong kho.")
-                );
-                if (stock.getQuantity() < orderDetailRequest.getQuantity()) {
-                    log.error("Không đủ hàng hoặc không tìm thấy sản phẩm với ID: {}", orderDetailRequest.getStockId());
-                    throw new IllegalArgumentException("Không đủ hàng hoặc không tìm thấy sản phẩm với ID:" + orderDetailRequest.getStockId() + ".");
-                }
-                stock.setQuantity(stock.getQuantity() - orderDetailRequest.getQuantity());
-                OrderDetail orderDetail = new OrderDetail();
-                orderDetail.setOrder(order);
-                orderDetail.setStock(stock);
-                orderDetail.setProduct(stock.getProduct());
-                orderDetail.setProductName(stock.getProduct().getName());
-                orderDetail.setQuantity(orderDetailRequest.getQuantity());
-                orderDetail.setPrice(stock.getPrice());
-                orderDetail.setColorName(stock.getColor().getName());
-                orderDetail.setVersionName(stock.getInstanceProperties().stream().map(
-                        InstanceProperty::getName
-                ).collect(Collectors.joining(", ")));
-                orderDetail.setImageUrl(stock.getProductPhotos().stream()
-                        .findFirst()
-                        .map(ProductPhoto::getImageUrl)
-                        .orElseThrow(() -> new NotFoundException("Không tìm thấy hình ảnh sản phẩm.")));
-                orderDetails.add(orderDetail);
+                Stock stock = stockCache.get(orderDetailRequest.getStockId());
+                orderDetails.add(createOrderDetailFromStock(stock, orderDetailRequest.getQuantity(), order));
+                stockIdQuantityMap.merge(stock.getId(), orderDetailRequest.getQuantity(), Integer::sum);
+                subtotal = subtotal.add(stock.getPrice().multiply(BigDecimal.valueOf(orderDetailRequest.getQuantity())));
             }
             order.setOrderDetails(orderDetails);
-            orders.add(order);
+            order.setSubtotal(subtotal);
+            calculateFinalTotal(order);
+
+            importRows.add(new ImportRow(i, order, stockIdQuantityMap));
         }
-        return orderRepository.saveAll(orders);
+        return importRows;
+    }
+
+    private String validateImportRow(AdminCreateOrderRequest orderRequest, Map<Integer, User> userCache, Map<Integer, Stock> stockCache, Map<Integer, Integer> remaining) {
+        if (!userCache.containsKey(orderRequest.getCreatedByUserId())) {
+            return "Không tìm thấy người dùng với ID: " + orderRequest.getCreatedByUserId();
+        }
+        if (orderRequest.getCustomInfo() == null || orderRequest.getPaymentType() == null || orderRequest.getStatus() == null) {
+            return "Thiếu thông tin giao hàng, phương thức thanh toán hoặc trạng thái đơn hàng.";
+        }
+        if (orderRequest.getOrderDetails() == null || orderRequest.getOrderDetails().length == 0) {
+            return "Không được bỏ trống chi tiết đơn hàng.";
+        }
+
+        Map<Integer, Integer> required = new HashMap<>();
+        for (AdminCreateOrderRequest.OrderDetailRequest orderDetailRequest : orderRequest.getOrderDetails()) {
+            Stock stock = stockCache.get(orderDetailRequest.getStockId());
+            if (stock == null) {
+                return "Không tìm thấy phiên bản sản phẩm với ID: " + orderDetailRequest.getStockId();
+            }
+            if (orderDetailRequest.getQuantity() == null || orderDetailRequest.getQuantity() <= 0) {
+                return "Số lượng sản phẩm không hợp lệ với ID: " + orderDetailRequest.getStockId();
+            }
+            if (stock.getProductPhotos().isEmpty()) {
+                return "Không tìm thấy hình ảnh sản phẩm với ID: " + orderDetailRequest.getStockId();
+            }
+            required.merge(stock.getId(), orderDetailRequest.getQuantity(), Integer::sum);
+        }
+        for (Map.Entry<Integer, Integer> entry : required.entrySet()) {
+            if (remaining.get(entry.getKey()) < entry.getValue()) {
+                return "Không đủ hàng cho phiên bản sản phẩm với ID: " + entry.getKey();
+            }
+        }
+        required.forEach((stockId, quantity) -> remaining.merge(stockId, -quantity, Integer::sum));
+        return null;
+    }
+
+    /**
+     * Ghi một nhóm đơn hàng trong một transaction: trừ kho theo batch (không lấy phần đang được giữ), chèn đơn và chi tiết đơn bằng JDBC.
+     * Nếu có phiên bản không đủ hàng (do thay đổi đồng thời) thì rollback, đánh dấu lỗi các dòng liên quan
+     * và ghi lại phần còn lại. Lỗi khác chỉ đánh dấu lỗi các dòng của nhóm này, không ảnh hưởng tới các nhóm khác.
+     */
+    private void writeImportChunk(List<ImportRow> chunk, List<AdminOrderImportResponse.RowResult> rowResults) {
+        List<ImportRow> pending = new ArrayList<>(chunk);
+        while (!pending.isEmpty()) {
+            List<ImportRow> rows = pending;
+            Set<Integer> failedStockIds;
+            try {
+                failedStockIds = transactionTemplate.execute(status -> {
+                    Map<Integer, Integer> stockIdQuantityMap = new LinkedHashMap<>();
+                    rows.forEach(row -> row.stockIdQuantityMap().forEach((stockId, quantity) -> stockIdQuantityMap.merge(stockId, quantity, Integer::sum)));
+                    Set<Integer> failed = stockReservationService.consume(stockIdQuantityMap);
+                    if (!failed.isEmpty()) {
+                        status.setRollbackOnly();
+                        return failed;
+                    }
+
+                    List<Order> orders = rows.stream().map(ImportRow::order).toList();
+                    List<Integer> ids = orderRepository.insertOrders(orders);
+                    for (int i = 0; i < orders.size(); i++) {
+                        orders.get(i).setId(ids.get(i));
+                    }
+                    orderRepository.insertOrderDetails(orders.stream().flatMap(order -> order.getOrderDetails().stream()).toList());
+                    orders.forEach(order -> bestSellerIndex.recordStatusChange(order, null));
+                    return failed;
+                });
+            } catch (RuntimeException e) {
+                // Nhóm này đã rollback; các nhóm trước đã commit nên vẫn trả về kết quả đã có thay vì bỏ cả lần nhập.
+                log.error("Không thể ghi nhóm {} đơn hàng", rows.size(), e);
+                rows.forEach(row -> rowResults.add(new AdminOrderImportResponse.RowResult(row.index(), false, null, "Không thể ghi đơn hàng, vui lòng thử lại.")));
+                return;
+            }
+
+            if (failedStockIds.isEmpty()) {
+                rows.forEach(row -> rowResults.add(new AdminOrderImportResponse.RowResult(row.index(), true, row.order().getId(), null)));
+                return;
+            }
+
+            log.warn("Không đủ hàng cho các phiên bản sản phẩm: {}, ghi lại nhóm đơn hàng", failedStockIds);
+            pending = new ArrayList<>();
+            for (ImportRow row : rows) {
+                if (row.stockIdQuantityMap().keySet().stream().anyMatch(failedStockIds::contains)) {
+                    rowResults.add(new AdminOrderImportResponse.RowResult(row.index(), false, null, "Số lượng sản phẩm trong kho không đủ."));
+                } else {
+                    pending.add(row);
+                }
+            }
+        }
+    }
+
+    private record ImportRow(int index, Order order, Map<Integer, Integer> stockIdQuantityMap) {
     }
 
     @Override
@@ -241,8 +369,11 @@ public class OrderServiceImpl implements OrderService {
 
     @Override
     @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_STAFF', 'ROLE_USER')")
-    @Transactional
     public Order updateOrderStatus(Integer orderId, OrderStatus status) {
+        return optimisticLockRetryExecutor.execute("order.update-status", () -> doUpdateOrderStatus(orderId, status));
+    }
+
+    private Order doUpdateOrderStatus(Integer orderId, OrderStatus status) {
         Order order = orderRepository.findOrderById(orderId).orElseThrow(() -> new BadRequestException("Order not found with id: " + orderId));
         if (!orderStatusManager.isValidTransition(order.getStatus(), status)) {
             throw new BadRequestException("Trạng thái đích không hợp lệ!");
@@ -250,6 +381,7 @@ public class OrderServiceImpl implements OrderService {
 
         OrderStatus oldStatus = order.getStatus();
 
+        stockReservationService.settle(order, status);
         order.setStatus(status);
         if (status == OrderStatus.PROCESSING) {
             User user = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
@@ -258,14 +390,19 @@ public class OrderServiceImpl implements OrderService {
         }
         String mailSubject = "Cập nhật trạng thái đơn hàng #" + (orderId);
         mailService.sendUpdateOrderStatusMail(order.getEmail(), mailSubject, status, orderId, oldStatus);
+        bestSellerIndex.recordStatusChange(order, oldStatus);
+        outboxService.enqueueOrderStatusChanged(order, oldStatus);
 
         return orderRepository.save(order);
     }
 
     @Override
     @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_STAFF')")
-    @Transactional
     public Order cancelOrder(Integer orderId) {
+        return optimisticLockRetryExecutor.execute("order.cancel", () -> doCancelOrder(orderId));
+    }
+
+    private Order doCancelOrder(Integer orderId) {
         Order order = orderRepository.findOrderById(orderId).orElseThrow(() -> new BadRequestException("Order not found with id: " + orderId));
         OrderStatus oldStatus = order.getStatus();
         if (order.getStatus() != OrderStatus.PENDING_PAYMENT) {
@@ -276,22 +413,30 @@ public class OrderServiceImpl implements OrderService {
         }
         order.setStatus(OrderStatus.CANCELLED);
 
-        Map<Integer, Integer> stockIdQuantityMap = new HashMap<>();
-        for (OrderDetail orderDetail : order.getOrderDetails()) {
-            stockIdQuantityMap.put(orderDetail.getStock().getId(), orderDetail.getQuantity());
+        if (order.getReservationExpiresAt() != null) {
+            stockReservationService.release(order);
+        } else {
+            Map<Integer, Integer> stockIdQuantityMap = new HashMap<>();
+            for (OrderDetail orderDetail : order.getOrderDetails()) {
+                stockIdQuantityMap.put(orderDetail.getStock().getId(), orderDetail.getQuantity());
+            }
+            stockService.refundedStocks(stockIdQuantityMap);
         }
-        stockService.refundedStocks(stockIdQuantityMap);
 
         String mailSubject = "Bạn đã huỷ đơn hàng #" + (orderId);
         mailService.sendUpdateOrderStatusMail(order.getEmail(), mailSubject, OrderStatus.CANCELLED, orderId, oldStatus);
+        outboxService.enqueueOrderStatusChanged(order, oldStatus);
 
         return orderRepository.save(order);
     }
 
     @Override
     @PreAuthorize("hasAnyAuthority('ROLE_USER')")
-    @Transactional
     public Order cancelOrderForUser(Integer orderId) {
+        return optimisticLockRetryExecutor.execute("order.cancel", () -> doCancelOrderForUser(orderId));
+    }
+
+    private Order doCancelOrderForUser(Integer orderId) {
         User user = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         Order order = orderRepository.findOrderById(orderId).orElseThrow(
                 () -> new NotFoundException("Order not found with id: " + orderId)
@@ -308,14 +453,19 @@ public class OrderServiceImpl implements OrderService {
         }
         order.setStatus(OrderStatus.CANCELLED);
 
-        Map<Integer, Integer> stockIdQuantityMap = new HashMap<>();
-        for (OrderDetail orderDetail : order.getOrderDetails()) {
-            stockIdQuantityMap.put(orderDetail.getStock().getId(), orderDetail.getQuantity());
+        if (order.getReservationExpiresAt() != null) {
+            stockReservationService.release(order);
+        } else {
+            Map<Integer, Integer> stockIdQuantityMap = new HashMap<>();
+            for (OrderDetail orderDetail : order.getOrderDetails()) {
+                stockIdQuantityMap.put(orderDetail.getStock().getId(), orderDetail.getQuantity());
+            }
+            stockService.refundedStocks(stockIdQuantityMap);
         }
-        stockService.refundedStocks(stockIdQuantityMap);
 
         String mailSubject = "Bạn đã huỷ đơn hàng #" + (orderId);
         mailService.sendUpdateOrderStatusMail(order.getEmail(), mailSubject, OrderStatus.CANCELLED, orderId, oldStatus);
+        outboxService.enqueueOrderStatusChanged(order, oldStatus);
 
         return orderRepository.save(order);
     }
@@ -354,10 +504,13 @@ public class OrderServiceImpl implements OrderService {
 
     @Override
     @PreAuthorize("hasAnyAuthority('ROLE_USER')")
-    @Transactional
     public Order createOrderWithPromotion(UserCreateOrderWithPromotionRequest orderRequest, PaymentType paymentType) {
+        return optimisticLockRetryExecutor.execute("order.create", () -> doCreateOrderWithPromotion(orderRequest, paymentType));
+    }
+
+    private Order doCreateOrderWithPromotion(UserCreateOrderWithPromotionRequest orderRequest, PaymentType paymentType) {
         User user = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        List<CartItem> cartItems = cartItemRepository.findCartItemsByUserId(user.getId());
+        List<CartItem> cartItems = findCheckoutItems(user.getId());
         if (cartItems.isEmpty()) {
             throw new BadRequestException("Không có sản phẩm trong giỏ hàng.");
         }
@@ -365,7 +518,7 @@ public class OrderServiceImpl implements OrderService {
         Order order = new Order();
         BeanUtils.copyProperties(orderRequest, order);
         order.setCreatedBy(user);
-        order.setCreatedAt(LocalDateTime.now());
+        order.setCreatedAt(LocalDateTime.now(ZoneId.of("Asia/Ho_Chi_Minh")));
         order.setStatus(OrderStatus.PENDING_PAYMENT);
         order.setPaymentType(paymentType);
         order.setShippingFee(BigDecimal.valueOf(40000));
@@ -374,14 +527,15 @@ public class OrderServiceImpl implements OrderService {
         // Calculate subtotal first
         BigDecimal subtotal = BigDecimal.ZERO;
         Set<OrderDetail> orderDetails = new LinkedHashSet<>();
+        Map<Integer, Integer> stockIdQuantityMap = new LinkedHashMap<>();
 
         for (CartItem cartItem : cartItems) {
-            if (cartItem.getStock().getQuantity() < cartItem.getQuantity()) {
-                throw new IllegalArgumentException("Số lượng sản phẩm trong kho không đủ.");
-            }
             if (cartItem.getQuantity() == 0) {
                 throw new IllegalArgumentException("Số lượng sản phẩm không hợp lệ.");
             }
+            if (Boolean.TRUE.equals(cartItem.getStock().getIsFlashSale())) {
+                throw new BadRequestException("Sản phẩm " + cartItem.getProductName() + " đang trong chương trình flash sale, vui lòng đặt hàng qua flash sale.");
+            }
             if (cartItem.getQuantity() > 10) {
                 throw new IllegalArgumentException("Bạn chỉ có thể mua 1 sản phẩm với số lượng tối đa 10. Hãy liên hệ với chúng tôi để có thể mua nhiều hơn.");
             }
@@ -389,15 +543,12 @@ public class OrderServiceImpl implements OrderService {
             OrderDetail orderDetail = createOrderDetailFromCartItem(cartItem, order);
             orderDetails.add(orderDetail);
 
-            // Update stock
-            cartItem.getStock().setQuantity(cartItem.getStock().getQuantity() - cartItem.getQuantity());
-            stockRepository.save(cartItem.getStock());
+            stockIdQuantityMap.merge(cartItem.getStock().getId(), cartItem.getQuantity(), Integer::sum);
 
             // Calculate subtotal
             subtotal = subtotal.add(cartItem.getStock().getPrice().multiply(BigDecimal.valueOf(cartItem.getQuantity())));
-
-            cartItemRepository.delete(cartItem);
         }
+        cartItemRepository.deleteAllInBatch(cartItems);
 
         order.setOrderDetails(orderDetails);
         order.setSubtotal(subtotal);
@@ -408,13 +559,19 @@ public class OrderServiceImpl implements OrderService {
         // Calculate final total
         calculateFinalTotal(order);
 
-        return orderRepository.save(order);
+        // Hold stock until the payment is settled
+        Order savedOrder = orderRepository.save(order);
+        savedOrder.setReservationExpiresAt(stockReservationService.reserve(savedOrder.getId(), stockIdQuantityMap));
+        return savedOrder;
     }
 
     @Override
     @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_STAFF')")
-    @Transactional
     public Order createOrderWithPromotionForAdmin(AdminCreateOrderRequest orderRequest) {
+        return optimisticLockRetryExecutor.execute("order.create", () -> doCreateOrderWithPromotionForAdmin(orderRequest));
+    }
+
+    private Order doCreateOrderWithPromotionForAdmin(AdminCreateOrderRequest orderRequest) {
         log.info("Bắt đầu tạo đơn hàng có mã giảm giá cho admin");
 
         User user = orderRequest.getCreatedByUserId() != null ?
@@ -441,18 +598,14 @@ public class OrderServiceImpl implements OrderService {
         // Tạo order details và tính subtotal
         Set<OrderDetail> orderDetails = new LinkedHashSet<>();
         BigDecimal subtotal = BigDecimal.ZERO;
+        Map<Integer, Integer> stockIdQuantityMap = new LinkedHashMap<>();
 
         for (AdminCreateOrderRequest.OrderDetailRequest orderDetailRequest : orderRequest.getOrderDetails()) {
             Stock stock = stockRepository.findById(orderDetailRequest.getStockId())
                     .orElseThrow(() -> new NotFoundException("Không tìm thấy sản phẩm với ID: " + orderDetailRequest.getStockId()));
 
-            if (stock.getQuantity() < orderDetailRequest.getQuantity()) {
-                throw new BadRequestException("Không đủ hàng cho sản phẩm ID: " + orderDetailRequest.getStockId());
-            }
-
             // Giảm số lượng trong kho
-            stock.setQuantity(stock.getQuantity() - orderDetailRequest.getQuantity());
-            stockRepository.save(stock);
+            stockIdQuantityMap.merge(stock.getId(), orderDetailRequest.getQuantity(), Integer::sum);
 
             // Tạo order detail
             OrderDetail orderDetail = createOrderDetailFromStock(stock, orderDetailRequest.getQuantity(), order);
@@ -462,6 +615,8 @@ public class OrderServiceImpl implements OrderService {
             subtotal = subtotal.add(stock.getPrice().multiply(BigDecimal.valueOf(orderDetailRequest.getQuantity())));
         }
 
+        consumeStocks(stockIdQuantityMap);
+
         order.setOrderDetails(orderDetails);
         order.setSubtotal(subtotal);
 
@@ -471,59 +626,104 @@ public class OrderServiceImpl implements OrderService {
         // Tính final total
         calculateFinalTotal(order);
 
+        // Đơn admin có thể được tạo thẳng ở trạng thái đã giao.
+        bestSellerIndex.recordStatusChange(order, null);
         return orderRepository.save(order);
     }
 
+    @Override
+    public List<Order> createFlashSaleOrders(List<FlashSaleCheckoutMessage> allocations) {
+        return optimisticLockRetryExecutor.execute("order.create-flash-sale", () -> doCreateFlashSaleOrders(allocations));
+    }
+
+    private List<Order> doCreateFlashSaleOrders(List<FlashSaleCheckoutMessage> allocations) {
+        // Kafka có thể giao lại một yêu cầu; kiểm tra trong cùng transaction, unique index trên mã yêu cầu chặn nốt trường hợp chạy song song.
+        Map<String, Order> existingOrders = orderRepository.findOrdersByFlashSaleTicketIdIn(
+                allocations.stream().map(FlashSaleCheckoutMessage::getTicketId).collect(Collectors.toSet())
+        ).stream().collect(Collectors.toMap(Order::getFlashSaleTicketId, Function.identity()));
+        Map<Integer, Stock> stockMap = stockRepository.findStockByIdIn(
+                allocations.stream().map(FlashSaleCheckoutMessage::getStockId).collect(Collectors.toSet())
+        ).stream().collect(Collectors.toMap(Stock::getId, Function.identity()));
+        Map<Integer, User> userMap = userRepository.findAllById(
+                allocations.stream().map(FlashSaleCheckoutMessage::getUserId).collect(Collectors.toSet())
+        ).stream().collect(Collectors.toMap(User::getId, Function.identity()));
+
+        Map<String, Order> newOrders = new LinkedHashMap<>();
+        for (FlashSaleCheckoutMessage allocation : allocations) {
+            if (existingOrders.containsKey(allocation.getTicketId()) || newOrders.containsKey(allocation.getTicketId())) {
+                continue;
+            }
+            Stock stock = stockMap.get(allocation.getStockId());
+            User user = userMap.get(allocation.getUserId());
+            if (stock == null || user == null) {
+                throw new NotFoundException("Không tìm thấy sản phẩm hoặc người dùng cho yêu cầu flash sale " + allocation.getTicketId() + ".");
+            }
+
+            Order order = new Order();
+            BeanUtils.copyProperties(allocation, order);
+            order.setFlashSaleTicketId(allocation.getTicketId());
+            order.setCreatedBy(user);
+            order.setCreatedAt(LocalDateTime.now(ZoneId.of("Asia/Ho_Chi_Minh")));
+            order.setStatus(OrderStatus.PENDING_PAYMENT);
+            order.setShippingFee(BigDecimal.valueOf(40000));
+            order.setCountry("Việt Nam");
+
+            Set<OrderDetail> orderDetails = new LinkedHashSet<>();
+            orderDetails.add(createOrderDetailFromStock(stock, allocation.getQuantity(), order));
+            order.setOrderDetails(orderDetails);
+            order.setSubtotal(stock.getPrice().multiply(BigDecimal.valueOf(allocation.getQuantity())));
+            order.setProductDiscountAmount(BigDecimal.ZERO);
+            order.setShippingDiscountAmount(BigDecimal.ZERO);
+            calculateFinalTotal(order);
+
+            newOrders.put(allocation.getTicketId(), order);
+        }
+
+        // Hàng đã được cấp phát tuần tự ở consumer; giữ hàng như đơn thanh toán online thường để đơn không được
+        // thanh toán sẽ hết hạn và được trả lại, còn tồn kho trong DB chỉ bị trừ khi đơn được thanh toán.
+        for (Order order : orderRepository.saveAll(newOrders.values())) {
+            OrderDetail orderDetail = order.getOrderDetails().iterator().next();
+            order.setReservationExpiresAt(stockReservationService.reserve(
+                    order.getId(), Map.of(orderDetail.getStock().getId(), orderDetail.getQuantity())
+            ));
+            existingOrders.put(order.getFlashSaleTicketId(), order);
+        }
+        return allocations.stream().map(allocation -> existingOrders.get(allocation.getTicketId())).toList();
+    }
+
     @Override
     @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_STAFF')")
     @Transactional(readOnly = true)
     public BigDecimal getOrderTotalRevenue(OrderStatus status, LocalDateTime fromDate, LocalDateTime toDate) {
-        return orderRepository.getTotalRevenue(
-                status == null ? OrderStatus.DELIVERED : status,
-                fromDate == null ? LocalDateTime.of(1, 1, 1, 0, 0) : fromDate,
-                toDate == null ? LocalDateTime.now() : toDate
-        );
+        return orderDailyStatsRepository.sumRevenue(orderStatisticsRollup.statisticsPeriod(fromDate, toDate), status == null ? OrderStatus.DELIVERED : status);
     }
 
     @Override
     @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_STAFF')")
     @Transactional(readOnly = true)
     public BigDecimal getAllOrderTotalRevenue(LocalDateTime fromDate, LocalDateTime toDate) {
-        return orderRepository.getTotalRevenue(
-                fromDate == null ? LocalDateTime.of(1, 1, 1, 0, 0) : fromDate,
-                toDate == null ? LocalDateTime.now() : toDate
-        );
+        return orderDailyStatsRepository.sumRevenue(orderStatisticsRollup.statisticsPeriod(fromDate, toDate), null);
     }
 
     @Override
     @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_STAFF')")
     @Transactional(readOnly = true)
     public Long getNumberOfOrders(OrderStatus status, LocalDateTime fromDate, LocalDateTime toDate) {
-        return orderRepository.countOrdersByCreatedAtBetweenAndStatus(
-                fromDate == null ? LocalDateTime.of(1, 1, 1, 0, 0) : fromDate,
-                toDate == null ? LocalDateTime.now() : toDate,
-                status == null ? OrderStatus.DELIVERED : status
-        );
+        return orderDailyStatsRepository.countOrders(orderStatisticsRollup.statisticsPeriod(fromDate, toDate), status == null ? OrderStatus.DELIVERED : status);
     }
 
     @Override
     @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_STAFF')")
     @Transactional(readOnly = true)
     public Long getAllNumberOfOrders(LocalDateTime fromDate, LocalDateTime toDate) {
-        return orderRepository.countOrdersByCreatedAtBetween(
-                fromDate == null ? LocalDateTime.of(1, 1, 1, 0, 0) : fromDate,
-                toDate == null ? LocalDateTime.now() : toDate
-        );
+        return orderDailyStatsRepository.countOrders(orderStatisticsRollup.statisticsPeriod(fromDate, toDate), null);
     }
 
     @Override
     @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_STAFF')")
     @Transactional(readOnly = true)
     public Long getNumberOfProductsSold(LocalDateTime fromDate, LocalDateTime toDate) {
-        return orderRepository.countProductsSold(
-                fromDate == null ? LocalDateTime.of(1, 1, 1, 0, 0) : fromDate,
-                toDate == null ? LocalDateTime.now() : toDate
-        );
+        return orderDailyStatsRepository.sumProductsSold(orderStatisticsRollup.statisticsPeriod(fromDate, toDate), OrderStatus.DELIVERED);
     }
 
     private UserOrderDetailResponse mapToUserOrderDetailResponse(Order order) {
@@ -553,6 +753,29 @@ public class OrderServiceImpl implements OrderService {
         return userOrderDetailResponse;
     }
 
+    /**
+     * Trừ thẳng tồn kho cho toàn bộ các dòng của đơn hàng, không lấy phần đang được giữ cho các đơn chờ thanh toán.
+     * Nếu có phiên bản không đủ hàng thì ném lỗi để rollback cả transaction.
+     */
+    private void consumeStocks(Map<Integer, Integer> stockIdQuantityMap) {
+        Set<Integer> failedStockIds = stockReservationService.consume(stockIdQuantityMap);
+        if (!failedStockIds.isEmpty()) {
+            log.warn("Không đủ hàng cho các phiên bản sản phẩm: {}", failedStockIds);
+            throw new BadRequestException("Số lượng sản phẩm trong kho không đủ. Mã phiên bản: " + failedStockIds + ".");
+        }
+    }
+
+    /**
+     * Lấy giỏ hàng để thanh toán bằng hai câu truy vấn cố định, không phụ thuộc số dòng trong giỏ.
+     */
+    private List<CartItem> findCheckoutItems(Integer userId) {
+        List<CartItem> cartItems = cartItemRepository.findCheckoutItemsByUserId(userId);
+        if (!cartItems.isEmpty()) {
+            stockRepository.findStocksWithPhotosByIdIn(cartItems.stream().map(cartItem -> cartItem.getStock().getId()).collect(Collectors.toSet()));
+        }
+        return cartItems;
+    }
+
     private OrderDetail createOrderDetailFromStock(Stock stock, Integer quantity, Order order) {
         OrderDetail orderDetail = new OrderDetail();
         orderDetail.setOrder(order);
@@ -584,9 +807,10 @@ public class OrderServiceImpl implements OrderService {
 
             if (promotionService.isPromotionValid(productPromotion, order.getSubtotal())) {
                 BigDecimal discountAmount = promotionService.calculateDiscountAmount(productPromotion, order.getSubtotal());
-                order.setProductPromotion(productPromotion);
+                order.setProductPromotion(promotionReference(productPromotion));
                 order.setProductDiscountAmount(discountAmount);
-                promotionService.incrementUsageCount(productPromotion);
+                // Đơn do admin tạo hộ khách nên không áp giới hạn theo người dùng.
+                promotionService.redeem(productPromotion, null);
                 log.info("Áp dụng mã giảm giá sản phẩm: {} - Giảm: {}", productPromotionCode, discountAmount);
             } else {
                 log.warn("Mã giảm giá sản phẩm không hợp lệ: {}", productPromotionCode);
@@ -601,9 +825,9 @@ public class OrderServiceImpl implements OrderService {
 
             if (promotionService.isPromotionValid(shippingPromotion, order.getSubtotal())) {
                 BigDecimal discountAmount = promotionService.calculateDiscountAmount(shippingPromotion, order.getShippingFee());
-                order.setShippingPromotion(shippingPromotion);
+                order.setShippingPromotion(promotionReference(shippingPromotion));
                 order.setShippingDiscountAmount(discountAmount);
-                promotionService.incrementUsageCount(shippingPromotion);
+                promotionService.redeem(shippingPromotion, null);
                 log.info("Áp dụng mã giảm giá vận chuyển: {} - Giảm: {}", shippingPromotionCode, discountAmount);
             } else {
                 log.warn("Mã giảm giá vận chuyển không hợp lệ: {}", shippingPromotionCode);
@@ -639,9 +863,9 @@ public class OrderServiceImpl implements OrderService {
 
             if (promotionService.isPromotionValid(productPromotion, order.getSubtotal())) {
                 BigDecimal discountAmount = promotionService.calculateDiscountAmount(productPromotion, order.getSubtotal());
-                order.setProductPromotion(productPromotion);
+                order.setProductPromotion(promotionReference(productPromotion));
                 order.setProductDiscountAmount(discountAmount);
-                promotionService.incrementUsageCount(productPromotion);
+                promotionService.redeem(productPromotion, order.getCreatedBy().getId());
             } else {
                 throw new BadRequestException("Mã giảm giá sản phẩm không hợp lệ hoặc đơn hàng không đủ điều kiện.");
             }
@@ -658,9 +882,9 @@ public class OrderServiceImpl implements OrderService {
             if (promotionService.isPromotionValid(shippingPromotion, order.getSubtotal())) {
                 BigDecimal discountAmount = promotionService.calculateDiscountAmount(shippingPromotion, order.getShippingFee());
                 log.info("Applying shipping promotion: {} - Giảm: {}", shippingPromotionCode, discountAmount);
-                order.setShippingPromotion(shippingPromotion);
+                order.setShippingPromotion(promotionReference(shippingPromotion));
                 order.setShippingDiscountAmount(discountAmount);
-                promotionService.incrementUsageCount(shippingPromotion);
+                promotionService.redeem(shippingPromotion, order.getCreatedBy().getId());
             } else {
                 throw new BadRequestException("Mã giảm giá vận chuyển không hợp lệ hoặc đơn hàng không đủ điều kiện.");
             }
@@ -670,6 +894,14 @@ public class OrderServiceImpl implements OrderService {
         }
     }
 
+    /**
+     * Mã giảm giá lấy từ PromotionCodeCache là bản sao tách khỏi persistence context; đơn hàng chỉ cần khoá ngoại
+     * nên gắn proxy tham chiếu theo id thay vì bản sao đó.
+     */
+    private Promotion promotionReference(Promotion promotion) {
+        return promotionRepository.getReferenceById(promotion.getId());
+    }
+
     private void calculateFinalTotal(Order order) {
         BigDecimal finalTotal = order.getSubtotal()
                 .subtract(order.getProductDiscountAmount())
@@ -743,7 +975,8 @@ public class OrderServiceImpl implements OrderService {
                 order.getFinalTotal(),
                 order.getVat(),
                 order.getOrderDetails().stream().map(this::convertOrderDetailToOrderDetailDto).collect(Collectors.toSet()),
-                order.getShippingTrackingCode()
+                order.getShippingTrackingCode(),
+                order.getStockShortage()
         );
     }
 
@@ -5,9 +5,12 @@ import com.web.appleshop.enums.OrderStatus;
 import com.web.appleshop.exception.InvalidStatusTransitionException;
 import com.web.appleshop.exception.NotFoundException;
 import com.web.appleshop.repository.OrderRepository;
+import com.web.appleshop.service.BestSellerIndex;
+import com.web.appleshop.service.OptimisticLockRetryExecutor;
 import com.web.appleshop.service.OrderStatusManager;
 import com.web.appleshop.service.OrderStatusService;
-import jakarta.transaction.Transactional;
+import com.web.appleshop.service.OutboxService;
+import com.web.appleshop.service.StockReservationService;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 
@@ -15,15 +18,30 @@ import org.springframework.stereotype.Service;
 public class OrderStatusImpl implements OrderStatusService {
     private final OrderRepository orderRepository;
     private final OrderStatusManager orderStatusManager;
+    private final StockReservationService stockReservationService;
+    private final OptimisticLockRetryExecutor optimisticLockRetryExecutor;
+    private final OutboxService outboxService;
+    private final BestSellerIndex bestSellerIndex;
 
-    public OrderStatusImpl(OrderRepository orderRepository, OrderStatusManager orderStatusManager) {
+    public OrderStatusImpl(OrderRepository orderRepository, OrderStatusManager orderStatusManager, StockReservationService stockReservationService, OptimisticLockRetryExecutor optimisticLockRetryExecutor, OutboxService outboxService, BestSellerIndex bestSellerIndex) {
         this.orderRepository = orderRepository;
         this.orderStatusManager = orderStatusManager;
+        this.stockReservationService = stockReservationService;
+        this.optimisticLockRetryExecutor = optimisticLockRetryExecutor;
+        this.outboxService = outboxService;
+        this.bestSellerIndex = bestSellerIndex;
     }
 
     @Override
-    @Transactional
     public Order updateStatus(Integer orderId, OrderStatus newStatus) {
+        return optimisticLockRetryExecutor.execute("order.update-status", () -> doUpdateStatus(orderId, newStatus));
+    }
+
+    /**
+     * Có thể chạy lại khi xung đột phiên bản, nên mọi thao tác ở đây chỉ được ghi DB trong transaction hiện tại hoặc
+     * đăng ký chạy sau commit (Redis, cache, pub/sub); lần thử bị rollback không để lại tác dụng phụ nào.
+     */
+    private Order doUpdateStatus(Integer orderId, OrderStatus newStatus) {
         Order order = orderRepository.findOrderById(orderId).orElseThrow(
                 () -> new NotFoundException("Không tìm thấy đơn hàng với id: " + orderId)
         );
@@ -31,7 +49,11 @@ public class OrderStatusImpl implements OrderStatusService {
             throw new InvalidStatusTransitionException("Không thể chuyển trạng thái đơn hàng từ "
                     + order.getStatus() + " sang " + newStatus + ".");
         }
+        OrderStatus oldStatus = order.getStatus();
+        stockReservationService.settle(order, newStatus);
         order.setStatus(newStatus);
+        bestSellerIndex.recordStatusChange(order, oldStatus);
+        outboxService.enqueueOrderStatusChanged(order, oldStatus);
         return orderRepository.save(order);
     }
 
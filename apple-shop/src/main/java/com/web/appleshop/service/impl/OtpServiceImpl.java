@@ -46,7 +46,7 @@ public class OtpServiceImpl implements OtpService {
         redisTemplate.opsForValue().set(key, otp, otpExpiredMinutes, TimeUnit.MINUTES);
         redisTemplate.opsForValue().set(rateLimitKey, "blocked", 1, TimeUnit.MINUTES);
 
-        mailService.sendMail(email, "OTP", "Your OTP is: " + otp);
+        mailService.sendOtpMail(email, otp);
 
         return otp;
     }
@@ -0,0 +1,179 @@
+package com.web.appleshop.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.web.appleshop.dto.OrderStatusChangedEvent;
+import com.web.appleshop.entity.Order;
+import com.web.appleshop.entity.OutboxEvent;
+import com.web.appleshop.enums.OrderStatus;
+import com.web.appleshop.exception.IllegalStateException;
+import com.web.appleshop.repository.OutboxEventRepository;
+import com.web.appleshop.service.OutboxService;
+import com.web.appleshop.service.RedisLeaseLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@Service
+public class OutboxServiceImpl implements OutboxService {
+    private static final Logger log = LoggerFactory.getLogger(OutboxServiceImpl.class);
+    private static final String LEASE_KEY = "lease:outbox-relay";
+    private static final String ORDER_EVENTS_TOPIC = "order-events";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final RedisLeaseLock redisLeaseLock;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${outbox.relay.batch-size:200}")
+    private int batchSize;
+
+    @Value("${outbox.relay.send-timeout-ms:10000}")
+    private long sendTimeoutMs;
+
+    @Value("${outbox.relay.lease-seconds:30}")
+    private long leaseSeconds;
+
+    @Value("${outbox.retention-days:7}")
+    private long retentionDays;
+
+    public OutboxServiceImpl(OutboxEventRepository outboxEventRepository, KafkaTemplate<String, String> kafkaTemplate, ObjectMapper objectMapper, RedisLeaseLock redisLeaseLock, PlatformTransactionManager transactionManager) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.redisLeaseLock = redisLeaseLock;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void enqueue(String aggregateType, String aggregateId, String topic, Object payload) {
+        OutboxEvent event = new OutboxEvent();
+        event.setAggregateType(aggregateType);
+        event.setAggregateId(aggregateId);
+        event.setTopic(topic);
+        event.setCreatedAt(LocalDateTime.now());
+        try {
+            event.setPayload(objectMapper.writeValueAsString(payload));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Không thể tuần tự hoá sự kiện " + aggregateType + "#" + aggregateId + ".");
+        }
+        outboxEventRepository.save(event);
+    }
+
+    @Override
+    public void enqueueOrderStatusChanged(Order order, OrderStatus oldStatus) {
+        OrderStatusChangedEvent event = OrderStatusChangedEvent.builder()
+                .orderId(order.getId())
+                .userId(order.getCreatedBy() != null ? order.getCreatedBy().getId() : null)
+                .oldStatus(oldStatus)
+                .newStatus(order.getStatus())
+                .occurredAt(LocalDateTime.now())
+                .build();
+        enqueue("Order", String.valueOf(order.getId()), ORDER_EVENTS_TOPIC, event);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.fixed-delay-ms:1000}")
+    public void relay() {
+        try {
+            relayPendingEvents();
+        } catch (Exception e) {
+            log.error("Đẩy sự kiện outbox lên Kafka thất bại", e);
+        }
+    }
+
+    @Override
+    public int relayPendingEvents() {
+        // Chỉ một node được đọc outbox để giữ thứ tự sự kiện của từng aggregate.
+        Duration leaseTtl = Duration.ofSeconds(leaseSeconds);
+        Optional<String> owner = redisLeaseLock.tryAcquire(LEASE_KEY, leaseTtl);
+        if (owner.isEmpty()) {
+            return 0;
+        }
+
+        int published = 0;
+        try {
+            while (true) {
+                List<OutboxEvent> events = outboxEventRepository.findOutboxEventsByPublishedAtIsNullOrderByIdAsc(PageRequest.of(0, batchSize));
+                if (events.isEmpty()) {
+                    break;
+                }
+
+                List<Long> sentIds = send(events);
+                if (!sentIds.isEmpty()) {
+                    LocalDateTime now = LocalDateTime.now();
+                    transactionTemplate.executeWithoutResult(status -> outboxEventRepository.markPublished(sentIds, now));
+                    published += sentIds.size();
+                }
+
+                if (sentIds.size() < events.size() || events.size() < batchSize
+                        || !redisLeaseLock.renew(LEASE_KEY, owner.get(), leaseTtl)) {
+                    break;
+                }
+            }
+        } finally {
+            redisLeaseLock.release(LEASE_KEY, owner.get());
+        }
+        return published;
+    }
+
+    /**
+     * Gửi cả lô rồi mới chờ kết quả. Dừng ở sự kiện lỗi đầu tiên: các sự kiện sau nó sẽ được gửi lại ở lần chạy sau
+     * (có thể trùng lặp, bên nhận phải idempotent) để không sự kiện nào của cùng aggregate bị vượt lên trước.
+     *
+     * @return id các sự kiện đầu lô đã được Kafka xác nhận.
+     */
+    private List<Long> send(List<OutboxEvent> events) {
+        List<CompletableFuture<SendResult<String, String>>> futures = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            try {
+                futures.add(kafkaTemplate.send(event.getTopic(), event.getAggregateId(), event.getPayload()));
+            } catch (Exception e) {
+                log.warn("Không gửi được sự kiện outbox {}: {}", event.getId(), e.getMessage());
+                break;
+            }
+        }
+
+        List<Long> sentIds = new ArrayList<>(futures.size());
+        for (int i = 0; i < futures.size(); i++) {
+            OutboxEvent event = events.get(i);
+            try {
+                futures.get(i).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+                sentIds.add(event.getId());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException | TimeoutException e) {
+                log.warn("Kafka chưa xác nhận sự kiện outbox {}: {}", event.getId(), e.getMessage());
+                break;
+            }
+        }
+        return sentIds;
+    }
+
+    @Scheduled(cron = "${outbox.cleanup-cron:0 0 3 * * *}")
+    public void purgePublishedEvents() {
+        LocalDateTime before = LocalDateTime.now().minusDays(retentionDays);
+        Integer deleted = transactionTemplate.execute(status -> outboxEventRepository.deletePublishedBefore(before));
+        if (deleted != null && deleted > 0) {
+            log.info("Đã xoá {} sự kiện outbox đã gửi.", deleted);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.web.appleshop.service.impl;
 import com.web.appleshop.dto.request.AdminPhotoRequest;
 import com.web.appleshop.entity.ProductPhoto;
 import com.web.appleshop.repository.ProductPhotoRepository;
+import com.web.appleshop.service.ProductDetailCache;
 import com.web.appleshop.service.ProductPhotoService;
 import com.web.appleshop.util.UploadUtils;
 import lombok.RequiredArgsConstructor;
@@ -11,11 +12,14 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.List;
+
 @Service
 @RequiredArgsConstructor
 public class ProductPhotoServiceImpl implements ProductPhotoService {
     private final UploadUtils uploadUtils;
     private final ProductPhotoRepository productPhotoRepository;
+    private final ProductDetailCache productDetailCache;
 
     @Override
     @Transactional
@@ -35,6 +39,8 @@ public class ProductPhotoServiceImpl implements ProductPhotoService {
     @Transactional
     @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_STAFF')")
     public void deleteProductPhoto(Integer photoId) {
+        productPhotoRepository.findById(photoId).ifPresent(productPhoto ->
+                productDetailCache.invalidateByStockIds(List.of(productPhoto.getStock().getId())));
         productPhotoRepository.deleteById(photoId);
     }
 
@@ -51,6 +57,7 @@ public class ProductPhotoServiceImpl implements ProductPhotoService {
             productPhoto.setImageUrl(request.getImageUrl());
         }
         productPhoto.setAlt(request.getAlt());
+        productDetailCache.invalidateByStockIds(List.of(productPhoto.getStock().getId()));
         return productPhotoRepository.save(
                 productPhoto
         );
@@ -3,25 +3,43 @@ package com.web.appleshop.service.impl;
 import com.web.appleshop.dto.request.AdminProductSearchCriteria;
 import com.web.appleshop.dto.request.BaseProductSearchCriteria;
 import com.web.appleshop.dto.request.UserProductSearchCriteria;
+import com.web.appleshop.dto.response.ProductFacetResponse;
+import com.web.appleshop.dto.response.ProductSuggestionResponse;
 import com.web.appleshop.dto.response.ProductUserResponse;
 import com.web.appleshop.dto.response.admin.ProductAdminListDto;
 import com.web.appleshop.entity.Product;
 import com.web.appleshop.repository.ProductRepository;
+import com.web.appleshop.repository.ProductRepositoryCustom.TextField;
+import com.web.appleshop.service.CatalogFacetIndex;
+import com.web.appleshop.service.ProductSearchResultCache;
 import com.web.appleshop.service.ProductSearchService;
+import com.web.appleshop.service.ProductSuggestIndex;
 import com.web.appleshop.service.ProductService;
 import com.web.appleshop.specification.ProductSpecification;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Implementation of ProductSearchService
@@ -35,6 +53,17 @@ public class ProductSearchServiceImpl implements ProductSearchService {
 
     private final ProductRepository productRepository;
     private final ProductService productService;
+    private final CatalogFacetIndex catalogFacetIndex;
+    private final ProductSuggestIndex productSuggestIndex;
+    private final ProductSearchResultCache productSearchResultCache;
+    private final TransactionTemplate transactionTemplate;
+
+    // Chỉ giới hạn số id nạp vào chỉ mục facet trong bộ nhớ; danh sách sản phẩm và số đếm luôn tính trong SQL.
+    @Value("${product.search.full-text.max-results:1000}")
+    private int fullTextMaxResults;
+
+    @Value("${product.suggest.max-results:20}")
+    private int maxSuggestions;
 
     @Override
     @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_STAFF')")
@@ -49,40 +78,55 @@ public class ProductSearchServiceImpl implements ProductSearchService {
             criteria.setIsDeleted(false);
         }
 
-        Specification<Product> spec = buildSpecification(criteria);
-
-        Page<Product> products = productRepository.findAll(spec, pageable);
+        Page<Product> products = search(criteria, pageable);
 
         return products.map(this::convertToAdminListDto);
     }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Page<ProductUserResponse> searchProductsForUser(UserProductSearchCriteria criteria, Pageable pageable) {
         log.debug("Searching products for user with criteria: {}", criteria);
 
-        Specification<Product> spec = buildSpecification(criteria);
-
-        Page<Product> products = productRepository.findAll(spec, pageable);
-
-        return products.map(this::convertToUserResponse);
+        // Cache hits never open a transaction; only the loading request does.
+        return productSearchResultCache.get(criteria, pageable, () -> transactionTemplate.execute(status -> {
+            Page<Product> products = search(criteria, pageable);
+            return products.map(this::convertToUserResponse);
+        }));
     }
 
     @Override
     public Page<Product> searchProducts(AdminProductSearchCriteria criteria, Pageable pageable) {
         log.debug("Searching products (entities) with criteria: {}", criteria);
 
-        Specification<Product> spec = buildSpecification(criteria);
         Pageable sortedPageable = applySorting(criteria, pageable);
 
-        return productRepository.findAll(spec, sortedPageable);
+        return search(criteria, sortedPageable);
     }
 
     @Override
     public long countProducts(AdminProductSearchCriteria criteria) {
         log.debug("Counting products with criteria: {}", criteria);
 
-        Specification<Product> spec = buildSpecification(criteria);
-        return productRepository.count(spec);
+        return productRepository.count(buildSpecification(criteria).and(ProductSpecification.matchesFullText(criteria)));
+    }
+
+    @Override
+    public ProductFacetResponse getFacetsForUser(UserProductSearchCriteria criteria) {
+        log.debug("Counting facets for user with criteria: {}", criteria);
+
+        // Text filters go through the full-text index; every other facet is answered in memory.
+        FullTextMatches matches = findFullTextMatches(criteria);
+        ProductFacetResponse response = catalogFacetIndex.search(criteria, matches == null ? null : matches.ids());
+        response.setFullTextTruncated(matches != null && matches.truncated());
+        return response;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<ProductSuggestionResponse> suggest(String query, int limit) {
+        // Served from memory only, no connection is needed.
+        return productSuggestIndex.suggest(query, Math.clamp(limit, 1, maxSuggestions));
     }
 
     @Override
@@ -92,6 +136,86 @@ public class ProductSearchServiceImpl implements ProductSearchService {
         return countProducts(criteria) > 0;
     }
 
+    /**
+     * Name, description and keyword are matched through CONTAINSTABLE in the same SQL statement as the remaining
+     * filters, so sorting, paging and the total count cover every match. Without an explicit sort the page is
+     * ordered by relevance.
+     */
+    private Page<Product> search(BaseProductSearchCriteria criteria, Pageable pageable) {
+        Specification<Product> textSpec = ProductSpecification.matchesFullText(criteria);
+        Specification<Product> spec = buildSpecification(criteria);
+        if (textSpec == null) {
+            return findPage(spec, pageable);
+        }
+
+        spec = spec.and(textSpec);
+        if (!StringUtils.hasText(criteria.getSortBy()) && !pageable.getSort().isSorted()) {
+            spec = spec.and(ProductSpecification.orderByFullTextRank(criteria));
+        }
+        return findPage(spec, pageable);
+    }
+
+    /**
+     * Ids matching the text filters for the in-memory facet index, most relevant first, or null when the criteria
+     * has no text filter. At most product.search.full-text.max-results ids are loaded per filter; when a filter has
+     * more matches the result is flagged as truncated.
+     */
+    private FullTextMatches findFullTextMatches(BaseProductSearchCriteria criteria) {
+        FullTextMatches matches = null;
+        matches = matchText(matches, criteria.getSearchKeyword(), EnumSet.of(TextField.NAME, TextField.DESCRIPTION));
+        matches = matchText(matches, criteria.getName(), EnumSet.of(TextField.NAME));
+        matches = matchText(matches, criteria.getDescription(), EnumSet.of(TextField.DESCRIPTION));
+        return matches;
+    }
+
+    private FullTextMatches matchText(FullTextMatches previous, String text, Set<TextField> fields) {
+        if (!StringUtils.hasText(text)) {
+            return previous;
+        }
+        List<Integer> ids = productRepository.findIdsByFullText(text, fields, fullTextMaxResults + 1);
+        boolean truncated = ids.size() > fullTextMaxResults;
+        if (truncated) {
+            ids = ids.subList(0, fullTextMaxResults);
+        }
+        if (previous == null) {
+            return new FullTextMatches(ids, truncated);
+        }
+        Set<Integer> matchSet = new HashSet<>(ids);
+        return new FullTextMatches(
+                previous.ids().stream().filter(matchSet::contains).toList(),
+                previous.truncated() || truncated);
+    }
+
+    private record FullTextMatches(List<Integer> ids, boolean truncated) {
+    }
+
+    /**
+     * Two-phase paging: select the page of ids in SQL first, then load the product graph only for those ids.
+     * Fetch-joining collections in a paged query makes Hibernate load every match and page in memory.
+     */
+    private Page<Product> findPage(Specification<Product> spec, Pageable pageable) {
+        Page<Integer> idPage = productRepository.findIdPage(spec, pageable);
+        if (idPage.isEmpty()) {
+            return new PageImpl<>(List.of(), pageable, idPage.getTotalElements());
+        }
+        return new PageImpl<>(loadProducts(idPage.getContent()), pageable, idPage.getTotalElements());
+    }
+
+    /**
+     * Load the product graph for the ids in one query, keeping the order of the ids.
+     */
+    private List<Product> loadProducts(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, Product> productMap = productRepository.findProductsWithDetailsByIdIn(ids).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return ids.stream()
+                .map(productMap::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
     /**
      * Build the admin specification from criteria
      */
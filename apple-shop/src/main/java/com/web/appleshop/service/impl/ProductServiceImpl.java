@@ -9,11 +9,19 @@ import com.web.appleshop.dto.response.ProductUserResponse;
 import com.web.appleshop.dto.response.ValidationErrorDetail;
 import com.web.appleshop.dto.response.admin.*;
 import com.web.appleshop.entity.*;
+import com.web.appleshop.enums.OrderStatus;
 import com.web.appleshop.exception.BadRequestException;
 import com.web.appleshop.exception.NotFoundException;
 import com.web.appleshop.exception.ValidationException;
 import com.web.appleshop.repository.*;
+import com.web.appleshop.service.BestSellerIndex;
+import com.web.appleshop.service.CatalogFacetIndex;
+import com.web.appleshop.service.HomepageCategorySnapshot;
+import com.web.appleshop.service.OrderStatisticsRollup;
+import com.web.appleshop.service.ProductDetailCache;
+import com.web.appleshop.service.ProductSearchResultCache;
 import com.web.appleshop.service.ProductService;
+import com.web.appleshop.service.ProductSuggestIndex;
 import com.web.appleshop.specification.ProductSpecification;
 import com.web.appleshop.util.UploadUtils;
 import jakarta.validation.ConstraintViolation;
@@ -28,11 +36,12 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -53,6 +62,15 @@ public class ProductServiceImpl implements ProductService {
     private final InstancePropertyRepository instancePropertyRepository;
     private final UploadUtils uploadUtils;
     private final OrderDetailRepository orderDetailRepository;
+    private final OrderDailyStatsRepository orderDailyStatsRepository;
+    private final OrderStatisticsRollup orderStatisticsRollup;
+    private final CatalogFacetIndex catalogFacetIndex;
+    private final ProductSuggestIndex productSuggestIndex;
+    private final ProductSearchResultCache productSearchResultCache;
+    private final ProductDetailCache productDetailCache;
+    private final HomepageCategorySnapshot homepageCategorySnapshot;
+    private final BestSellerIndex bestSellerIndex;
+    private final TransactionTemplate transactionTemplate;
 
     @Transactional
     @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_STAFF')")
@@ -201,7 +219,9 @@ public class ProductServiceImpl implements ProductService {
 
         product.setStocks(stocks);
 
-        productRepository.save(product);
+        productRepository.saveAndFlush(product);
+        stockRepository.refreshProductSummaries(List.of(product.getId()));
+        refreshCatalogIndexes(product.getId());
     }
 
     @Transactional
@@ -209,7 +229,7 @@ public class ProductServiceImpl implements ProductService {
     @Override
     public void updateProduct(Integer productId, String productJson, Map<String, MultipartFile> files, Integer[] productPhotoDeletions, User updatedBy) {
         // 1. Tải các entity gốc từ DB
-        Product product = productRepository.findProductById(productId)
+        Product product = productRepository.findProductWithDetailsById(productId)
                 .orElseThrow(() -> new NotFoundException("Product not found with id: " + productId));
 
         User persistentUpdatedBy = userRepository.getUserByEmail(updatedBy.getEmail())
@@ -397,6 +417,10 @@ public class ProductServiceImpl implements ProductService {
         }).collect(Collectors.toSet());
 
         managedStocks.addAll(newStocksToAdd);
+
+        productRepository.flush();
+        stockRepository.refreshProductSummaries(List.of(product.getId()));
+        refreshCatalogIndexes(product.getId());
     }
 
     @Deprecated(forRemoval = true)
@@ -475,41 +499,67 @@ public class ProductServiceImpl implements ProductService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<ProductAdminListDto> getAllProductsForAdminV2(Pageable pageable) {
         Specification<Product> spec = ProductSpecification.createSpecification(
                 AdminProductSearchCriteria.builder().isDeleted(false).build()
         );
-        Page<Product> products = productRepository.findAll(spec, pageable);
-        return products.map(this::convertProductToProductAdminListDto);
+        Page<Integer> productIds = productRepository.findIdPage(spec, pageable);
+        return loadProductsWithDetails(productIds).map(this::convertProductToProductAdminListDto);
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<ProductUserResponse> getProductsByCategoryIdForUser(Integer categoryId, Pageable pageable) {
-        Page<Product> products = productRepository.findAllByCategory_IdAndIsDeleted(categoryId, false, pageable).orElseThrow(() -> new NotFoundException("Category not found with id: " + categoryId));
-        return products.map(this::convertProductToProductUserResponse);
+        Page<Integer> productIds = productRepository.findIdsByCategoryIdAndIsDeleted(categoryId, false, pageable);
+        return loadProductsWithDetails(productIds).map(this::convertProductToProductUserResponse);
     }
 
     @Override
-    public Page<ProductUserResponse> getTopProductsByCategoryIdForUser(Integer categoryId, Pageable pageable) {
-        Page<Product> products = orderDetailRepository.getTopSellingProductsByCategory(pageable, categoryId);
-        return products.map(this::convertProductToProductUserResponse);
+    @Transactional(readOnly = true)
+    public Page<ProductUserResponse> getTopProductsByCategoryIdForUser(Integer categoryId, Integer days, Pageable pageable) {
+        Page<Integer> productIds = bestSellerIndex.getTopProductIds(categoryId, days, pageable);
+        return loadProductsWithDetails(productIds).map(this::convertProductToProductUserResponse);
+    }
+
+    /**
+     * Nạp stocks, màu, ảnh, thuộc tính của cả trang bằng một truy vấn theo id, giữ nguyên thứ tự của trang,
+     * thay vì để từng sản phẩm tự nạp stocks khi chuyển sang DTO.
+     */
+    private Page<Product> loadProductsWithDetails(Page<Integer> productIds) {
+        if (productIds.isEmpty()) {
+            return new PageImpl<>(List.of(), productIds.getPageable(), productIds.getTotalElements());
+        }
+        Map<Integer, Product> products = productRepository.findProductsWithDetailsByIdIn(productIds.getContent()).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        List<Product> ordered = productIds.getContent().stream()
+                .map(products::get)
+                .filter(Objects::nonNull)
+                .toList();
+        return new PageImpl<>(ordered, productIds.getPageable(), productIds.getTotalElements());
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public ProductUserResponse getProductByProductIdForUser(Integer categoryId, Integer productId) {
-        Product product = productRepository.findProductByIdAndCategory_IdAndIsDeleted(productId, categoryId, false).orElseThrow(
-                () -> new NotFoundException("Sản phẩm với id: " + productId + " và danh mục với id: " + categoryId + " không tồn tại.")
-        );
-        return convertProductToProductUserResponse(product);
+        // Cache theo id sản phẩm; chỉ khi trượt cache mới mở transaction để nạp và dựng response.
+        ProductUserResponse response = productDetailCache.get(productId, () -> transactionTemplate.execute(status -> {
+            Product product = productRepository.findProductByIdAndIsDeleted(productId, false).orElseThrow(
+                    () -> new NotFoundException("Sản phẩm với id: " + productId + " và danh mục với id: " + categoryId + " không tồn tại.")
+            );
+            return convertProductToProductUserResponse(product);
+        }));
+        if (!Objects.equals(response.getCategoryId(), categoryId)) {
+            throw new NotFoundException("Sản phẩm với id: " + productId + " và danh mục với id: " + categoryId + " không tồn tại.");
+        }
+        return response;
     }
 
     @Override
     @Transactional(readOnly = true)
     @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_STAFF')")
     public ProductAdminResponse getProductByProductIdForAdmin(Integer productId) {
-        Product product = productRepository.findProductById(productId).orElseThrow(
+        Product product = productRepository.findProductWithDetailsById(productId).orElseThrow(
                 () -> new NotFoundException("Sản phẩm với id: " + productId + " không tồn tại.")
         );
         return convertProductToProductAdminResponse(product);
@@ -524,6 +574,7 @@ public class ProductServiceImpl implements ProductService {
         );
         product.setIsDeleted(!product.getIsDeleted());
         productRepository.save(product);
+        refreshCatalogIndexes(productId);
     }
 
     @Override
@@ -531,6 +582,20 @@ public class ProductServiceImpl implements ProductService {
     @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_STAFF')")
     public void deleteForeverProduct(Integer productId) {
         productRepository.deleteProductById(productId);
+        refreshCatalogIndexes(productId);
+    }
+
+    /**
+     * Cập nhật các chỉ mục catalog trong bộ nhớ (facet, gợi ý, danh mục trang chủ, bán chạy) và xoá cache tìm kiếm, cache chi tiết
+     * sau khi transaction hiện tại commit.
+     */
+    private void refreshCatalogIndexes(Integer productId) {
+        catalogFacetIndex.refresh(List.of(productId));
+        productSuggestIndex.refresh(List.of(productId));
+        productSearchResultCache.invalidateAll();
+        productDetailCache.invalidate(List.of(productId));
+        homepageCategorySnapshot.refresh();
+        bestSellerIndex.refreshProducts(List.of(productId));
     }
 
     @Override
@@ -540,20 +605,12 @@ public class ProductServiceImpl implements ProductService {
 
     @Override
     public Page<Map<String, Object>> getSaleByCategory(Pageable pageable, LocalDateTime fromDate, LocalDateTime toDate) {
-        return productRepository.getSalesByCategory(
-                pageable,
-                fromDate == null ? LocalDateTime.of(1, 1, 1, 0, 0) : fromDate,
-                toDate == null ? LocalDateTime.now(ZoneId.of("Asia/Ho_Chi_Minh")) : toDate
-        );
+        return orderDailyStatsRepository.getSalesByCategory(orderStatisticsRollup.statisticsPeriod(fromDate, toDate), OrderStatus.DELIVERED, pageable);
     }
 
     @Override
     public Page<Map<String, Object>> getSaleByColor(Pageable pageable, LocalDateTime fromDate, LocalDateTime toDate) {
-        return productRepository.getSalesByColor(
-                pageable,
-                fromDate == null ? LocalDateTime.of(1, 1, 1, 0, 0) : fromDate,
-                toDate == null ? LocalDateTime.now(ZoneId.of("Asia/Ho_Chi_Minh")) : toDate
-        );
+        return orderDailyStatsRepository.getSalesByColor(orderStatisticsRollup.statisticsPeriod(fromDate, toDate), OrderStatus.DELIVERED, pageable);
     }
 
     public ProductUserResponse convertProductToProductUserResponse(Product product) {
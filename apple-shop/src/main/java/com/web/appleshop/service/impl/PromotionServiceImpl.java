@@ -1,22 +1,28 @@
 package com.web.appleshop.service.impl;
 
 import com.web.appleshop.dto.request.CreatePromotionRequest;
+import com.web.appleshop.dto.request.GeneratePromotionCodesRequest;
 import com.web.appleshop.dto.request.PromotionSearchRequest;
 import com.web.appleshop.dto.request.UpdatePromotionRequest;
 import com.web.appleshop.dto.response.UserPromotionDto;
 import com.web.appleshop.dto.response.UserReviewDto;
 import com.web.appleshop.dto.response.admin.AdminPromotionDto;
+import com.web.appleshop.dto.response.admin.GeneratePromotionCodesResponse;
 import com.web.appleshop.entity.Promotion;
 import com.web.appleshop.entity.User;
 import com.web.appleshop.enums.PromotionType;
 import com.web.appleshop.exception.BadRequestException;
 import com.web.appleshop.exception.NotFoundException;
 import com.web.appleshop.repository.PromotionRepository;
+import com.web.appleshop.service.PromotionCodeBloomFilter;
+import com.web.appleshop.service.PromotionCodeCache;
 import com.web.appleshop.service.PromotionService;
 import com.web.appleshop.specification.PromotionSpecification;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -26,19 +32,43 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 public class PromotionServiceImpl implements PromotionService {
 
     private static final Logger log = LoggerFactory.getLogger(PromotionServiceImpl.class);
+    // Bỏ các ký tự dễ nhầm (0/O, 1/I) vì mã được khách hàng gõ tay.
+    private static final char[] CODE_ALPHABET = "ABCDEFGHJKLMNPQRSTUVWXYZ23456789".toCharArray();
+    private static final int DEFAULT_RANDOM_LENGTH = 10;
+    private static final int MAX_CODE_LENGTH = 50;
+    private static final int MAX_ROUNDS_WITHOUT_PROGRESS = 5;
+    private final SecureRandom secureRandom = new SecureRandom();
     private final PromotionRepository promotionRepository;
     private final PromotionSpecification promotionSpecification;
+    private final PromotionCodeCache promotionCodeCache;
+    private final PromotionCodeBloomFilter promotionCodeBloomFilter;
+    private final TransactionTemplate transactionTemplate;
+    @Value("${promotion.code-generation.chunk-size:1000}")
+    private int codeGenerationChunkSize;
 
     @Override
     @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_STAFF')")
@@ -47,7 +77,7 @@ public class PromotionServiceImpl implements PromotionService {
         User user = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
 
         // 1. Validate promotion code uniqueness
-        if (promotionRepository.existsByCode(request.getCode())) {
+        if (promotionCodeBloomFilter.mightContain(request.getCode()) && promotionRepository.existsByCode(request.getCode())) {
             throw new BadRequestException("Promotion code already exists");
         }
 
@@ -69,6 +99,7 @@ public class PromotionServiceImpl implements PromotionService {
         promotion.setMaxDiscountAmount(request.getMaxDiscountAmount());
         promotion.setMinOrderValue(request.getMinOrderValue());
         promotion.setUsageLimit(request.getUsageLimit());
+        promotion.setUsageLimitPerUser(request.getUsageLimitPerUser());
         promotion.setUsageCount(0);
         promotion.setIsActive(request.getIsActive());
         promotion.setStartDate(request.getStartDate());
@@ -77,7 +108,15 @@ public class PromotionServiceImpl implements PromotionService {
         promotion.setCreatedAt(LocalDateTime.now(ZoneId.of("Asia/Ho_Chi_Minh")));
 
         // 5. Save promotion
-        Promotion savedPromotion = promotionRepository.save(promotion);
+        // Bloom filter chỉ là lớp kiểm tra nhanh; hai request cùng mã vẫn có thể lọt qua bước 1 và gặp nhau ở unique index.
+        Promotion savedPromotion;
+        try {
+            savedPromotion = promotionRepository.saveAndFlush(promotion);
+        } catch (DataIntegrityViolationException e) {
+            throw new BadRequestException("Promotion code already exists");
+        }
+        promotionCodeCache.invalidate(savedPromotion.getCode());
+        promotionCodeBloomFilter.add(List.of(savedPromotion.getCode()));
 
         return mapToResponse(savedPromotion);
     }
@@ -102,11 +141,13 @@ public class PromotionServiceImpl implements PromotionService {
         promotion.setMaxDiscountAmount(request.getMaxDiscountAmount());
         promotion.setMinOrderValue(request.getMinOrderValue());
         promotion.setUsageLimit(request.getUsageLimit());
+        promotion.setUsageLimitPerUser(request.getUsageLimitPerUser());
         promotion.setStartDate(request.getStartDate());
         promotion.setEndDate(request.getEndDate());
 
         // 6. Save updated promotion
         Promotion updatedPromotion = promotionRepository.save(promotion);
+        promotionCodeCache.invalidate(updatedPromotion.getCode());
 
         return mapToResponse(updatedPromotion);
     }
@@ -122,8 +163,12 @@ public class PromotionServiceImpl implements PromotionService {
         if (promotion.getUsageCount() > 0) {
             throw new BadRequestException("Cannot delete promotion that has been used");
         }
+        if (promotionRepository.existsByTemplateId(id)) {
+            throw new BadRequestException("Cannot delete promotion that has generated codes");
+        }
 
         promotionRepository.delete(promotion);
+        promotionCodeCache.invalidate(promotion.getCode());
     }
 
     @Override
@@ -135,11 +180,12 @@ public class PromotionServiceImpl implements PromotionService {
 
         promotion.setIsActive(!promotion.getIsActive());
         promotionRepository.save(promotion);
+        promotionCodeCache.invalidate(promotion.getCode());
     }
 
     @Override
     public Promotion findValidPromotionByCode(String code) {
-        Promotion promotion = promotionRepository.findByCodeAndIsActive(code, true).orElseThrow(
+        Promotion promotion = promotionCodeCache.findActiveByCode(code).orElseThrow(
                 () -> new BadRequestException("Mã giảm giá " + code + " không tồn tại hoặc đã hết hạn.")
         );
 
@@ -178,9 +224,10 @@ public class PromotionServiceImpl implements PromotionService {
     }
 
     @Override
-    public void incrementUsageCount(Promotion promotion) {
-        promotion.setUsageCount(promotion.getUsageCount() + 1);
-        promotionRepository.save(promotion);
+    public void redeem(Promotion promotion, Integer userId) {
+        if (!promotionRepository.redeem(promotion.getId(), userId)) {
+            throw new BadRequestException("Mã giảm giá " + promotion.getCode() + " đã được sử dụng quá số lượng.");
+        }
     }
 
     @Override
@@ -189,6 +236,96 @@ public class PromotionServiceImpl implements PromotionService {
                 orderValue.compareTo(promotion.getMinOrderValue()) >= 0;
     }
 
+    @Override
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_STAFF')")
+    public GeneratePromotionCodesResponse generatePromotionCodes(Integer templateId, GeneratePromotionCodesRequest request) {
+        User user = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        Promotion template = findTemplate(templateId);
+        String prefix = request.getPrefix() != null ? request.getPrefix() : "";
+        int randomLength = request.getRandomLength() != null ? request.getRandomLength() : DEFAULT_RANDOM_LENGTH;
+        if (prefix.length() + randomLength > MAX_CODE_LENGTH) {
+            throw new BadRequestException("Promotion code must not exceed " + MAX_CODE_LENGTH + " characters");
+        }
+
+        LocalDateTime createdAt = LocalDateTime.now(ZoneId.of("Asia/Ho_Chi_Minh"));
+        int quantity = request.getQuantity();
+        int generated = 0;
+        int roundsWithoutProgress = 0;
+        while (generated < quantity) {
+            List<String> candidates = nextCandidateCodes(prefix, randomLength, Math.min(codeGenerationChunkSize, quantity - generated));
+            // Mỗi lô một transaction ngắn để không giữ khoá trên bảng promotions suốt cả đợt sinh mã.
+            Integer inserted = transactionTemplate.execute(status -> {
+                List<String> duplicatedCodes = promotionRepository.insertGeneratedCodes(template, candidates, user.getId(), createdAt);
+                List<String> insertedCodes = new ArrayList<>(candidates);
+                insertedCodes.removeAll(new HashSet<>(duplicatedCodes));
+                promotionCodeBloomFilter.add(insertedCodes);
+                return insertedCodes.size();
+            });
+            int insertedCount = inserted != null ? inserted : 0;
+            generated += insertedCount;
+
+            roundsWithoutProgress = insertedCount == 0 ? roundsWithoutProgress + 1 : 0;
+            if (roundsWithoutProgress >= MAX_ROUNDS_WITHOUT_PROGRESS) {
+                log.warn("Dừng sinh mã cho mã mẫu {} sau {} mã: không còn đủ mã trống với tiền tố {}.", templateId, generated, prefix);
+                break;
+            }
+        }
+        log.info("Đã sinh {}/{} mã giảm giá từ mã mẫu {}.", generated, quantity, templateId);
+        return new GeneratePromotionCodesResponse(templateId, quantity, generated);
+    }
+
+    @Override
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_STAFF')")
+    public StreamingResponseBody exportGeneratedCodes(Integer templateId) {
+        findTemplate(templateId);
+        return outputStream -> {
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            try {
+                promotionRepository.streamCodesByTemplateId(templateId, code -> {
+                    try {
+                        writer.write(code);
+                        writer.newLine();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.flush();
+        };
+    }
+
+    private Promotion findTemplate(Integer templateId) {
+        Promotion template = promotionRepository.findById(templateId)
+                .orElseThrow(() -> new NotFoundException("Promotion not found"));
+        if (template.getTemplate() != null) {
+            throw new BadRequestException("Cannot use a generated code as a template");
+        }
+        return template;
+    }
+
+    /**
+     * Sinh ngẫu nhiên các mã chưa trùng nhau và bị bloom filter xác nhận là chắc chắn chưa tồn tại.
+     */
+    private List<String> nextCandidateCodes(String prefix, int randomLength, int count) {
+        Set<String> codes = new LinkedHashSet<>();
+        StringBuilder builder = new StringBuilder(prefix.length() + randomLength);
+        for (int attempt = 0; codes.size() < count && attempt < count * 10; attempt++) {
+            builder.setLength(0);
+            builder.append(prefix);
+            for (int i = 0; i < randomLength; i++) {
+                builder.append(CODE_ALPHABET[secureRandom.nextInt(CODE_ALPHABET.length)]);
+            }
+            String code = builder.toString();
+            // Trước khi filter nạp xong thì để câu lệnh INSERT có điều kiện tự loại mã trùng.
+            if (!promotionCodeBloomFilter.isLoaded() || !promotionCodeBloomFilter.mightContain(code)) {
+                codes.add(code);
+            }
+        }
+        return new ArrayList<>(codes);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public Page<AdminPromotionDto> searchPromotions(PromotionSearchRequest request,
@@ -212,7 +349,7 @@ public class PromotionServiceImpl implements PromotionService {
     public Page<UserPromotionDto> getPromotionsForUser(Pageable pageable) {
         Sort sort = createSort("id", "DESC");
         pageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort);
-        Page<Promotion> promotions = promotionRepository.findPromotionsByIsActive(true, pageable);
+        Page<Promotion> promotions = promotionRepository.findPromotionsByIsActiveAndTemplateIsNull(true, pageable);
         return promotions.map(this::mapToUserResponse);
     }
 
@@ -252,6 +389,7 @@ public class PromotionServiceImpl implements PromotionService {
         response.setMaxDiscountAmount(promotion.getMaxDiscountAmount());
         response.setMinOrderValue(promotion.getMinOrderValue());
         response.setUsageLimit(promotion.getUsageLimit());
+        response.setUsageLimitPerUser(promotion.getUsageLimitPerUser());
         response.setUsageCount(promotion.getUsageCount());
         response.setIsActive(promotion.getIsActive());
         response.setStartDate(promotion.getStartDate());
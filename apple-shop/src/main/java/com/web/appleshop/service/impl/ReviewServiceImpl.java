@@ -17,6 +17,7 @@ import com.web.appleshop.repository.OrderRepository;
 import com.web.appleshop.repository.ReviewRepository;
 import com.web.appleshop.repository.StockRepository;
 import com.web.appleshop.service.AdminReviewSearchService;
+import com.web.appleshop.service.CatalogFacetIndex;
 import com.web.appleshop.service.ReviewService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -28,6 +29,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.List;
 import java.util.stream.Collectors;
 
 @Service
@@ -38,6 +40,7 @@ public class ReviewServiceImpl implements ReviewService {
     private final OrderRepository orderRepository;
     private final ReviewRepository reviewRepository;
     private final AdminReviewSearchService adminReviewSearchService;
+    private final CatalogFacetIndex catalogFacetIndex;
 
     @Override
     @PreAuthorize("hasAnyAuthority('ROLE_USER')")
@@ -81,7 +84,10 @@ public class ReviewServiceImpl implements ReviewService {
             orderDetail.setIsReviewed(true);
         });
 
-        return reviewRepository.save(review);
+        Review savedReview = reviewRepository.save(review);
+        // Số đánh giá và điểm trung bình dùng cho bộ lọc đánh giá của chỉ mục facet
+        catalogFacetIndex.refresh(List.of(stock.getProduct().getId()));
+        return savedReview;
     }
 
     @Override
@@ -128,6 +134,7 @@ public class ReviewServiceImpl implements ReviewService {
             throw new BadRequestException("Bạn không có quyền xóa bản ghi này!");
         }
         reviewRepository.deleteById(reviewId);
+        catalogFacetIndex.refresh(List.of(review.getStock().getProduct().getId()));
     }
 
     @Override
@@ -0,0 +1,297 @@
+package com.web.appleshop.service.impl;
+
+import com.web.appleshop.entity.Order;
+import com.web.appleshop.entity.OrderDetail;
+import com.web.appleshop.entity.Stock;
+import com.web.appleshop.enums.OrderStatus;
+import com.web.appleshop.exception.IllegalArgumentException;
+import com.web.appleshop.repository.StockRepository;
+import com.web.appleshop.service.ProductDetailCache;
+import com.web.appleshop.service.StockReservationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Service
+public class StockReservationServiceImpl implements StockReservationService {
+    private static final Logger log = LoggerFactory.getLogger(StockReservationServiceImpl.class);
+    private static final String HOLD_KEY_PREFIX = "stock_hold:";
+    private static final String SETTLED_KEY_PREFIX = "stock_settled:";
+    private static final String SETTLE_SEQ_KEY_PREFIX = "stock_settle_seq:";
+    private static final int SETTLED_MAX_ENTRIES = 1000;
+    private static final long SETTLED_TTL_MILLIS = 60_000;
+
+    /**
+     * KEYS: với mỗi phiên bản lần lượt stock_hold:{stockId} (sorted set, score = thời điểm hết hạn,
+     * member = "{holdId}:{quantity}") và stock_settled:{stockId} (sorted set, score = số thứ tự chốt,
+     * member = "{seq}:{quantity}").
+     * ARGV: now, expireAt, ttl, holdId, sau đó là từng bộ (quantity, onHand, seq) theo thứ tự phiên bản;
+     * seq là số thứ tự chốt đọc được trước khi đọc onHand từ DB.
+     * <p>
+     * Phần đã chốt sau seq có thể chưa có trong onHand đã đọc nên cũng bị trừ ra; nhờ vậy onHand đọc từ DB
+     * và các phần giữ hàng luôn được kiểm tra cùng nhau trong một thao tác nguyên tử.
+     * Trả về vị trí (1-based) các phiên bản không đủ hàng; chỉ ghi khi tất cả đều đủ.
+     */
+    private static final RedisScript<List> RESERVE_SCRIPT = new DefaultRedisScript<>("""
+            local now = tonumber(ARGV[1])
+            local count = #KEYS / 2
+            local failed = {}
+            for i = 1, count do
+                local holdKey = KEYS[2 * i - 1]
+                local base = 4 + 3 * (i - 1)
+                redis.call('ZREMRANGEBYSCORE', holdKey, '-inf', now)
+                local held = 0
+                for _, member in ipairs(redis.call('ZRANGE', holdKey, 0, -1)) do
+                    held = held + tonumber(string.match(member, ':(%d+)$'))
+                end
+                for _, member in ipairs(redis.call('ZRANGEBYSCORE', KEYS[2 * i], '(' .. ARGV[base + 3], '+inf')) do
+                    held = held + tonumber(string.match(member, ':(%d+)$'))
+                end
+                if tonumber(ARGV[base + 2]) - held < tonumber(ARGV[base + 1]) then
+                    table.insert(failed, i)
+                end
+            end
+            if #failed == 0 then
+                for i = 1, count do
+                    redis.call('ZADD', KEYS[2 * i - 1], ARGV[2], ARGV[4] .. ':' .. ARGV[4 + 3 * (i - 1) + 1])
+                    redis.call('PEXPIRE', KEYS[2 * i - 1], ARGV[3])
+                end
+            end
+            return failed
+            """, List.class);
+
+    /**
+     * KEYS: với mỗi phiên bản lần lượt stock_hold:{stockId}, stock_settled:{stockId}, stock_settle_seq:{stockId}.
+     * ARGV: holdId, maxEntries, settledTtl, sau đó là số lượng theo thứ tự phiên bản.
+     * Chạy sau khi transaction trừ tồn kho đã commit: xoá phần giữ hàng và ghi phần đã chốt với số thứ tự mới,
+     * để các lần giữ hàng đang đọc tồn kho cũ vẫn tính tới nó.
+     */
+    private static final RedisScript<Long> SETTLE_SCRIPT = new DefaultRedisScript<>("""
+            for i = 1, #KEYS / 3 do
+                local quantity = ARGV[3 + i]
+                local seq = redis.call('INCR', KEYS[3 * i])
+                redis.call('ZREM', KEYS[3 * i - 2], ARGV[1] .. ':' .. quantity)
+                redis.call('ZADD', KEYS[3 * i - 1], seq, seq .. ':' .. quantity)
+                redis.call('ZREMRANGEBYRANK', KEYS[3 * i - 1], 0, -tonumber(ARGV[2]) - 1)
+                redis.call('PEXPIRE', KEYS[3 * i - 1], ARGV[3])
+            end
+            return 0
+            """, Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final StockRepository stockRepository;
+    private final ProductDetailCache productDetailCache;
+
+    @Value("${stock.reservation.ttl-minutes:15}")
+    private long reservationTtlMinutes;
+
+    public StockReservationServiceImpl(RedisTemplate<String, String> redisTemplate, StockRepository stockRepository, ProductDetailCache productDetailCache) {
+        this.redisTemplate = redisTemplate;
+        this.stockRepository = stockRepository;
+        this.productDetailCache = productDetailCache;
+    }
+
+    @Override
+    public LocalDateTime reserve(Integer orderId, Map<Integer, Integer> stockIdQuantityMap) {
+        Set<Integer> failedStockIds = hold(String.valueOf(orderId), stockIdQuantityMap);
+        if (!failedStockIds.isEmpty()) {
+            log.warn("Không đủ hàng để giữ cho đơn hàng #{}: {}", orderId, failedStockIds);
+            throw new IllegalArgumentException("Số lượng sản phẩm trong kho không đủ. Mã phiên bản: " + failedStockIds + ".");
+        }
+        return LocalDateTime.now(ZoneId.of("Asia/Ho_Chi_Minh")).plusMinutes(reservationTtlMinutes);
+    }
+
+    @Override
+    public void confirm(Order order) {
+        Map<Integer, Integer> stockIdQuantityMap = getStockIdQuantityMap(order);
+        Set<Integer> failedStockIds = stockRepository.decrementQuantities(stockIdQuantityMap);
+        if (!failedStockIds.isEmpty()) {
+            // Đơn đã được thanh toán nên không thể từ chối; đánh dấu để bộ phận vận hành xử lý (hoàn tiền hoặc nhập thêm hàng).
+            log.error("Đơn hàng #{} đã thanh toán nhưng không đủ hàng cho các phiên bản: {}", order.getId(), failedStockIds);
+            order.setStockShortage(true);
+        }
+        productDetailCache.invalidateByStockIds(stockIdQuantityMap.keySet());
+        afterCommit(() -> settleHolds(String.valueOf(order.getId()), stockIdQuantityMap));
+        order.setReservationExpiresAt(null);
+    }
+
+    @Override
+    public Set<Integer> consume(Map<Integer, Integer> stockIdQuantityMap) {
+        // Giữ hàng tạm với một mã riêng rồi chốt ngay, để đơn trừ thẳng tồn kho cũng không lấy phần đang được giữ cho đơn khác.
+        String holdId = "direct-" + UUID.randomUUID();
+        Set<Integer> failedStockIds = hold(holdId, stockIdQuantityMap);
+        if (!failedStockIds.isEmpty()) {
+            return failedStockIds;
+        }
+        failedStockIds = stockRepository.decrementQuantities(stockIdQuantityMap);
+        if (failedStockIds.isEmpty()) {
+            productDetailCache.invalidateByStockIds(stockIdQuantityMap.keySet());
+            afterCommit(() -> settleHolds(holdId, stockIdQuantityMap));
+        }
+        return failedStockIds;
+    }
+
+    @Override
+    public void release(Order order) {
+        Map<Integer, Integer> stockIdQuantityMap = getStockIdQuantityMap(order);
+        afterCommit(() -> removeHolds(String.valueOf(order.getId()), stockIdQuantityMap));
+        order.setReservationExpiresAt(null);
+    }
+
+    @Override
+    public void settle(Order order, OrderStatus newStatus) {
+        if (order.getReservationExpiresAt() == null) {
+            return;
+        }
+        if (newStatus == OrderStatus.PAID) {
+            confirm(order);
+        } else if (newStatus == OrderStatus.FAILED_PAYMENT || newStatus == OrderStatus.CANCELLED) {
+            release(order);
+        }
+    }
+
+    @Override
+    public Map<Integer, Integer> getHeldQuantities(Collection<Integer> stockIds) {
+        long now = System.currentTimeMillis();
+        Map<Integer, Integer> heldQuantities = new HashMap<>();
+        for (Integer stockId : stockIds) {
+            Set<String> members = redisTemplate.opsForZSet().rangeByScore(holdKey(stockId), now, Double.POSITIVE_INFINITY);
+            int held = 0;
+            if (members != null) {
+                for (String member : members) {
+                    held += Integer.parseInt(member.substring(member.lastIndexOf(':') + 1));
+                }
+            }
+            heldQuantities.put(stockId, held);
+        }
+        return heldQuantities;
+    }
+
+    @Override
+    public int getAvailableQuantity(Stock stock) {
+        int held = getHeldQuantities(List.of(stock.getId())).getOrDefault(stock.getId(), 0);
+        return Math.max(stock.getQuantity() - held, 0);
+    }
+
+    /**
+     * Ghi phần giữ hàng nếu mọi phiên bản đều đủ hàng. Nếu transaction hiện tại bị rollback thì trả lại ngay,
+     * không đợi hết hạn.
+     *
+     * @return Tập id các phiên bản không đủ hàng; rỗng nếu đã giữ được toàn bộ.
+     */
+    private Set<Integer> hold(String holdId, Map<Integer, Integer> stockIdQuantityMap) {
+        List<Integer> stockIds = new ArrayList<>(stockIdQuantityMap.keySet());
+        // Số thứ tự chốt phải được đọc trước tồn kho trong DB.
+        List<String> seqs = redisTemplate.opsForValue().multiGet(stockIds.stream().map(this::settleSeqKey).toList());
+        Map<Integer, Integer> onHandMap = stockRepository.findQuantitiesByIdIn(stockIds);
+
+        long now = System.currentTimeMillis();
+        long ttlMillis = reservationTtlMinutes * 60_000;
+        List<String> keys = new ArrayList<>();
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(now));
+        args.add(String.valueOf(now + ttlMillis));
+        args.add(String.valueOf(ttlMillis));
+        args.add(holdId);
+        for (int i = 0; i < stockIds.size(); i++) {
+            Integer stockId = stockIds.get(i);
+            String seq = seqs == null ? null : seqs.get(i);
+            keys.add(holdKey(stockId));
+            keys.add(settledKey(stockId));
+            args.add(String.valueOf(stockIdQuantityMap.get(stockId)));
+            args.add(String.valueOf(onHandMap.getOrDefault(stockId, 0)));
+            args.add(seq == null ? "0" : seq);
+        }
+
+        List<?> failedPositions = redisTemplate.execute(RESERVE_SCRIPT, keys, args.toArray());
+        if (failedPositions != null && !failedPositions.isEmpty()) {
+            return failedPositions.stream()
+                    .map(position -> stockIds.get(((Number) position).intValue() - 1))
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        removeHolds(holdId, stockIdQuantityMap);
+                    }
+                }
+            });
+        }
+        return Set.of();
+    }
+
+    private void settleHolds(String holdId, Map<Integer, Integer> stockIdQuantityMap) {
+        List<String> keys = new ArrayList<>();
+        List<String> args = new ArrayList<>();
+        args.add(holdId);
+        args.add(String.valueOf(SETTLED_MAX_ENTRIES));
+        args.add(String.valueOf(SETTLED_TTL_MILLIS));
+        stockIdQuantityMap.forEach((stockId, quantity) -> {
+            keys.add(holdKey(stockId));
+            keys.add(settledKey(stockId));
+            keys.add(settleSeqKey(stockId));
+            args.add(String.valueOf(quantity));
+        });
+        redisTemplate.execute(SETTLE_SCRIPT, keys, args.toArray());
+    }
+
+    private void removeHolds(String holdId, Map<Integer, Integer> stockIdQuantityMap) {
+        stockIdQuantityMap.forEach((stockId, quantity) ->
+                redisTemplate.opsForZSet().remove(holdKey(stockId), holdId + ":" + quantity)
+        );
+    }
+
+    /**
+     * Xoá hoặc chốt phần giữ hàng chỉ sau khi transaction commit, để không ai thấy phần giữ hàng đã mất
+     * trong khi tồn kho trong DB vẫn là số cũ.
+     */
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private Map<Integer, Integer> getStockIdQuantityMap(Order order) {
+        return order.getOrderDetails().stream()
+                .filter(orderDetail -> orderDetail.getStock() != null)
+                .collect(Collectors.toMap(
+                        orderDetail -> orderDetail.getStock().getId(),
+                        OrderDetail::getQuantity,
+                        Integer::sum,
+                        LinkedHashMap::new
+                ));
+    }
+
+    private String holdKey(Integer stockId) {
+        return HOLD_KEY_PREFIX + stockId;
+    }
+
+    private String settledKey(Integer stockId) {
+        return SETTLED_KEY_PREFIX + stockId;
+    }
+
+    private String settleSeqKey(Integer stockId) {
+        return SETTLE_SEQ_KEY_PREFIX + stockId;
+    }
+}
@@ -3,6 +3,7 @@ package com.web.appleshop.service.impl;
 import com.web.appleshop.entity.Stock;
 import com.web.appleshop.exception.NotFoundException;
 import com.web.appleshop.repository.StockRepository;
+import com.web.appleshop.service.ProductDetailCache;
 import com.web.appleshop.service.StockService;
 import jakarta.transaction.Transactional;
 import org.springframework.stereotype.Service;
@@ -14,9 +15,11 @@ import java.util.Set;
 @Service
 class StockServiceImpl implements StockService {
     private final StockRepository stockRepository;
+    private final ProductDetailCache productDetailCache;
 
-    StockServiceImpl(StockRepository stockRepository) {
+    StockServiceImpl(StockRepository stockRepository, ProductDetailCache productDetailCache) {
         this.stockRepository = stockRepository;
+        this.productDetailCache = productDetailCache;
     }
 
     @Override
@@ -26,13 +29,19 @@ class StockServiceImpl implements StockService {
                 () -> new NotFoundException("Không tìm thấy phiên bản sản phẩm nào có id: " + stockId)
         );
         stock.setQuantity(stock.getQuantity() + quantity);
-        return stockRepository.save(stock);
+        Stock savedStock = stockRepository.saveAndFlush(stock);
+        stockRepository.refreshProductSummariesByStockIds(List.of(stockId));
+        productDetailCache.invalidateByStockIds(List.of(stockId));
+        return savedStock;
     }
 
     @Override
     public Set<Stock> refundedStocks(Map<Integer, Integer> stockIdQuantityMap) {
         List<Stock> stocks = stockRepository.findAllById(stockIdQuantityMap.keySet());
         stocks.forEach(stock -> stock.setQuantity(stock.getQuantity() + stockIdQuantityMap.get(stock.getId())));
-        return Set.copyOf(stockRepository.saveAll(stocks));
+        List<Stock> savedStocks = stockRepository.saveAllAndFlush(stocks);
+        stockRepository.refreshProductSummariesByStockIds(stockIdQuantityMap.keySet());
+        productDetailCache.invalidateByStockIds(stockIdQuantityMap.keySet());
+        return Set.copyOf(savedStocks);
     }
 }
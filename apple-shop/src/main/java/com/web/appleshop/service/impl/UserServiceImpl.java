@@ -9,10 +9,13 @@ import com.web.appleshop.dto.response.admin.ProductAdminResponse;
 import com.web.appleshop.dto.response.admin.UserAdminInfoDto;
 import com.web.appleshop.dto.response.admin.UserAdminSummaryDto;
 import com.web.appleshop.entity.User;
+import com.web.appleshop.enums.OrderStatus;
 import com.web.appleshop.exception.IllegalArgumentException;
 import com.web.appleshop.exception.NotFoundException;
+import com.web.appleshop.repository.OrderDailyStatsRepository;
 import com.web.appleshop.repository.RoleRepository;
 import com.web.appleshop.repository.UserRepository;
+import com.web.appleshop.service.OrderStatisticsRollup;
 import com.web.appleshop.service.UserService;
 import com.web.appleshop.specification.UserSpecification;
 import com.web.appleshop.util.UploadUtils;
@@ -38,6 +41,8 @@ import java.util.Set;
 public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
+    private final OrderDailyStatsRepository orderDailyStatsRepository;
+    private final OrderStatisticsRollup orderStatisticsRollup;
     private final UploadUtils uploadUtils;
     private final RoleRepository roleRepository;
     private final PasswordEncoder passwordEncoder;
@@ -181,21 +186,13 @@ public class UserServiceImpl implements UserService {
     @Override
     public Page<Map<String, Object>> getTopUserByPrice(Integer limit, LocalDateTime fromDate, LocalDateTime toDate) {
         Pageable pageable = Pageable.ofSize(limit == null ? 6 : limit);
-        return userRepository.getTopCustomersByPrice(
-                pageable,
-                fromDate == null ? LocalDateTime.of(1, 1, 1, 0, 0) : fromDate,
-                toDate == null ? LocalDateTime.now(ZoneId.of("Asia/Ho_Chi_Minh")) : toDate
-        );
+        return orderDailyStatsRepository.getTopCustomersByPrice(orderStatisticsRollup.statisticsPeriod(fromDate, toDate), OrderStatus.DELIVERED, pageable);
     }
 
     @Override
     public Page<Map<String, Object>> getTopUserByOrderCount(Integer limit, LocalDateTime fromDate, LocalDateTime toDate) {
         Pageable pageable = Pageable.ofSize(limit == null ? 6 : limit);
-        return userRepository.getTopCustomersByOrderCount(
-                pageable,
-                fromDate == null ? LocalDateTime.of(1, 1, 1, 0, 0) : fromDate,
-                toDate == null ? LocalDateTime.now(ZoneId.of("Asia/Ho_Chi_Minh")) : toDate
-        );
+        return orderDailyStatsRepository.getTopCustomersByOrderCount(orderStatisticsRollup.statisticsPeriod(fromDate, toDate), OrderStatus.DELIVERED, pageable);
     }
 
     private Specification<User> buildSpecification(UserSearchCriteria criteria) {
@@ -3,7 +3,10 @@ package com.web.appleshop.specification;
 import com.web.appleshop.dto.request.BaseProductSearchCriteria;
 import com.web.appleshop.dto.request.AdminProductSearchCriteria;
 import com.web.appleshop.dto.request.UserProductSearchCriteria;
+import com.web.appleshop.config.FullTextFunctionContributor;
 import com.web.appleshop.entity.*;
+import com.web.appleshop.repository.ProductRepositoryCustom.TextField;
+import com.web.appleshop.util.SearchKeyUtils;
 import jakarta.persistence.criteria.*;
 import jakarta.persistence.criteria.Order;
 import org.slf4j.Logger;
@@ -14,6 +17,8 @@ import org.springframework.util.StringUtils;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
@@ -58,27 +63,17 @@ public class ProductSpecification {
                         query.orderBy(order);
                         break;
                     case "price":
-                        // For price sorting, use a subquery to get the minimum price per product
-                        Subquery<java.math.BigDecimal> priceSubquery = query.subquery(java.math.BigDecimal.class);
-                        Root<Stock> stockSubRoot = priceSubquery.from(Stock.class);
-                        priceSubquery.select(criteriaBuilder.min(stockSubRoot.get("price")))
-                                .where(criteriaBuilder.equal(stockSubRoot.get("product"), root));
-
+                        // Sort by the lowest stock price, maintained on the product row
                         order = "desc".equalsIgnoreCase(criteria.getSortDirection())
-                                ? criteriaBuilder.desc(priceSubquery)
-                                : criteriaBuilder.asc(priceSubquery);
+                                ? criteriaBuilder.desc(root.get("minPrice"))
+                                : criteriaBuilder.asc(root.get("minPrice"));
                         query.orderBy(order);
                         break;
                     case "quantity":
-                        // For quantity sorting, use a subquery to get the total quantity per product
-                        Subquery<Long> quantitySubquery = query.subquery(Long.class);
-                        Root<Stock> stockQuantitySubRoot = quantitySubquery.from(Stock.class);
-                        quantitySubquery.select(criteriaBuilder.sum(stockQuantitySubRoot.get("quantity")))
-                                .where(criteriaBuilder.equal(stockQuantitySubRoot.get("product"), root));
-
+                        // Sort by the total stock quantity, maintained on the product row
                         order = "desc".equalsIgnoreCase(criteria.getSortDirection())
-                                ? criteriaBuilder.desc(quantitySubquery)
-                                : criteriaBuilder.asc(quantitySubquery);
+                                ? criteriaBuilder.desc(root.get("totalQuantity"))
+                                : criteriaBuilder.asc(root.get("totalQuantity"));
                         query.orderBy(order);
                         break;
                     default:
@@ -101,10 +96,7 @@ public class ProductSpecification {
             Objects.requireNonNull(query, "Query must not be null");
             addFetchJoins(root, query, criteria);
 
-            // Basic product information filters
-            addNameFilter(criteria.getName(), root, criteriaBuilder, predicates);
-            addDescriptionFilter(criteria.getDescription(), root, criteriaBuilder, predicates);
-            addKeywordSearchFilter(criteria.getSearchKeyword(), root, criteriaBuilder, predicates);
+            // Name, description and keyword are matched through the full-text index in ProductSearchService
 
             // Category filters
             addCategoryFilters(criteria.getCategoryId(), criteria.getCategoryName(), root, criteriaBuilder, predicates);
@@ -116,7 +108,7 @@ public class ProductSpecification {
             addColorFilters(criteria.getColorIds(), criteria.getColorNames(), root, criteriaBuilder, predicates);
 
             // Price range filters (through stocks)
-            addPriceRangeFilter(criteria.getMinPrice(), criteria.getMaxPrice(), root, criteriaBuilder, predicates);
+            addPriceRangeFilter(criteria.getMinPrice(), criteria.getMaxPrice(), root, query, criteriaBuilder, predicates);
 
             // Instance property filters
             addInstancePropertyFilters(criteria.getInstancePropertyIds(), criteria.getInstancePropertyNames(), root, criteriaBuilder, predicates);
@@ -125,7 +117,7 @@ public class ProductSpecification {
             addStockAvailabilityFilter(criteria.getInStock(), root, criteriaBuilder, predicates);
 
             // Review property filters
-            addReviewFilters(criteria.getHasReviews(), criteria.getMinRating(), criteria.getMaxRating(), root, criteriaBuilder, predicates);
+            addReviewFilters(criteria.getHasReviews(), criteria.getMinRating(), criteria.getMaxRating(), root, query, criteriaBuilder, predicates);
 
             if (criteria instanceof AdminProductSearchCriteria adminCriteria) {
                 log.info("Admin criteria detected");
@@ -152,27 +144,15 @@ public class ProductSpecification {
                 addIsDeletedFilter(false, root, criteriaBuilder, predicates);
             }
 
-            // Only use DISTINCT when not sorting by aggregated fields that require subqueries
-            // SQL Server requires ORDER BY expressions to be in SELECT list when using DISTINCT
-            boolean useDistinct = true;
-            if (StringUtils.hasText(criteria.getSortBy())) {
-                String sortBy = criteria.getSortBy().toLowerCase();
-                if ("price".equals(sortBy) || "quantity".equals(sortBy)) {
-                    useDistinct = false;
-                }
-            }
-
-            if (useDistinct) {
-                query.distinct(true);
-            }
+            query.distinct(true);
 
             return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
         };
     }
 
     private static <T extends BaseProductSearchCriteria> void addFetchJoins(Root<Product> root, CriteriaQuery<?> query, T criteria) {
-        // Only add fetch joins for non-count queries
-        if (Long.class != query.getResultType()) {
+        // Chỉ fetch join khi truy vấn trả về entity; truy vấn đếm và truy vấn lấy trang id thì không.
+        if (Product.class == query.getResultType()) {
             try {
                 // Fetch category (most commonly accessed)
                 root.fetch("category", JoinType.LEFT);
@@ -210,37 +190,29 @@ public class ProductSpecification {
     /**
      * Add review/rating filters (public filters)
      */
-    private static void addReviewFilters(Boolean hasReviews, Double minRating, Double maxRating,
-                                         Root<Product> root, CriteriaBuilder cb, List<Predicate> predicates) {
+    private static void addReviewFilters(Boolean hasReviews, Double minRating, Double maxRating, Root<Product> root,
+                                         CriteriaQuery<?> query, CriteriaBuilder cb, List<Predicate> predicates) {
         if (hasReviews != null) {
-            if (hasReviews) {
-                // Products that have reviews
-                Fetch<Product, Stock> stockFetch = root.fetch("stocks", JoinType.LEFT);
-                stockFetch.fetch("reviews", JoinType.LEFT);
-                predicates.add(cb.equal(root.get("reviews"), true));
-            } else {
-                // Products that don't have reviews
-                Fetch<Product, Stock> stockFetch = root.fetch("stocks", JoinType.LEFT);
-                stockFetch.fetch("reviews", JoinType.LEFT);
-                predicates.add(cb.equal(root.get("reviews"), false));
-            }
-        }
-
-        if (minRating != null) {
-            predicates.add(cb.greaterThanOrEqualTo(root.get("rating"), minRating));
+            // Products with (or without) a review on any of their stocks
+            Subquery<Integer> reviewSubquery = query.subquery(Integer.class);
+            Root<Review> reviewRoot = reviewSubquery.from(Review.class);
+            reviewSubquery.select(cb.literal(1))
+                    .where(cb.equal(reviewRoot.get("stock").get("product"), root));
+            predicates.add(hasReviews ? cb.exists(reviewSubquery) : cb.not(cb.exists(reviewSubquery)));
         }
 
-        if (maxRating != null) {
-            predicates.add(cb.lessThanOrEqualTo(root.get("rating"), maxRating));
-        }
-    }
-
-    /**
-     * Add name filter (case-insensitive partial match)
-     */
-    private static void addNameFilter(String name, Root<Product> root, CriteriaBuilder cb, List<Predicate> predicates) {
-        if (StringUtils.hasText(name)) {
-            predicates.add(cb.like(cb.lower(root.get("name")), "%" + name.toLowerCase() + "%"));
+        if (minRating != null || maxRating != null) {
+            // Average rating over the reviews of every stock; products without reviews do not match
+            Subquery<Double> ratingSubquery = query.subquery(Double.class);
+            Root<Review> reviewRoot = ratingSubquery.from(Review.class);
+            ratingSubquery.select(cb.avg(reviewRoot.get("rating")))
+                    .where(cb.equal(reviewRoot.get("stock").get("product"), root));
+            if (minRating != null) {
+                predicates.add(cb.greaterThanOrEqualTo(ratingSubquery, minRating));
+            }
+            if (maxRating != null) {
+                predicates.add(cb.lessThanOrEqualTo(ratingSubquery, maxRating));
+            }
         }
     }
 
@@ -253,29 +225,6 @@ public class ProductSpecification {
         }
     }
 
-    /**
-     * Add description filter (case-insensitive partial match)
-     */
-    private static void addDescriptionFilter(String description, Root<Product> root, CriteriaBuilder cb, List<Predicate> predicates) {
-        if (StringUtils.hasText(description)) {
-            predicates.add(cb.like(root.get("description"), "%" + description.toLowerCase() + "%"));
-        }
-    }
-
-    /**
-     * Add keyword search across multiple fields
-     */
-    private static void addKeywordSearchFilter(String keyword, Root<Product> root, CriteriaBuilder cb, List<Predicate> predicates) {
-        if (StringUtils.hasText(keyword)) {
-            String lowerSearchPattern = "%" + keyword.toLowerCase() + "%";
-            String upperSearchPattern = "%" + keyword.toUpperCase() + "%";
-
-            Predicate nameMatch = cb.like(cb.lower(root.get("name")), lowerSearchPattern);
-            Predicate descriptionMatch = cb.like(root.get("description"), upperSearchPattern);
-            predicates.add(cb.or(nameMatch, descriptionMatch));
-        }
-    }
-
     /**
      * Add category ID filter
      */
@@ -287,7 +236,7 @@ public class ProductSpecification {
         if (categoryNames != null && !categoryNames.isEmpty()) {
             List<Predicate> categoryNamePredicates = new ArrayList<>();
             for (String categoryName : categoryNames) {
-                categoryNamePredicates.add(cb.like(cb.lower(categoryJoin.get("name")), "%" + categoryName.toLowerCase() + "%"));
+                categoryNamePredicates.add(searchKeyContains(cb, categoryJoin.get("searchKey"), categoryName));
             }
             predicates.add(cb.or(categoryNamePredicates.toArray(new Predicate[0])));
         }
@@ -305,7 +254,7 @@ public class ProductSpecification {
         if (featureNames != null && !featureNames.isEmpty()) {
             List<Predicate> featureNamePredicates = new ArrayList<>();
             for (String featureName : featureNames) {
-                featureNamePredicates.add(cb.like(cb.lower(featureJoin.get("name")), "%" + featureName.toLowerCase() + "%"));
+                featureNamePredicates.add(searchKeyContains(cb, featureJoin.get("searchKey"), featureName));
             }
             predicates.add(cb.or(featureNamePredicates.toArray(new Predicate[0])));
         }
@@ -326,7 +275,7 @@ public class ProductSpecification {
             Join<Stock, Color> colorJoin = stockJoin.join("color", JoinType.INNER);
             List<Predicate> colorNamePredicates = new ArrayList<>();
             for (String colorName : colorNames) {
-                colorNamePredicates.add(cb.like(cb.lower(colorJoin.get("name")), "%" + colorName.toLowerCase() + "%"));
+                colorNamePredicates.add(searchKeyContains(cb, colorJoin.get("searchKey"), colorName));
             }
             predicates.add(cb.or(colorNamePredicates.toArray(new Predicate[0])));
         }
@@ -335,19 +284,33 @@ public class ProductSpecification {
     /**
      * Add price range filter
      */
-    private static void addPriceRangeFilter(BigDecimal minPrice, BigDecimal maxPrice,
-                                            Root<Product> root, CriteriaBuilder cb, List<Predicate> predicates) {
-        if (minPrice != null || maxPrice != null) {
-            Join<Product, Stock> stockJoin = root.join("stocks", JoinType.INNER);
+    private static void addPriceRangeFilter(BigDecimal minPrice, BigDecimal maxPrice, Root<Product> root,
+                                            CriteriaQuery<?> query, CriteriaBuilder cb, List<Predicate> predicates) {
+        if (minPrice == null && maxPrice == null) {
+            return;
+        }
 
-            if (minPrice != null) {
-                predicates.add(cb.greaterThanOrEqualTo(stockJoin.get("price"), minPrice));
-            }
+        // Cheap pre-filter on the summary columns: the product's [minPrice, maxPrice] must overlap the requested range
+        if (minPrice != null) {
+            predicates.add(cb.greaterThanOrEqualTo(root.get("maxPrice"), minPrice));
+        }
+        if (maxPrice != null) {
+            predicates.add(cb.lessThanOrEqualTo(root.get("minPrice"), maxPrice));
+        }
 
-            if (maxPrice != null) {
-                predicates.add(cb.lessThanOrEqualTo(stockJoin.get("price"), maxPrice));
-            }
+        // At least one stock must be priced within the range (seek on IX_stocks_product_price)
+        Subquery<Integer> stockSubquery = query.subquery(Integer.class);
+        Root<Stock> stockRoot = stockSubquery.from(Stock.class);
+        List<Predicate> stockPredicates = new ArrayList<>();
+        stockPredicates.add(cb.equal(stockRoot.get("product"), root));
+        if (minPrice != null) {
+            stockPredicates.add(cb.greaterThanOrEqualTo(stockRoot.get("price"), minPrice));
         }
+        if (maxPrice != null) {
+            stockPredicates.add(cb.lessThanOrEqualTo(stockRoot.get("price"), maxPrice));
+        }
+        stockSubquery.select(cb.literal(1)).where(stockPredicates.toArray(new Predicate[0]));
+        predicates.add(cb.exists(stockSubquery));
     }
 
     /**
@@ -428,19 +391,31 @@ public class ProductSpecification {
             Join<Stock, InstanceProperty> instanceJoin = stockJoin.join("instanceProperties", JoinType.INNER);
             List<Predicate> instanceNamePredicates = new ArrayList<>();
             for (String instanceName : instancePropertyNames) {
-                instanceNamePredicates.add(cb.like(cb.lower(instanceJoin.get("name")), "%" + instanceName.toLowerCase() + "%"));
+                instanceNamePredicates.add(searchKeyContains(cb, instanceJoin.get("searchKey"), instanceName));
             }
             predicates.add(cb.or(instanceNamePredicates.toArray(new Predicate[0])));
         }
     }
 
+    /**
+     * Accent-insensitive substring match on the stored search_key column ("duong" matches "Xanh dương"),
+     * the same semantics as the original LIKE '%name%' filter. The term is folded the same way as the column.
+     */
+    private static Predicate searchKeyContains(CriteriaBuilder cb, Path<String> searchKey, String term) {
+        String folded = SearchKeyUtils.fold(term)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_")
+                .replace("[", "\\[");
+        return cb.like(searchKey, "%" + folded + "%", '\\');
+    }
+
     /**
      * Add stock availability filter
      */
     private static void addStockAvailabilityFilter(Boolean inStock, Root<Product> root, CriteriaBuilder cb, List<Predicate> predicates) {
         if (inStock != null && inStock) {
-            Join<Product, Stock> stockJoin = root.join("stocks", JoinType.INNER);
-            predicates.add(cb.greaterThan(stockJoin.get("quantity"), 0));
+            predicates.add(cb.isTrue(root.get("inStock")));
         }
     }
 
@@ -454,6 +429,97 @@ public class ProductSpecification {
         }
     }
 
+    /**
+     * Restrict to the given product ids (full-text matches)
+     */
+    public static Specification<Product> hasIdIn(Collection<Integer> ids) {
+        return (root, query, criteriaBuilder) -> root.get("id").in(ids);
+    }
+
+    /**
+     * Full-text filters (keyword on name and description, name, description) evaluated in SQL through CONTAINSTABLE,
+     * so they combine with every other filter, paging and count without capping the number of matches.
+     * Returns null when the criteria has no text filter.
+     */
+    public static Specification<Product> matchesFullText(BaseProductSearchCriteria criteria) {
+        List<FullTextFilter> filters = fullTextFilters(criteria);
+        if (filters.isEmpty()) {
+            return null;
+        }
+        return (root, query, criteriaBuilder) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            for (FullTextFilter filter : filters) {
+                if (filter.condition() == null) {
+                    // Keyword without any usable term matches nothing
+                    return criteriaBuilder.disjunction();
+                }
+                // A keyword matches when any of its fields matches
+                List<Predicate> fieldMatches = new ArrayList<>();
+                for (TextField field : filter.fields()) {
+                    fieldMatches.add(criteriaBuilder.isNotNull(fullTextRank(root, criteriaBuilder, filter, field)));
+                }
+                predicates.add(criteriaBuilder.or(fieldMatches.toArray(new Predicate[0])));
+            }
+            return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /**
+     * Order by full-text relevance, most relevant first: the weighted sum of the CONTAINSTABLE ranks of every text filter.
+     * Use together with {@link #matchesFullText} and only when no other sort is requested.
+     */
+    public static Specification<Product> orderByFullTextRank(BaseProductSearchCriteria criteria) {
+        List<FullTextFilter> filters = fullTextFilters(criteria);
+        return (root, query, criteriaBuilder) -> {
+            Expression<Integer> score = null;
+            for (FullTextFilter filter : filters) {
+                if (filter.condition() == null) {
+                    continue;
+                }
+                for (TextField field : filter.fields()) {
+                    Expression<Integer> weighted = criteriaBuilder.prod(
+                            criteriaBuilder.coalesce(fullTextRank(root, criteriaBuilder, filter, field), 0),
+                            field.weight());
+                    score = score == null ? weighted : criteriaBuilder.sum(score, weighted);
+                }
+            }
+            if (score != null) {
+                query.orderBy(criteriaBuilder.desc(score));
+            }
+            return null;
+        };
+    }
+
+    private static Expression<Integer> fullTextRank(Root<Product> root, CriteriaBuilder cb, FullTextFilter filter, TextField field) {
+        // The name is indexed through search_key (accent-folded), so the keyword is folded the same way
+        return switch (field) {
+            case NAME -> cb.function(FullTextFunctionContributor.NAME_RANK, Integer.class,
+                    root.get("id"), cb.literal(filter.foldedCondition()));
+            case DESCRIPTION -> cb.function(FullTextFunctionContributor.DESCRIPTION_RANK, Integer.class,
+                    root.get("id"), cb.literal(filter.condition()));
+        };
+    }
+
+    private static List<FullTextFilter> fullTextFilters(BaseProductSearchCriteria criteria) {
+        List<FullTextFilter> filters = new ArrayList<>();
+        addFullTextFilter(filters, criteria.getSearchKeyword(), EnumSet.of(TextField.NAME, TextField.DESCRIPTION));
+        addFullTextFilter(filters, criteria.getName(), EnumSet.of(TextField.NAME));
+        addFullTextFilter(filters, criteria.getDescription(), EnumSet.of(TextField.DESCRIPTION));
+        return filters;
+    }
+
+    private static void addFullTextFilter(List<FullTextFilter> filters, String text, Set<TextField> fields) {
+        if (StringUtils.hasText(text)) {
+            filters.add(new FullTextFilter(
+                    SearchKeyUtils.toFullTextCondition(text),
+                    SearchKeyUtils.toFullTextCondition(SearchKeyUtils.fold(text)),
+                    fields));
+        }
+    }
+
+    private record FullTextFilter(String condition, String foldedCondition, Set<TextField> fields) {
+    }
+
     /**
      * Create sorting specification
      */
@@ -482,27 +548,17 @@ public class ProductSpecification {
                         query.orderBy(order);
                         break;
                     case "price":
-                        // For price sorting, use a subquery to get the minimum price per product
-                        Subquery<java.math.BigDecimal> priceSubquery = query.subquery(java.math.BigDecimal.class);
-                        Root<Stock> stockSubRoot = priceSubquery.from(Stock.class);
-                        priceSubquery.select(criteriaBuilder.min(stockSubRoot.get("price")))
-                                .where(criteriaBuilder.equal(stockSubRoot.get("product"), root));
-
+                        // Sort by the lowest stock price, maintained on the product row
                         order = "desc".equalsIgnoreCase(sortDirection)
-                                ? criteriaBuilder.desc(priceSubquery)
-                                : criteriaBuilder.asc(priceSubquery);
+                                ? criteriaBuilder.desc(root.get("minPrice"))
+                                : criteriaBuilder.asc(root.get("minPrice"));
                         query.orderBy(order);
                         break;
                     case "quantity":
-                        // For quantity sorting, use a subquery to get the total quantity per product
-                        Subquery<Long> quantitySubquery = query.subquery(Long.class);
-                        Root<Stock> stockQuantitySubRoot = quantitySubquery.from(Stock.class);
-                        quantitySubquery.select(criteriaBuilder.sum(stockQuantitySubRoot.get("quantity")))
-                                .where(criteriaBuilder.equal(stockQuantitySubRoot.get("product"), root));
-
+                        // Sort by the total stock quantity, maintained on the product row
                         order = "desc".equalsIgnoreCase(sortDirection)
-                                ? criteriaBuilder.desc(quantitySubquery)
-                                : criteriaBuilder.asc(quantitySubquery);
+                                ? criteriaBuilder.desc(root.get("totalQuantity"))
+                                : criteriaBuilder.asc(root.get("totalQuantity"));
                         query.orderBy(order);
                         break;
                     default:
@@ -38,6 +38,9 @@ public class PromotionSpecification {
                 predicates.add(criteriaBuilder.equal(
                         criteriaBuilder.lower(root.get("code")),
                         request.getCode().toLowerCase()));
+            } else if (request.getId() == null) {
+                // Mã dùng một lần sinh hàng loạt chỉ hiện khi tra cứu đúng mã hoặc id.
+                predicates.add(criteriaBuilder.isNull(root.get("template")));
             }
 
             // Tìm kiếm theo loại giảm giá
@@ -0,0 +1,58 @@
+package com.web.appleshop.util;
+
+import java.text.Normalizer;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Chuẩn hoá chuỗi tìm kiếm tiếng Việt: bỏ dấu, đ -> d, chữ thường.
+ * Dùng chung cho cột search_key lưu trong DB và cho từ khoá người dùng nhập, để "dien thoai" khớp "Điện thoại".
+ */
+public final class SearchKeyUtils {
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern TERM = Pattern.compile("[\\p{L}\\p{N}]+");
+    private static final int MAX_TERMS = 10;
+
+    private SearchKeyUtils() {
+    }
+
+    public static String fold(String value) {
+        if (value == null) {
+            return null;
+        }
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+        String folded = COMBINING_MARKS.matcher(decomposed).replaceAll("")
+                .replace('đ', 'd')
+                .replace('Đ', 'D')
+                .toLowerCase(Locale.ROOT);
+        return WHITESPACE.matcher(folded).replaceAll(" ").trim();
+    }
+
+    /**
+     * Chuyển từ khoá người dùng nhập thành điều kiện CONTAINS an toàn: chỉ giữ chữ và số,
+     * mỗi từ là một prefix term ("iphone*" AND "15*") để gõ dở vẫn khớp.
+     *
+     * @return {@code null} nếu từ khoá không có từ nào dùng được.
+     */
+    public static String toFullTextCondition(String keyword) {
+        if (keyword == null) {
+            return null;
+        }
+        Set<String> terms = new LinkedHashSet<>();
+        Matcher matcher = TERM.matcher(keyword);
+        while (matcher.find() && terms.size() < MAX_TERMS) {
+            terms.add(matcher.group());
+        }
+        if (terms.isEmpty()) {
+            return null;
+        }
+        return terms.stream()
+                .map(term -> "\"" + term + "*\"")
+                .collect(Collectors.joining(" AND "));
+    }
+}
@@ -0,0 +1,77 @@
+create table order_daily_stats
+(
+    stats_date    date           not null,
+    status        varchar(55)    not null,
+    order_count   int            not null,
+    revenue       decimal(18, 2) not null,
+    products_sold int            not null,
+    constraint pk_order_daily_stats
+        primary key (stats_date, status)
+)
+go
+
+create table category_daily_sales
+(
+    stats_date  date        not null,
+    status      varchar(55) not null,
+    category_id int         not null,
+    quantity    int         not null,
+    constraint pk_category_daily_sales
+        primary key (stats_date, status, category_id)
+)
+go
+
+create table color_daily_sales
+(
+    stats_date date        not null,
+    status     varchar(55) not null,
+    color_id   int         not null,
+    quantity   int         not null,
+    constraint pk_color_daily_sales
+        primary key (stats_date, status, color_id)
+)
+go
+
+create table customer_daily_stats
+(
+    stats_date  date           not null,
+    status      varchar(55)    not null,
+    user_id     int            not null,
+    order_count int            not null,
+    total_spent decimal(18, 2) not null,
+    constraint pk_customer_daily_stats
+        primary key (stats_date, status, user_id)
+)
+go
+
+insert into order_daily_stats (stats_date, status, order_count, revenue, products_sold)
+select cast(o.created_at as date), o.status, count(*), sum(isnull(o.final_total, 0)), sum(isnull(d.quantity, 0))
+from orders o
+         outer apply (select sum(od.quantity) as quantity from order_details od where od.order_id = o.id) d
+group by cast(o.created_at as date), o.status
+go
+
+insert into category_daily_sales (stats_date, status, category_id, quantity)
+select cast(o.created_at as date), o.status, p.category_id, sum(od.quantity)
+from order_details od
+         join orders o on o.id = od.order_id
+         join products p on p.id = od.product_id
+where p.category_id is not null
+group by cast(o.created_at as date), o.status, p.category_id
+go
+
+insert into color_daily_sales (stats_date, status, color_id, quantity)
+select cast(o.created_at as date), o.status, s.color_id, sum(od.quantity)
+from order_details od
+         join orders o on o.id = od.order_id
+         join stocks s on s.id = od.stock_id
+where s.color_id is not null
+group by cast(o.created_at as date), o.status, s.color_id
+go
+
+insert into customer_daily_stats (stats_date, status, user_id, order_count, total_spent)
+select cast(o.created_at as date), o.status, o.created_by, count(*), sum(isnull(o.final_total, 0))
+from orders o
+where o.created_by is not null
+group by cast(o.created_at as date), o.status, o.created_by
+go
@@ -0,0 +1,14 @@
+alter table stocks
+    add version bigint
+        constraint DF_stock_version default 0 not null
+go
+
+alter table promotions
+    add version bigint
+        constraint DF_promotions_version default 0 not null
+go
+
+alter table orders
+    add version bigint
+        constraint DF_order_version default 0 not null
+go
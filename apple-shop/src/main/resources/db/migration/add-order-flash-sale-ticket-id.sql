@@ -0,0 +1,8 @@
+alter table orders
+    add flash_sale_ticket_id varchar(36)
+go
+
+create unique index UX_orders_flash_sale_ticket_id
+    on orders (flash_sale_ticket_id)
+    where [flash_sale_ticket_id] IS NOT NULL
+go
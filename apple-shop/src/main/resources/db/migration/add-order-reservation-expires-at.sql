@@ -0,0 +1,3 @@
+alter table orders
+    add reservation_expires_at datetime
+go
@@ -0,0 +1,4 @@
+alter table orders
+    add stock_shortage bit
+        constraint DF_order_stock_shortage default 0 not null
+go
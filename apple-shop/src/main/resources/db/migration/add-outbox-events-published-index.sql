@@ -0,0 +1,4 @@
+create index IX_outbox_events_published_at
+    on outbox_events (published_at)
+    where [published_at] IS NOT NULL
+go
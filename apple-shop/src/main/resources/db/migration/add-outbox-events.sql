@@ -0,0 +1,19 @@
+create table outbox_events
+(
+    id             bigint identity
+        constraint pk_outbox_events
+            primary key,
+    aggregate_type varchar(55)   not null,
+    aggregate_id   varchar(255)  not null,
+    topic          varchar(100)  not null,
+    payload        nvarchar(max) not null,
+    created_at     datetime
+        constraint DF_outbox_event_created_at default getdate(),
+    published_at   datetime
+)
+go
+
+create index IX_outbox_events_unpublished
+    on outbox_events (id)
+    where [published_at] IS NULL
+go
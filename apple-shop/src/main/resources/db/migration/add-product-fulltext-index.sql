@@ -0,0 +1,7 @@
+create fulltext catalog ftc_products with accent_sensitivity = off
+go
+
+create fulltext index on products (name language 1066, description language 1066)
+    key index pk_product on ftc_products
+    with change_tracking auto
+go
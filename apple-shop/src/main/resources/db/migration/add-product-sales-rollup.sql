@@ -0,0 +1,27 @@
+create table product_sales_rollup
+(
+    product_id  int  not null
+        constraint FK_PRODUCT_SALES_ROLLUP_ON_PRODUCTID
+            references products
+            on delete cascade,
+    category_id int  not null,
+    sales_date  date not null,
+    quantity    int  not null,
+    constraint pk_product_sales_rollup
+        primary key (product_id, category_id, sales_date)
+)
+go
+
+create index IX_product_sales_rollup_category_date
+    on product_sales_rollup (category_id, sales_date) include (product_id, quantity)
+go
+
+insert into product_sales_rollup (product_id, category_id, sales_date, quantity)
+select od.product_id, p.category_id, cast(o.created_at as date), sum(od.quantity)
+from order_details od
+         join orders o on o.id = od.order_id
+         join products p on p.id = od.product_id
+where o.status in ('DELIVERED', 'RETURN_REQUESTED')
+  and p.category_id is not null
+group by od.product_id, p.category_id, cast(o.created_at as date)
+go
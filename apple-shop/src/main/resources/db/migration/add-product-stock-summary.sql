@@ -0,0 +1,27 @@
+alter table products
+    add min_price      decimal(18, 2),
+        max_price      decimal(18, 2),
+        total_quantity int
+            constraint DF_product_total_quantity default 0 not null,
+        in_stock       bit
+            constraint DF_product_in_stock default 0 not null
+go
+
+update p
+set min_price      = s.min_price,
+    max_price      = s.max_price,
+    total_quantity = isnull(s.total_quantity, 0),
+    in_stock       = case when isnull(s.total_quantity, 0) > 0 then 1 else 0 end
+from products p
+         outer apply (select min(st.price) as min_price, max(st.price) as max_price, sum(st.quantity) as total_quantity
+                      from stocks st
+                      where st.product_id = p.id) s
+go
+
+create index IX_products_min_price
+    on products (is_deleted, min_price) include (max_price, in_stock)
+go
+
+create index IX_products_total_quantity
+    on products (is_deleted, total_quantity)
+go
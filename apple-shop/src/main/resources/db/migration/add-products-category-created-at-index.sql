@@ -0,0 +1,4 @@
+create index IX_products_category_created_at
+    on products (category_id, created_at desc) include (name)
+    where [is_deleted] = 0
+go
@@ -0,0 +1,14 @@
+alter table promotions
+    add template_id int
+        constraint promotions_promotions_template_id_fk
+            references promotions
+go
+
+create unique index promotions_code_uindex
+    on promotions (code)
+go
+
+create index IX_promotions_template_id
+    on promotions (template_id)
+    where [template_id] IS NOT NULL
+go
@@ -0,0 +1,17 @@
+alter table promotions
+    add usage_limit_per_user int
+go
+
+create table promotion_redemptions
+(
+    promotion_id int not null
+        constraint promotion_redemptions_promotions_id_fk
+            references promotions,
+    user_id      int not null
+        constraint promotion_redemptions_users_id_fk
+            references users,
+    usage_count  int not null,
+    constraint pk_promotion_redemptions
+        primary key (promotion_id, user_id)
+)
+go
@@ -0,0 +1,69 @@
+alter table products
+    add search_key nvarchar(255)
+go
+
+alter table categories
+    add search_key nvarchar(100)
+go
+
+alter table colors
+    add search_key nvarchar(50)
+go
+
+alter table features
+    add search_key nvarchar(100)
+go
+
+alter table instance_properties
+    add search_key nvarchar(255)
+go
+
+update products
+set search_key = ltrim(rtrim(translate(lower(name),
+                                 N'àáảãạăằắẳẵặâầấẩẫậđèéẻẽẹêềếểễệìíỉĩịòóỏõọôồốổỗộơờớởỡợùúủũụưừứửữựỳýỷỹỵ',
+                                 N'aaaaaaaaaaaaaaaaadeeeeeeeeeeeiiiiiooooooooooooooooouuuuuuuuuuuyyyyy')))
+go
+
+update categories
+set search_key = ltrim(rtrim(translate(lower(name),
+                                 N'àáảãạăằắẳẵặâầấẩẫậđèéẻẽẹêềếểễệìíỉĩịòóỏõọôồốổỗộơờớởỡợùúủũụưừứửữựỳýỷỹỵ',
+                                 N'aaaaaaaaaaaaaaaaadeeeeeeeeeeeiiiiiooooooooooooooooouuuuuuuuuuuyyyyy')))
+go
+
+update colors
+set search_key = ltrim(rtrim(translate(lower(name),
+                                 N'àáảãạăằắẳẵặâầấẩẫậđèéẻẽẹêềếểễệìíỉĩịòóỏõọôồốổỗộơờớởỡợùúủũụưừứửữựỳýỷỹỵ',
+                                 N'aaaaaaaaaaaaaaaaadeeeeeeeeeeeiiiiiooooooooooooooooouuuuuuuuuuuyyyyy')))
+go
+
+update features
+set search_key = ltrim(rtrim(translate(lower(name),
+                                 N'àáảãạăằắẳẵặâầấẩẫậđèéẻẽẹêềếểễệìíỉĩịòóỏõọôồốổỗộơờớởỡợùúủũụưừứửữựỳýỷỹỵ',
+                                 N'aaaaaaaaaaaaaaaaadeeeeeeeeeeeiiiiiooooooooooooooooouuuuuuuuuuuyyyyy')))
+go
+
+update instance_properties
+set search_key = ltrim(rtrim(translate(lower(name),
+                                 N'àáảãạăằắẳẵặâầấẩẫậđèéẻẽẹêềếểễệìíỉĩịòóỏõọôồốổỗộơờớởỡợùúủũụưừứửữựỳýỷỹỵ',
+                                 N'aaaaaaaaaaaaaaaaadeeeeeeeeeeeiiiiiooooooooooooooooouuuuuuuuuuuyyyyy')))
+go
+
+create index IX_categories_search_key
+    on categories (search_key)
+go
+
+create index IX_colors_search_key
+    on colors (search_key)
+go
+
+create index IX_features_search_key
+    on features (search_key)
+go
+
+create index IX_instance_properties_search_key
+    on instance_properties (search_key)
+go
+
+alter fulltext index on products
+    add (search_key language 1066)
+go
@@ -0,0 +1,4 @@
+alter table stocks
+    add is_flash_sale bit
+        constraint DF_stock_is_flash_sale default 0
+go
@@ -0,0 +1,3 @@
+create index IX_stocks_product_price
+    on stocks (product_id, price)
+go
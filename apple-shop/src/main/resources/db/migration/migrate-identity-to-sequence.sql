@@ -0,0 +1,209 @@
+-- Chuyển id của orders, order_details, cart_items từ identity sang sequence để Hibernate gom insert theo batch.
+-- Hibernate dùng pooled optimizer (allocationSize = 50) và coi giá trị sequence là cận trên của khối id,
+-- nên giá trị đầu tiên phải lớn hơn id lớn nhất hiện có ít nhất 50.
+-- Cột identity không thể bỏ thuộc tính identity, nên dữ liệu được chuyển sang bảng mới bằng ALTER TABLE ... SWITCH
+-- (chỉ đổi metadata, không chép dữ liệu).
+--
+-- Toàn bộ script chạy trong một transaction. Ba bảng bị khoá độc quyền (tablockx, holdlock) ngay lúc đọc max(id)
+-- và giữ tới khi commit, nên không insert nào bằng identity chen vào được giữa lúc đọc max(id) và lúc id chuyển
+-- sang lấy từ sequence (id chen vào sẽ trùng khối id đầu tiên của sequence). Các insert đồng thời chỉ phải chờ.
+-- Nếu một lệnh lỗi (ví dụ cột của bảng *_seq không khớp bảng hiện tại nên SWITCH bị từ chối), xact_abort rollback
+-- toàn bộ và các batch còn lại bị bỏ qua bằng noexec; CSDL giữ nguyên trạng thái cũ.
+-- Chạy sau add-optimistic-version.sql, add-order-reservation-expires-at.sql, add-order-stock-shortage.sql
+-- và trước add-order-flash-sale-ticket-id.sql.
+--
+-- Hoàn tác (sau khi đã commit): làm ngược lại cùng cách trên, trong một transaction và khoá ba bảng như trên:
+--   1. Xoá các default DF_order_id, DF_orderdetail_id, DF_cartitem_id và các khoá ngoại tới orders.
+--   2. Tạo lại orders_identity, order_details_identity, cart_items_identity với cột id int identity cùng các cột còn lại
+--      giống hệt bảng hiện tại, rồi ALTER TABLE ... SWITCH sang, xoá bảng cũ và sp_rename như trên.
+--   3. dbcc checkident('<bảng>', reseed) để identity tiếp tục từ id lớn nhất, tạo lại default và khoá ngoại.
+--   4. drop sequence order_seq, order_detail_seq, cart_item_seq; đưa Order, OrderDetail, CartItem về
+--      GenerationType.IDENTITY (bỏ @SequenceGenerator) trước khi chạy lại ứng dụng.
+-- Id đã cấp theo khối có thể để lại khoảng trống; identity sau khi reseed không dùng lại các khoảng đó.
+
+set xact_abort on
+go
+
+begin transaction
+
+declare @sql nvarchar(max)
+
+select @sql = N'create sequence order_seq as int start with ' + cast(isnull(max(id), 0) + 50 as nvarchar(20)) + N' increment by 50'
+from orders with (tablockx, holdlock)
+exec sp_executesql @sql
+
+select @sql = N'create sequence order_detail_seq as int start with ' + cast(isnull(max(id), 0) + 50 as nvarchar(20)) + N' increment by 50'
+from order_details with (tablockx, holdlock)
+exec sp_executesql @sql
+
+select @sql = N'create sequence cart_item_seq as int start with ' + cast(isnull(max(id), 0) + 50 as nvarchar(20)) + N' increment by 50'
+from cart_items with (tablockx, holdlock)
+exec sp_executesql @sql
+go
+
+if @@trancount = 0 set noexec on
+alter table order_details
+    drop constraint FK_ORDERDETAIL_ON_ORDERID
+go
+
+if @@trancount = 0 set noexec on
+alter table reviews
+    drop constraint reviews_orders_id_fk
+go
+
+if @@trancount = 0 set noexec on
+-- orders
+create table orders_seq
+(
+    id                       int           not null
+        constraint pk_order_seq
+            primary key,
+    created_by               int,
+    created_at               datetime,
+    payment_type             varchar(55)   not null,
+    approve_at               datetime,
+    approve_by               int,
+    first_name               nvarchar(55),
+    last_name                nvarchar(55),
+    email                    nvarchar(255),
+    phone                    nvarchar(20),
+    address                  nvarchar(500),
+    ward                     nvarchar(100),
+    district                 nvarchar(100),
+    province                 nvarchar(100),
+    country                  nvarchar(100),
+    status                   varchar(55)   not null,
+    shipping_tracking_code   varchar(255),
+    product_promotion_id     int,
+    shipping_promotion_id    int,
+    shipping_discount_amount decimal(18, 2),
+    product_discount_amount  decimal(18, 2),
+    subtotal                 decimal(18, 2),
+    shipping_fee             decimal(18, 2),
+    final_total              decimal(18, 2),
+    vat                      decimal(18, 2),
+    reservation_expires_at   datetime,
+    version                  bigint        not null,
+    stock_shortage           bit           not null
+)
+go
+
+if @@trancount = 0 set noexec on
+alter table orders switch to orders_seq
+go
+
+if @@trancount = 0 set noexec on
+drop table orders
+go
+
+if @@trancount = 0 set noexec on
+exec sp_rename 'orders_seq', 'orders'
+exec sp_rename 'pk_order_seq', 'pk_order', 'OBJECT'
+go
+
+if @@trancount = 0 set noexec on
+alter table orders
+    add constraint DF_order_id default (next value for order_seq) for id,
+        constraint DF_order_created_at default getdate() for created_at,
+        constraint DF_order_approve_at default getdate() for approve_at,
+        default 0 for shipping_discount_amount,
+        default 0 for product_discount_amount,
+        default 0 for shipping_fee,
+        constraint DF_order_version default 0 for version,
+        constraint DF_order_stock_shortage default 0 for stock_shortage,
+        constraint FK_ORDER_ON_CREATEDBY foreign key (created_by) references users,
+        constraint FK_ORDER_ON_APPROVEBY foreign key (approve_by) references users,
+        constraint orders_product_promotions_id_fk foreign key (product_promotion_id) references promotions,
+        constraint orders_shipping_promotions_id_fk foreign key (shipping_promotion_id) references promotions
+go
+
+if @@trancount = 0 set noexec on
+-- order_details
+create table order_details_seq
+(
+    id           int            not null
+        constraint pk_orderdetail_seq
+            primary key,
+    order_id     int            not null,
+    product_id   int,
+    product_name nvarchar(255)  not null,
+    quantity     int            not null,
+    price        decimal(18, 2) not null,
+    note         nvarchar(255),
+    color_name   nvarchar(50)   not null,
+    version_name nvarchar(550)  not null,
+    image_url    nvarchar(max)  not null,
+    stock_id     int,
+    is_reviewed  bit
+)
+go
+
+if @@trancount = 0 set noexec on
+alter table order_details switch to order_details_seq
+go
+
+if @@trancount = 0 set noexec on
+drop table order_details
+go
+
+if @@trancount = 0 set noexec on
+exec sp_rename 'order_details_seq', 'order_details'
+exec sp_rename 'pk_orderdetail_seq', 'pk_orderdetail', 'OBJECT'
+go
+
+if @@trancount = 0 set noexec on
+alter table order_details
+    add constraint DF_orderdetail_id default (next value for order_detail_seq) for id,
+        constraint FK_ORDERDETAIL_ON_ORDERID foreign key (order_id) references orders on delete cascade,
+        constraint order_details_products_id_fk foreign key (product_id) references products
+            on update cascade on delete set null,
+        constraint order_details_stocks_id_fk foreign key (stock_id) references stocks
+            on update cascade on delete set null
+go
+
+if @@trancount = 0 set noexec on
+alter table reviews
+    add constraint reviews_orders_id_fk foreign key (order_id) references orders
+go
+
+if @@trancount = 0 set noexec on
+-- cart_items
+create table cart_items_seq
+(
+    id           int not null
+        constraint pk_cartitem_seq
+            primary key,
+    user_id      int not null,
+    product_id   int not null,
+    product_name nvarchar(255),
+    stock_id     int not null,
+    quantity     int not null
+)
+go
+
+if @@trancount = 0 set noexec on
+alter table cart_items switch to cart_items_seq
+go
+
+if @@trancount = 0 set noexec on
+drop table cart_items
+go
+
+if @@trancount = 0 set noexec on
+exec sp_rename 'cart_items_seq', 'cart_items'
+exec sp_rename 'pk_cartitem_seq', 'pk_cartitem', 'OBJECT'
+go
+
+if @@trancount = 0 set noexec on
+alter table cart_items
+    add constraint DF_cartitem_id default (next value for cart_item_seq) for id,
+        constraint FK_CARTITEM_ON_USERID foreign key (user_id) references users,
+        constraint FK_CARTITEM_ON_PRODUCTID foreign key (product_id) references products,
+        constraint FK_CARTITEM_ON_STOCKID foreign key (stock_id) references stocks
+go
+
+commit transaction
+go
+
+set noexec off
+go
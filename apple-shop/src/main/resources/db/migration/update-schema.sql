@@ -4,11 +4,16 @@ create table categories
         constraint pk_category
             primary key,
     name        nvarchar(100) not null,
+    search_key  nvarchar(100),
     image       nvarchar(max),
     description nvarchar(255)
 )
 go
 
+create index IX_categories_search_key
+    on categories (search_key)
+go
+
 create table colors
 (
     id       int identity
@@ -17,10 +22,15 @@ create table colors
     name     nvarchar(50) not null
         constraint uk_color_name
             unique,
+    search_key nvarchar(50),
     hex_code varchar(7)
 )
 go
 
+create index IX_colors_search_key
+    on colors (search_key)
+go
+
 create table roles
 (
     id   int identity
@@ -75,6 +85,7 @@ create table features
         constraint pk_feature
             primary key,
     name        nvarchar(100) not null,
+    search_key  nvarchar(100),
     description nvarchar(500),
     image       nvarchar(max),
     created_at  datetime
@@ -85,6 +96,10 @@ create table features
 )
 go
 
+create index IX_features_search_key
+    on features (search_key)
+go
+
 create table instance_properties
 (
     id         int identity
@@ -93,6 +108,7 @@ create table instance_properties
     name       nvarchar(255) not null
         constraint uk_instance_property_name
             unique,
+    search_key nvarchar(255),
     created_at datetime
         constraint DF_instance_properties_created_at default getdate(),
     created_by int           not null
@@ -101,12 +117,17 @@ create table instance_properties
 )
 go
 
+create index IX_instance_properties_search_key
+    on instance_properties (search_key)
+go
+
 create table products
 (
     id          int identity
         constraint pk_product
             primary key,
     name        nvarchar(255) not null,
+    search_key  nvarchar(255),
     description nvarchar(max),
     created_at  datetime
         constraint DF_product_created_at default getdate(),
@@ -122,10 +143,37 @@ create table products
         constraint FK_PRODUCT_ON_CATEGORYID
             references categories
             on update cascade on delete set null,
-    is_deleted  bit default 0
+    is_deleted  bit default 0,
+    min_price      decimal(18, 2),
+    max_price      decimal(18, 2),
+    total_quantity int
+        constraint DF_product_total_quantity default 0 not null,
+    in_stock       bit
+        constraint DF_product_in_stock default 0 not null
 )
 go
 
+create index IX_products_min_price
+    on products (is_deleted, min_price) include (max_price, in_stock)
+go
+
+create index IX_products_total_quantity
+    on products (is_deleted, total_quantity)
+go
+
+create index IX_products_category_created_at
+    on products (category_id, created_at desc) include (name)
+    where [is_deleted] = 0
+go
+
+create fulltext catalog ftc_products with accent_sensitivity = off
+go
+
+create fulltext index on products (name language 1066, description language 1066, search_key language 1066)
+    key index pk_product on ftc_products
+    with change_tracking auto
+go
+
 create table product_features
 (
     feature_id int not null
@@ -153,6 +201,7 @@ create table promotions
     max_discount_amount decimal(18, 2),
     min_order_value     decimal(18, 2),
     usage_limit         int            not null,
+    usage_limit_per_user int,
     usage_count         int
         constraint DF_promotions_usage_count default 0,
     is_active           bit
@@ -162,13 +211,45 @@ create table promotions
     created_at          datetime2 default getdate(),
     created_by          int
         constraint promotions_users_id_fk
-            references users
+            references users,
+    version             bigint
+        constraint DF_promotions_version default 0 not null,
+    template_id         int
+        constraint promotions_promotions_template_id_fk
+            references promotions
 )
 go
 
+create unique index promotions_code_uindex
+    on promotions (code)
+go
+
+create index IX_promotions_template_id
+    on promotions (template_id)
+    where [template_id] IS NOT NULL
+go
+
+create table promotion_redemptions
+(
+    promotion_id int not null
+        constraint promotion_redemptions_promotions_id_fk
+            references promotions,
+    user_id      int not null
+        constraint promotion_redemptions_users_id_fk
+            references users,
+    usage_count  int not null,
+    constraint pk_promotion_redemptions
+        primary key (promotion_id, user_id)
+)
+go
+
+create sequence order_seq as int start with 1 increment by 50
+go
+
 create table orders
 (
-    id                       int identity
+    id                       int
+        constraint DF_order_id default (next value for order_seq) not null
         constraint pk_order
             primary key,
     created_by               int
@@ -204,10 +285,21 @@ create table orders
     subtotal                 decimal(18, 2),
     shipping_fee             decimal(18, 2) default 0,
     final_total              decimal(18, 2),
-    vat                      decimal(18, 2)
+    vat                      decimal(18, 2),
+    reservation_expires_at   datetime,
+    stock_shortage           bit
+        constraint DF_order_stock_shortage default 0 not null,
+    flash_sale_ticket_id     varchar(36),
+    version                  bigint
+        constraint DF_order_version default 0 not null
 )
 go
 
+create unique index UX_orders_flash_sale_ticket_id
+    on orders (flash_sale_ticket_id)
+    where [flash_sale_ticket_id] IS NOT NULL
+go
+
 create table refresh_tokens
 (
     id          int identity
@@ -260,13 +352,25 @@ create table stocks
             on update cascade,
     quantity   int
         constraint DF_stock_quantity default 0 not null,
-    price      decimal(18, 2)                  not null
+    price      decimal(18, 2)                  not null,
+    is_flash_sale bit
+        constraint DF_stock_is_flash_sale default 0,
+    version    bigint
+        constraint DF_stock_version default 0 not null
 )
 go
 
+create index IX_stocks_product_price
+    on stocks (product_id, price)
+go
+
+create sequence cart_item_seq as int start with 1 increment by 50
+go
+
 create table cart_items
 (
-    id           int identity
+    id           int
+        constraint DF_cartitem_id default (next value for cart_item_seq) not null
         constraint pk_cartitem
             primary key,
     user_id      int not null
@@ -283,9 +387,13 @@ create table cart_items
 )
 go
 
+create sequence order_detail_seq as int start with 1 increment by 50
+go
+
 create table order_details
 (
-    id           int identity
+    id           int
+        constraint DF_orderdetail_id default (next value for order_detail_seq) not null
         constraint pk_orderdetail
             primary key,
     order_id     int            not null
@@ -311,6 +419,31 @@ create table order_details
 )
 go
 
+create table outbox_events
+(
+    id             bigint identity
+        constraint pk_outbox_events
+            primary key,
+    aggregate_type varchar(55)   not null,
+    aggregate_id   varchar(255)  not null,
+    topic          varchar(100)  not null,
+    payload        nvarchar(max) not null,
+    created_at     datetime
+        constraint DF_outbox_event_created_at default getdate(),
+    published_at   datetime
+)
+go
+
+create index IX_outbox_events_unpublished
+    on outbox_events (id)
+    where [published_at] IS NULL
+go
+
+create index IX_outbox_events_published_at
+    on outbox_events (published_at)
+    where [published_at] IS NOT NULL
+go
+
 create table product_photos
 (
     id        int identity
@@ -324,6 +457,70 @@ create table product_photos
 )
 go
 
+create table product_sales_rollup
+(
+    product_id  int  not null
+        constraint FK_PRODUCT_SALES_ROLLUP_ON_PRODUCTID
+            references products
+            on delete cascade,
+    category_id int  not null,
+    sales_date  date not null,
+    quantity    int  not null,
+    constraint pk_product_sales_rollup
+        primary key (product_id, category_id, sales_date)
+)
+go
+
+create index IX_product_sales_rollup_category_date
+    on product_sales_rollup (category_id, sales_date) include (product_id, quantity)
+go
+
+create table order_daily_stats
+(
+    stats_date    date           not null,
+    status        varchar(55)    not null,
+    order_count   int            not null,
+    revenue       decimal(18, 2) not null,
+    products_sold int            not null,
+    constraint pk_order_daily_stats
+        primary key (stats_date, status)
+)
+go
+
+create table category_daily_sales
+(
+    stats_date  date        not null,
+    status      varchar(55) not null,
+    category_id int         not null,
+    quantity    int         not null,
+    constraint pk_category_daily_sales
+        primary key (stats_date, status, category_id)
+)
+go
+
+create table color_daily_sales
+(
+    stats_date date        not null,
+    status     varchar(55) not null,
+    color_id   int         not null,
+    quantity   int         not null,
+    constraint pk_color_daily_sales
+        primary key (stats_date, status, color_id)
+)
+go
+
+create table customer_daily_stats
+(
+    stats_date  date           not null,
+    status      varchar(55)    not null,
+    user_id     int            not null,
+    order_count int            not null,
+    total_spent decimal(18, 2) not null,
+    constraint pk_customer_daily_stats
+        primary key (stats_date, status, user_id)
+)
+go
+
 create table reviews
 (
     id            int identity
@@ -5,10 +5,12 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.context.annotation.Import;
 import com.web.appleshop.testutil.TestConfig;
+import org.testcontainers.junit.jupiter.Testcontainers;
 
 @SpringBootTest
 @ActiveProfiles("test")
 @Import(TestConfig.class)
+@Testcontainers(disabledWithoutDocker = true)
 class AppleShopApplicationTests {
 
     @Test
@@ -0,0 +1,242 @@
+package com.web.appleshop.controller;
+
+import com.web.appleshop.entity.CartItem;
+import com.web.appleshop.entity.Category;
+import com.web.appleshop.entity.Color;
+import com.web.appleshop.entity.InstanceProperty;
+import com.web.appleshop.entity.Product;
+import com.web.appleshop.entity.ProductPhoto;
+import com.web.appleshop.entity.Stock;
+import com.web.appleshop.entity.User;
+import com.web.appleshop.repository.CartItemRepository;
+import com.web.appleshop.repository.RoleRepository;
+import com.web.appleshop.repository.StockRepository;
+import com.web.appleshop.testutil.QueryCounter;
+import com.web.appleshop.testutil.TestConfig;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Kiểm tra hồi quy N+1: số câu lệnh SQL của mỗi endpoint không được tăng theo số sản phẩm trong trang,
+ * số phiên bản của một sản phẩm hay số dòng trong giỏ hàng.
+ * <p>
+ * Dữ liệu được tạo một lần cho cả lớp; mỗi cặp so sánh chỉ khác nhau ở kích thước (một so với nhiều).
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(TestConfig.class)
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class EndpointQueryCountTests {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    private QueryCounter queryCounter;
+    private User admin;
+    private Category oneProductCategory;
+    private Category fourProductCategory;
+    private Product oneStockProduct;
+    private Product threeStockProduct;
+    private User oneLineCustomer;
+    private User threeLineCustomer;
+
+    @BeforeAll
+    void setUpCatalog() {
+        queryCounter = new QueryCounter(entityManagerFactory);
+        transactionTemplate.executeWithoutResult(status -> {
+            admin = persistUser("admin@example.com", "0900000001", "ROLE_ADMIN");
+
+            oneProductCategory = persistCategory("iPad");
+            oneStockProduct = persistProduct(oneProductCategory, "iPad Air", 1);
+
+            fourProductCategory = persistCategory("iPhone");
+            threeStockProduct = persistProduct(fourProductCategory, "iPhone 16", 3);
+            List<Product> cartProducts = List.of(
+                    persistProduct(fourProductCategory, "iPhone 16 Plus", 1),
+                    persistProduct(fourProductCategory, "iPhone 16 Pro", 1),
+                    persistProduct(fourProductCategory, "iPhone 16 Pro Max", 1)
+            );
+
+            oneLineCustomer = persistUser("one-line@example.com", "0900000002", "ROLE_USER");
+            persistCartItem(oneLineCustomer, oneStockProduct);
+            threeLineCustomer = persistUser("three-lines@example.com", "0900000003", "ROLE_USER");
+            cartProducts.forEach(product -> persistCartItem(threeLineCustomer, product));
+        });
+    }
+
+    @Test
+    void categoryListingDoesNotGrowWithPageSize() throws Exception {
+        QueryCounter.Counts small = queryCounter.count(() -> mockMvc.perform(get("/products/{categoryId}", oneProductCategory.getId()))
+                .andExpect(status().isOk()));
+        QueryCounter.Counts large = queryCounter.count(() -> mockMvc.perform(get("/products/{categoryId}", fourProductCategory.getId()))
+                .andExpect(status().isOk()));
+
+        assertThat(large.statements()).isEqualTo(small.statements());
+    }
+
+    @Test
+    void productDetailDoesNotGrowWithStockCount() throws Exception {
+        QueryCounter.Counts small = queryCounter.count(() -> mockMvc.perform(get("/products/{categoryId}/{productId}", oneProductCategory.getId(), oneStockProduct.getId()))
+                .andExpect(status().isOk()));
+        QueryCounter.Counts large = queryCounter.count(() -> mockMvc.perform(get("/products/{categoryId}/{productId}", fourProductCategory.getId(), threeStockProduct.getId()))
+                .andExpect(status().isOk()));
+
+        assertThat(large.statements()).isEqualTo(small.statements());
+    }
+
+    @Test
+    void adminProductEditDoesNotGrowWithStockCount() throws Exception {
+        QueryCounter.Counts small = queryCounter.count(() -> mockMvc.perform(get("/admin/products/{productId}", oneStockProduct.getId()).with(user(admin)))
+                .andExpect(status().isOk()));
+        QueryCounter.Counts large = queryCounter.count(() -> mockMvc.perform(get("/admin/products/{productId}", threeStockProduct.getId()).with(user(admin)))
+                .andExpect(status().isOk()));
+
+        assertThat(large.statements()).isEqualTo(small.statements());
+    }
+
+    @Test
+    void checkoutReadsDoNotGrowWithCartSize() throws Exception {
+        QueryCounter.Counts small = queryCounter.count(() -> readCheckoutItems(oneLineCustomer));
+        QueryCounter.Counts large = queryCounter.count(() -> readCheckoutItems(threeLineCustomer));
+
+        assertThat(large.reads()).isEqualTo(small.reads());
+        assertThat(large.entityFetches()).isZero();
+        assertThat(large.collectionFetches()).isZero();
+    }
+
+    /**
+     * Đọc giỏ hàng như bước thanh toán của OrderServiceImpl rồi dùng mọi dữ liệu cần để tạo chi tiết đơn hàng.
+     */
+    private void readCheckoutItems(User customer) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<CartItem> cartItems = cartItemRepository.findCheckoutItemsByUserId(customer.getId());
+            stockRepository.findStocksWithPhotosByIdIn(cartItems.stream().map(cartItem -> cartItem.getStock().getId()).toList());
+            for (CartItem cartItem : cartItems) {
+                assertThat(cartItem.getProduct().getName()).isNotNull();
+                assertThat(cartItem.getStock().getColor().getName()).isNotNull();
+                assertThat(cartItem.getStock().getInstanceProperties()).hasSize(1);
+                assertThat(cartItem.getStock().getProductPhotos()).hasSize(1);
+            }
+        });
+    }
+
+    private User persistUser(String email, String phone, String roleName) {
+        // Vai trò là dữ liệu có sẵn (TestConfig), tra theo tên như khi đăng ký tài khoản.
+        User user = User.builder()
+                .email(email)
+                .phone(phone)
+                .password("password")
+                .firstName("Test")
+                .lastName("User")
+                .birth(LocalDate.of(2000, 1, 1))
+                .enabled(true)
+                .roles(roleRepository.findRoleByName(roleName))
+                .build();
+        entityManager.persist(user);
+        return user;
+    }
+
+    private Category persistCategory(String name) {
+        Category category = new Category();
+        category.setName(name);
+        entityManager.persist(category);
+        return category;
+    }
+
+    /**
+     * Mỗi phiên bản có màu, ảnh và thuộc tính riêng, để lazy load theo từng dòng hiện ra thành câu lệnh riêng.
+     */
+    private Product persistProduct(Category category, String name, int stockCount) {
+        Product product = new Product();
+        product.setName(name);
+        product.setDescription(name);
+        product.setCategory(category);
+        product.setCreatedBy(admin);
+        product.setUpdatedBy(admin);
+        product.setCreatedAt(LocalDateTime.now());
+        product.setUpdatedAt(LocalDateTime.now());
+        product.setIsDeleted(false);
+        entityManager.persist(product);
+
+        for (int i = 1; i <= stockCount; i++) {
+            String variant = name + " #" + i;
+            Color color = new Color();
+            color.setName(variant);
+            color.setHexCode("#000000");
+            entityManager.persist(color);
+
+            InstanceProperty instanceProperty = new InstanceProperty();
+            instanceProperty.setName(variant);
+            instanceProperty.setCreatedAt(LocalDateTime.now());
+            instanceProperty.setCreatedBy(admin);
+            entityManager.persist(instanceProperty);
+
+            Stock stock = new Stock();
+            stock.setProduct(product);
+            stock.setColor(color);
+            stock.setQuantity(10);
+            stock.setPrice(BigDecimal.valueOf(1_000_000L * i));
+            stock.setIsFlashSale(false);
+            stock.getInstanceProperties().add(instanceProperty);
+            entityManager.persist(stock);
+            product.getStocks().add(stock);
+
+            ProductPhoto photo = new ProductPhoto();
+            photo.setStock(stock);
+            photo.setImageUrl("https://example.com/" + variant.replace(' ', '-') + ".png");
+            entityManager.persist(photo);
+            stock.getProductPhotos().add(photo);
+        }
+        return product;
+    }
+
+    private void persistCartItem(User customer, Product product) {
+        CartItem cartItem = new CartItem();
+        cartItem.setUser(customer);
+        cartItem.setProduct(product);
+        cartItem.setProductName(product.getName());
+        cartItem.setStock(product.getStocks().iterator().next());
+        cartItem.setQuantity(1);
+        entityManager.persist(cartItem);
+    }
+}
@@ -0,0 +1,77 @@
+package com.web.appleshop.repository;
+
+import com.web.appleshop.repository.OrderDailyStatsRepositoryCustom.StatisticsPeriod;
+import com.web.appleshop.repository.OrderDailyStatsRepositoryCustom.TimeRange;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatisticsPeriodTests {
+    private static final LocalDate TODAY = LocalDate.of(2026, 10, 18);
+
+    @Test
+    void partialFirstAndLastDaysAreReadFromRawRows() {
+        StatisticsPeriod period = StatisticsPeriod.of(
+                LocalDateTime.of(2026, 10, 1, 10, 0),
+                LocalDateTime.of(2026, 10, 5, 15, 30),
+                TODAY);
+
+        assertThat(period.rollupFrom()).isEqualTo(LocalDate.of(2026, 10, 2));
+        assertThat(period.rollupTo()).isEqualTo(LocalDate.of(2026, 10, 4));
+        assertThat(period.rawRanges()).containsExactly(
+                new TimeRange(LocalDateTime.of(2026, 10, 1, 10, 0), LocalDateTime.of(2026, 10, 2, 0, 0)),
+                new TimeRange(LocalDateTime.of(2026, 10, 5, 0, 0), LocalDateTime.of(2026, 10, 5, 15, 30, 1)));
+    }
+
+    @Test
+    void wholeDaysAreReadFromRollupOnly() {
+        StatisticsPeriod period = StatisticsPeriod.of(
+                LocalDateTime.of(2026, 10, 1, 0, 0),
+                LocalDateTime.of(2026, 10, 3, 23, 59, 59),
+                TODAY);
+
+        assertThat(period.rollupFrom()).isEqualTo(LocalDate.of(2026, 10, 1));
+        assertThat(period.rollupTo()).isEqualTo(LocalDate.of(2026, 10, 3));
+        assertThat(period.rawRanges()).isEmpty();
+    }
+
+    @Test
+    void todayIsNeverReadFromRollup() {
+        StatisticsPeriod period = StatisticsPeriod.of(
+                LocalDateTime.of(2026, 10, 10, 0, 0),
+                LocalDateTime.of(2026, 10, 18, 12, 0),
+                TODAY);
+
+        assertThat(period.rollupFrom()).isEqualTo(LocalDate.of(2026, 10, 10));
+        assertThat(period.rollupTo()).isEqualTo(LocalDate.of(2026, 10, 17));
+        assertThat(period.rawRanges()).containsExactly(
+                new TimeRange(LocalDateTime.of(2026, 10, 18, 0, 0), LocalDateTime.of(2026, 10, 18, 12, 0, 1)));
+    }
+
+    @Test
+    void rangeWithinTodayIsReadFromRawRowsOnly() {
+        StatisticsPeriod period = StatisticsPeriod.of(
+                LocalDateTime.of(2026, 10, 18, 8, 0),
+                LocalDateTime.of(2026, 10, 18, 9, 0),
+                TODAY);
+
+        assertThat(period.hasRollup()).isFalse();
+        assertThat(period.rawRanges()).containsExactly(
+                new TimeRange(LocalDateTime.of(2026, 10, 18, 8, 0), LocalDateTime.of(2026, 10, 18, 9, 0, 1)));
+    }
+
+    @Test
+    void rangeEndingBeforeItStartsIsEmpty() {
+        StatisticsPeriod period = StatisticsPeriod.of(
+                LocalDateTime.of(2026, 10, 5, 0, 0),
+                LocalDateTime.of(2026, 10, 1, 0, 0),
+                TODAY);
+
+        assertThat(period.isEmpty()).isTrue();
+        assertThat(period.hasRollup()).isFalse();
+        assertThat(period.rawRanges()).isEmpty();
+    }
+}
@@ -0,0 +1,200 @@
+package com.web.appleshop.service;
+
+import com.web.appleshop.dto.request.UserProductSearchCriteria;
+import com.web.appleshop.dto.response.ProductFacetResponse;
+import com.web.appleshop.dto.response.ProductFacetResponse.FacetValue;
+import com.web.appleshop.dto.response.ProductFacetResponse.PriceBucket;
+import com.web.appleshop.exception.IllegalStateException;
+import com.web.appleshop.repository.CategoryRepository;
+import com.web.appleshop.repository.ColorRepository;
+import com.web.appleshop.repository.FeatureRepository;
+import com.web.appleshop.repository.InstancePropertyRepository;
+import com.web.appleshop.repository.ProductRepository;
+import com.web.appleshop.repository.ProductRepositoryCustom.ProductFacetRow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CatalogFacetIndexTests {
+    private static final BigDecimal[] PRICE_BOUNDS = {price(10), price(20)};
+
+    private CatalogFacetIndex.State state;
+
+    @BeforeEach
+    void setUp() {
+        state = new CatalogFacetIndex.State(PRICE_BOUNDS);
+        state.names = new CatalogFacetIndex.Names(
+                Map.of(1, "Điện thoại", 2, "Máy tính bảng"),
+                Map.of(10, "Face ID", 11, "Touch ID"),
+                Map.of(100, "Xanh dương", 101, "Đen"),
+                Map.of());
+        state.put(row(1, 1, false, true, List.of(price(5), price(30)), 2, 4.5, Set.of(10), Set.of(100)));
+        state.put(row(2, 1, false, false, List.of(price(12)), 0, null, Set.of(11), Set.of(101)));
+        state.put(row(3, 2, false, true, List.of(price(15), price(18)), 1, 3.0, Set.of(10), Set.of(100)));
+        state.put(row(4, 1, true, true, List.of(price(12)), 0, null, Set.of(10), Set.of(100)));
+    }
+
+    @Test
+    void facetCountsIgnoreTheFilterOfTheirOwnGroup() {
+        UserProductSearchCriteria criteria = new UserProductSearchCriteria();
+        criteria.setCategoryId(Set.of(1));
+
+        ProductFacetResponse response = state.search(criteria, null);
+
+        assertThat(response.getTotalProducts()).isEqualTo(2);
+        assertThat(response.getCategories()).extracting(FacetValue::getId, FacetValue::getCount)
+                .containsExactly(tuple(1, 2), tuple(2, 1));
+        assertThat(response.getFeatures()).extracting(FacetValue::getId, FacetValue::getCount)
+                .containsExactly(tuple(10, 1), tuple(11, 1));
+    }
+
+    @Test
+    void totalMatchesTheIntersectionOfAllFilters() {
+        UserProductSearchCriteria criteria = new UserProductSearchCriteria();
+        criteria.setCategoryId(Set.of(1));
+        criteria.setFeatureIds(Set.of(10));
+
+        ProductFacetResponse response = state.search(criteria, null);
+
+        assertThat(response.getTotalProducts()).isEqualTo(1);
+        // Every facet value count equals the total of the same search with that value selected.
+        for (FacetValue color : response.getColors()) {
+            UserProductSearchCriteria withColor = new UserProductSearchCriteria();
+            withColor.setCategoryId(Set.of(1));
+            withColor.setFeatureIds(Set.of(10));
+            withColor.setColorIds(Set.of(color.getId()));
+            assertThat(state.search(withColor, null).getTotalProducts()).isEqualTo(color.getCount());
+        }
+    }
+
+    @Test
+    void namesMatchAccentInsensitiveSubstrings() {
+        UserProductSearchCriteria criteria = new UserProductSearchCriteria();
+        criteria.setColorNames(Set.of("duong"));
+
+        assertThat(state.search(criteria, null).getTotalProducts()).isEqualTo(2);
+    }
+
+    @Test
+    void priceFilterRequiresAStockPricedWithinTheRange() {
+        UserProductSearchCriteria criteria = new UserProductSearchCriteria();
+        criteria.setMinPrice(price(10));
+        criteria.setMaxPrice(price(20));
+
+        // Product 1 spans the range (5M and 30M) but has no stock inside it.
+        assertThat(state.search(criteria, null).getTotalProducts()).isEqualTo(2);
+    }
+
+    @Test
+    void priceBucketsCountProductsWithAStockInTheBucket() {
+        ProductFacetResponse response = state.search(new UserProductSearchCriteria(), null);
+
+        assertThat(response.getPriceBuckets()).extracting(PriceBucket::getCount)
+                .containsExactly(1, 2, 1);
+    }
+
+    @Test
+    void reviewFiltersUseReviewCountAndAverageRating() {
+        UserProductSearchCriteria reviewed = new UserProductSearchCriteria();
+        reviewed.setHasReviews(true);
+        UserProductSearchCriteria notReviewed = new UserProductSearchCriteria();
+        notReviewed.setHasReviews(false);
+        UserProductSearchCriteria highRated = new UserProductSearchCriteria();
+        highRated.setMinRating(4.0);
+        UserProductSearchCriteria lowRated = new UserProductSearchCriteria();
+        lowRated.setMaxRating(3.5);
+
+        assertThat(state.search(reviewed, null).getTotalProducts()).isEqualTo(2);
+        assertThat(state.search(notReviewed, null).getTotalProducts()).isEqualTo(1);
+        assertThat(state.search(highRated, null).getTotalProducts()).isEqualTo(1);
+        assertThat(state.search(lowRated, null).getTotalProducts()).isEqualTo(1);
+    }
+
+    @Test
+    void candidateIdsRestrictTheSearch() {
+        ProductFacetResponse response = state.search(new UserProductSearchCriteria(), List.of(2, 3, 4, 99));
+
+        assertThat(response.getTotalProducts()).isEqualTo(2);
+    }
+
+    @Test
+    void putAndRemoveReplaceTheProductInEveryFacet() {
+        state.put(row(2, 2, false, true, List.of(price(25)), 0, null, Set.of(10), Set.of(100)));
+        state.remove(3);
+
+        UserProductSearchCriteria criteria = new UserProductSearchCriteria();
+        criteria.setCategoryId(Set.of(2));
+        ProductFacetResponse response = state.search(criteria, null);
+
+        assertThat(response.getTotalProducts()).isEqualTo(1);
+        assertThat(response.getFeatures()).extracting(FacetValue::getId).containsExactly(10);
+        assertThat(response.getPriceBuckets()).extracting(PriceBucket::getCount).containsExactly(0, 0, 1);
+    }
+
+    @Test
+    void searchBeforeTheFirstBuildIsRejected() {
+        CatalogFacetIndex index = index(mock(ProductRepository.class));
+
+        assertThatThrownBy(() -> index.search(new UserProductSearchCriteria(), null))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void refreshReceivedDuringRebuildIsAppliedToTheRebuiltIndex() {
+        ProductRepository productRepository = mock(ProductRepository.class);
+        CatalogFacetIndex index = index(productRepository);
+        ProductFacetRow stale = row(2, 1, false, false, List.of(price(12)), 0, null, Set.of(), Set.of());
+        ProductFacetRow fresh = row(2, 1, false, true, List.of(price(12)), 0, null, Set.of(), Set.of());
+        when(productRepository.findFacetRowsByProductIds(any())).thenReturn(List.of(fresh));
+        when(productRepository.findAllFacetRows()).thenAnswer(invocation -> {
+            // Another node commits product 2 while the full snapshot is being read.
+            index.onMessage(new DefaultMessage("catalog-index:refresh".getBytes(StandardCharsets.UTF_8), "2".getBytes(StandardCharsets.UTF_8)), null);
+            return List.of(stale);
+        });
+
+        index.rebuild();
+
+        UserProductSearchCriteria criteria = new UserProductSearchCriteria();
+        criteria.setInStock(true);
+        assertThat(index.search(criteria, null).getTotalProducts()).isEqualTo(1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CatalogFacetIndex index(ProductRepository productRepository) {
+        return new CatalogFacetIndex(
+                productRepository,
+                mock(CategoryRepository.class),
+                mock(FeatureRepository.class),
+                mock(ColorRepository.class),
+                mock(InstancePropertyRepository.class),
+                mock(RedisTemplate.class),
+                mock(RedisMessageListenerContainer.class),
+                List.of(PRICE_BOUNDS));
+    }
+
+    private static ProductFacetRow row(int productId, int categoryId, boolean deleted, boolean inStock, List<BigDecimal> prices,
+                                       int reviewCount, Double averageRating, Set<Integer> featureIds, Set<Integer> colorIds) {
+        return new ProductFacetRow(productId, categoryId, deleted, inStock,
+                prices.get(0), prices.get(prices.size() - 1), prices,
+                reviewCount, averageRating, featureIds, colorIds, Set.of());
+    }
+
+    private static BigDecimal price(int millions) {
+        return BigDecimal.valueOf(millions * 1_000_000L);
+    }
+}
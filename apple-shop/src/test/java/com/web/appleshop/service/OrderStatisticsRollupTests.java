@@ -0,0 +1,95 @@
+package com.web.appleshop.service;
+
+import com.web.appleshop.repository.OrderDailyStatsRepository;
+import com.web.appleshop.repository.OrderDailyStatsRepositoryCustom.StatisticsPeriod;
+import com.web.appleshop.repository.OrderDailyStatsRepositoryCustom.TimeRange;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderStatisticsRollupTests {
+    private static final String ROLLED_UP_THROUGH_KEY = "statistics:rolled-up-through";
+
+    private final LocalDate today = LocalDate.now(ZoneId.of("Asia/Ho_Chi_Minh"));
+    private OrderDailyStatsRepository orderDailyStatsRepository;
+    private ValueOperations<String, String> valueOperations;
+    private RedisLeaseLock redisLeaseLock;
+    private OrderStatisticsRollup rollup;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        orderDailyStatsRepository = mock(OrderDailyStatsRepository.class);
+        RedisTemplate<String, String> redisTemplate = mock(RedisTemplate.class);
+        valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        redisLeaseLock = mock(RedisLeaseLock.class);
+        rollup = new OrderStatisticsRollup(orderDailyStatsRepository, redisTemplate, redisLeaseLock, mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(rollup, "backfillDays", 7);
+    }
+
+    @Test
+    void backfillRebuildsClosedDaysOnlyAndRecordsTheLastOne() {
+        when(redisLeaseLock.tryAcquire(anyString(), any())).thenReturn(Optional.of("owner"));
+
+        rollup.backfill();
+
+        verify(orderDailyStatsRepository).rebuildDailyStats(today.minusDays(7), today.minusDays(1));
+        verify(valueOperations).set(ROLLED_UP_THROUGH_KEY, today.minusDays(1).toString());
+    }
+
+    @Test
+    void backfillIsSkippedWhenAnotherInstanceHoldsTheLease() {
+        when(redisLeaseLock.tryAcquire(anyString(), any())).thenReturn(Optional.empty());
+
+        rollup.backfill();
+
+        verify(orderDailyStatsRepository, never()).rebuildDailyStats(any(), any());
+        verify(valueOperations, never()).set(anyString(), anyString());
+    }
+
+    @Test
+    void rebuiltDaysAreReadFromRollupAndTodayFromOrders() {
+        when(valueOperations.get(ROLLED_UP_THROUGH_KEY)).thenReturn(today.minusDays(1).toString());
+
+        StatisticsPeriod period = rollup.statisticsPeriod(today.minusDays(30).atStartOfDay(), null);
+
+        assertThat(period.rollupFrom()).isEqualTo(today.minusDays(30));
+        assertThat(period.rollupTo()).isEqualTo(today.minusDays(1));
+        assertThat(period.rawRanges()).extracting(TimeRange::from).containsExactly(today.atStartOfDay());
+    }
+
+    @Test
+    void daysNotYetRebuiltAreReadFromOrders() {
+        // Lần dựng đêm qua chưa chạy: hôm qua vẫn phải đọc từ bảng gốc.
+        when(valueOperations.get(ROLLED_UP_THROUGH_KEY)).thenReturn(today.minusDays(2).toString());
+
+        StatisticsPeriod period = rollup.statisticsPeriod(today.minusDays(30).atStartOfDay(), null);
+
+        assertThat(period.rollupTo()).isEqualTo(today.minusDays(2));
+        assertThat(period.rawRanges()).extracting(TimeRange::from).containsExactly(today.minusDays(1).atStartOfDay());
+    }
+
+    @Test
+    void withoutARecordedBackfillTheWholeWindowIsReadFromOrders() {
+        StatisticsPeriod period = rollup.statisticsPeriod(today.minusDays(30).atStartOfDay(), null);
+
+        assertThat(period.rollupTo()).isEqualTo(today.minusDays(8));
+        assertThat(period.rawRanges()).extracting(TimeRange::from).containsExactly(today.minusDays(7).atStartOfDay());
+    }
+}
@@ -0,0 +1,206 @@
+package com.web.appleshop.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.web.appleshop.dto.request.UserProductSearchCriteria;
+import com.web.appleshop.dto.response.ProductUserResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+@Timeout(10)
+class ProductSearchResultCacheTests {
+    private ProductSearchResultCache cache;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        cache = new ProductSearchResultCache(new ObjectMapper(), mock(RedisTemplate.class), mock(RedisMessageListenerContainer.class));
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 60L);
+        ReflectionTestUtils.setField(cache, "maxEntries", 100);
+    }
+
+    @Test
+    void sameFilterInDifferentOrderHitsTheSameEntry() {
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Page<ProductUserResponse>> loader = countingLoader(loads);
+
+        cache.get(criteria(new LinkedHashSet<>(List.of(1, 2, 3))), PageRequest.of(0, 10), loader);
+        cache.get(criteria(new LinkedHashSet<>(List.of(3, 1, 2))), PageRequest.of(0, 10), loader);
+
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    void differentPageOrFilterIsLoadedSeparately() {
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Page<ProductUserResponse>> loader = countingLoader(loads);
+
+        cache.get(criteria(Set.of(1)), PageRequest.of(0, 10), loader);
+        cache.get(criteria(Set.of(1)), PageRequest.of(1, 10), loader);
+        cache.get(criteria(Set.of(2)), PageRequest.of(0, 10), loader);
+
+        assertThat(loads.get()).isEqualTo(3);
+    }
+
+    @Test
+    void invalidationFromAnotherNodeForcesReload() {
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Page<ProductUserResponse>> loader = countingLoader(loads);
+
+        cache.get(criteria(Set.of(1)), PageRequest.of(0, 10), loader);
+        cache.onMessage(new DefaultMessage("product-search-cache:invalidate".getBytes(StandardCharsets.UTF_8),
+                "1".getBytes(StandardCharsets.UTF_8)), null);
+        cache.get(criteria(Set.of(1)), PageRequest.of(0, 10), loader);
+
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void expiredEntryIsReloaded() {
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 0L);
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Page<ProductUserResponse>> loader = countingLoader(loads);
+
+        cache.get(criteria(Set.of(1)), PageRequest.of(0, 10), loader);
+        cache.get(criteria(Set.of(1)), PageRequest.of(0, 10), loader);
+
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void failedLoadIsNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThatThrownBy(() -> cache.get(criteria(Set.of(1)), PageRequest.of(0, 10), () -> {
+            loads.incrementAndGet();
+            throw new StackOverflowError("boom");
+        })).isInstanceOf(StackOverflowError.class);
+        cache.get(criteria(Set.of(1)), PageRequest.of(0, 10), countingLoader(loads));
+
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Page<ProductUserResponse> loaded = new PageImpl<>(List.of());
+
+        AtomicReference<Page<ProductUserResponse>> first = new AtomicReference<>();
+        Thread loader = new Thread(() -> first.set(cache.get(criteria(Set.of(1)), PageRequest.of(0, 10), () -> {
+            loads.incrementAndGet();
+            started.countDown();
+            awaitQuietly(release);
+            return loaded;
+        })));
+        loader.setDaemon(true);
+        loader.start();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        AtomicReference<Page<ProductUserResponse>> second = new AtomicReference<>();
+        Thread waiter = new Thread(() -> second.set(cache.get(criteria(Set.of(1)), PageRequest.of(0, 10), countingLoader(loads))));
+        waiter.setDaemon(true);
+        waiter.start();
+        awaitBlocked(waiter);
+        release.countDown();
+        loader.join(5000);
+        waiter.join(5000);
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(first.get()).isSameAs(loaded);
+        assertThat(second.get()).isSameAs(loaded);
+    }
+
+    @Test
+    void waitersReceiveErrorThrownByLoaderInsteadOfHanging() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Thread loader = new Thread(() -> {
+            try {
+                cache.get(criteria(Set.of(1)), PageRequest.of(0, 10), () -> {
+                    started.countDown();
+                    awaitQuietly(release);
+                    throw new OutOfMemoryError("boom");
+                });
+            } catch (OutOfMemoryError ignored) {
+                // Luồng nạp tự nhận lỗi của nó.
+            }
+        });
+        loader.setDaemon(true);
+        loader.start();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        AtomicReference<Throwable> waiterError = new AtomicReference<>();
+        Thread waiter = new Thread(() -> {
+            try {
+                cache.get(criteria(Set.of(1)), PageRequest.of(0, 10), () -> new PageImpl<>(List.of()));
+            } catch (Throwable e) {
+                waiterError.set(e);
+            }
+        });
+        waiter.setDaemon(true);
+        waiter.start();
+        awaitBlocked(waiter);
+        release.countDown();
+        loader.join(5000);
+        waiter.join(5000);
+
+        assertThat(waiter.isAlive()).isFalse();
+        assertThat(waiterError.get()).isInstanceOf(OutOfMemoryError.class);
+    }
+
+    private static UserProductSearchCriteria criteria(Set<Integer> colorIds) {
+        UserProductSearchCriteria criteria = new UserProductSearchCriteria();
+        criteria.setColorIds(colorIds);
+        return criteria;
+    }
+
+    private static Supplier<Page<ProductUserResponse>> countingLoader(AtomicInteger loads) {
+        return () -> {
+            loads.incrementAndGet();
+            return new PageImpl<>(List.of());
+        };
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Chờ đến khi luồng đã đỗ trên future đang nạp, để chắc chắn nó là luồng chờ chứ không tự nạp lại.
+     */
+    private static void awaitBlocked(Thread thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(thread.getState()).isEqualTo(Thread.State.WAITING);
+    }
+}
@@ -0,0 +1,116 @@
+package com.web.appleshop.service;
+
+import com.web.appleshop.dto.response.ProductSuggestionResponse;
+import com.web.appleshop.repository.CategoryRepository;
+import com.web.appleshop.repository.ColorRepository;
+import com.web.appleshop.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductSuggestIndexTests {
+    private ProductRepository productRepository;
+    private ProductSuggestIndex index;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        when(productRepository.getTotalSoldByProduct(any())).thenReturn(List.of(
+                sold(1, 50), sold(2, 100), sold(3, 5), sold(4, 20)));
+        when(productRepository.findSuggestionRows()).thenReturn(List.of(
+                product(1, "iPhone 15 Pro", 1),
+                product(2, "iPhone 15", 1),
+                product(3, "Ốp lưng iPhone", 2)));
+        index = new ProductSuggestIndex(productRepository, mock(CategoryRepository.class), mock(ColorRepository.class),
+                mock(RedisTemplate.class), mock(RedisMessageListenerContainer.class));
+        index.rebuild();
+    }
+
+    @Test
+    void suggestMatchesAnyWordPrefixBestSellerFirst() {
+        assertThat(ids("iph")).containsExactly(2, 1, 3);
+        assertThat(ids("pro")).containsExactly(1);
+        assertThat(ids("op lung")).containsExactly(3);
+        assertThat(ids("15 p")).containsExactly(1);
+    }
+
+    @Test
+    void suggestHonoursTheLimit() {
+        assertThat(index.suggest("iphone", 2)).extracting(ProductSuggestionResponse::getId).containsExactly(2, 1);
+    }
+
+    @Test
+    void refreshReplacesRenamedProductsAndDropsDeletedOnes() {
+        when(productRepository.findSuggestionRowsByIdIn(any())).thenReturn(List.of(product(1, "iPhone 16 Pro Max", 1)));
+
+        refresh("1,3");
+
+        assertThat(ids("15")).containsExactly(2);
+        assertThat(ids("16")).containsExactly(1);
+        assertThat(ids("max")).containsExactly(1);
+        assertThat(ids("op")).isEmpty();
+        assertThat(ids("iphone")).containsExactly(2, 1);
+    }
+
+    @Test
+    void refreshAddsNewProducts() {
+        when(productRepository.findSuggestionRowsByIdIn(any())).thenReturn(List.of(product(4, "AirPods Pro", 3)));
+
+        refresh("4");
+
+        assertThat(ids("air")).containsExactly(4);
+        assertThat(ids("pro")).containsExactly(1, 4);
+    }
+
+    @Test
+    void incrementalUpdatesMatchAFullRebuild() {
+        when(productRepository.findSuggestionRowsByIdIn(any())).thenReturn(List.of(
+                product(2, "iPhone 15 Plus", 1),
+                product(4, "AirPods Pro", 3)));
+        refresh("2,3,4");
+        List<String> queries = List.of("a", "i", "iphone 15", "p", "pro", "plus", "op", "15");
+        Map<String, List<Integer>> incremental = new HashMap<>();
+        queries.forEach(query -> incremental.put(query, ids(query)));
+
+        when(productRepository.findSuggestionRows()).thenReturn(List.of(
+                product(1, "iPhone 15 Pro", 1),
+                product(2, "iPhone 15 Plus", 1),
+                product(4, "AirPods Pro", 3)));
+        index.rebuild();
+
+        queries.forEach(query -> assertThat(ids(query)).as(query).isEqualTo(incremental.get(query)));
+    }
+
+    private List<Integer> ids(String query) {
+        return index.suggest(query, 10).stream().map(ProductSuggestionResponse::getId).toList();
+    }
+
+    private void refresh(String ids) {
+        index.onMessage(new DefaultMessage("product-suggest:refresh".getBytes(StandardCharsets.UTF_8), ids.getBytes(StandardCharsets.UTF_8)), null);
+    }
+
+    private static Map<String, Object> product(int id, String name, Integer categoryId) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", id);
+        row.put("name", name);
+        row.put("categoryId", categoryId);
+        return row;
+    }
+
+    private static Map<String, Object> sold(int productId, long totalSold) {
+        return Map.of("productId", productId, "totalSold", totalSold);
+    }
+}
@@ -0,0 +1,113 @@
+package com.web.appleshop.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.web.appleshop.dto.FlashSaleCheckoutMessage;
+import com.web.appleshop.entity.Order;
+import com.web.appleshop.entity.Stock;
+import com.web.appleshop.repository.OrderRepository;
+import com.web.appleshop.repository.StockRepository;
+import com.web.appleshop.service.OrderService;
+import com.web.appleshop.service.StockReservationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FlashSaleServiceImplTests {
+    private static final int STOCK_ID = 7;
+    private static final int USER_ID = 3;
+
+    private OrderRepository orderRepository;
+    private OrderService orderService;
+    private FlashSaleServiceImpl flashSaleService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        RedisTemplate<String, String> redisTemplate = mock(RedisTemplate.class);
+        when(redisTemplate.opsForHash()).thenReturn(mock(HashOperations.class));
+        StockRepository stockRepository = mock(StockRepository.class);
+        StockReservationService stockReservationService = mock(StockReservationService.class);
+        orderRepository = mock(OrderRepository.class);
+        orderService = mock(OrderService.class);
+
+        Stock stock = new Stock();
+        stock.setId(STOCK_ID);
+        stock.setQuantity(100);
+        when(stockRepository.findStockByIdIn(any())).thenReturn(Set.of(stock));
+        when(stockReservationService.getHeldQuantities(any())).thenReturn(Map.of());
+        when(orderService.createFlashSaleOrders(any())).thenAnswer(invocation -> {
+            List<FlashSaleCheckoutMessage> allocations = invocation.getArgument(0);
+            return allocations.stream().map(allocation -> order(allocation.getTicketId())).toList();
+        });
+
+        flashSaleService = new FlashSaleServiceImpl(mock(KafkaTemplate.class), redisTemplate, new ObjectMapper(),
+                stockRepository, orderRepository, stockReservationService, orderService);
+        ReflectionTestUtils.setField(flashSaleService, "ticketTtlMinutes", 30L);
+        ReflectionTestUtils.setField(flashSaleService, "maxQuantityPerUser", 2);
+    }
+
+    @Test
+    void ticketDeliveredTwiceInOneBatchCreatesOneOrder() {
+        flashSaleService.allocate(List.of(message("ticket-1", 1), message("ticket-1", 1)));
+
+        assertThat(allocatedTicketIds()).containsExactly("ticket-1");
+    }
+
+    @Test
+    void redeliveredTicketWithAnOrderIsNotAllocatedAgain() {
+        when(orderRepository.findOrdersByFlashSaleTicketIdIn(anyCollection())).thenReturn(List.of(order("ticket-1")));
+
+        flashSaleService.allocate(List.of(message("ticket-1", 1)));
+
+        verify(orderService, never()).createFlashSaleOrders(any());
+    }
+
+    @Test
+    void purchaseCapCountsExistingOrdersAndEarlierRequestsInTheBatch() {
+        when(orderRepository.sumFlashSaleQuantities(anyCollection(), anyCollection(), anyCollection()))
+                .thenReturn(List.<Object[]>of(new Object[]{USER_ID, STOCK_ID, 1L}));
+
+        flashSaleService.allocate(List.of(message("ticket-1", 1), message("ticket-2", 1)));
+
+        assertThat(allocatedTicketIds()).containsExactly("ticket-1");
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> allocatedTicketIds() {
+        ArgumentCaptor<List<FlashSaleCheckoutMessage>> captor = ArgumentCaptor.forClass(List.class);
+        verify(orderService).createFlashSaleOrders(captor.capture());
+        return captor.getValue().stream().map(FlashSaleCheckoutMessage::getTicketId).toList();
+    }
+
+    private static FlashSaleCheckoutMessage message(String ticketId, int quantity) {
+        return FlashSaleCheckoutMessage.builder()
+                .ticketId(ticketId)
+                .userId(USER_ID)
+                .stockId(STOCK_ID)
+                .quantity(quantity)
+                .build();
+    }
+
+    private static Order order(String ticketId) {
+        Order order = new Order();
+        order.setId(ticketId.hashCode());
+        order.setFlashSaleTicketId(ticketId);
+        return order;
+    }
+}
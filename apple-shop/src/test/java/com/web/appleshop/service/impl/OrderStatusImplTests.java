@@ -0,0 +1,160 @@
+package com.web.appleshop.service.impl;
+
+import com.web.appleshop.entity.Order;
+import com.web.appleshop.entity.OrderDetail;
+import com.web.appleshop.entity.Stock;
+import com.web.appleshop.enums.OrderStatus;
+import com.web.appleshop.exception.ConflictException;
+import com.web.appleshop.repository.OrderRepository;
+import com.web.appleshop.repository.StockRepository;
+import com.web.appleshop.service.BestSellerIndex;
+import com.web.appleshop.service.OptimisticLockRetryExecutor;
+import com.web.appleshop.service.OrderStatusManager;
+import com.web.appleshop.service.OutboxService;
+import com.web.appleshop.service.ProductDetailCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cập nhật trạng thái chạy lại toàn bộ khi xung đột phiên bản. Các ghi DB nằm trong transaction của lần thử nên bị
+ * rollback cùng nó; các thao tác ngoài DB (chốt giữ hàng trên Redis, làm mới cache) chỉ được đăng ký chạy sau commit,
+ * nên lần thử thất bại không để lại tác dụng phụ và lần thử thành công chỉ chạy chúng một lần.
+ */
+class OrderStatusImplTests {
+    private static final int ORDER_ID = 1;
+    private static final int STOCK_ID = 7;
+
+    private final CountingTransactionManager transactionManager = new CountingTransactionManager();
+    private OrderRepository orderRepository;
+    private StockRepository stockRepository;
+    private RedisTemplate<String, String> redisTemplate;
+    private BestSellerIndex bestSellerIndex;
+    private OutboxService outboxService;
+    private OrderStatusImpl orderStatusService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        orderRepository = mock(OrderRepository.class);
+        stockRepository = mock(StockRepository.class);
+        redisTemplate = mock(RedisTemplate.class);
+        bestSellerIndex = mock(BestSellerIndex.class);
+        outboxService = mock(OutboxService.class);
+
+        OrderStatusManager orderStatusManager = new OrderStatusManager();
+        ReflectionTestUtils.invokeMethod(orderStatusManager, "initializeTransitions");
+        OptimisticLockRetryExecutor retryExecutor = new OptimisticLockRetryExecutor(transactionManager, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(retryExecutor, "maxAttempts", 3);
+        ReflectionTestUtils.setField(retryExecutor, "initialBackoffMs", 0L);
+        ReflectionTestUtils.setField(retryExecutor, "maxBackoffMs", 0L);
+        StockReservationServiceImpl stockReservationService = new StockReservationServiceImpl(
+                redisTemplate, stockRepository, mock(ProductDetailCache.class)
+        );
+
+        orderStatusService = new OrderStatusImpl(orderRepository, orderStatusManager, stockReservationService,
+                retryExecutor, outboxService, bestSellerIndex);
+
+        // Mỗi lần thử đọc lại đơn hàng từ DB nên luôn nhận một bản mới.
+        when(orderRepository.findOrderById(ORDER_ID)).thenAnswer(invocation -> Optional.of(pendingOrder()));
+        when(stockRepository.decrementQuantities(any())).thenReturn(Set.of());
+    }
+
+    @Test
+    void retriedPaymentSettlesHoldOnlyOnce() {
+        when(orderRepository.save(any(Order.class)))
+                .thenThrow(new OptimisticLockingFailureException("version changed"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        Order order = orderStatusService.updateStatus(ORDER_ID, OrderStatus.PAID);
+
+        assertThat(order.getStatus()).isEqualTo(OrderStatus.PAID);
+        assertThat(transactionManager.rollbacks).isEqualTo(1);
+        assertThat(transactionManager.commits).isEqualTo(1);
+        // Trừ tồn kho chạy ở cả hai lần thử nhưng lần đầu đã rollback cùng transaction.
+        verify(stockRepository, times(2)).decrementQuantities(any());
+        // Chốt giữ hàng trên Redis chỉ chạy sau commit của lần thử thành công.
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), anyList(), any(Object[].class));
+    }
+
+    @Test
+    void exhaustedRetriesLeaveNoSideEffectsOutsideTheDatabase() {
+        when(orderRepository.save(any(Order.class))).thenThrow(new OptimisticLockingFailureException("version changed"));
+
+        assertThatThrownBy(() -> orderStatusService.updateStatus(ORDER_ID, OrderStatus.PAID))
+                .isInstanceOf(ConflictException.class);
+
+        assertThat(transactionManager.rollbacks).isEqualTo(3);
+        assertThat(transactionManager.commits).isEqualTo(0);
+        verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), any(Object[].class));
+    }
+
+    private static Order pendingOrder() {
+        Stock stock = new Stock();
+        stock.setId(STOCK_ID);
+
+        Order order = new Order();
+        order.setId(ORDER_ID);
+        order.setStatus(OrderStatus.PENDING_PAYMENT);
+        order.setCreatedAt(LocalDateTime.now());
+        order.setReservationExpiresAt(LocalDateTime.now().plusMinutes(15));
+
+        OrderDetail orderDetail = new OrderDetail();
+        orderDetail.setOrder(order);
+        orderDetail.setStock(stock);
+        orderDetail.setQuantity(2);
+        Set<OrderDetail> orderDetails = new LinkedHashSet<>();
+        orderDetails.add(orderDetail);
+        order.setOrderDetails(orderDetails);
+        return order;
+    }
+
+    /**
+     * Transaction giả: không có tài nguyên thật nhưng vẫn chạy các TransactionSynchronization như transaction JPA.
+     */
+    private static class CountingTransactionManager extends AbstractPlatformTransactionManager {
+        private int commits;
+        private int rollbacks;
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+            commits++;
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+            rollbacks++;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.web.appleshop.testutil;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+/**
+ * Đếm câu lệnh SQL mà Hibernate phát ra trong một thao tác, dựa trên Statistics API
+ * (cần {@code hibernate.generate_statistics=true}, đã bật trong profile test).
+ */
+public class QueryCounter {
+    private final Statistics statistics;
+
+    public QueryCounter(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    public Counts count(Action action) throws Exception {
+        statistics.clear();
+        action.run();
+        return new Counts(
+                statistics.getPrepareStatementCount(),
+                statistics.getQueryExecutionCount(),
+                statistics.getEntityFetchCount(),
+                statistics.getCollectionFetchCount()
+        );
+    }
+
+    @FunctionalInterface
+    public interface Action {
+        void run() throws Exception;
+    }
+
+    /**
+     * @param statements        số câu lệnh JDBC đã chuẩn bị, gồm cả ghi
+     * @param queries           số truy vấn JPQL, criteria và native đã chạy
+     * @param entityFetches     số lần nạp lười một entity bằng câu lệnh riêng
+     * @param collectionFetches số lần nạp lười một collection bằng câu lệnh riêng
+     */
+    public record Counts(long statements, long queries, long entityFetches, long collectionFetches) {
+        /**
+         * Số câu lệnh đọc: truy vấn tường minh cộng với các lần nạp lười.
+         */
+        public long reads() {
+            return queries + entityFetches + collectionFetches;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.web.appleshop.testutil;
+
+import com.web.appleshop.enums.Role;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.context.DynamicPropertyRegistrar;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.MSSQLServerContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Hạ tầng cho các test cần context đầy đủ: SQL Server và Redis chạy bằng Testcontainers, schema lấy từ
+ * {@code db/migration/update-schema.sql} cùng các vai trò mà ứng dụng tra theo tên. Kafka không được khởi động;
+ * {@link KafkaTemplate} chỉ kết nối khi gửi.
+ */
+@TestConfiguration(proxyBeanMethods = false)
+public class TestConfig {
+    private static final String SCHEMA_SCRIPT = "db/migration/update-schema.sql";
+
+    @Bean(destroyMethod = "stop")
+    public MSSQLServerContainer<?> sqlServerContainer() throws IOException, SQLException {
+        MSSQLServerContainer<?> container = new MSSQLServerContainer<>(DockerImageName.parse("mcr.microsoft.com/mssql/server:2022-latest"))
+                .acceptLicense();
+        container.start();
+        applySchema(container);
+        seedRoles(container);
+        return container;
+    }
+
+    @Bean(destroyMethod = "stop")
+    public GenericContainer<?> redisContainer() {
+        GenericContainer<?> container = new GenericContainer<>(DockerImageName.parse("redis:7-alpine"))
+                .withExposedPorts(6379);
+        container.start();
+        return container;
+    }
+
+    @Bean
+    public DynamicPropertyRegistrar containerProperties(MSSQLServerContainer<?> sqlServerContainer, GenericContainer<?> redisContainer) {
+        return registry -> {
+            registry.add("spring.datasource.url", sqlServerContainer::getJdbcUrl);
+            registry.add("spring.datasource.username", sqlServerContainer::getUsername);
+            registry.add("spring.datasource.password", sqlServerContainer::getPassword);
+            registry.add("spring.data.redis.host", redisContainer::getHost);
+            registry.add("spring.data.redis.port", () -> redisContainer.getMappedPort(6379));
+        };
+    }
+
+    @Bean
+    public KafkaTemplate<String, String> kafkaTemplate() {
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092",
+                ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                ProducerConfig.MAX_BLOCK_MS_CONFIG, 1000
+        )));
+    }
+
+    /**
+     * Chạy script schema theo từng batch phân tách bởi {@code go}. Bỏ qua các batch full-text vì image SQL Server
+     * chuẩn không cài Full-Text Search.
+     */
+    private static void applySchema(MSSQLServerContainer<?> container) throws IOException, SQLException {
+        String script = new ClassPathResource(SCHEMA_SCRIPT).getContentAsString(StandardCharsets.UTF_8);
+        try (Connection connection = container.createConnection(""); Statement statement = connection.createStatement()) {
+            for (String batch : script.split("(?im)^\\s*go\\s*$")) {
+                if (batch.isBlank() || batch.toLowerCase(Locale.ROOT).contains("fulltext")) {
+                    continue;
+                }
+                statement.execute(batch);
+            }
+        }
+    }
+
+    private static void seedRoles(MSSQLServerContainer<?> container) throws SQLException {
+        try (Connection connection = container.createConnection("");
+             PreparedStatement statement = connection.prepareStatement("insert into roles (name) values (?)")) {
+            for (Role role : Role.values()) {
+                statement.setString(1, role.name());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.web.appleshop.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchKeyUtilsTests {
+
+    @Test
+    void foldRemovesVietnameseAccents() {
+        assertThat(SearchKeyUtils.fold("Điện thoại")).isEqualTo("dien thoai");
+        assertThat(SearchKeyUtils.fold("Xanh dương")).isEqualTo("xanh duong");
+        assertThat(SearchKeyUtils.fold("Hồng Ánh Kim")).isEqualTo("hong anh kim");
+    }
+
+    @Test
+    void foldMapsBothCasesOfDStroke() {
+        assertThat(SearchKeyUtils.fold("đ")).isEqualTo("d");
+        assertThat(SearchKeyUtils.fold("Đen")).isEqualTo("den");
+    }
+
+    @Test
+    void foldHandlesDecomposedInput() {
+        // "dương" typed as base letters followed by combining horn marks
+        assertThat(SearchKeyUtils.fold("du\u031Bo\u031Bng")).isEqualTo("duong");
+    }
+
+    @Test
+    void foldCollapsesAndTrimsWhitespace() {
+        assertThat(SearchKeyUtils.fold("  iPhone \t 15\n Pro  ")).isEqualTo("iphone 15 pro");
+    }
+
+    @Test
+    void foldKeepsDigitsAndPunctuation() {
+        assertThat(SearchKeyUtils.fold("USB-C 2.0")).isEqualTo("usb-c 2.0");
+    }
+
+    @Test
+    void foldReturnsNullForNull() {
+        assertThat(SearchKeyUtils.fold(null)).isNull();
+    }
+
+    @Test
+    void foldedTermIsContainedInFoldedName() {
+        String key = SearchKeyUtils.fold("Xanh Dương Đậm");
+        assertThat(key).contains(SearchKeyUtils.fold("dương"));
+        assertThat(key).contains(SearchKeyUtils.fold("DAM"));
+    }
+
+    @Test
+    void toFullTextConditionBuildsPrefixTermsAndDropsSymbols() {
+        assertThat(SearchKeyUtils.toFullTextCondition("iphone 15\" *("))
+                .isEqualTo("\"iphone*\" AND \"15*\"");
+    }
+
+    @Test
+    void toFullTextConditionReturnsNullWithoutUsableTerms() {
+        assertThat(SearchKeyUtils.toFullTextCondition("\"*()")).isNull();
+        assertThat(SearchKeyUtils.toFullTextCondition(null)).isNull();
+    }
+}